@@ -22,15 +22,19 @@ import edu.cmu.tetrad.algcomparison.algorithm.Algorithm;
 import edu.cmu.tetrad.cli.util.AlgorithmCommonTask;
 import static edu.cmu.tetrad.cli.util.AlgorithmCommonTask.search;
 import static edu.cmu.tetrad.cli.util.AlgorithmCommonTask.writeOutJson;
+import static edu.cmu.tetrad.cli.util.AlgorithmCommonTask.writeOutMetricsJson;
 import static edu.cmu.tetrad.cli.util.AlgorithmCommonTask.writeOutTetradGraphJson;
 import edu.cmu.tetrad.cli.util.AppTool;
 import edu.cmu.tetrad.cli.util.Args;
 import edu.cmu.tetrad.cli.validation.DataValidation;
+import edu.cmu.tetrad.data.DataModel;
 import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.data.ICovarianceMatrix;
 import edu.cmu.tetrad.data.IKnowledge;
 import edu.cmu.tetrad.graph.Graph;
 import edu.cmu.tetrad.io.DataReader;
 import edu.cmu.tetrad.latest.LatestClient;
+import edu.cmu.tetrad.search.SearchMetrics;
 import edu.cmu.tetrad.util.Parameters;
 import java.io.BufferedOutputStream;
 import java.io.PrintStream;
@@ -64,6 +68,7 @@ public abstract class AbstractAlgorithmCli extends AbstractApplicationCli implem
     protected int numOfThreads;
     protected boolean isSerializeJson;
     protected boolean tetradGraphJson;
+    protected boolean metrics;
     protected Path dirOut;
     protected static String outputPrefix;
     protected boolean validationOutput;
@@ -123,15 +128,14 @@ public abstract class AbstractAlgorithmCli extends AbstractApplicationCli implem
         Set<String> excludedVariables = getExcludedVariables();
         preValidateData(excludedVariables);
 
-        DataSet dataSet = AlgorithmCommonTask.readInDataSet(excludedVariables, dataFile, getDataReader(dataFile, delimiter));
-        validateData(dataSet);
+        DataModel dataModel = readInData(excludedVariables);
 
         IKnowledge knowledge = AlgorithmCommonTask.readInPriorKnowledge(knowledgeFile);
 
         Path outputFile = Paths.get(dirOut.toString(), outputPrefix + ".txt");
         try (PrintStream writer = new PrintStream(new BufferedOutputStream(Files.newOutputStream(outputFile, StandardOpenOption.CREATE)))) {
             writer.println(heading);
-            writer.println(createRunInfo(excludedVariables, dataSet));
+            writer.println(createRunInfo(excludedVariables, dataModel));
 
             Algorithm algorithm = getAlgorithm(knowledge);
             Parameters parameters = getParameters();
@@ -139,7 +143,13 @@ public abstract class AbstractAlgorithmCli extends AbstractApplicationCli implem
                 parameters.set(ParamAttrs.PRINT_STREAM, writer);
             }
 
-            Graph graph = search(dataSet, algorithm, parameters);
+            if (metrics) {
+                SearchMetrics.reset();
+                SearchMetrics.setEnabled(true);
+                SearchMetrics.registerMBean();
+            }
+
+            Graph graph = search(dataModel, algorithm, parameters);
             writer.println();
             writer.println(graph.toString());
 
@@ -150,13 +160,30 @@ public abstract class AbstractAlgorithmCli extends AbstractApplicationCli implem
             if (tetradGraphJson) {
                 writeOutTetradGraphJson(graph, Paths.get(dirOut.toString(), outputPrefix + ".json"));
             }
+
+            if (metrics) {
+                writeOutMetricsJson(Paths.get(dirOut.toString(), outputPrefix + "_metrics.json"));
+            }
         } catch (Exception exception) {
             LOGGER.error("Run algorithm failed.", exception);
             System.exit(-128);
         }
     }
 
-    private String createRunInfo(Set<String> excludedVariables, DataSet dataSet) {
+    /**
+     * Read in the data and validate it.
+     *
+     * @param excludedVariables set of variables to exclude
+     * @return the data, or its sufficient statistics
+     */
+    protected DataModel readInData(Set<String> excludedVariables) {
+        DataSet dataSet = AlgorithmCommonTask.readInDataSet(excludedVariables, dataFile, getDataReader(dataFile, delimiter));
+        validateData(dataSet);
+
+        return dataSet;
+    }
+
+    private String createRunInfo(Set<String> excludedVariables, DataModel dataModel) {
         Formatter fmt = new Formatter();
 
         fmt.format("Runtime Parameters:%n");
@@ -167,8 +194,15 @@ public abstract class AbstractAlgorithmCli extends AbstractApplicationCli implem
         fmt.format("Dataset:%n");
         fmt.format("file = %s%n", dataFile.getFileName());
         fmt.format("delimiter = %s%n", Args.getDelimiterName(delimiter));
-        fmt.format("cases read in = %s%n", dataSet.getNumRows());
-        fmt.format("variables read in = %s%n", dataSet.getNumColumns());
+        if (dataModel instanceof ICovarianceMatrix) {
+            ICovarianceMatrix covariances = (ICovarianceMatrix) dataModel;
+            fmt.format("cases read in = %s%n", covariances.getSampleSize());
+            fmt.format("variables read in = %s%n", covariances.getDimension());
+        } else {
+            DataSet dataSet = (DataSet) dataModel;
+            fmt.format("cases read in = %s%n", dataSet.getNumRows());
+            fmt.format("variables read in = %s%n", dataSet.getNumColumns());
+        }
         fmt.format("%n");
 
         if (excludedVariableFile != null || knowledgeFile != null) {
@@ -200,7 +234,7 @@ public abstract class AbstractAlgorithmCli extends AbstractApplicationCli implem
         runDataValidations(getDataValidations(dataSet, dirOut, outputPrefix));
     }
 
-    private void runDataValidations(List<DataValidation> dataValidations) {
+    protected void runDataValidations(List<DataValidation> dataValidations) {
         boolean isValid = true;
         for (DataValidation dataValidation : dataValidations) {
             isValid = dataValidation.validate(System.err, verbose) && isValid;
@@ -229,6 +263,7 @@ public abstract class AbstractAlgorithmCli extends AbstractApplicationCli implem
         fmt.format("delimiter = %s%n", Args.getDelimiterName(delimiter));
         fmt.format("verbose = %s%n", verbose);
         fmt.format("thread = %s%n", numOfThreads);
+        fmt.format("metrics = %s%n", metrics);
         printParameterInfos(fmt);
 
         printValidationInfos(fmt);
@@ -265,6 +300,7 @@ public abstract class AbstractAlgorithmCli extends AbstractApplicationCli implem
         MAIN_OPTIONS.addOption(null, "thread", true, "Number of threads.");
         MAIN_OPTIONS.addOption(null, "json", false, "Create JSON output.");
         MAIN_OPTIONS.addOption(null, "tetrad-graph-json", false, "Create Tetrad Graph JSON output.");
+        MAIN_OPTIONS.addOption(null, "metrics", false, "Collect search metrics, publish them over JMX and write them out as JSON.");
         MAIN_OPTIONS.addOption("o", "out", true, "Output directory.");
         MAIN_OPTIONS.addOption(null, "output-prefix", true, "Prefix name for output files.");
         MAIN_OPTIONS.addOption(null, "no-validation-output", false, "No validation output files created.");
@@ -286,6 +322,7 @@ public abstract class AbstractAlgorithmCli extends AbstractApplicationCli implem
         numOfThreads = Args.getInteger(cmd.getOptionValue("thread", Integer.toString(Runtime.getRuntime().availableProcessors())));
         isSerializeJson = cmd.hasOption("json");
         tetradGraphJson = cmd.hasOption("tetrad-graph-json");
+        metrics = cmd.hasOption("metrics");
 
         dirOut = Args.getPathDir(cmd.getOptionValue("out", "."), false);
         outputPrefix = cmd.getOptionValue("output-prefix", String.format("%s_%s_%d", getAlgorithmType().getCmd(), dataFile.getFileName(), System.currentTimeMillis()));
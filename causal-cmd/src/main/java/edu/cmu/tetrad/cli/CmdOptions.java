@@ -56,6 +56,8 @@ public class CmdOptions {
     public static final String SKIP_NONZERO_VARIANCE = "skip-nonzero-variance";
     public static final String SKIP_CATEGORY_LIMIT = "skip-category-limit";
 
+    public static final String COVARIANCE_ONLY = "covariance-only";
+
     public static int getInt(String cmdOption, String paramAttr, CommandLine cmd) {
         ParamDescription paramDesc = PARAM_DESCRIPTIONS.get(paramAttr);
         String defaultValue = paramDesc.getDefaultValue().toString();
@@ -110,6 +112,8 @@ public class CmdOptions {
                 return "Skip check for zero variance variables.";
             case SKIP_CATEGORY_LIMIT:
                 return "Skip 'limit number of categories' check.";
+            case COVARIANCE_ONLY:
+                return "Compute the covariance matrix in a single pass over the data file without reading in the dataset. Memory use depends only on the number of variables.";
             default:
                 return "";
         }
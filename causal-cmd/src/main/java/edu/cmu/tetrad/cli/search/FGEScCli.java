@@ -25,11 +25,14 @@ import edu.cmu.tetrad.cli.AbstractAlgorithmCli;
 import edu.cmu.tetrad.cli.AlgorithmType;
 import edu.cmu.tetrad.cli.CmdOptions;
 import edu.cmu.tetrad.cli.ParamAttrs;
+import edu.cmu.tetrad.cli.util.AlgorithmCommonTask;
 import edu.cmu.tetrad.cli.validation.DataValidation;
 import edu.cmu.tetrad.cli.validation.NonZeroVariance;
 import edu.cmu.tetrad.cli.validation.TabularContinuousData;
 import edu.cmu.tetrad.cli.validation.UniqueVariableNames;
+import edu.cmu.tetrad.data.DataModel;
 import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.data.ICovarianceMatrix;
 import edu.cmu.tetrad.data.IKnowledge;
 import edu.cmu.tetrad.io.DataReader;
 import edu.cmu.tetrad.io.TabularContinuousDataReader;
@@ -60,6 +63,8 @@ public class FGEScCli extends AbstractAlgorithmCli {
     protected boolean skipUniqueVarName;
     protected boolean skipZeroVariance;
 
+    protected boolean covarianceOnly;
+
     public FGEScCli(String[] args) {
         super(args);
     }
@@ -75,6 +80,7 @@ public class FGEScCli extends AbstractAlgorithmCli {
         fmt.format("penalty discount = %f%n", penaltyDiscount);
         fmt.format("max degree = %d%n", maxDegree);
         fmt.format("faithfulness assumed = %s%n", faithfulnessAssumed);
+        fmt.format("covariance only = %s%n", covarianceOnly);
     }
 
     @Override
@@ -98,6 +104,37 @@ public class FGEScCli extends AbstractAlgorithmCli {
         return fges;
     }
 
+    /**
+     * With the covariance-only option, only the covariance matrix of the data
+     * is computed, in a single pass over the data file, and the search is run
+     * on that.
+     *
+     * @param excludedVariables set of variables to exclude
+     * @return
+     */
+    @Override
+    protected DataModel readInData(Set<String> excludedVariables) {
+        if (!covarianceOnly) {
+            return super.readInData(excludedVariables);
+        }
+
+        ICovarianceMatrix covariances = AlgorithmCommonTask.readInCovariance(excludedVariables, dataFile, delimiter);
+
+        List<DataValidation> validations = new LinkedList<>();
+        String outputDir = dirOut.toString();
+        if (!skipUniqueVarName) {
+            validations.add(new UniqueVariableNames(covariances.getVariableNames(),
+                    validationOutput ? Paths.get(outputDir, outputPrefix + "_duplicate_var_name.txt") : null));
+        }
+        if (!skipZeroVariance) {
+            validations.add(new NonZeroVariance(covariances,
+                    validationOutput ? Paths.get(outputDir, outputPrefix + "_zero_variance.txt") : null));
+        }
+        runDataValidations(validations);
+
+        return covariances;
+    }
+
     @Override
     public DataReader getDataReader(Path dataFile, char delimiter) {
         return new TabularContinuousDataReader(dataFile, delimiter);
@@ -128,6 +165,11 @@ public class FGEScCli extends AbstractAlgorithmCli {
 
     @Override
     public List<DataValidation> getPreDataValidations(Set<String> excludedVariables) {
+        if (covarianceOnly) {
+            // the file is checked as the covariance matrix is computed
+            return Collections.EMPTY_LIST;
+        }
+
         DataValidation dataValidation = new TabularContinuousData(excludedVariables, dataFile, delimiter);
 
         return Collections.singletonList(dataValidation);
@@ -144,6 +186,7 @@ public class FGEScCli extends AbstractAlgorithmCli {
         faithfulnessAssumed = cmd.hasOption(CmdOptions.FAITHFULNESS_ASSUMED);
         skipUniqueVarName = cmd.hasOption(CmdOptions.SKIP_UNIQUE_VAR_NAME);
         skipZeroVariance = cmd.hasOption(CmdOptions.SKIP_NONZERO_VARIANCE);
+        covarianceOnly = cmd.hasOption(CmdOptions.COVARIANCE_ONLY);
     }
 
     @Override
@@ -159,6 +202,7 @@ public class FGEScCli extends AbstractAlgorithmCli {
         options.add(new Option(null, CmdOptions.FAITHFULNESS_ASSUMED, false, CmdOptions.getDescription(CmdOptions.FAITHFULNESS_ASSUMED)));
         options.add(new Option(null, CmdOptions.SKIP_UNIQUE_VAR_NAME, false, CmdOptions.getDescription(CmdOptions.SKIP_UNIQUE_VAR_NAME)));
         options.add(new Option(null, CmdOptions.SKIP_NONZERO_VARIANCE, false, CmdOptions.getDescription(CmdOptions.SKIP_NONZERO_VARIANCE)));
+        options.add(new Option(null, CmdOptions.COVARIANCE_ONLY, false, CmdOptions.getDescription(CmdOptions.COVARIANCE_ONLY)));
 
         return options;
     }
@@ -22,10 +22,14 @@ import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import edu.cmu.tetrad.algcomparison.algorithm.Algorithm;
 import edu.cmu.tetrad.cli.data.IKnowledgeFactory;
+import edu.cmu.tetrad.data.DataModel;
 import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.data.ICovarianceMatrix;
 import edu.cmu.tetrad.data.IKnowledge;
 import edu.cmu.tetrad.graph.Graph;
 import edu.cmu.tetrad.io.DataReader;
+import edu.cmu.tetrad.io.TabularContinuousCovarianceReader;
+import edu.cmu.tetrad.search.SearchMetrics;
 import edu.cmu.tetrad.util.Parameters;
 import java.io.BufferedOutputStream;
 import java.io.IOException;
@@ -88,10 +92,23 @@ public class AlgorithmCommonTask {
         logEndTask(task);
     }
 
-    public static Graph search(DataSet dataSet, Algorithm algorithm, Parameters parameters) {
+    public static void writeOutMetricsJson(Path outputFile) {
+        String fileName = outputFile.getFileName().toString();
+        String task = "writing out metrics Json file " + fileName;
+        logStartTask(task);
+        try (PrintStream metricsWriter = new PrintStream(new BufferedOutputStream(Files.newOutputStream(outputFile, StandardOpenOption.CREATE)))) {
+            Gson gson = new GsonBuilder().setPrettyPrinting().create();
+            metricsWriter.print(gson.toJson(SearchMetrics.getValues()));
+        } catch (Exception exception) {
+            logFailedTask(task, exception);
+        }
+        logEndTask(task);
+    }
+
+    public static Graph search(DataModel dataModel, Algorithm algorithm, Parameters parameters) {
         String task = "running algorithm " + algorithm.getDescription();
         logStartTask(task);
-        Graph graph = algorithm.search(dataSet, parameters);
+        Graph graph = algorithm.search(dataModel, parameters);
         logEndTask(task);
 
         return graph;
@@ -131,6 +148,22 @@ public class AlgorithmCommonTask {
         return dataSet;
     }
 
+    public static ICovarianceMatrix readInCovariance(Set<String> excludedVariables, Path dataFile, char delimiter) {
+        ICovarianceMatrix covariances = null;
+
+        String task = "computing covariance matrix from data file " + dataFile.getFileName();
+        logStartTask(task);
+        try {
+            covariances = new TabularContinuousCovarianceReader(dataFile, delimiter).readInCovariance(excludedVariables);
+        } catch (IOException exception) {
+            logFailedTask(task, exception);
+            System.exit(-127);
+        }
+        logEndTask(task);
+
+        return covariances;
+    }
+
     public static Set<String> readInVariables(Path variableFile) {
         Set<String> variables = new HashSet<>();
 
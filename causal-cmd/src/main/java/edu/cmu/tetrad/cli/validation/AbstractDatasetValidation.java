@@ -124,6 +124,29 @@ public abstract class AbstractDatasetValidation extends AbstractDataReader {
         return variableAnalysis;
     }
 
+    /**
+     * Advance the current position of the buffer to the next line.
+     *
+     * @param buffer
+     */
+    protected void skipToNextLine(MappedByteBuffer buffer) {
+        byte currentChar;
+        byte prevChar = NEW_LINE;
+        while (buffer.hasRemaining()) {
+            currentChar = buffer.get();
+            if (currentChar == CARRIAGE_RETURN) {
+                currentChar = NEW_LINE;
+            }
+
+            // we break when we come to the end of the line
+            if (currentChar == NEW_LINE && prevChar != NEW_LINE) {
+                break;
+            }
+
+            prevChar = currentChar;
+        }
+    }
+
     protected class VariableAnalysis {
 
         private String[] variables;
@@ -20,6 +20,7 @@ package edu.cmu.tetrad.cli.validation;
 
 import edu.cmu.tetrad.cli.util.FileIO;
 import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.data.ICovarianceMatrix;
 import edu.cmu.tetrad.stat.RealVariance;
 import edu.cmu.tetrad.stat.RealVarianceVectorForkJoin;
 import java.io.IOException;
@@ -43,6 +44,8 @@ public class NonZeroVariance implements DataValidation {
 
     private final DataSet dataSet;
 
+    private final ICovarianceMatrix covariances;
+
     private final int numOfThreads;
 
     private final Path outputFile;
@@ -60,21 +63,46 @@ public class NonZeroVariance implements DataValidation {
      */
     public NonZeroVariance(DataSet dataSet, int numOfThreads, Path outputFile) {
         this.dataSet = dataSet;
+        this.covariances = null;
         this.numOfThreads = numOfThreads;
         this.outputFile = outputFile;
     }
 
+    /**
+     * Constructor. The variances are read off the diagonal of the given
+     * covariance matrix.
+     *
+     * @param covariances covariance matrix of the dataset to validate
+     * @param outputFile file to write out zero-variance variables
+     */
+    public NonZeroVariance(ICovarianceMatrix covariances, Path outputFile) {
+        this.dataSet = null;
+        this.covariances = covariances;
+        this.numOfThreads = 1;
+        this.outputFile = outputFile;
+    }
+
     @Override
     public boolean validate(PrintStream stderr, boolean verbose) {
         if (stderr == null) {
             stderr = System.err;
         }
 
-        RealVariance variance = new RealVarianceVectorForkJoin(dataSet.getDoubleData().toArray(), numOfThreads);
-        double[] varianceVector = variance.compute(true);
+        double[] varianceVector;
+        List<String> variables;
+        if (covariances == null) {
+            RealVariance variance = new RealVarianceVectorForkJoin(dataSet.getDoubleData().toArray(), numOfThreads);
+            varianceVector = variance.compute(true);
+            variables = dataSet.getVariableNames();
+        } else {
+            varianceVector = new double[covariances.getDimension()];
+            for (int i = 0; i < varianceVector.length; i++) {
+                varianceVector[i] = covariances.getValue(i, i);
+            }
+            variables = covariances.getVariableNames();
+        }
 
         List<String> list = new LinkedList<>();
-        List<String> variables = dataSet.getVariableNames();
         int index = 0;
         for (String variable : variables) {
             if (varianceVector[index++] == 0) {
@@ -42,7 +42,7 @@ public class UniqueVariableNames implements DataValidation {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(UniqueVariableNames.class);
 
-    private final DataSet dataSet;
+    private final List<String> variableNames;
 
     private final Path outputFile;
 
@@ -57,7 +57,17 @@ public class UniqueVariableNames implements DataValidation {
      * @param outputFile file to write out non-unique variables
      */
     public UniqueVariableNames(DataSet dataSet, Path outputFile) {
-        this.dataSet = dataSet;
+        this(dataSet.getVariableNames(), outputFile);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param variableNames variable names to validate
+     * @param outputFile file to write out non-unique variables
+     */
+    public UniqueVariableNames(List<String> variableNames, Path outputFile) {
+        this.variableNames = variableNames;
         this.outputFile = outputFile;
     }
 
@@ -69,7 +79,6 @@ public class UniqueVariableNames implements DataValidation {
 
         Map<String, Integer> nonuniqueNames = new HashMap<>();
         Set<String> uniqueNames = new HashSet<>();
-        List<String> variableNames = dataSet.getVariableNames();
         for (String name : variableNames) {
             if (uniqueNames.contains(name)) {
                 Integer count = nonuniqueNames.get(name);
@@ -0,0 +1,129 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.bench;
+
+import edu.cmu.tetrad.bayes.BayesPm;
+import edu.cmu.tetrad.bayes.MlBayesIm;
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.graph.GraphUtils;
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.sem.LargeScaleSimulation;
+import edu.cmu.tetrad.util.RandomUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Seeded graphs, data and queries for the benchmarks, so that every run, on every release, times the same work.
+ *
+ * @author Joseph Ramsey
+ */
+public final class BenchmarkData {
+
+    /**
+     * The seed everything is drawn from.
+     */
+    public static final long SEED = 48290147L;
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * @return a random DAG over the given number of variables, with about the given average degree.
+     */
+    public static Graph graph(int numVars, double avgDegree) {
+        RandomUtil.getInstance().setSeed(SEED + numVars);
+        int numEdges = (int) (numVars * avgDegree / 2);
+        return GraphUtils.randomGraph(numVars, 0, numEdges, 30, 15, 15, false);
+    }
+
+    /**
+     * @return continuous data simulated from a linear SEM over the graph.
+     */
+    public static DataSet continuousData(Graph graph, int sampleSize) {
+        RandomUtil.getInstance().setSeed(SEED + sampleSize);
+        return new LargeScaleSimulation(graph).simulateDataRecursive(sampleSize);
+    }
+
+    /**
+     * @return discrete data, with 2 to 4 categories a variable, simulated from a random Bayes net over the graph.
+     */
+    public static DataSet discreteData(Graph graph, int sampleSize) {
+        RandomUtil.getInstance().setSeed(SEED + sampleSize);
+        BayesPm pm = new BayesPm(graph, 2, 4);
+        MlBayesIm im = new MlBayesIm(pm, MlBayesIm.RANDOM);
+        return im.simulateData(sampleSize, false);
+    }
+
+    /**
+     * @return random (node, parents) queries, each row holding the node first and then its parents, with up to
+     * maxParents parents a node.
+     */
+    public static int[][] parentQueries(int numVars, int maxParents, int numQueries) {
+        RandomUtil random = RandomUtil.getInstance();
+        random.setSeed(SEED + numQueries);
+        int[][] queries = new int[numQueries][];
+
+        for (int q = 0; q < numQueries; q++) {
+            queries[q] = distinct(numVars, 1 + random.nextInt(maxParents + 1), random);
+        }
+
+        return queries;
+    }
+
+    /**
+     * @return random (x, y, z...) triples of the nodes, with up to maxConditioning nodes conditioned on.
+     */
+    public static List<List<Node>> nodeQueries(List<Node> nodes, int maxConditioning, int numQueries) {
+        RandomUtil random = RandomUtil.getInstance();
+        random.setSeed(SEED + numQueries);
+        List<List<Node>> queries = new ArrayList<>();
+
+        for (int q = 0; q < numQueries; q++) {
+            int[] indices = distinct(nodes.size(), 2 + random.nextInt(maxConditioning + 1), random);
+            List<Node> query = new ArrayList<>();
+            for (int i : indices) query.add(nodes.get(i));
+            queries.add(query);
+        }
+
+        return queries;
+    }
+
+    // k distinct numbers from 0 to n - 1.
+    private static int[] distinct(int n, int k, RandomUtil random) {
+        k = Math.min(k, n);
+        int[] all = new int[n];
+        for (int i = 0; i < n; i++) all[i] = i;
+
+        for (int i = 0; i < k; i++) {
+            int j = i + random.nextInt(n - i);
+            int t = all[i];
+            all[i] = all[j];
+            all[j] = t;
+        }
+
+        int[] chosen = new int[k];
+        System.arraycopy(all, 0, chosen, 0, k);
+        return chosen;
+    }
+}
@@ -0,0 +1,78 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.bench;
+
+import edu.cmu.tetrad.data.CovarianceMatrix;
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.search.IndTestFisherZ;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times building a covariance matrix from data, and Fisher Z tests of independence over it, cycling through a fixed
+ * set of queries.
+ *
+ * @author Joseph Ramsey
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CovarianceBenchmark {
+
+    private static final int NUM_QUERIES = 1024;
+
+    @Param({"20", "100"})
+    public int numVars;
+
+    @Param({"1000", "10000"})
+    public int sampleSize;
+
+    private DataSet dataSet;
+    private IndTestFisherZ test;
+    private List<List<Node>> queries;
+    private int next;
+
+    @Setup
+    public void setup() {
+        dataSet = BenchmarkData.continuousData(BenchmarkData.graph(numVars, 2), sampleSize);
+        test = new IndTestFisherZ(new CovarianceMatrix(dataSet), 0.01);
+        queries = BenchmarkData.nodeQueries(test.getVariables(), 3, NUM_QUERIES);
+    }
+
+    @Benchmark
+    public CovarianceMatrix covarianceMatrix() {
+        return new CovarianceMatrix(dataSet);
+    }
+
+    @Benchmark
+    public boolean fisherZIsIndependent() {
+        List<Node> query = queries.get(next);
+        next = (next + 1) % queries.size();
+        return test.isIndependent(query.get(0), query.get(1), query.subList(2, query.size()));
+    }
+}
@@ -0,0 +1,68 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.bench;
+
+import edu.cmu.tetrad.graph.EdgeListGraph;
+import edu.cmu.tetrad.graph.Node;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times d-separation queries on random DAGs, cycling through a fixed set of queries.
+ *
+ * @author Joseph Ramsey
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DSeparationBenchmark {
+
+    private static final int NUM_QUERIES = 1024;
+
+    @Param({"50", "500"})
+    public int numVars;
+
+    @Param({"2", "4"})
+    public double avgDegree;
+
+    private EdgeListGraph graph;
+    private List<List<Node>> queries;
+    private int next;
+
+    @Setup
+    public void setup() {
+        graph = new EdgeListGraph(BenchmarkData.graph(numVars, avgDegree));
+        queries = BenchmarkData.nodeQueries(graph.getNodes(), 4, NUM_QUERIES);
+    }
+
+    @Benchmark
+    public boolean isDSeparatedFrom() {
+        List<Node> query = queries.get(next);
+        next = (next + 1) % queries.size();
+        return graph.isDSeparatedFrom(query.get(0), query.get(1), query.subList(2, query.size()));
+    }
+}
@@ -0,0 +1,92 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.bench;
+
+import edu.cmu.tetrad.data.CovarianceMatrix;
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.search.BDeuScore;
+import edu.cmu.tetrad.search.SemBicScore;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times local scores of a node given some of the other nodes as parents, cycling through a fixed set of queries. The
+ * discrete counts are cached across calls, as they are during a search, so the BDeu times are for a warm cache.
+ *
+ * @author Joseph Ramsey
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScoreBenchmark {
+
+    private static final int NUM_QUERIES = 1024;
+
+    @Param({"20", "100"})
+    public int numVars;
+
+    @Param({"2", "4"})
+    public double avgDegree;
+
+    @Param({"1000"})
+    public int sampleSize;
+
+    private SemBicScore semBicScore;
+    private BDeuScore bdeuScore;
+    private int[][] queries;
+    private int next;
+
+    @Setup
+    public void setup() {
+        Graph graph = BenchmarkData.graph(numVars, avgDegree);
+        DataSet continuous = BenchmarkData.continuousData(graph, sampleSize);
+        DataSet discrete = BenchmarkData.discreteData(graph, sampleSize);
+
+        semBicScore = new SemBicScore(new CovarianceMatrix(continuous));
+        bdeuScore = new BDeuScore(discrete);
+        queries = BenchmarkData.parentQueries(numVars, 3, NUM_QUERIES);
+    }
+
+    @Benchmark
+    public double semBicLocalScore() {
+        int[] query = nextQuery();
+        return semBicScore.localScore(query[0], Arrays.copyOfRange(query, 1, query.length));
+    }
+
+    @Benchmark
+    public double bdeuLocalScore() {
+        int[] query = nextQuery();
+        return bdeuScore.localScore(query[0], Arrays.copyOfRange(query, 1, query.length));
+    }
+
+    private int[] nextQuery() {
+        int[] query = queries[next];
+        next = (next + 1) % queries.length;
+        return query;
+    }
+}
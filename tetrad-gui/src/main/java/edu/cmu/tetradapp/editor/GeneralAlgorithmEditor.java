@@ -126,6 +126,7 @@ public class GeneralAlgorithmEditor extends JPanel implements FinalizingEditor {
         continuousTests.add(TestType.Correlation_T);
         continuousTests.add(TestType.SEM_BIC);
         continuousTests.add(TestType.Conditional_Correlation);
+        continuousTests.add(TestType.RCIT);
         continuousTests.add(TestType.Conditional_Gaussian_LRT);
 
         List<TestType> mixedTests = new ArrayList<>();
@@ -706,6 +707,9 @@ public class GeneralAlgorithmEditor extends JPanel implements FinalizingEditor {
             case Conditional_Gaussian_LRT:
                 independenceWrapper = new ConditionalGaussianLRT();
                 break;
+            case RCIT:
+                independenceWrapper = new Rcit();
+                break;
             case Fisher_Z:
                 independenceWrapper = new FisherZ();
                 break;
@@ -1015,7 +1019,7 @@ public class GeneralAlgorithmEditor extends JPanel implements FinalizingEditor {
 
     private enum TestType {
         ChiSquare, Conditional_Correlation, Conditional_Gaussian_LRT, Fisher_Z, GSquare,
-        SEM_BIC, D_SEPARATION, Discrete_BIC_Test, Correlation_T
+        SEM_BIC, D_SEPARATION, Discrete_BIC_Test, Correlation_T, RCIT
     }
 
     public enum ScoreType {BDeu, Conditional_Gaussian_BIC, Discrete_BIC, SEM_BIC, D_SEPARATION}
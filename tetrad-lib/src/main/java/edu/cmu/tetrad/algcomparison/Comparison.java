@@ -70,6 +70,7 @@ public class Comparison {
     private boolean sortByUtility = false;
     private String filePath = null;
     private boolean parallelized = true;
+    private ExecutionContext context = ExecutionContext.getDefault();
 
     /**
      * Compares algorithms.
@@ -749,7 +750,7 @@ public class Comparison {
                             }
                         }
 
-                        while (tasks.size() > Runtime.getRuntime().availableProcessors()) {
+                        while (tasks.size() > context.getParallelism()) {
                             AlgorithmTask _task = tasks.poll();
                             _task.join();
                         }
@@ -765,7 +766,7 @@ public class Comparison {
 
             Task task = new Task(tasks);
 
-            ForkJoinPoolInstance.getInstance().getPool().invoke(task);
+            context.invoke(task);
         }
 
         return allStats;
@@ -828,6 +829,14 @@ public class Comparison {
         this.parallelized = parallelized;
     }
 
+    /**
+     * Sets where the algorithms are run when the comparison is parallelized.
+     */
+    public void setExecutionContext(ExecutionContext context) {
+        if (context == null) throw new NullPointerException("Execution context must not be null.");
+        this.context = context;
+    }
+
     private class AlgorithmTask extends RecursiveTask<Boolean> {
         private List<AlgorithmSimulationWrapper> algorithmSimulationWrappers;
         private Statistics statistics;
@@ -12,6 +12,8 @@ import edu.cmu.tetrad.algcomparison.utils.TakesInitialGraph;
 import edu.cmu.tetrad.data.DataType;
 import edu.cmu.tetrad.graph.Graph;
 import edu.cmu.tetrad.search.DagToPag;
+import edu.cmu.tetrad.search.CachingIndependenceTest;
+import edu.cmu.tetrad.search.IndependenceTest;
 
 import java.util.List;
 
@@ -43,7 +45,13 @@ public class Fci implements Algorithm, TakesInitialGraph, HasKnowledge {
             initial = initialGraph.search(dataSet, parameters);
         }
 
-        edu.cmu.tetrad.search.Fci search = new edu.cmu.tetrad.search.Fci(test.getTest(dataSet, parameters));
+        IndependenceTest test = this.test.getTest(dataSet, parameters);
+
+        if (parameters.getBoolean("cacheIndependenceTests")) {
+            test = new CachingIndependenceTest(test);
+        }
+
+        edu.cmu.tetrad.search.Fci search = new edu.cmu.tetrad.search.Fci(test);
         search.setKnowledge(knowledge);
         search.setMaxPathLength(parameters.getInt("maxPathLength"));
         search.setCompleteRuleSetUsed(parameters.getBoolean("completeRuleSetUsed"));
@@ -77,6 +85,7 @@ public class Fci implements Algorithm, TakesInitialGraph, HasKnowledge {
         parameters.add("depth");
         parameters.add("maxPathLength");
         parameters.add("completeRuleSetUsed");
+        parameters.add("cacheIndependenceTests");
         return parameters;
     }
 
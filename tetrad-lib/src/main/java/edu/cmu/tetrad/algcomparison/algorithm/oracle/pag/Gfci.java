@@ -6,9 +6,13 @@ import edu.cmu.tetrad.algcomparison.score.ScoreWrapper;
 import edu.cmu.tetrad.algcomparison.utils.HasKnowledge;
 import edu.cmu.tetrad.data.*;
 import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.search.CachingIndependenceTest;
+import edu.cmu.tetrad.search.CachingScore;
 import edu.cmu.tetrad.search.DagToPag;
 import edu.cmu.tetrad.search.GFci;
 import edu.cmu.tetrad.search.GFciMax;
+import edu.cmu.tetrad.search.IndependenceTest;
+import edu.cmu.tetrad.search.Score;
 import edu.cmu.tetrad.util.Parameters;
 import java.io.PrintStream;
 import java.util.List;
@@ -32,7 +36,19 @@ public class Gfci implements Algorithm, HasKnowledge {
 
     @Override
     public Graph search(DataModel dataSet, Parameters parameters) {
-        GFci search = new GFci(test.getTest(dataSet, parameters), score.getScore(dataSet, parameters));
+        Score score = this.score.getScore(dataSet, parameters);
+
+        if (parameters.getBoolean("cacheScores")) {
+            score = new CachingScore(score);
+        }
+
+        IndependenceTest test = this.test.getTest(dataSet, parameters);
+
+        if (parameters.getBoolean("cacheIndependenceTests")) {
+            test = new CachingIndependenceTest(test);
+        }
+
+        GFci search = new GFci(test, score);
         search.setMaxDegree(parameters.getInt("maxDegree"));
         search.setKnowledge(knowledge);
         search.setVerbose(parameters.getBoolean("verbose"));
@@ -73,6 +89,8 @@ public class Gfci implements Algorithm, HasKnowledge {
         parameters.add("printStream");
         parameters.add("maxPathLength");
         parameters.add("completeRuleSetUsed");
+        parameters.add("cacheScores");
+        parameters.add("cacheIndependenceTests");
         return parameters;
     }
 
@@ -11,6 +11,8 @@ import edu.cmu.tetrad.util.Parameters;
 import edu.cmu.tetrad.data.DataType;
 import edu.cmu.tetrad.graph.Graph;
 import edu.cmu.tetrad.search.DagToPag;
+import edu.cmu.tetrad.search.CachingIndependenceTest;
+import edu.cmu.tetrad.search.IndependenceTest;
 
 import java.util.List;
 
@@ -30,7 +32,13 @@ public class Rfci implements Algorithm, HasKnowledge {
 
     @Override
     public Graph search(DataModel dataSet, Parameters parameters) {
-        edu.cmu.tetrad.search.Rfci search = new edu.cmu.tetrad.search.Rfci(test.getTest(dataSet, parameters));
+        IndependenceTest test = this.test.getTest(dataSet, parameters);
+
+        if (parameters.getBoolean("cacheIndependenceTests")) {
+            test = new CachingIndependenceTest(test);
+        }
+
+        edu.cmu.tetrad.search.Rfci search = new edu.cmu.tetrad.search.Rfci(test);
         search.setKnowledge(knowledge);
         search.setMaxPathLength(parameters.getInt("maxPathLength"));
         search.setCompleteRuleSetUsed(parameters.getBoolean("completeRuleSetUsed"));
@@ -57,6 +65,7 @@ public class Rfci implements Algorithm, HasKnowledge {
         parameters.add("depth");
         parameters.add("maxPathLength");
         parameters.add("completeRuleSetUsed");
+        parameters.add("cacheIndependenceTests");
         return parameters;
     }
 
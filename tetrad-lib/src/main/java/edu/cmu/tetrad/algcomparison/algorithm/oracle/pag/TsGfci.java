@@ -10,6 +10,8 @@ import edu.cmu.tetrad.data.DataType;
 import edu.cmu.tetrad.data.IKnowledge;
 import edu.cmu.tetrad.graph.EdgeListGraph;
 import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.search.CachingScore;
+import edu.cmu.tetrad.search.Score;
 import edu.cmu.tetrad.search.TsDagToPag;
 import edu.cmu.tetrad.util.Parameters;
 
@@ -35,8 +37,14 @@ public class TsGfci implements Algorithm, TakesInitialGraph, HasKnowledge {
 
     @Override
     public Graph search(DataModel dataSet, Parameters parameters) {
+        Score score = this.score.getScore(dataSet, parameters);
+
+        if (parameters.getBoolean("cacheScores")) {
+            score = new CachingScore(score);
+        }
+
         edu.cmu.tetrad.search.TsGFci search = new edu.cmu.tetrad.search.TsGFci(test.getTest(dataSet, parameters),
-                score.getScore(dataSet, parameters));
+                score);
         search.setKnowledge(dataSet.getKnowledge());
         return search.search();
     }
@@ -62,6 +70,7 @@ public class TsGfci implements Algorithm, TakesInitialGraph, HasKnowledge {
         parameters.add("faithfulnessAssumed");
         parameters.add("maxIndegree");
         parameters.add("printStream");
+        parameters.add("cacheScores");
         return parameters;
     }
 
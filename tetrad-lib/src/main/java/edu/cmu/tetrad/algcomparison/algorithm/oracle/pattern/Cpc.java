@@ -12,6 +12,8 @@ import edu.cmu.tetrad.algcomparison.utils.TakesInitialGraph;
 import edu.cmu.tetrad.data.DataType;
 import edu.cmu.tetrad.graph.Graph;
 import edu.cmu.tetrad.search.SearchGraphUtils;
+import edu.cmu.tetrad.search.CachingIndependenceTest;
+import edu.cmu.tetrad.search.IndependenceTest;
 
 import java.util.List;
 
@@ -43,7 +45,13 @@ public class Cpc implements Algorithm, TakesInitialGraph, HasKnowledge {
             initial = initialGraph.search(dataSet, parameters);
         }
 
-        edu.cmu.tetrad.search.Cpc search = new edu.cmu.tetrad.search.Cpc(test.getTest(dataSet, parameters));
+        IndependenceTest test = this.test.getTest(dataSet, parameters);
+
+        if (parameters.getBoolean("cacheIndependenceTests")) {
+            test = new CachingIndependenceTest(test);
+        }
+
+        edu.cmu.tetrad.search.Cpc search = new edu.cmu.tetrad.search.Cpc(test);
         search.setKnowledge(knowledge);
 
 //        if (initial != null) {
@@ -73,6 +81,7 @@ public class Cpc implements Algorithm, TakesInitialGraph, HasKnowledge {
     public List<String> getParameters() {
         List<String> parameters = test.getParameters();
         parameters.add("depth");
+        parameters.add("cacheIndependenceTests");
         return parameters;
     }
 
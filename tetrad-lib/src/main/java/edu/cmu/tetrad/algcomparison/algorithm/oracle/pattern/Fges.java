@@ -10,6 +10,8 @@ import edu.cmu.tetrad.data.IKnowledge;
 import edu.cmu.tetrad.data.Knowledge2;
 import edu.cmu.tetrad.graph.EdgeListGraph;
 import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.search.CachingScore;
+import edu.cmu.tetrad.search.Score;
 import edu.cmu.tetrad.search.SearchGraphUtils;
 import edu.cmu.tetrad.util.Parameters;
 
@@ -45,8 +47,14 @@ public class Fges implements Algorithm, TakesInitialGraph, HasKnowledge {
             initial = initialGraph.search(dataSet, parameters);
         }
 
+        Score score = this.score.getScore(dataSet, parameters);
+
+        if (parameters.getBoolean("cacheScores")) {
+            score = new CachingScore(score);
+        }
+
         edu.cmu.tetrad.search.Fges search
-                = new edu.cmu.tetrad.search.Fges(score.getScore(dataSet, parameters));
+                = new edu.cmu.tetrad.search.Fges(score);
         search.setFaithfulnessAssumed(parameters.getBoolean("faithfulnessAssumed"));
         search.setKnowledge(knowledge);
         search.setVerbose(parameters.getBoolean("verbose"));
@@ -86,6 +94,7 @@ public class Fges implements Algorithm, TakesInitialGraph, HasKnowledge {
         parameters.add("faithfulnessAssumed");
         parameters.add("maxDegree");
         parameters.add("verbose");
+        parameters.add("cacheScores");
         return parameters;
     }
 
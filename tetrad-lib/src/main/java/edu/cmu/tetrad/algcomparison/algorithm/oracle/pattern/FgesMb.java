@@ -9,6 +9,7 @@ import edu.cmu.tetrad.graph.EdgeListGraph;
 import edu.cmu.tetrad.graph.Graph;
 import edu.cmu.tetrad.graph.GraphUtils;
 import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.search.CachingScore;
 import edu.cmu.tetrad.search.FgesMb2;
 import edu.cmu.tetrad.search.Score;
 import edu.cmu.tetrad.util.Parameters;
@@ -46,6 +47,11 @@ public class FgesMb implements Algorithm, TakesInitialGraph, HasKnowledge {
         }
 
         Score score = this.score.getScore(DataUtils.getContinuousDataSet(dataSet), parameters);
+
+        if (parameters.getBoolean("cacheScores")) {
+            score = new CachingScore(score);
+        }
+
         FgesMb2 search
                 = new FgesMb2(score);
         search.setFaithfulnessAssumed(parameters.getBoolean("faithfulnessAssumed"));
@@ -82,6 +88,7 @@ public class FgesMb implements Algorithm, TakesInitialGraph, HasKnowledge {
         List<String> parameters = score.getParameters();
         parameters.add("targetName");
         parameters.add("faithfulnessAssumed");
+        parameters.add("cacheScores");
         return parameters;
     }
 
@@ -12,6 +12,8 @@ import edu.cmu.tetrad.algcomparison.utils.TakesInitialGraph;
 import edu.cmu.tetrad.data.DataType;
 import edu.cmu.tetrad.graph.Graph;
 import edu.cmu.tetrad.search.SearchGraphUtils;
+import edu.cmu.tetrad.search.CachingIndependenceTest;
+import edu.cmu.tetrad.search.IndependenceTest;
 
 import java.util.List;
 
@@ -37,7 +39,13 @@ public class Pc implements Algorithm, TakesInitialGraph, HasKnowledge {
 
     @Override
     public Graph search(DataModel dataSet, Parameters parameters) {
-        edu.cmu.tetrad.search.Pc search = new edu.cmu.tetrad.search.Pc(test.getTest(dataSet, parameters));
+        IndependenceTest test = this.test.getTest(dataSet, parameters);
+
+        if (parameters.getBoolean("cacheIndependenceTests")) {
+            test = new CachingIndependenceTest(test);
+        }
+
+        edu.cmu.tetrad.search.Pc search = new edu.cmu.tetrad.search.Pc(test);
         search.setKnowledge(knowledge);
         search.setVerbose(parameters.getBoolean("verbose"));
         return search.search();
@@ -64,6 +72,7 @@ public class Pc implements Algorithm, TakesInitialGraph, HasKnowledge {
     public List<String> getParameters() {
         List<String> parameters = test.getParameters();
         parameters.add("depth");
+        parameters.add("cacheIndependenceTests");
         parameters.add("verbose");
         return parameters;
     }
@@ -12,6 +12,8 @@ import edu.cmu.tetrad.algcomparison.utils.TakesInitialGraph;
 import edu.cmu.tetrad.data.DataType;
 import edu.cmu.tetrad.graph.Graph;
 import edu.cmu.tetrad.search.SearchGraphUtils;
+import edu.cmu.tetrad.search.CachingIndependenceTest;
+import edu.cmu.tetrad.search.IndependenceTest;
 
 import java.util.List;
 
@@ -43,7 +45,13 @@ public class PcStable implements Algorithm, TakesInitialGraph, HasKnowledge {
             initial = initialGraph.search(dataSet, parameters);
         }
 
-        edu.cmu.tetrad.search.PcStable search = new edu.cmu.tetrad.search.PcStable(test.getTest(dataSet, parameters));
+        IndependenceTest test = this.test.getTest(dataSet, parameters);
+
+        if (parameters.getBoolean("cacheIndependenceTests")) {
+            test = new CachingIndependenceTest(test);
+        }
+
+        edu.cmu.tetrad.search.PcStable search = new edu.cmu.tetrad.search.PcStable(test);
         search.setKnowledge(knowledge);
         search.setVerbose(parameters.getBoolean("verbose"));
 
@@ -74,6 +82,7 @@ public class PcStable implements Algorithm, TakesInitialGraph, HasKnowledge {
     public List<String> getParameters() {
         List<String> parameters = test.getParameters();
         parameters.add("depth");
+        parameters.add("cacheIndependenceTests");
         parameters.add("verbose");
         return parameters;
     }
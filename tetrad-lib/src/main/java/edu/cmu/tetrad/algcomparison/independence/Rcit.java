@@ -0,0 +1,49 @@
+package edu.cmu.tetrad.algcomparison.independence;
+
+import edu.cmu.tetrad.data.DataModel;
+import edu.cmu.tetrad.data.DataType;
+import edu.cmu.tetrad.data.DataUtils;
+import edu.cmu.tetrad.search.IndTestRcit;
+import edu.cmu.tetrad.search.IndependenceTest;
+import edu.cmu.tetrad.util.Parameters;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Wrapper for the randomized conditional independence test (RCIT), a random Fourier feature approximation to
+ * kernel conditional independence tests.
+ *
+ * @author jdramsey
+ */
+public class Rcit implements IndependenceWrapper {
+    static final long serialVersionUID = 23L;
+
+    @Override
+    public IndependenceTest getTest(DataModel dataSet, Parameters parameters) {
+        IndTestRcit test = new IndTestRcit(DataUtils.getContinuousDataSet(dataSet),
+                parameters.getDouble("alpha"));
+        test.setNumFeatures(parameters.getInt("numFourierFeatures"));
+        test.setNumConditioningFeatures(parameters.getInt("numConditioningFourierFeatures"));
+        return test;
+    }
+
+    @Override
+    public String getDescription() {
+        return "Randomized conditional independence test (RCIT)";
+    }
+
+    @Override
+    public DataType getDataType() {
+        return DataType.Continuous;
+    }
+
+    @Override
+    public List<String> getParameters() {
+        List<String> params = new ArrayList<>();
+        params.add("alpha");
+        params.add("numFourierFeatures");
+        params.add("numConditioningFourierFeatures");
+        return params;
+    }
+}
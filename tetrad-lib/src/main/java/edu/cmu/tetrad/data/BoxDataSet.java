@@ -875,13 +875,7 @@ public final class BoxDataSet implements DataSet, TetradSerializable {
      * integer, or DiscreteVariable.MISSING_VALUE if the value is missing.
      */
     public final int getInt(int row, int column) {
-        Number value = dataBox.get(row, column);
-
-        if (value == null) {
-            return DiscreteVariable.MISSING_VALUE;
-        } else {
-            return value.intValue();
-        }
+        return dataBox.getInt(row, column);
     }
 
     /**
@@ -891,13 +885,27 @@ public final class BoxDataSet implements DataSet, TetradSerializable {
      * returned.
      */
     public final double getDouble(int row, int column) {
-        Number value = dataBox.get(row, column);
+        return dataBox.getDouble(row, column);
+    }
 
-        if (value == null) {
-            return ContinuousVariable.getDoubleMissingValue();
-        } else {
-            return value.doubleValue();
-        }
+    /**
+     * @return the given column as doubles, with missing values as Double.NaN.
+     * If the data box stores columns as double arrays, this is the stored
+     * array and must not be modified.
+     * @see DataBox#getDoubleColumn(int)
+     */
+    public final double[] getDoubleColumn(int column) {
+        return dataBox.getDoubleColumn(column);
+    }
+
+    /**
+     * @return the given column as ints, with missing values as
+     * DiscreteVariable.MISSING_VALUE. If the data box stores columns as int
+     * arrays, this is the stored array and must not be modified.
+     * @see DataBox#getIntColumn(int)
+     */
+    public final int[] getIntColumn(int column) {
+        return dataBox.getIntColumn(column);
     }
 
 //    /**
@@ -0,0 +1,282 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.data;
+
+import edu.cmu.tetrad.graph.Node;
+
+import java.util.Arrays;
+
+/**
+ * Counts the records of a discrete data set by cell, for any list of its variables. The data are packed once into one
+ * column per variable, of bytes or shorts where the numbers of categories allow, with missing values stored as -1.
+ * The cell of each record is then built up one column at a time, in mixed radix with the first variable most
+ * significant, so that the cell of the values (v1, ..., vk) of variables with c1, ..., ck categories is
+ * (...((v1 * c2 + v2) * c3 + v3)...) * ck + vk. For a child after its parents, this gives the cells row by row for
+ * each configuration of the parents, as the discrete scores lay them out; for x and y after z, it gives a contiguous
+ * x by y table for each configuration of z.
+ * <p>
+ * The cell indices and counts are kept in scratch arrays, one set per thread, that are reused from one call to the
+ * next, so counting allocates nothing once the arrays have grown to size, and several threads may count at once.
+ *
+ * @author Joseph Ramsey
+ * @see CellTable
+ */
+public final class CellCounts {
+
+    private final int numRows;
+    private final int[] numCategories;
+
+    // Each column is a byte[], short[] or int[], with -1 for missing values.
+    private final Object[] columns;
+    private final boolean[] hasMissing;
+
+    private final ThreadLocal<Scratch> scratch = new ThreadLocal<Scratch>() {
+        @Override
+        protected Scratch initialValue() {
+            return new Scratch();
+        }
+    };
+
+    /**
+     * @param dataSet A data set. Values of discrete variables are expected to be between 0 and the number of
+     *                categories of their variable, or DiscreteVariable.MISSING_VALUE. Other variables are left out
+     *                and may not be counted over.
+     */
+    public CellCounts(DataSet dataSet) {
+        this.numRows = dataSet.getNumRows();
+        int numColumns = dataSet.getNumColumns();
+        this.numCategories = new int[numColumns];
+        this.columns = new Object[numColumns];
+        this.hasMissing = new boolean[numColumns];
+
+        for (int j = 0; j < numColumns; j++) {
+            Node node = dataSet.getVariable(j);
+
+            if (!(node instanceof DiscreteVariable)) {
+                continue;
+            }
+
+            int c = ((DiscreteVariable) node).getNumCategories();
+            numCategories[j] = c;
+            columns[j] = pack(DataUtils.getIntColumn(dataSet, j), c, j);
+        }
+    }
+
+    /**
+     * @return the number of records.
+     */
+    public int getNumRows() {
+        return numRows;
+    }
+
+    /**
+     * @return the number of categories of the given variable.
+     */
+    public int getNumCategories(int variable) {
+        return numCategories[variable];
+    }
+
+    /**
+     * @return true if the given variable has any missing values.
+     */
+    public boolean hasMissingValues(int variable) {
+        return hasMissing[variable];
+    }
+
+    /**
+     * @return the number of cells in a table over the given variables, the product of their numbers of categories.
+     * @throws IllegalArgumentException if there are more than Integer.MAX_VALUE cells.
+     */
+    public int getNumCells(int[] variables) {
+        long numCells = 1;
+
+        for (int v : variables) {
+            if (columns[v] == null) {
+                throw new IllegalArgumentException("Not a discrete variable: " + v);
+            }
+
+            numCells *= numCategories[v];
+
+            if (numCells > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Too many cells in a table over " + Arrays.toString(variables));
+            }
+        }
+
+        return (int) numCells;
+    }
+
+    /**
+     * Counts the records in each cell of the table over the given variables, indexed as in the class description.
+     * Records missing a value for any of the variables are not counted.
+     *
+     * @return the counts, in the first getNumCells(variables) entries of an array belonging to this thread, which
+     * will be overwritten by the next call from the same thread. The array may be longer.
+     */
+    public int[] count(int[] variables) {
+        int numCells = getNumCells(variables);
+        Scratch s = scratch.get();
+        int[] cells = cells(variables, s);
+        int[] table = s.table(numCells);
+
+        Arrays.fill(table, 0, numCells, 0);
+
+        for (int i = 0; i < numRows; i++) {
+            if (cells[i] >= 0) table[cells[i]]++;
+        }
+
+        return table;
+    }
+
+    /**
+     * As count(variables), but with each record counted weights[i] times, for a resample of the records given by
+     * how many times each was drawn.
+     */
+    public int[] count(int[] variables, int[] weights) {
+        if (weights.length != numRows) {
+            throw new IllegalArgumentException("Expecting " + numRows + " weights: " + weights.length);
+        }
+
+        int numCells = getNumCells(variables);
+        Scratch s = scratch.get();
+        int[] cells = cells(variables, s);
+        int[] table = s.table(numCells);
+
+        Arrays.fill(table, 0, numCells, 0);
+
+        for (int i = 0; i < numRows; i++) {
+            if (cells[i] >= 0) table[cells[i]] += weights[i];
+        }
+
+        return table;
+    }
+
+    /**
+     * @return the cell of each record in the table over the given variables, indexed as in the class description,
+     * or -1 for records missing a value for any of the variables. The cells are in the first getNumRows() entries
+     * of an array belonging to this thread, which will be overwritten by the next call to this method or to count
+     * from the same thread.
+     */
+    public int[] cells(int[] variables) {
+        getNumCells(variables);
+        return cells(variables, scratch.get());
+    }
+
+    /**
+     * @return the value of the given variable in the given record, or -1 if it is missing.
+     */
+    public int value(int variable, int row) {
+        Object column = columns[variable];
+
+        if (column instanceof byte[]) {
+            return ((byte[]) column)[row];
+        } else if (column instanceof short[]) {
+            return ((short[]) column)[row];
+        } else {
+            return ((int[]) column)[row];
+        }
+    }
+
+    //==============================PRIVATE METHODS=========================//
+
+    private int[] cells(int[] variables, Scratch s) {
+        int[] cells = s.cells(numRows);
+        boolean anyMissing = false;
+
+        if (variables.length == 0) {
+            Arrays.fill(cells, 0, numRows, 0);
+        }
+
+        for (int k = 0; k < variables.length; k++) {
+            int v = variables[k];
+            int c = k == 0 ? 0 : numCategories[v];
+            Object column = columns[v];
+
+            // The same loop for each kind of column, so that each stays simple enough to be unrolled.
+            if (column instanceof byte[]) {
+                byte[] values = (byte[]) column;
+                for (int i = 0; i < numRows; i++) cells[i] = cells[i] * c + values[i];
+            } else if (column instanceof short[]) {
+                short[] values = (short[]) column;
+                for (int i = 0; i < numRows; i++) cells[i] = cells[i] * c + values[i];
+            } else {
+                int[] values = (int[]) column;
+                for (int i = 0; i < numRows; i++) cells[i] = cells[i] * c + values[i];
+            }
+
+            anyMissing |= hasMissing[v];
+        }
+
+        if (anyMissing) {
+            for (int v : variables) {
+                if (!hasMissing[v]) continue;
+
+                for (int i = 0; i < numRows; i++) {
+                    if (value(v, i) < 0) cells[i] = -1;
+                }
+            }
+        }
+
+        return cells;
+    }
+
+    private Object pack(int[] values, int c, int j) {
+        for (int i = 0; i < values.length; i++) {
+            int value = values[i];
+
+            if (value == DiscreteVariable.MISSING_VALUE) {
+                hasMissing[j] = true;
+            } else if (value < 0 || value >= c) {
+                throw new IllegalArgumentException("Value " + value + " out of range for variable " + j
+                        + " with " + c + " categories, in record " + i + ".");
+            }
+        }
+
+        if (c <= Byte.MAX_VALUE) {
+            byte[] packed = new byte[values.length];
+            for (int i = 0; i < values.length; i++) packed[i] = (byte) (values[i] < 0 ? -1 : values[i]);
+            return packed;
+        } else if (c <= Short.MAX_VALUE) {
+            short[] packed = new short[values.length];
+            for (int i = 0; i < values.length; i++) packed[i] = (short) (values[i] < 0 ? -1 : values[i]);
+            return packed;
+        } else {
+            int[] packed = new int[values.length];
+            for (int i = 0; i < values.length; i++) packed[i] = values[i] < 0 ? -1 : values[i];
+            return packed;
+        }
+    }
+
+    private static class Scratch {
+        private int[] cells = new int[0];
+        private int[] table = new int[0];
+
+        int[] cells(int n) {
+            if (cells.length < n) cells = new int[n];
+            return cells;
+        }
+
+        int[] table(int n) {
+            if (table.length < n) table = new int[Math.max(n, 2 * table.length)];
+            return table;
+        }
+    }
+}
@@ -69,17 +69,41 @@ public final class CellTable {
         table.reset(dims);
 
         int[] coords = new int[indices.length];
+        int[][] columns = new int[indices.length][];
+
+        if (dataSet instanceof BoxDataSet && ((BoxDataSet) dataSet).getDataBox() instanceof MappedDataBox) {
+            MappedDataBox box = (MappedDataBox) ((BoxDataSet) dataSet).getDataBox();
+            int numRows = dataSet.getNumRows();
+            int blockSize = Math.max(1, Math.min(numRows, CovarianceMatrix.BLOCK_SIZE));
 
-        points:
-        for (int i = 0; i < dataSet.getNumRows(); i++) {
             for (int j = 0; j < indices.length; j++) {
-                try {
-                    coords[j] = dataSet.getInt(i, indices[j]);
-                } catch (Exception e) {
-                    e.printStackTrace();  //To change body of catch statement use File | Settings | File Templates.
-                    coords[j] = dataSet.getInt(i, j);
+                columns[j] = new int[blockSize];
+            }
+
+            for (int from = 0; from < numRows; from += blockSize) {
+                int length = Math.min(blockSize, numRows - from);
+
+                for (int j = 0; j < indices.length; j++) {
+                    box.readInts(indices[j], from, length, columns[j]);
                 }
 
+                addToTable(columns, length, coords);
+            }
+        } else {
+            for (int j = 0; j < indices.length; j++) {
+                columns[j] = DataUtils.getIntColumn(dataSet, indices[j]);
+            }
+
+            addToTable(columns, dataSet.getNumRows(), coords);
+        }
+    }
+
+    private void addToTable(int[][] columns, int numRows, int[] coords) {
+        points:
+        for (int i = 0; i < numRows; i++) {
+            for (int j = 0; j < columns.length; j++) {
+                coords[j] = columns[j][i];
+
                 if (coords[j] == getMissingValue()) {
                     continue points;
                 }
@@ -26,12 +26,12 @@ package edu.cmu.tetrad.data;
 import edu.cmu.tetrad.graph.Node;
 import edu.cmu.tetrad.stat.Variance;
 import edu.cmu.tetrad.util.*;
-import org.apache.commons.math3.linear.RealMatrix;
 
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.text.NumberFormat;
 import java.util.*;
+import java.util.concurrent.RecursiveAction;
 import java.util.concurrent.RecursiveTask;
 
 /**
@@ -94,6 +94,9 @@ public class CovarianceMatrix implements ICovarianceMatrix {
 
     private double[][] vectors = null;
 
+    // The number of rows of memory-mapped data read at a time.
+    static final int BLOCK_SIZE = 1 << 14;
+
 
     //=============================CONSTRUCTORS=========================//
 
@@ -103,6 +106,15 @@ public class CovarianceMatrix implements ICovarianceMatrix {
      * @throws IllegalArgumentException if this is not a continuous data set.
      */
     public CovarianceMatrix(DataSet dataSet) {
+        this(dataSet, ExecutionContext.getDefault());
+    }
+
+    /**
+     * Constructs a new covariance matrix from the given data set, computing it in the given context.
+     *
+     * @throws IllegalArgumentException if this is not a continuous data set.
+     */
+    public CovarianceMatrix(DataSet dataSet, final ExecutionContext context) {
         if (!dataSet.isContinuous()) {
             throw new IllegalArgumentException("Not a continuous data set.");
         }
@@ -112,40 +124,23 @@ public class CovarianceMatrix implements ICovarianceMatrix {
         this.variables = Collections.unmodifiableList(dataSet.getVariables());
         this.sampleSize = dataSet.getNumRows();
 
-        if (dataSet instanceof BoxDataSet) {
-
-            DataBox box = ((BoxDataSet) dataSet).getDataBox().copy();
-
-            if (box instanceof VerticalDoubleDataBox) {
-                if (!dataSet.getVariables().equals(variables)) throw new IllegalArgumentException();
-
-                vectors = ((VerticalDoubleDataBox) box).getVariableVectors();
-
-//                final TetradMatrix doubleData = dataSet.getDoubleData();
-
-//                DataUtils.remean(doubleData, means);
-            }
-
+        if (dataSet instanceof BoxDataSet && ((BoxDataSet) dataSet).getDataBox() instanceof MappedDataBox) {
+            MappedDataBox box = (MappedDataBox) ((BoxDataSet) dataSet).getDataBox();
+            this.matrix = covariances(box, means(box), context);
+            return;
         }
 
+        // Columns are read without copying where the data allow it; they are not modified, so means are
+        // subtracted as the products are summed.
+        vectors = new double[variables.size()][];
 
-        if (vectors == null) {
-            final TetradMatrix doubleData = dataSet.getDoubleData().copy();
-            TetradVector means = DataUtils.means(doubleData);
-            DataUtils.demean(doubleData, means);
-
-            final RealMatrix realMatrix = doubleData.getRealMatrix();
-
-            vectors = new double[variables.size()][];
-
-            for (int i = 0; i < variables.size(); i++) {
-                vectors[i] = realMatrix.getColumnVector(i).toArray();
-            }
+        for (int i = 0; i < variables.size(); i++) {
+            vectors[i] = DataUtils.getDoubleColumn(dataSet, i);
         }
 
-        TetradVector means = DataUtils.means(vectors);
+        final double[] means = DataUtils.means(vectors).toArray();
 
-        int NTHREADS = Runtime.getRuntime().availableProcessors() * 10;
+        int NTHREADS = context.getParallelism() * 10;
         int _chunk = variables.size() / NTHREADS + 1;
         int minChunk = 100;
         final int chunk = _chunk < minChunk ? minChunk : _chunk;
@@ -170,13 +165,15 @@ public class CovarianceMatrix implements ICovarianceMatrix {
                         int count = 0;
 
                         double[] v1 = vectors[i];
+                        double m1 = means[i];
 
                         for (int k = 0; k < sampleSize; ++k) {
                             if (Double.isNaN(v1[k])) {
                                 continue;
                             }
 
-                            d += v1[k] * v1[k];
+                            double e1 = v1[k] - m1;
+                            d += e1 * e1;
                             count++;
                         }
 
@@ -227,13 +224,15 @@ public class CovarianceMatrix implements ICovarianceMatrix {
 
                             double[] v1 = vectors[i];
                             double[] v2 = vectors[j];
+                            double m1 = means[i];
+                            double m2 = means[j];
                             int count = 0;
 
                             for (int k = 0; k < sampleSize; k++) {
                                 if (Double.isNaN(v1[k])) continue;
                                 if (Double.isNaN(v2[k])) continue;
 
-                                d += v1[k] * v2[k];
+                                d += (v1[k] - m1) * (v2[k] - m2);
                                 count++;
                             }
 
@@ -262,17 +261,130 @@ public class CovarianceMatrix implements ICovarianceMatrix {
         }
 
         VarianceTask task = new VarianceTask(chunk, 0, variables.size());
-        ForkJoinPoolInstance.getInstance().getPool().invoke(task);
+        context.invoke(task);
 
         RestOfThemTask task2 = new RestOfThemTask(chunk, 0, variables.size());
-        ForkJoinPoolInstance.getInstance().getPool().invoke(task2);
-
-        DataUtils.demean(vectors, means);
+        context.invoke(task2);
 
         this.variables=Collections.unmodifiableList(dataSet.getVariables());
         this.sampleSize=dataSet.getNumRows();
     }
 
+    /**
+     * @return the means of the columns of the given mapped data, ignoring missing values, read a block of
+     * rows at a time.
+     */
+    static double[] means(MappedDataBox box) {
+        int numRows = box.numRows();
+        double[] means = new double[box.numCols()];
+        double[] block = new double[Math.min(numRows, BLOCK_SIZE)];
+
+        for (int j = 0; j < means.length; j++) {
+            double sum = 0.0;
+            int count = 0;
+
+            for (int from = 0; from < numRows; from += BLOCK_SIZE) {
+                int length = Math.min(BLOCK_SIZE, numRows - from);
+                box.readDoubles(j, from, length, block);
+
+                for (int k = 0; k < length; k++) {
+                    if (Double.isNaN(block[k])) continue;
+                    sum += block[k];
+                    count++;
+                }
+            }
+
+            means[j] = sum / count;
+        }
+
+        return means;
+    }
+
+    /**
+     * @return the covariance matrix of the given mapped data. Blocks of rows are read in turn, all columns
+     * at once, and the products for each block are summed in parallel over rows of the matrix, so only
+     * one block need be held in memory.
+     */
+    static TetradMatrix covariances(MappedDataBox box, final double[] means, ExecutionContext context) {
+        final int p = box.numCols();
+        final int numRows = box.numRows();
+        final int blockSize = Math.max(256, Math.min(BLOCK_SIZE, (1 << 22) / Math.max(p, 1)));
+
+        final double[][] block = new double[p][blockSize];
+        final double[][] sums = new double[p][];
+        final int[][] counts = new int[p][];
+
+        for (int i = 0; i < p; i++) {
+            sums[i] = new double[i + 1];
+            counts[i] = new int[i + 1];
+        }
+
+        class BlockTask extends RecursiveAction {
+            private final int from;
+            private final int to;
+            private final int length;
+
+            private BlockTask(int from, int to, int length) {
+                this.from = from;
+                this.to = to;
+                this.length = length;
+            }
+
+            @Override
+            protected void compute() {
+                if (to - from <= 8) {
+                    for (int i = from; i < to; i++) {
+                        double[] v1 = block[i];
+                        double m1 = means[i];
+
+                        for (int j = 0; j <= i; j++) {
+                            double[] v2 = block[j];
+                            double m2 = means[j];
+                            double d = 0.0;
+                            int count = 0;
+
+                            for (int k = 0; k < length; k++) {
+                                if (Double.isNaN(v1[k])) continue;
+                                if (Double.isNaN(v2[k])) continue;
+
+                                d += (v1[k] - m1) * (v2[k] - m2);
+                                count++;
+                            }
+
+                            sums[i][j] += d;
+                            counts[i][j] += count;
+                        }
+                    }
+                } else {
+                    int mid = (to + from) / 2;
+                    invokeAll(new BlockTask(from, mid, length), new BlockTask(mid, to, length));
+                }
+            }
+        }
+
+        for (int from = 0; from < numRows; from += blockSize) {
+            int length = Math.min(blockSize, numRows - from);
+
+            for (int j = 0; j < p; j++) {
+                box.readDoubles(j, from, length, block[j]);
+            }
+
+            context.invoke(new BlockTask(0, p, length));
+        }
+
+        TetradMatrix matrix = new TetradMatrix(p, p);
+
+        for (int i = 0; i < p; i++) {
+            for (int j = 0; j <= i; j++) {
+                double v = sums[i][j] / (counts[i][j] - 1);
+                matrix.set(i, j, v);
+                matrix.set(j, i, v);
+            }
+        }
+
+        return matrix;
+    }
+
     /**
      * Protected constructor to construct a new covariance matrix using the
      * supplied continuous variables and the the given symmetric, positive
@@ -25,7 +25,6 @@ import EDU.oswego.cs.dl.util.concurrent.SyncMap;
 import cern.colt.matrix.DoubleMatrix2D;
 import edu.cmu.tetrad.graph.Node;
 import edu.cmu.tetrad.util.*;
-import org.apache.commons.math3.linear.RealMatrix;
 
 import java.io.IOException;
 import java.io.ObjectInputStream;
@@ -101,6 +100,11 @@ public class CovarianceMatrixOnTheFly implements ICovarianceMatrix {
 
     private double[] variances;
 
+    // For memory-mapped data, the data and the means of its columns. The columns are read in blocks
+    // whenever a covariance is needed.
+    private MappedDataBox mapped = null;
+    private double[] means = null;
+
 
     //=============================CONSTRUCTORS=========================//
 
@@ -108,7 +112,9 @@ public class CovarianceMatrixOnTheFly implements ICovarianceMatrix {
      * Constructs a new covariance matrix from the given data set. If dataSet is
      * a BoxDataSet with a VerticalDoubleDataBox, the data will be mean-centered
      * by the constructor; is non-mean-centered version of the data is needed,
-     * the data should be copied before being send into the constructor.
+     * the data should be copied before being send into the constructor. If the
+     * data are memory-mapped (see MappedDataBox), they are left as they are and
+     * read from the file each time a covariance is needed.
      *
      * @throws IllegalArgumentException if this is not a continuous data set.
      */
@@ -124,6 +130,22 @@ public class CovarianceMatrixOnTheFly implements ICovarianceMatrix {
         this.variables = Collections.unmodifiableList(dataSet.getVariables());
         this.sampleSize = dataSet.getNumRows();
 
+        if (dataSet instanceof BoxDataSet && ((BoxDataSet) dataSet).getDataBox() instanceof MappedDataBox) {
+            if (verbose) {
+                System.out.println("Calculating means and variances from mapped data");
+            }
+
+            this.mapped = (MappedDataBox) ((BoxDataSet) dataSet).getDataBox();
+            this.means = CovarianceMatrix.means(mapped);
+            this.variances = new double[variables.size()];
+
+            for (int i = 0; i < variables.size(); i++) {
+                variances[i] = mappedCovariance(i, i);
+            }
+
+            return;
+        }
+
         if (verbose) {
             System.out.println("Calculating variable vectors");
         }
@@ -183,31 +205,24 @@ public class CovarianceMatrixOnTheFly implements ICovarianceMatrix {
                 System.out.println("Copying data");
             }
 
-            final TetradMatrix doubleData = dataSet.getDoubleData().copy();
+            // Copied, since the columns are demeaned in place.
+            vectors = new double[variables.size()][];
 
-            if (verbose) {
-                System.out.println("Calculating means");
+            for (int i = 0; i < variables.size(); i++) {
+                vectors[i] = Arrays.copyOf(DataUtils.getDoubleColumn(dataSet, i), sampleSize);
             }
 
-            TetradVector means = DataUtils.means(doubleData);
-
             if (verbose) {
-                System.out.println("Demeaning");
+                System.out.println("Calculating means");
             }
 
-            DataUtils.demean(doubleData, means);
+            TetradVector means = DataUtils.means(vectors);
 
             if (verbose) {
-                System.out.println("Getting vectors from data");
+                System.out.println("Demeaning");
             }
 
-            final RealMatrix realMatrix = doubleData.getRealMatrix();
-
-            vectors = new double[variables.size()][];
-
-            for (int i = 0; i < variables.size(); i++) {
-                vectors[i] = realMatrix.getColumnVector(i).toArray();
-            }
+            DataUtils.demean(vectors, means);
         }
 
         if (verbose) {
@@ -277,13 +292,13 @@ public class CovarianceMatrixOnTheFly implements ICovarianceMatrix {
             }
         }
 
-        int NTHREADS = Runtime.getRuntime().availableProcessors() * 10;
+        int NTHREADS = ExecutionContext.getDefault().getParallelism() * 10;
         int _chunk = variables.size() / NTHREADS + 1;
         int minChunk = 100;
         final int chunk = _chunk < minChunk ? minChunk : _chunk;
 
         VarianceTask task = new VarianceTask(chunk, 0, variables.size());
-        ForkJoinPoolInstance.getInstance().getPool().invoke(task);
+        ExecutionContext.getDefault().invoke(task);
 
         if (verbose) {
             System.out.println("Done with variances.");
@@ -430,6 +445,10 @@ public class CovarianceMatrixOnTheFly implements ICovarianceMatrix {
             return variances[i];
         }
 
+        if (mapped != null) {
+            return mappedCovariance(i, j);
+        }
+
         double d = 0.0D;
 
         double[] v1 = vectors[i];
@@ -450,6 +469,33 @@ public class CovarianceMatrixOnTheFly implements ICovarianceMatrix {
         return v;
     }
 
+    // The covariance of columns i and j of the mapped data, reading both a block of rows at a time.
+    private double mappedCovariance(int i, int j) {
+        int blockSize = Math.min(sampleSize, CovarianceMatrix.BLOCK_SIZE);
+        double[] v1 = new double[blockSize];
+        double[] v2 = new double[blockSize];
+        double m1 = means[i];
+        double m2 = means[j];
+        double d = 0.0;
+        int count = 0;
+
+        for (int from = 0; from < sampleSize; from += blockSize) {
+            int length = Math.min(blockSize, sampleSize - from);
+            mapped.readDoubles(i, from, length, v1);
+            mapped.readDoubles(j, from, length, v2);
+
+            for (int k = 0; k < length; k++) {
+                if (Double.isNaN(v1[k])) continue;
+                if (Double.isNaN(v2[k])) continue;
+
+                d += (v1[k] - m1) * (v2[k] - m2);
+                count++;
+            }
+        }
+
+        return d / (count - 1);
+    }
+
     public void setMatrix(TetradMatrix matrix) {
         this.matrix = matrix;
         checkMatrix();
@@ -0,0 +1,327 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+
+package edu.cmu.tetrad.data;
+
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.util.TetradMatrix;
+import edu.cmu.tetrad.util.TetradSerializable;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The sufficient statistics for a covariance matrix--the number of rows, the means, and the sums of
+ * cross products of deviations from the means (the co-moments)--accumulated a row or a block of rows at
+ * a time. Co-moments are updated from deviations, in the manner of Welford, rather than from raw sums of
+ * squares, so they stay accurate for data with large means. Two sets of moments over disjoint rows may be
+ * merged, so rows may be accumulated in parts, in parallel, and the parts put together.
+ * <p>
+ * Rows containing NaN are skipped.
+ *
+ * @author Joseph Ramsey
+ */
+public class CovarianceMoments implements TetradSerializable {
+    static final long serialVersionUID = 23L;
+
+    private final int numVars;
+    private long count = 0;
+    private long numSkipped = 0;
+    private final double[] means;
+
+    // Lower triangle of the co-moments, row by row: (0, 0), (1, 0), (1, 1), (2, 0), ...
+    private final double[] comoments;
+
+    public CovarianceMoments(int numVars) {
+        if (numVars < 0) throw new IllegalArgumentException("Number of variables must be nonnegative: " + numVars);
+        this.numVars = numVars;
+        this.means = new double[numVars];
+        this.comoments = new double[numVars * (numVars + 1) / 2];
+    }
+
+    /**
+     * Copy constructor.
+     */
+    public CovarianceMoments(CovarianceMoments moments) {
+        this.numVars = moments.numVars;
+        this.count = moments.count;
+        this.numSkipped = moments.numSkipped;
+        this.means = Arrays.copyOf(moments.means, moments.means.length);
+        this.comoments = Arrays.copyOf(moments.comoments, moments.comoments.length);
+    }
+
+    /**
+     * Generates a simple exemplar of this class to test serialization.
+     */
+    public static CovarianceMoments serializableInstance() {
+        return new CovarianceMoments(2);
+    }
+
+    /**
+     * Adds one row.
+     */
+    public void add(double[] row) {
+        checkLength(row);
+        if (hasNaN(row)) {
+            numSkipped++;
+            return;
+        }
+
+        count++;
+
+        double[] delta = new double[numVars];
+
+        for (int i = 0; i < numVars; i++) {
+            delta[i] = row[i] - means[i];
+            means[i] += delta[i] / count;
+        }
+
+        int k = 0;
+
+        for (int i = 0; i < numVars; i++) {
+            double d = row[i] - means[i];
+
+            for (int j = 0; j <= i; j++) {
+                comoments[k++] += d * delta[j];
+            }
+        }
+    }
+
+    /**
+     * Adds the first numRows of the given rows. The moments of the block are calculated about the block's
+     * own means and then merged in, which is faster than adding the rows one at a time.
+     */
+    public void add(double[][] rows, int numRows) {
+        CovarianceMoments block = new CovarianceMoments(numVars);
+        double[] blockMeans = block.means;
+        double[] d = new double[numVars];
+
+        for (int r = 0; r < numRows; r++) {
+            checkLength(rows[r]);
+
+            if (hasNaN(rows[r])) {
+                block.numSkipped++;
+                continue;
+            }
+
+            block.count++;
+
+            for (int i = 0; i < numVars; i++) {
+                blockMeans[i] += rows[r][i];
+            }
+        }
+
+        if (block.count > 0) {
+            for (int i = 0; i < numVars; i++) {
+                blockMeans[i] /= block.count;
+            }
+
+            double[] blockComoments = block.comoments;
+
+            for (int r = 0; r < numRows; r++) {
+                double[] row = rows[r];
+                if (hasNaN(row)) continue;
+
+                for (int i = 0; i < numVars; i++) {
+                    d[i] = row[i] - blockMeans[i];
+                }
+
+                int k = 0;
+
+                for (int i = 0; i < numVars; i++) {
+                    double di = d[i];
+
+                    for (int j = 0; j <= i; j++) {
+                        blockComoments[k++] += di * d[j];
+                    }
+                }
+            }
+        }
+
+        merge(block);
+    }
+
+    /**
+     * Adds the rows of the given data set, which must have the same number of variables as these moments.
+     */
+    public void add(DataSet dataSet) {
+        if (dataSet.getNumColumns() != numVars) {
+            throw new IllegalArgumentException("Expecting " + numVars + " columns: " + dataSet.getNumColumns());
+        }
+
+        double[][] columns = new double[numVars][];
+
+        for (int j = 0; j < numVars; j++) {
+            columns[j] = DataUtils.getDoubleColumn(dataSet, j);
+        }
+
+        final int blockSize = 256;
+        double[][] rows = new double[blockSize][numVars];
+
+        for (int from = 0; from < dataSet.getNumRows(); from += blockSize) {
+            int numRows = Math.min(blockSize, dataSet.getNumRows() - from);
+
+            for (int r = 0; r < numRows; r++) {
+                for (int j = 0; j < numVars; j++) {
+                    rows[r][j] = columns[j][from + r];
+                }
+            }
+
+            add(rows, numRows);
+        }
+    }
+
+    /**
+     * Adds in the moments of rows disjoint from the rows of these moments (Chan, Golub and LeVeque's
+     * pairwise update).
+     */
+    public void merge(CovarianceMoments other) {
+        if (other.numVars != numVars) {
+            throw new IllegalArgumentException("Expecting moments for " + numVars + " variables: " + other.numVars);
+        }
+
+        numSkipped += other.numSkipped;
+
+        if (other.count == 0) return;
+
+        if (count == 0) {
+            count = other.count;
+            System.arraycopy(other.means, 0, means, 0, numVars);
+            System.arraycopy(other.comoments, 0, comoments, 0, comoments.length);
+            return;
+        }
+
+        double n1 = count;
+        double n2 = other.count;
+        double n = n1 + n2;
+
+        double[] delta = new double[numVars];
+
+        for (int i = 0; i < numVars; i++) {
+            delta[i] = other.means[i] - means[i];
+        }
+
+        double f = n1 * n2 / n;
+        int k = 0;
+
+        for (int i = 0; i < numVars; i++) {
+            for (int j = 0; j <= i; j++) {
+                comoments[k] += other.comoments[k] + f * delta[i] * delta[j];
+                k++;
+            }
+        }
+
+        for (int i = 0; i < numVars; i++) {
+            means[i] += delta[i] * n2 / n;
+        }
+
+        count += other.count;
+    }
+
+    /**
+     * @return the number of rows added, not counting rows skipped.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return the number of rows skipped because they contained NaN.
+     */
+    public long getNumSkipped() {
+        return numSkipped;
+    }
+
+    public int getNumVars() {
+        return numVars;
+    }
+
+    /**
+     * @return a copy of the means.
+     */
+    public double[] getMeans() {
+        return Arrays.copyOf(means, numVars);
+    }
+
+    /**
+     * @return the co-moment of variables i and j, the sum over rows of the product of their deviations
+     * from their means.
+     */
+    public double getComoment(int i, int j) {
+        return i >= j ? comoments[i * (i + 1) / 2 + j] : comoments[j * (j + 1) / 2 + i];
+    }
+
+    /**
+     * @return the covariance of variables i and j, with n - 1 in the denominator.
+     */
+    public double getCovariance(int i, int j) {
+        return getComoment(i, j) / (count - 1);
+    }
+
+    /**
+     * @return the covariance matrix, with n - 1 in the denominator.
+     */
+    public TetradMatrix getCovariances() {
+        TetradMatrix matrix = new TetradMatrix(numVars, numVars);
+        int k = 0;
+
+        for (int i = 0; i < numVars; i++) {
+            for (int j = 0; j <= i; j++) {
+                double c = comoments[k++] / (count - 1);
+                matrix.set(i, j, c);
+                matrix.set(j, i, c);
+            }
+        }
+
+        return matrix;
+    }
+
+    /**
+     * @return a covariance matrix over the given variables, in order, with the number of rows added as
+     * sample size.
+     */
+    public CovarianceMatrix getCovarianceMatrix(List<Node> variables) {
+        if (variables.size() != numVars) {
+            throw new IllegalArgumentException("Expecting " + numVars + " variables: " + variables.size());
+        }
+
+        if (count > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Too many rows for a covariance matrix: " + count);
+        }
+
+        return new CovarianceMatrix(variables, getCovariances(), (int) count);
+    }
+
+    private void checkLength(double[] row) {
+        if (row.length < numVars) {
+            throw new IllegalArgumentException("Expecting a row of length " + numVars + ": " + row.length);
+        }
+    }
+
+    private boolean hasNaN(double[] row) {
+        for (int i = 0; i < numVars; i++) {
+            if (Double.isNaN(row[i])) return true;
+        }
+
+        return false;
+    }
+}
@@ -58,6 +58,34 @@ public interface DataBox extends TetradSerializable {
      */
     Number get(int row, int col);
 
+    /**
+     * @return the value at the given row and column as a double, or Double.NaN
+     * if the value is missing. Unlike get, this does not box the value.
+     */
+    double getDouble(int row, int col);
+
+    /**
+     * @return the value at the given row and column as an int, or -99 if the
+     * value is missing. Unlike get, this does not box the value.
+     */
+    int getInt(int row, int col);
+
+    /**
+     * @return the given column as doubles, with missing values as Double.NaN.
+     * Boxes that store each column as a double[] return that array itself,
+     * without copying, so the result must not be modified; other boxes return
+     * a new array.
+     */
+    double[] getDoubleColumn(int col);
+
+    /**
+     * @return the given column as ints, with missing values as -99. Boxes that
+     * store each column as an int[] return that array itself, without
+     * copying, so the result must not be modified; other boxes return a new
+     * array.
+     */
+    int[] getIntColumn(int col);
+
     /**
      * @return a copy of this data box.
      */
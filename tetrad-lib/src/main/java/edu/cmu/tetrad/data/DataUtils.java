@@ -71,6 +71,44 @@ public final class DataUtils {
     }
 
 
+    /**
+     * @return the given column of the data set as doubles, with missing values as
+     * Double.NaN. For a BoxDataSet whose box stores columns as double arrays this
+     * is the stored array, not a copy, and must not be modified.
+     */
+    public static double[] getDoubleColumn(DataSet dataSet, int column) {
+        if (dataSet instanceof BoxDataSet) {
+            return ((BoxDataSet) dataSet).getDoubleColumn(column);
+        }
+
+        double[] values = new double[dataSet.getNumRows()];
+
+        for (int i = 0; i < values.length; i++) {
+            values[i] = dataSet.getDouble(i, column);
+        }
+
+        return values;
+    }
+
+    /**
+     * @return the given column of the data set as ints, with missing values as
+     * -99. For a BoxDataSet whose box stores columns as int arrays this is the
+     * stored array, not a copy, and must not be modified.
+     */
+    public static int[] getIntColumn(DataSet dataSet, int column) {
+        if (dataSet instanceof BoxDataSet) {
+            return ((BoxDataSet) dataSet).getIntColumn(column);
+        }
+
+        int[] values = new int[dataSet.getNumRows()];
+
+        for (int i = 0; i < values.length; i++) {
+            values[i] = dataSet.getInt(i, column);
+        }
+
+        return values;
+    }
+
     /**
      * States whether the given column of the given data set is binary.
      *
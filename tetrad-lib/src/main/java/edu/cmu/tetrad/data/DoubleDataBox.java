@@ -113,6 +113,33 @@ public class DoubleDataBox implements DataBox {
         }
     }
 
+    public double getDouble(int row, int col) {
+        return data[row][col];
+    }
+
+    public int getInt(int row, int col) {
+        double datum = data[row][col];
+        return Double.isNaN(datum) ? -99 : (int) datum;
+    }
+
+    /**
+     * @return a new array holding the given column.
+     */
+    public double[] getDoubleColumn(int col) {
+        double[] column = new double[numRows()];
+        for (int i = 0; i < column.length; i++) column[i] = getDouble(i, col);
+        return column;
+    }
+
+    /**
+     * @return a new array holding the given column.
+     */
+    public int[] getIntColumn(int col) {
+        int[] column = new int[numRows()];
+        for (int i = 0; i < column.length; i++) column[i] = getInt(i, col);
+        return column;
+    }
+
     /**
      * @return a copy of this data box.
      */
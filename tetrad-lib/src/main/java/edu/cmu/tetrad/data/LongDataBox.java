@@ -112,6 +112,33 @@ public class LongDataBox implements DataBox {
         }
     }
 
+    public double getDouble(int row, int col) {
+        long datum = data[row][col];
+        return datum == -99 ? Double.NaN : datum;
+    }
+
+    public int getInt(int row, int col) {
+        return (int) data[row][col];
+    }
+
+    /**
+     * @return a new array holding the given column.
+     */
+    public double[] getDoubleColumn(int col) {
+        double[] column = new double[numRows()];
+        for (int i = 0; i < column.length; i++) column[i] = getDouble(i, col);
+        return column;
+    }
+
+    /**
+     * @return a new array holding the given column.
+     */
+    public int[] getIntColumn(int col) {
+        int[] column = new int[numRows()];
+        for (int i = 0; i < column.length; i++) column[i] = getInt(i, col);
+        return column;
+    }
+
     /**
      * @return a copy of this data box.
      */
@@ -0,0 +1,475 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.data;
+
+import edu.cmu.tetrad.graph.Node;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A read-only data box whose data live in a memory-mapped columnar file rather than on the heap, so that
+ * data sets larger than the heap may be searched. Continuous columns are stored as 64 or 32 bit floats
+ * and discrete columns as 8 or 16 bit ints (missing values being NaN and -99). The variables are stored
+ * in the file as well, so a file written once with write() can be reopened in later runs with
+ * openDataSet() without reading or parsing anything.
+ * <p>
+ * Cells may be read one at a time, but code that passes over whole columns should read them in blocks
+ * using readDoubles and readInts; getDoubleColumn and getIntColumn copy the entire column onto the heap.
+ *
+ * @author Joseph Ramsey
+ */
+public class MappedDataBox implements DataBox {
+    static final long serialVersionUID = 23L;
+
+    // Column types.
+    private static final byte FLOAT64 = 0;
+    private static final byte FLOAT32 = 1;
+    private static final byte INT8 = 2;
+    private static final byte INT16 = 3;
+
+    private static final int MAGIC = 0x54455444;
+    private static final int VERSION = 1;
+
+    // Columns are mapped in chunks of 2^CHUNK_SHIFT values, since a single mapping may not exceed 2 GB.
+    private static final int CHUNK_SHIFT = 27;
+    private static final int CHUNK_MASK = (1 << CHUNK_SHIFT) - 1;
+
+    // The number of rows written at a time.
+    private static final int WRITE_BLOCK = 1 << 16;
+
+    /**
+     * The path of the mapped file.
+     *
+     * @serial
+     */
+    private final String path;
+
+    private transient int numRows;
+    private transient byte[] types;
+    private transient List<Node> variables;
+    private transient ByteBuffer[][] chunks;
+
+    /**
+     * Maps the given file, as written by write().
+     *
+     * @throws IOException if the file cannot be read or is not in the right format.
+     */
+    public MappedDataBox(File file) throws IOException {
+        this.path = file.getAbsolutePath();
+        map();
+    }
+
+    /**
+     * Writes the given data set to the given file in the format mapped by this class. Discrete variables
+     * are stored in 8 bits if they have at most 127 categories and in 16 bits otherwise.
+     *
+     * @param singlePrecision True if continuous columns should be stored as 32 bit floats, halving the size
+     *                        of the file.
+     */
+    public static void write(DataSet dataSet, File file, boolean singlePrecision) throws IOException {
+        int numCols = dataSet.getNumColumns();
+        int numRows = dataSet.getNumRows();
+        byte[] types = new byte[numCols];
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream header = new DataOutputStream(bytes);
+
+        header.writeInt(MAGIC);
+        header.writeInt(VERSION);
+        header.writeInt(numRows);
+        header.writeInt(numCols);
+
+        for (int j = 0; j < numCols; j++) {
+            Node node = dataSet.getVariable(j);
+
+            if (node instanceof ContinuousVariable) {
+                types[j] = singlePrecision ? FLOAT32 : FLOAT64;
+                header.writeByte(types[j]);
+                header.writeUTF(node.getName());
+            } else if (node instanceof DiscreteVariable) {
+                DiscreteVariable variable = (DiscreteVariable) node;
+
+                if (variable.getNumCategories() > Short.MAX_VALUE) {
+                    throw new IllegalArgumentException("Too many categories to store: " + variable);
+                }
+
+                types[j] = variable.getNumCategories() <= Byte.MAX_VALUE ? INT8 : INT16;
+                header.writeByte(types[j]);
+                header.writeUTF(node.getName());
+                header.writeInt(variable.getNumCategories());
+
+                for (String category : variable.getCategories()) {
+                    header.writeUTF(category);
+                }
+            } else {
+                throw new IllegalArgumentException("Expecting a continuous or discrete variable: " + node);
+            }
+        }
+
+        header.flush();
+
+        try (FileChannel channel = new RandomAccessFile(file, "rw").getChannel()) {
+            channel.truncate(0);
+
+            ByteBuffer buffer = ByteBuffer.allocate(bytes.size() + 4);
+            buffer.putInt(bytes.size());
+            buffer.put(bytes.toByteArray());
+            buffer.flip();
+            channel.write(buffer, 0);
+
+            long offset = align(buffer.limit());
+            buffer = ByteBuffer.allocateDirect(WRITE_BLOCK * 8).order(ByteOrder.LITTLE_ENDIAN);
+
+            for (int j = 0; j < numCols; j++) {
+                for (int from = 0; from < numRows; from += WRITE_BLOCK) {
+                    int to = Math.min(numRows, from + WRITE_BLOCK);
+                    buffer.clear();
+
+                    for (int i = from; i < to; i++) {
+                        switch (types[j]) {
+                            case FLOAT64:
+                                buffer.putDouble(dataSet.getDouble(i, j));
+                                break;
+                            case FLOAT32:
+                                buffer.putFloat((float) dataSet.getDouble(i, j));
+                                break;
+                            case INT8:
+                                buffer.put((byte) dataSet.getInt(i, j));
+                                break;
+                            default:
+                                buffer.putShort((short) dataSet.getInt(i, j));
+                        }
+                    }
+
+                    buffer.flip();
+
+                    while (buffer.hasRemaining()) {
+                        offset += channel.write(buffer, offset);
+                    }
+                }
+
+                offset = align(offset);
+            }
+
+            channel.truncate(offset);
+        }
+    }
+
+    /**
+     * Maps the given file and returns it as a data set over the variables stored in it.
+     */
+    public static BoxDataSet openDataSet(File file) throws IOException {
+        MappedDataBox box = new MappedDataBox(file);
+        return new BoxDataSet(box, box.getVariables());
+    }
+
+    /**
+     * Generates a simple exemplar of this class to test serialization.
+     */
+    public static BoxDataSet serializableInstance() {
+        return new BoxDataSet(new ShortDataBox(4, 4), null);
+    }
+
+    /**
+     * @return a new list of the variables stored in the file.
+     */
+    public List<Node> getVariables() {
+        return new ArrayList<>(variables);
+    }
+
+    public int numRows() {
+        return numRows;
+    }
+
+    public int numCols() {
+        return types.length;
+    }
+
+    /**
+     * @throws UnsupportedOperationException always; mapped data are read-only.
+     */
+    public void set(int row, int col, Number value) {
+        throw new UnsupportedOperationException("Memory-mapped data are read-only.");
+    }
+
+    public Number get(int row, int col) {
+        if (types[col] == FLOAT64 || types[col] == FLOAT32) {
+            double datum = getDouble(row, col);
+            return Double.isNaN(datum) ? null : datum;
+        } else {
+            int datum = getInt(row, col);
+            return datum == -99 ? null : datum;
+        }
+    }
+
+    public double getDouble(int row, int col) {
+        ByteBuffer chunk = chunks[col][row >>> CHUNK_SHIFT];
+        int i = row & CHUNK_MASK;
+
+        switch (types[col]) {
+            case FLOAT64:
+                return chunk.getDouble(i << 3);
+            case FLOAT32:
+                return chunk.getFloat(i << 2);
+            default:
+                int datum = getInt(row, col);
+                return datum == -99 ? Double.NaN : datum;
+        }
+    }
+
+    public int getInt(int row, int col) {
+        ByteBuffer chunk = chunks[col][row >>> CHUNK_SHIFT];
+        int i = row & CHUNK_MASK;
+
+        switch (types[col]) {
+            case INT8:
+                return chunk.get(i);
+            case INT16:
+                return chunk.getShort(i << 1);
+            default:
+                double datum = getDouble(row, col);
+                return Double.isNaN(datum) ? -99 : (int) datum;
+        }
+    }
+
+    /**
+     * @return a new array holding the whole column. For large data, use readDoubles.
+     */
+    public double[] getDoubleColumn(int col) {
+        double[] column = new double[numRows];
+        readDoubles(col, 0, numRows, column);
+        return column;
+    }
+
+    /**
+     * @return a new array holding the whole column. For large data, use readInts.
+     */
+    public int[] getIntColumn(int col) {
+        int[] column = new int[numRows];
+        readInts(col, 0, numRows, column);
+        return column;
+    }
+
+    /**
+     * Copies rows from, from + 1, ..., from + length - 1 of the given column into the start of dest, as
+     * doubles with missing values as NaN. May be called from many threads at once.
+     */
+    public void readDoubles(int col, int from, int length, double[] dest) {
+        int done = 0;
+
+        while (done < length) {
+            int row = from + done;
+            int i = row & CHUNK_MASK;
+            int n = Math.min(length - done, CHUNK_MASK + 1 - i);
+            ByteBuffer chunk = chunks[col][row >>> CHUNK_SHIFT].duplicate().order(ByteOrder.LITTLE_ENDIAN);
+
+            switch (types[col]) {
+                case FLOAT64:
+                    chunk.position(i << 3);
+                    chunk.asDoubleBuffer().get(dest, done, n);
+                    break;
+                case FLOAT32:
+                    for (int k = 0; k < n; k++) dest[done + k] = chunk.getFloat((i + k) << 2);
+                    break;
+                case INT8:
+                    for (int k = 0; k < n; k++) {
+                        int datum = chunk.get(i + k);
+                        dest[done + k] = datum == -99 ? Double.NaN : datum;
+                    }
+                    break;
+                default:
+                    for (int k = 0; k < n; k++) {
+                        int datum = chunk.getShort((i + k) << 1);
+                        dest[done + k] = datum == -99 ? Double.NaN : datum;
+                    }
+            }
+
+            done += n;
+        }
+    }
+
+    /**
+     * Copies rows from, from + 1, ..., from + length - 1 of the given column into the start of dest, as
+     * ints with missing values as -99. May be called from many threads at once.
+     */
+    public void readInts(int col, int from, int length, int[] dest) {
+        int done = 0;
+
+        while (done < length) {
+            int row = from + done;
+            int i = row & CHUNK_MASK;
+            int n = Math.min(length - done, CHUNK_MASK + 1 - i);
+            ByteBuffer chunk = chunks[col][row >>> CHUNK_SHIFT];
+
+            switch (types[col]) {
+                case INT8:
+                    for (int k = 0; k < n; k++) dest[done + k] = chunk.get(i + k);
+                    break;
+                case INT16:
+                    for (int k = 0; k < n; k++) dest[done + k] = chunk.getShort((i + k) << 1);
+                    break;
+                default:
+                    for (int k = 0; k < n; k++) dest[done + k] = getInt(row + k, col);
+            }
+
+            done += n;
+        }
+    }
+
+    /**
+     * @return this box; since mapped data are read-only, there is no need to copy them.
+     */
+    public DataBox copy() {
+        return this;
+    }
+
+    /**
+     * @return an on-heap copy of this box.
+     */
+    public DataBox like() {
+        int[] rows = new int[numRows()];
+        int[] cols = new int[numCols()];
+
+        for (int i = 0; i < numRows(); i++) rows[i] = i;
+        for (int j = 0; j < numCols(); j++) cols[j] = j;
+
+        return viewSelection(rows, cols);
+    }
+
+    /**
+     * @return an on-heap MixedDataBox holding the selected rows and columns.
+     */
+    @Override
+    public DataBox viewSelection(int[] rows, int[] cols) {
+        List<Node> newVars = new ArrayList<>();
+
+        for (int c : cols) {
+            newVars.add(variables.get(c));
+        }
+
+        DataBox _dataBox = new MixedDataBox(newVars, rows.length);
+
+        for (int i = 0; i < rows.length; i++) {
+            for (int j = 0; j < cols.length; j++) {
+                _dataBox.set(i, j, get(rows[i], cols[j]));
+            }
+        }
+
+        return _dataBox;
+    }
+
+    //==============================PRIVATE=============================//
+
+    private void map() throws IOException {
+        try (FileChannel channel = new RandomAccessFile(path, "r").getChannel()) {
+            ByteBuffer length = ByteBuffer.allocate(4);
+            channel.read(length, 0);
+            length.flip();
+
+            int headerLength = length.getInt();
+            ByteBuffer headerBytes = ByteBuffer.allocate(headerLength);
+            channel.read(headerBytes, 4);
+
+            DataInputStream header = new DataInputStream(new ByteArrayInputStream(headerBytes.array()));
+
+            if (header.readInt() != MAGIC) {
+                throw new IOException("Not a mapped data file: " + path);
+            }
+
+            if (header.readInt() != VERSION) {
+                throw new IOException("Unsupported mapped data file version: " + path);
+            }
+
+            numRows = header.readInt();
+            int numCols = header.readInt();
+
+            types = new byte[numCols];
+            variables = new ArrayList<>();
+
+            for (int j = 0; j < numCols; j++) {
+                types[j] = header.readByte();
+                String name = header.readUTF();
+
+                if (types[j] == FLOAT64 || types[j] == FLOAT32) {
+                    variables.add(new ContinuousVariable(name));
+                } else {
+                    int numCategories = header.readInt();
+                    List<String> categories = new ArrayList<>();
+                    for (int k = 0; k < numCategories; k++) categories.add(header.readUTF());
+                    variables.add(new DiscreteVariable(name, categories));
+                }
+            }
+
+            long offset = align(4 + headerLength);
+            chunks = new ByteBuffer[numCols][];
+            int numChunks = (int) (((long) numRows + CHUNK_MASK) >>> CHUNK_SHIFT);
+
+            for (int j = 0; j < numCols; j++) {
+                int width = width(types[j]);
+                chunks[j] = new ByteBuffer[numChunks];
+
+                for (int c = 0; c < numChunks; c++) {
+                    long rows = Math.min(CHUNK_MASK + 1, numRows - ((long) c << CHUNK_SHIFT));
+                    chunks[j][c] = channel.map(FileChannel.MapMode.READ_ONLY, offset, rows * width)
+                            .order(ByteOrder.LITTLE_ENDIAN);
+                    offset += rows * width;
+                }
+
+                offset = align(offset);
+            }
+        }
+    }
+
+    private static int width(byte type) {
+        switch (type) {
+            case FLOAT64:
+                return 8;
+            case FLOAT32:
+                return 4;
+            case INT8:
+                return 1;
+            case INT16:
+                return 2;
+            default:
+                throw new IllegalStateException("Unknown column type: " + type);
+        }
+    }
+
+    // Columns start on 8 byte boundaries.
+    private static long align(long offset) {
+        return (offset + 7) & ~7L;
+    }
+
+    /**
+     * Remaps the file.
+     */
+    private void readObject(ObjectInputStream s)
+            throws IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        map();
+    }
+}
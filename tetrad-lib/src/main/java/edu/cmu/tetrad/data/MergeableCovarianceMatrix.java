@@ -0,0 +1,202 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+
+package edu.cmu.tetrad.data;
+
+import edu.cmu.tetrad.graph.Node;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * A covariance matrix that can be brought up to date as data arrive in batches, without going back over
+ * earlier data. The means and co-moments of each batch are kept (see CovarianceMoments), so adding a batch
+ * of b rows costs O(b p^2), and the matrix may be limited to a window of the most recent batches, older
+ * batches being dropped as new ones are added. Searches and tests that take an ICovarianceMatrix--SemBicScore,
+ * IndTestFisherZ--may be given this directly.
+ *
+ * @author Joseph Ramsey
+ */
+public class MergeableCovarianceMatrix extends CovarianceMatrix {
+    static final long serialVersionUID = 23L;
+
+    // The moments of each batch, oldest first.
+    private final LinkedList<CovarianceMoments> batches = new LinkedList<>();
+
+    // The moments of all batches together.
+    private CovarianceMoments moments;
+
+    // The largest number of batches kept, or -1 if all are kept.
+    private int window = -1;
+
+    /**
+     * Constructs a covariance matrix from a first batch of data, which must be continuous.
+     */
+    public MergeableCovarianceMatrix(DataSet dataSet) {
+        this(dataSet.getVariables(), moments(dataSet));
+    }
+
+    private MergeableCovarianceMatrix(List<Node> variables, CovarianceMoments batch) {
+        super(variables, batch.getCovariances(), (int) batch.getCount());
+        batches.add(batch);
+        moments = new CovarianceMoments(batch);
+    }
+
+    /**
+     * Generates a simple exemplar of this class to test serialization.
+     */
+    public static ICovarianceMatrix serializableInstance() {
+        List<Node> variables = new ArrayList<>();
+        variables.add(new ContinuousVariable("X"));
+        return new MergeableCovarianceMatrix(new BoxDataSet(new DoubleDataBox(new double[][]{{1}, {2}}), variables));
+    }
+
+    /**
+     * Adds a batch of data, which must have the same variables as this matrix, in the same order. If a window
+     * has been set, the oldest batches are dropped to stay within it.
+     */
+    public void addRows(DataSet dataSet) {
+        if (!dataSet.getVariableNames().equals(getVariableNames())) {
+            throw new IllegalArgumentException("Expecting variables " + getVariableNames() + ": "
+                    + dataSet.getVariableNames());
+        }
+
+        CovarianceMoments batch = new CovarianceMoments(getDimension());
+        batch.add(dataSet);
+        addBatch(batch);
+    }
+
+    /**
+     * Adds the batches of another matrix over the same variables, in order, as though they had been added
+     * to this one after its own.
+     */
+    public void merge(MergeableCovarianceMatrix other) {
+        if (!other.getVariableNames().equals(getVariableNames())) {
+            throw new IllegalArgumentException("Expecting variables " + getVariableNames() + ": "
+                    + other.getVariableNames());
+        }
+
+        for (CovarianceMoments batch : new ArrayList<>(other.batches)) {
+            addBatch(new CovarianceMoments(batch));
+        }
+    }
+
+    /**
+     * Limits the matrix to the given number of most recent batches, dropping older batches now and as new
+     * ones are added. A window of -1 keeps all batches.
+     */
+    public void setWindow(int window) {
+        if (window < 1 && window != -1) {
+            throw new IllegalArgumentException("Window must be at least 1, or -1 for no window: " + window);
+        }
+
+        this.window = window;
+
+        if (window != -1 && batches.size() > window) {
+            while (batches.size() > window) batches.removeFirst();
+            recalculate();
+        }
+    }
+
+    public int getWindow() {
+        return window;
+    }
+
+    /**
+     * Drops the oldest batch.
+     *
+     * @throws IllegalStateException if there is only one batch.
+     */
+    public void removeOldestBatch() {
+        if (batches.size() == 1) {
+            throw new IllegalStateException("Cannot remove the only batch.");
+        }
+
+        batches.removeFirst();
+        recalculate();
+    }
+
+    /**
+     * @return the number of batches the matrix is calculated from.
+     */
+    public int getNumBatches() {
+        return batches.size();
+    }
+
+    /**
+     * @return a copy of the moments of all batches together.
+     */
+    public CovarianceMoments getMoments() {
+        return new CovarianceMoments(moments);
+    }
+
+    //==============================PRIVATE METHODS==========================//
+
+    private static CovarianceMoments moments(DataSet dataSet) {
+        if (!dataSet.isContinuous()) {
+            throw new IllegalArgumentException("Not a continuous data set.");
+        }
+
+        CovarianceMoments batch = new CovarianceMoments(dataSet.getNumColumns());
+        batch.add(dataSet);
+
+        if (batch.getCount() < 2) {
+            throw new IllegalArgumentException("Need at least two rows without missing values.");
+        }
+
+        return batch;
+    }
+
+    private void addBatch(CovarianceMoments batch) {
+        batches.addLast(batch);
+
+        if (window != -1 && batches.size() > window) {
+            while (batches.size() > window) batches.removeFirst();
+            recalculate();
+        } else {
+            moments.merge(batch);
+            update();
+        }
+    }
+
+    // Merges the moments of the batches kept. Merging is cheap, O(p^2) a batch, and avoids the loss of
+    // precision that subtracting out the moments of a dropped batch could cause.
+    private void recalculate() {
+        moments = new CovarianceMoments(getDimension());
+
+        for (CovarianceMoments batch : batches) {
+            moments.merge(batch);
+        }
+
+        update();
+    }
+
+    private void update() {
+        if (moments.getCount() > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Too many rows for a covariance matrix: " + moments.getCount());
+        }
+
+        setMatrix(moments.getCovariances());
+        setSampleSize((int) moments.getCount());
+    }
+}
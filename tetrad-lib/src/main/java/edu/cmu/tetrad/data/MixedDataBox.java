@@ -88,9 +88,9 @@ public class MixedDataBox implements DataBox {
      */
     public void set(int row, int col, Number value) {
         if (continuousData[col] != null) {
-            continuousData[col][row] = value.doubleValue();
+            continuousData[col][row] = value == null ? Double.NaN : value.doubleValue();
         } else if (discreteData[col] != null) {
-            discreteData[col][row] = value.intValue();
+            discreteData[col][row] = value == null ? -99 : value.intValue();
         } else {
             throw new IllegalArgumentException("Indices out of bounds or null value.");
         }
@@ -112,6 +112,56 @@ public class MixedDataBox implements DataBox {
         throw new IllegalArgumentException("Indices out of range.");
     }
 
+    public double getDouble(int row, int col) {
+        if (continuousData[col] != null) {
+            return continuousData[col][row];
+        } else if (discreteData[col] != null) {
+            int datum = discreteData[col][row];
+            return datum == -99 ? Double.NaN : datum;
+        }
+
+        throw new IllegalArgumentException("Indices out of range.");
+    }
+
+    public int getInt(int row, int col) {
+        if (continuousData[col] != null) {
+            double datum = continuousData[col][row];
+            return Double.isNaN(datum) ? -99 : (int) datum;
+        } else if (discreteData[col] != null) {
+            return discreteData[col][row];
+        }
+
+        throw new IllegalArgumentException("Indices out of range.");
+    }
+
+    /**
+     * @return the stored column itself for a continuous column, otherwise a new
+     * array.
+     */
+    public double[] getDoubleColumn(int col) {
+        if (continuousData[col] != null) {
+            return continuousData[col];
+        }
+
+        double[] column = new double[numRows];
+        for (int i = 0; i < numRows; i++) column[i] = getDouble(i, col);
+        return column;
+    }
+
+    /**
+     * @return the stored column itself for a discrete column, otherwise a new
+     * array.
+     */
+    public int[] getIntColumn(int col) {
+        if (discreteData[col] != null) {
+            return discreteData[col];
+        }
+
+        int[] column = new int[numRows];
+        for (int i = 0; i < numRows; i++) column[i] = getInt(i, col);
+        return column;
+    }
+
     /**
      * @return a copy of this continuousData box.
      */
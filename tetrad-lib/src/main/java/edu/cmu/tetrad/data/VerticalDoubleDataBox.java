@@ -121,6 +121,31 @@ public class VerticalDoubleDataBox implements DataBox {
         return data[col][row];
     }
 
+    public double getDouble(int row, int col) {
+        return data[col][row];
+    }
+
+    public int getInt(int row, int col) {
+        double datum = data[col][row];
+        return Double.isNaN(datum) ? -99 : (int) datum;
+    }
+
+    /**
+     * @return the stored column itself, not a copy.
+     */
+    public double[] getDoubleColumn(int col) {
+        return data[col];
+    }
+
+    /**
+     * @return a new array holding the given column.
+     */
+    public int[] getIntColumn(int col) {
+        int[] column = new int[numRows()];
+        for (int i = 0; i < column.length; i++) column[i] = getInt(i, col);
+        return column;
+    }
+
     public double[][] getVariableVectors() {
         return data;
     }
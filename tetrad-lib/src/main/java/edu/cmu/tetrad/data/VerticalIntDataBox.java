@@ -125,6 +125,31 @@ public class VerticalIntDataBox implements DataBox {
         }
     }
 
+    public double getDouble(int row, int col) {
+        int datum = data[col][row];
+        return datum == -99 ? Double.NaN : datum;
+    }
+
+    public int getInt(int row, int col) {
+        return data[col][row];
+    }
+
+    /**
+     * @return a new array holding the given column.
+     */
+    public double[] getDoubleColumn(int col) {
+        double[] column = new double[numRows()];
+        for (int i = 0; i < column.length; i++) column[i] = getDouble(i, col);
+        return column;
+    }
+
+    /**
+     * @return the stored column itself, not a copy.
+     */
+    public int[] getIntColumn(int col) {
+        return data[col];
+    }
+
     public int[][] getVariableVectors() {
         return data;
     }
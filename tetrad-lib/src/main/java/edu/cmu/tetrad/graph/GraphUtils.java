@@ -55,6 +55,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
+import java.util.Random;
 import java.util.Set;
 import java.util.concurrent.RecursiveTask;
 import java.util.regex.Matcher;
@@ -552,7 +553,7 @@ public final class GraphUtils {
 //                G.add_edge(v,w)
 //
 //                return G
-        Collections.shuffle(_nodes);
+        Collections.shuffle(_nodes, new Random(RandomUtil.getInstance().nextLong()));
 
         LinkedList<Node> nodes = new LinkedList<>();
         nodes.add(_nodes.get(0));
@@ -1001,7 +1002,7 @@ public final class GraphUtils {
 
     public static void addTwoCycles(Graph graph, int numTwoCycles) {
         List<Edge> edges = new ArrayList<>(graph.getEdges());
-        Collections.shuffle(edges);
+        Collections.shuffle(edges, new Random(RandomUtil.getInstance().nextLong()));
 
         for (int i = 0; i < Math.min(numTwoCycles, edges.size()); i++) {
             Edge edge = edges.get(i);
@@ -21,9 +21,6 @@ package edu.cmu.tetrad.io;
 import edu.cmu.tetrad.data.ContinuousVariable;
 import edu.cmu.tetrad.graph.Node;
 import java.io.IOException;
-import java.io.RandomAccessFile;
-import java.nio.MappedByteBuffer;
-import java.nio.channels.FileChannel;
 import java.nio.file.Path;
 import java.util.LinkedList;
 import java.util.List;
@@ -71,10 +68,112 @@ public abstract class AbstractContinuousDataReader extends AbstractDataReader {
     protected void extractVariables(Set<String> excludedVariables, ContinuousVariableAnalysis variableAnalysis) throws IOException {
         List<Integer> excludedVarIndices = new LinkedList<>();
         List<Node> nodes = new LinkedList<>();
-        try (FileChannel fc = new RandomAccessFile(dataFile.toFile(), "r").getChannel()) {
-            MappedByteBuffer buffer = fc.map(FileChannel.MapMode.READ_ONLY, 0, fc.size());
+        MappedFile.Cursor buffer = getMappedFile().cursor();
 
-            int index = 0;
+        int index = 0;
+        byte currentChar = -1;
+        byte prevChar = NEW_LINE;
+        StringBuilder dataBuilder = new StringBuilder();
+        while (buffer.hasRemaining()) {
+            currentChar = buffer.get();
+            if (currentChar == CARRIAGE_RETURN) {
+                currentChar = NEW_LINE;
+            }
+
+            if (currentChar == delimiter || (currentChar == NEW_LINE && prevChar != NEW_LINE)) {
+                String value = dataBuilder.toString().trim();
+                dataBuilder.delete(0, dataBuilder.length());
+                if (value.length() > 0) {
+                    if (excludedVariables.contains(value)) {
+                        excludedVarIndices.add(index);
+                    } else {
+                        nodes.add(new ContinuousVariable(value));
+                    }
+                } else {
+                    String errMsg = String.format("Missing variable name at column %d.", index + 1);
+                    LOGGER.error(errMsg);
+                    throw new IOException(errMsg);
+                }
+
+                index++;
+                if (currentChar == NEW_LINE) {
+                    break;
+                }
+            } else if (currentChar != SINGLE_QUOTE && currentChar != DOUBLE_QUOTE) {
+                dataBuilder.append((char) currentChar);
+            }
+
+            prevChar = currentChar;
+        }
+        if (currentChar > -1 && currentChar != NEW_LINE) {
+            if (currentChar == delimiter) {
+                String errMsg = String.format("Missing variable name at column %d.", index + 1);
+                LOGGER.error(errMsg);
+                throw new IOException(errMsg);
+            } else {
+                String value = dataBuilder.toString().trim();
+                dataBuilder.delete(0, dataBuilder.length());
+                if (value.length() > 0) {
+                    if (excludedVariables.contains(value)) {
+                        excludedVarIndices.add(index);
+                    } else {
+                        nodes.add(new ContinuousVariable(value));
+                    }
+                } else {
+                    String errMsg = String.format("Missing variable name at column %d.", index + 1);
+                    LOGGER.error(errMsg);
+                    throw new IOException(errMsg);
+                }
+            }
+        }
+
+        // add a dummy index if there are no variables to exclude
+        if (excludedVarIndices.isEmpty()) {
+            excludedVarIndices.add(-1);
+        }
+
+        int[] excludedIndices = new int[excludedVarIndices.size()];
+        int i = 0;
+        for (Integer excludedIndex : excludedVarIndices) {
+            excludedIndices[i++] = excludedIndex;
+        }
+        variableAnalysis.setExcludedIndices(excludedIndices);
+
+        variableAnalysis.setVariables(nodes);
+    }
+
+    /**
+     * Reads the rows of one part of the file, passing each to addRow.
+     */
+    protected abstract class ContinuousDataPart extends DataPart {
+
+        private final int maxNumOfCols;
+        private final int numOfCols;
+        private final int[] excludedIndices;
+
+        public ContinuousDataPart(int maxNumOfCols, int numOfCols, int[] excludedIndices) {
+            this.maxNumOfCols = maxNumOfCols;
+            this.numOfCols = numOfCols;
+            this.excludedIndices = excludedIndices;
+        }
+
+        /**
+         * Takes a row of values, in the order of the variables read.
+         *
+         * @param values
+         * @return the array to read the next row into.
+         */
+        protected abstract double[] addRow(double[] values);
+
+        @Override
+        protected int read(MappedFile.Cursor buffer) throws LineException {
+            int excludedIndex = 0;
+            int excludedColumn = excludedIndices[excludedIndex];
+
+            double[] values = new double[numOfCols];
+            int row = 0;
+            int col = 0;
+            int colCount = 0;
             byte currentChar = -1;
             byte prevChar = NEW_LINE;
             StringBuilder dataBuilder = new StringBuilder();
@@ -85,25 +184,43 @@ public abstract class AbstractContinuousDataReader extends AbstractDataReader {
                 }
 
                 if (currentChar == delimiter || (currentChar == NEW_LINE && prevChar != NEW_LINE)) {
-                    String value = dataBuilder.toString().trim();
+                    String value = dataBuilder.toString();
                     dataBuilder.delete(0, dataBuilder.length());
-                    if (value.length() > 0) {
-                        if (excludedVariables.contains(value)) {
-                            excludedVarIndices.add(index);
-                        } else {
-                            nodes.add(new ContinuousVariable(value));
+                    if (colCount == excludedColumn) {
+                        excludedIndex++;
+                        if (excludedIndex < excludedIndices.length) {
+                            excludedColumn = excludedIndices[excludedIndex];
                         }
                     } else {
-                        String errMsg = String.format("Missing variable name at column %d.", index + 1);
-                        LOGGER.error(errMsg);
-                        throw new IOException(errMsg);
+                        if (colCount < maxNumOfCols) {
+                            if (value.length() > 0) {
+                                try {
+                                    values[col++] = Double.parseDouble(value);
+                                } catch (NumberFormatException exception) {
+                                    throw new LineException(exception, row, "Unable to parse data at line %d column %d.", colCount + 1);
+                                }
+                            } else {
+                                throw new LineException(row, "Missing data at line %d column %d.", colCount + 1);
+                            }
+                        } else {
+                            throw new LineException(row, "Number of columns exceeded at line %d.  Expect %d column(s) but found %d.", maxNumOfCols, colCount + 1);
+                        }
                     }
 
-                    index++;
+                    colCount++;
                     if (currentChar == NEW_LINE) {
-                        break;
+                        if (col < numOfCols) {
+                            throw new LineException(row, "Insufficient number of columns at line %d.  Expect %d column(s) but found %d.", maxNumOfCols, colCount);
+                        }
+                        values = addRow(values);
+                        colCount = 0;
+                        col = 0;
+                        row++;
+
+                        excludedIndex = 0;
+                        excludedColumn = excludedIndices[excludedIndex];
                     }
-                } else if (currentChar != SINGLE_QUOTE && currentChar != DOUBLE_QUOTE) {
+                } else if (currentChar > SPACE && (currentChar != SINGLE_QUOTE && currentChar != DOUBLE_QUOTE)) {
                     dataBuilder.append((char) currentChar);
                 }
 
@@ -111,40 +228,33 @@ public abstract class AbstractContinuousDataReader extends AbstractDataReader {
             }
             if (currentChar > -1 && currentChar != NEW_LINE) {
                 if (currentChar == delimiter) {
-                    String errMsg = String.format("Missing variable name at column %d.", index + 1);
-                    LOGGER.error(errMsg);
-                    throw new IOException(errMsg);
+                    throw new LineException(row, "Missing data at line %d column %d.", col + 1);
                 } else {
-                    String value = dataBuilder.toString().trim();
+                    String value = dataBuilder.toString();
                     dataBuilder.delete(0, dataBuilder.length());
-                    if (value.length() > 0) {
-                        if (excludedVariables.contains(value)) {
-                            excludedVarIndices.add(index);
+                    if (colCount != excludedColumn) {
+                        if (colCount < maxNumOfCols) {
+                            if (value.length() > 0) {
+                                try {
+                                    values[col++] = Double.parseDouble(value);
+                                } catch (NumberFormatException exception) {
+                                    throw new LineException(exception, row, "Unable to parse data at line %d column %d.", colCount + 1);
+                                }
+                            } else {
+                                throw new LineException(row, "Missing data at line %d column %d.", colCount + 1);
+                            }
                         } else {
-                            nodes.add(new ContinuousVariable(value));
+                            throw new LineException(row, "Number of columns exceeded at line %d.  Expect %d column(s) but found %d.", maxNumOfCols, colCount + 1);
                         }
-                    } else {
-                        String errMsg = String.format("Missing variable name at column %d.", index + 1);
-                        LOGGER.error(errMsg);
-                        throw new IOException(errMsg);
                     }
+                    addRow(values);
+                    row++;
                 }
             }
-        }
-
-        // add a dummy index if there are no variables to exclude
-        if (excludedVarIndices.isEmpty()) {
-            excludedVarIndices.add(-1);
-        }
 
-        int[] excludedIndices = new int[excludedVarIndices.size()];
-        int index = 0;
-        for (Integer excludedIndex : excludedVarIndices) {
-            excludedIndices[index++] = excludedIndex;
+            return row;
         }
-        variableAnalysis.setExcludedIndices(excludedIndices);
 
-        variableAnalysis.setVariables(nodes);
     }
 
     /**
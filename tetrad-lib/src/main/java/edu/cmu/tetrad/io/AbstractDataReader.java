@@ -18,11 +18,14 @@
  */
 package edu.cmu.tetrad.io;
 
+import edu.cmu.tetrad.util.ForkJoinPoolInstance;
 import java.io.IOException;
-import java.io.RandomAccessFile;
-import java.nio.MappedByteBuffer;
-import java.nio.channels.FileChannel;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * This class contains all the basic functions that the data readers should
@@ -34,6 +37,8 @@ import java.nio.file.Path;
  */
 public abstract class AbstractDataReader {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(AbstractDataReader.class);
+
     protected static final byte NEW_LINE = '\n';
 
     protected static final byte CARRIAGE_RETURN = '\r';
@@ -44,12 +49,20 @@ public abstract class AbstractDataReader {
 
     protected static final byte SPACE = ' ';
 
+    /**
+     * The smallest part of a file that is worth reading in a task of its own.
+     */
+    protected static final long MIN_PART_SIZE = 1 << 16;
+
     protected int lineCount;
     protected int columnCount;
 
     protected final Path dataFile;
     protected final char delimiter;
 
+    // The file, mapped once and shared by all passes over it.
+    private MappedFile mappedFile;
+
     public AbstractDataReader(Path dataFile, char delimiter) {
         this.dataFile = dataFile;
         this.delimiter = delimiter;
@@ -66,30 +79,28 @@ public abstract class AbstractDataReader {
     public int countNumberOfColumns() throws IOException {
         if (columnCount == -1) {
             int count = 0;
-            try (FileChannel fc = new RandomAccessFile(dataFile.toFile(), "r").getChannel()) {
-                MappedByteBuffer buffer = fc.map(FileChannel.MapMode.READ_ONLY, 0, fc.size());
-                byte currentChar = -1;
-                byte prevChar = NEW_LINE;
-                while (buffer.hasRemaining()) {
-                    currentChar = buffer.get();
-                    if (currentChar == CARRIAGE_RETURN) {
-                        currentChar = NEW_LINE;
-                    }
-
-                    if (currentChar == delimiter || (currentChar == NEW_LINE && prevChar != NEW_LINE)) {
-                        count++;
-                        if (currentChar == NEW_LINE) {
-                            break;
-                        }
-                    }
-
-                    prevChar = currentChar;
+            MappedFile.Cursor buffer = getMappedFile().cursor();
+            byte currentChar = -1;
+            byte prevChar = NEW_LINE;
+            while (buffer.hasRemaining()) {
+                currentChar = buffer.get();
+                if (currentChar == CARRIAGE_RETURN) {
+                    currentChar = NEW_LINE;
                 }
 
-                // cases where file has no newline at the end of the file
-                if (!(currentChar == -1 || currentChar == NEW_LINE)) {
+                if (currentChar == delimiter || (currentChar == NEW_LINE && prevChar != NEW_LINE)) {
                     count++;
+                    if (currentChar == NEW_LINE) {
+                        break;
+                    }
                 }
+
+                prevChar = currentChar;
+            }
+
+            // cases where file has no newline at the end of the file
+            if (!(currentChar == -1 || currentChar == NEW_LINE)) {
+                count++;
             }
             columnCount = count;
         }
@@ -98,34 +109,24 @@ public abstract class AbstractDataReader {
     }
 
     /**
-     * Count number of lines that contain data.
+     * Count number of lines that contain data. The file is counted in parts,
+     * in parallel.
      *
      * @return
      * @throws IOException
      */
     public int countNumberOfLines() throws IOException {
         if (lineCount == -1) {
-            int count = 0;
-            try (FileChannel fc = new RandomAccessFile(dataFile.toFile(), "r").getChannel()) {
-                MappedByteBuffer buffer = fc.map(FileChannel.MapMode.READ_ONLY, 0, fc.size());
-                byte prevChar = NEW_LINE;
-                while (buffer.hasRemaining()) {
-                    byte currentChar = buffer.get();
-                    if (currentChar == CARRIAGE_RETURN) {
-                        currentChar = NEW_LINE;
-                    }
+            List<DataPart> parts = new ArrayList<>();
+            for (int i = 0; i < getNumParts(0); i++) {
+                parts.add(new LineCountPart());
+            }
 
-                    if (currentChar == NEW_LINE && prevChar != NEW_LINE) {
-                        count++;
-                    }
+            readParts(0, parts);
 
-                    prevChar = currentChar;
-                }
-
-                // cases where file has no newline at the end of the file
-                if (prevChar != NEW_LINE) {
-                    count++;
-                }
+            int count = 0;
+            for (DataPart part : parts) {
+                count += part.getNumRows();
             }
             lineCount = count;
         }
@@ -134,11 +135,11 @@ public abstract class AbstractDataReader {
     }
 
     /**
-     * Advance the current position of the buffer to the next line.
+     * Advance the current position of the cursor to the next line.
      *
      * @param buffer
      */
-    protected void skipToNextLine(MappedByteBuffer buffer) {
+    protected void skipToNextLine(MappedFile.Cursor buffer) {
         byte currentChar;
         byte prevChar = NEW_LINE;
         while (buffer.hasRemaining()) {
@@ -156,4 +157,217 @@ public abstract class AbstractDataReader {
         }
     }
 
+    /**
+     * The data file, mapped into memory. The file is mapped on first use.
+     *
+     * @return
+     * @throws IOException
+     */
+    protected MappedFile getMappedFile() throws IOException {
+        if (mappedFile == null) {
+            mappedFile = new MappedFile(dataFile);
+        }
+
+        return mappedFile;
+    }
+
+    /**
+     * Position in the file of the first line after the header.
+     *
+     * @return
+     * @throws IOException
+     */
+    protected long getDataStart() throws IOException {
+        MappedFile.Cursor cursor = getMappedFile().cursor();
+        skipToNextLine(cursor);
+        return cursor.position();
+    }
+
+    /**
+     * The number of parts the file from the given position on should be read
+     * in, a few per processor so that the parts balance out, but none smaller
+     * than MIN_PART_SIZE.
+     *
+     * @param from
+     * @return
+     * @throws IOException
+     */
+    protected int getNumParts(long from) throws IOException {
+        long numParts = (getMappedFile().size() - from) / MIN_PART_SIZE;
+        int maxParts = 4 * Runtime.getRuntime().availableProcessors();
+        return (int) Math.max(1, Math.min(maxParts, numParts));
+    }
+
+    /**
+     * Reads the data lines from the given position to the end of the file,
+     * splitting them at line breaks into as many ranges as there are parts
+     * and reading the ranges in parallel, each into its own part. The first
+     * part gets the first range, and so on, so the rows of the parts, taken
+     * in order, are the rows of the file.
+     *
+     * @param from position of the first data line
+     * @param parts
+     * @throws IOException the error in the earliest line at which reading
+     * failed, if reading failed
+     */
+    protected void readParts(long from, List<? extends DataPart> parts) throws IOException {
+        final MappedFile file = getMappedFile();
+        final long size = file.size();
+        final int numParts = parts.size();
+
+        long[] bounds = new long[numParts + 1];
+        bounds[0] = from;
+        bounds[numParts] = size;
+
+        for (int i = 1; i < numParts; i++) {
+            long bound = Math.max(bounds[i - 1], from + (size - from) / numParts * i);
+
+            while (bound < size && bound > bounds[i - 1]) {
+                byte prevChar = file.get(bound - 1);
+                if (prevChar == NEW_LINE || prevChar == CARRIAGE_RETURN) {
+                    break;
+                }
+                bound++;
+            }
+
+            bounds[i] = bound;
+        }
+
+        final List<ReadPartTask> tasks = new ArrayList<>();
+
+        for (int i = 0; i < numParts; i++) {
+            tasks.add(new ReadPartTask(parts.get(i), file.cursor(bounds[i], bounds[i + 1])));
+        }
+
+        ForkJoinPoolInstance.getInstance().getPool().invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(tasks);
+            }
+        });
+
+        int numRows = 0;
+
+        for (DataPart part : parts) {
+            LineException e = part.error;
+
+            if (e != null) {
+                Object[] args = new Object[e.args.length + 1];
+                args[0] = numRows + e.row + 2;  // data start on the second row
+                System.arraycopy(e.args, 0, args, 1, e.args.length);
+                String errMsg = String.format(e.format, args);
+                LOGGER.error(errMsg);
+                throw new IOException(errMsg, e.getCause());
+            }
+
+            numRows += part.numRows;
+        }
+    }
+
+    /**
+     * Reads the lines in one range of the file.
+     */
+    protected static abstract class DataPart {
+
+        private int numRows;
+        private LineException error;
+
+        /**
+         * Reads the lines up to the end of the cursor.
+         *
+         * @param buffer
+         * @return the number of data rows read.
+         * @throws LineException if a line cannot be read.
+         */
+        protected abstract int read(MappedFile.Cursor buffer) throws LineException;
+
+        /**
+         * @return the number of data rows read.
+         */
+        public int getNumRows() {
+            return numRows;
+        }
+
+    }
+
+    /**
+     * An error in a line of a part of the file. The line is only known
+     * relative to the start of the part, so the message is kept as a format
+     * whose first argument, the line number, is filled in once the number of
+     * lines before the part is known.
+     */
+    protected static class LineException extends Exception {
+
+        private final int row;
+        private final String format;
+        private final Object[] args;
+
+        /**
+         * @param row the row, counted from zero at the start of the part
+         * @param format a message format taking the line number and then args
+         * @param args
+         */
+        public LineException(int row, String format, Object... args) {
+            this(null, row, format, args);
+        }
+
+        public LineException(Throwable cause, int row, String format, Object... args) {
+            super(format, cause);
+            this.row = row;
+            this.format = format;
+            this.args = args;
+        }
+
+    }
+
+    private static class LineCountPart extends DataPart {
+
+        @Override
+        protected int read(MappedFile.Cursor buffer) {
+            int count = 0;
+            byte prevChar = NEW_LINE;
+            while (buffer.hasRemaining()) {
+                byte currentChar = buffer.get();
+                if (currentChar == CARRIAGE_RETURN) {
+                    currentChar = NEW_LINE;
+                }
+
+                if (currentChar == NEW_LINE && prevChar != NEW_LINE) {
+                    count++;
+                }
+
+                prevChar = currentChar;
+            }
+
+            // cases where file has no newline at the end of the file
+            if (prevChar != NEW_LINE) {
+                count++;
+            }
+
+            return count;
+        }
+
+    }
+
+    private static class ReadPartTask extends RecursiveAction {
+
+        private final DataPart part;
+        private final MappedFile.Cursor cursor;
+
+        public ReadPartTask(DataPart part, MappedFile.Cursor cursor) {
+            this.part = part;
+            this.cursor = cursor;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                part.numRows = part.read(cursor);
+            } catch (LineException exception) {
+                part.error = exception;
+            }
+        }
+
+    }
+
 }
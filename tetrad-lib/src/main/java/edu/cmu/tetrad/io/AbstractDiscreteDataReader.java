@@ -21,11 +21,10 @@ package edu.cmu.tetrad.io;
 import edu.cmu.tetrad.data.DiscreteVariable;
 import edu.cmu.tetrad.graph.Node;
 import java.io.IOException;
-import java.io.RandomAccessFile;
-import java.nio.MappedByteBuffer;
-import java.nio.channels.FileChannel;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -68,110 +67,62 @@ public abstract class AbstractDiscreteDataReader extends AbstractDataReader {
     }
 
     /**
-     * Method to start analyzing variables.
+     * Collect the values for the variables and encode the data in a single
+     * pass. The lines after the header are read in parts, in parallel, each
+     * part coding the values of each variable in the order it first sees
+     * them. The values seen by the parts are then put together and
+     * recategorized, and the codes of the parts translated into the codes
+     * of the recategorized variables.
      *
-     * @param excludedVariables set of variables to disregard
-     * @return variable information
-     * @throws IOException whenever unable to read file
-     */
-    protected DiscreteVariableAnalysis analyzeVariables(Set<String> excludedVariables) throws IOException {
-        DiscreteVariableAnalysis variableAnalysis = new DiscreteVariableAnalysis();
-        extractVariables(excludedVariables, variableAnalysis);
-        extractVariableValues(excludedVariables, variableAnalysis);
-
-        return variableAnalysis;
-    }
-
-    /**
-     * Collect the values for the variables.
-     *
-     * @param excludedVariables set of variables to disregard
-     * @param variableAnalysis object to hold results
+     * @param variableAnalysis object holding the variables, as extracted by
+     * extractVariables; the variables are recategorized.
+     * @return the encoded data, by column.
      * @throws IOException whenever unable to read file
      */
-    protected void extractVariableValues(Set<String> excludedVariables, DiscreteVariableAnalysis variableAnalysis) throws IOException {
+    protected int[][] extractAndEncodeData(DiscreteVariableAnalysis variableAnalysis) throws IOException {
         DiscreteVarInfo[] discreteVarInfos = variableAnalysis.getDiscreteVarInfos();
-        int numOfCols = variableAnalysis.numOfCols;
-        int maxNumOfVariables = discreteVarInfos.length;
-        try (FileChannel fc = new RandomAccessFile(dataFile.toFile(), "r").getChannel()) {
-            MappedByteBuffer buffer = fc.map(FileChannel.MapMode.READ_ONLY, 0, fc.size());
+        int numOfCols = variableAnalysis.getNumOfCols();
 
-            skipToNextLine(buffer);  // skip header
+        long dataStart = getDataStart();
+        List<DiscreteDataPart> parts = new ArrayList<>();
+        for (int i = 0; i < getNumParts(dataStart); i++) {
+            parts.add(new DiscreteDataPart(discreteVarInfos, numOfCols));
+        }
 
-            int columnIndex = 0;
-            int rowCount = 2;  // data start on the second row
-            byte currentChar = -1;
-            byte prevChar = NEW_LINE;
-            StringBuilder dataBuilder = new StringBuilder();
-            while (buffer.hasRemaining()) {
-                currentChar = buffer.get();
-                if (currentChar == CARRIAGE_RETURN) {
-                    currentChar = NEW_LINE;
+        readParts(dataStart, parts);
+
+        int numOfRows = 0;
+        for (DiscreteDataPart part : parts) {
+            for (int col = 0; col < numOfCols; col++) {
+                for (String value : part.values.get(col)) {
+                    part.variables[col].setValue(value);
                 }
+            }
+            numOfRows += part.getNumRows();
+        }
 
-                if (currentChar == delimiter || (currentChar == NEW_LINE && prevChar != NEW_LINE)) {
-                    String value = dataBuilder.toString().trim();
-                    dataBuilder.delete(0, dataBuilder.length());
-                    if (columnIndex < maxNumOfVariables) {
-                        DiscreteVarInfo variable = discreteVarInfos[columnIndex];
-                        if (variable != null) {
-                            if (value.length() > 0) {
-                                variable.setValue(value);
-                            } else {
-                                String errMsg = String.format("Missing data at line %d column %d.", rowCount, columnIndex + 1);
-                                LOGGER.error(errMsg);
-                                throw new IOException(errMsg);
-                            }
-                        }
-                    } else {
-                        String errMsg = String.format("Number of columns exceeded at line %d.  Expect %d column(s) but found %d.", rowCount, maxNumOfVariables, columnIndex + 1);
-                        LOGGER.error(errMsg);
-                        throw new IOException(errMsg);
-                    }
+        variableAnalysis.recategorize();
 
-                    columnIndex++;
-                    if (currentChar == NEW_LINE) {
-                        if (columnIndex < numOfCols) {
-                            String errMsg = String.format("Insufficient number of columns at line %d.  Expect %d column(s) but found %d.", rowCount, numOfCols, columnIndex);
-                            LOGGER.error(errMsg);
-                            throw new IOException(errMsg);
-                        }
-                        columnIndex = 0;
-                        rowCount++;
-                    }
-                } else if (currentChar != SINGLE_QUOTE && currentChar != DOUBLE_QUOTE) {
-                    dataBuilder.append((char) currentChar);
+        int[][] data = new int[numOfCols][numOfRows];
+        int offset = 0;
+        for (DiscreteDataPart part : parts) {
+            for (int col = 0; col < numOfCols; col++) {
+                List<String> values = part.values.get(col);
+                int[] encodeValues = new int[values.size()];
+                for (int i = 0; i < encodeValues.length; i++) {
+                    encodeValues[i] = part.variables[col].getEncodeValue(values.get(i));
                 }
 
-                prevChar = currentChar;
-            }
-            if (currentChar > -1 && currentChar != NEW_LINE) {
-                if (columnIndex < maxNumOfVariables) {
-                    DiscreteVarInfo variable = discreteVarInfos[columnIndex];
-                    if (variable != null) {
-                        if (currentChar == delimiter) {
-                            String errMsg = String.format("Missing data at line %d column %d.", rowCount, columnIndex + 1);
-                            LOGGER.error(errMsg);
-                            throw new IOException(errMsg);
-                        } else {
-                            String value = dataBuilder.toString().trim();
-                            dataBuilder.delete(0, dataBuilder.length());
-                            if (value.length() > 0) {
-                                variable.setValue(value);
-                            } else {
-                                String errMsg = String.format("Missing data at line %d column %d.", rowCount, columnIndex + 1);
-                                LOGGER.error(errMsg);
-                                throw new IOException(errMsg);
-                            }
-                        }
-                    }
-                } else {
-                    String errMsg = String.format("Number of columns exceeded at line %d.  Expect %d column(s) but found %d.", rowCount, numOfCols, columnIndex + 1);
-                    LOGGER.error(errMsg);
-                    throw new IOException(errMsg);
+                int[] codes = part.data[col];
+                int[] column = data[col];
+                for (int row = 0; row < part.getNumRows(); row++) {
+                    column[offset + row] = encodeValues[codes[row]];
                 }
             }
+            offset += part.getNumRows();
         }
+
+        return data;
     }
 
     /**
@@ -184,61 +135,59 @@ public abstract class AbstractDiscreteDataReader extends AbstractDataReader {
     protected void extractVariables(Set<String> excludedVariables, DiscreteVariableAnalysis variableAnalysis) throws IOException {
         int numOfCols = 0;
         DiscreteVarInfo[] discreteVarInfos = new DiscreteVarInfo[countNumberOfColumns()];
-        try (FileChannel fc = new RandomAccessFile(dataFile.toFile(), "r").getChannel()) {
-            MappedByteBuffer buffer = fc.map(FileChannel.MapMode.READ_ONLY, 0, fc.size());
-
-            int index = 0;
-            byte currentChar = -1;
-            byte prevChar = NEW_LINE;
-            StringBuilder dataBuilder = new StringBuilder();
-            while (buffer.hasRemaining()) {
-                currentChar = buffer.get();
-                if (currentChar == CARRIAGE_RETURN) {
-                    currentChar = NEW_LINE;
-                }
-
-                if (currentChar == delimiter || (currentChar == NEW_LINE && prevChar != NEW_LINE)) {
-                    String value = dataBuilder.toString().trim();
-                    dataBuilder.delete(0, dataBuilder.length());
-                    if (value.length() > 0) {
-                        if (!excludedVariables.contains(value)) {
-                            discreteVarInfos[index] = new DiscreteVarInfo(value);
-                            numOfCols++;
-                        }
-                    } else {
-                        String errMsg = String.format("Missing variable name at column %d.", index + 1);
-                        LOGGER.error(errMsg);
-                        throw new IOException(errMsg);
-                    }
+        MappedFile.Cursor buffer = getMappedFile().cursor();
+
+        int index = 0;
+        byte currentChar = -1;
+        byte prevChar = NEW_LINE;
+        StringBuilder dataBuilder = new StringBuilder();
+        while (buffer.hasRemaining()) {
+            currentChar = buffer.get();
+            if (currentChar == CARRIAGE_RETURN) {
+                currentChar = NEW_LINE;
+            }
 
-                    index++;
-                    if (currentChar == NEW_LINE) {
-                        break;
+            if (currentChar == delimiter || (currentChar == NEW_LINE && prevChar != NEW_LINE)) {
+                String value = dataBuilder.toString().trim();
+                dataBuilder.delete(0, dataBuilder.length());
+                if (value.length() > 0) {
+                    if (!excludedVariables.contains(value)) {
+                        discreteVarInfos[index] = new DiscreteVarInfo(value);
+                        numOfCols++;
                     }
-                } else if (currentChar != SINGLE_QUOTE && currentChar != DOUBLE_QUOTE) {
-                    dataBuilder.append((char) currentChar);
+                } else {
+                    String errMsg = String.format("Missing variable name at column %d.", index + 1);
+                    LOGGER.error(errMsg);
+                    throw new IOException(errMsg);
                 }
 
-                prevChar = currentChar;
+                index++;
+                if (currentChar == NEW_LINE) {
+                    break;
+                }
+            } else if (currentChar != SINGLE_QUOTE && currentChar != DOUBLE_QUOTE) {
+                dataBuilder.append((char) currentChar);
             }
-            if (currentChar > -1 && currentChar != NEW_LINE) {
-                if (currentChar == delimiter) {
+
+            prevChar = currentChar;
+        }
+        if (currentChar > -1 && currentChar != NEW_LINE) {
+            if (currentChar == delimiter) {
+                String errMsg = String.format("Missing variable name at column %d.", index + 1);
+                LOGGER.error(errMsg);
+                throw new IOException(errMsg);
+            } else {
+                String value = dataBuilder.toString().trim();
+                dataBuilder.delete(0, dataBuilder.length());
+                if (value.length() > 0) {
+                    if (!excludedVariables.contains(value)) {
+                        discreteVarInfos[index] = new DiscreteVarInfo(value);
+                        numOfCols++;
+                    }
+                } else {
                     String errMsg = String.format("Missing variable name at column %d.", index + 1);
                     LOGGER.error(errMsg);
                     throw new IOException(errMsg);
-                } else {
-                    String value = dataBuilder.toString().trim();
-                    dataBuilder.delete(0, dataBuilder.length());
-                    if (value.length() > 0) {
-                        if (!excludedVariables.contains(value)) {
-                            discreteVarInfos[index] = new DiscreteVarInfo(value);
-                            numOfCols++;
-                        }
-                    } else {
-                        String errMsg = String.format("Missing variable name at column %d.", index + 1);
-                        LOGGER.error(errMsg);
-                        throw new IOException(errMsg);
-                    }
                 }
             }
         }
@@ -333,4 +282,129 @@ public abstract class AbstractDiscreteDataReader extends AbstractDataReader {
 
     }
 
+    /**
+     * Reads and codes the values in one part of the file.
+     */
+    private class DiscreteDataPart extends DataPart {
+
+        private final DiscreteVarInfo[] discreteVarInfos;
+        private final int numOfCols;
+
+        // The variables that are read, in order.
+        private final DiscreteVarInfo[] variables;
+
+        // For each variable read, the values seen, in the order first seen,
+        // and their codes.
+        private final List<List<String>> values = new ArrayList<>();
+        private final List<Map<String, Integer>> codes = new ArrayList<>();
+
+        // The codes of the data, by column.
+        private int[][] data;
+
+        public DiscreteDataPart(DiscreteVarInfo[] discreteVarInfos, int numOfCols) {
+            this.discreteVarInfos = discreteVarInfos;
+            this.numOfCols = numOfCols;
+            this.variables = new DiscreteVarInfo[numOfCols];
+            this.data = new int[numOfCols][16];
+
+            int col = 0;
+            for (DiscreteVarInfo variable : discreteVarInfos) {
+                if (variable != null) {
+                    variables[col++] = variable;
+                    values.add(new ArrayList<String>());
+                    codes.add(new HashMap<String, Integer>());
+                }
+            }
+        }
+
+        @Override
+        protected int read(MappedFile.Cursor buffer) throws LineException {
+            int maxNumOfCols = discreteVarInfos.length;
+
+            int colCount = 0;
+            int col = 0;
+            int row = 0;
+            byte currentChar = -1;
+            byte prevChar = NEW_LINE;
+            StringBuilder dataBuilder = new StringBuilder();
+            while (buffer.hasRemaining()) {
+                currentChar = buffer.get();
+                if (currentChar == CARRIAGE_RETURN) {
+                    currentChar = NEW_LINE;
+                }
+
+                if (currentChar == delimiter || (currentChar == NEW_LINE && prevChar != NEW_LINE)) {
+                    String value = dataBuilder.toString().trim();
+                    dataBuilder.delete(0, dataBuilder.length());
+                    if (colCount < maxNumOfCols) {
+                        if (discreteVarInfos[colCount] != null) {
+                            if (value.length() > 0) {
+                                setValue(row, col++, value);
+                            } else {
+                                throw new LineException(row, "Missing data at line %d column %d.", colCount + 1);
+                            }
+                        }
+                    } else {
+                        throw new LineException(row, "Number of columns exceeded at line %d.  Expect %d column(s) but found %d.", maxNumOfCols, colCount + 1);
+                    }
+
+                    colCount++;
+                    if (currentChar == NEW_LINE) {
+                        if (col < numOfCols) {
+                            throw new LineException(row, "Insufficient number of columns at line %d.  Expect %d column(s) but found %d.", numOfCols, col);
+                        }
+                        colCount = 0;
+                        col = 0;
+                        row++;
+                    }
+                } else if (currentChar != SINGLE_QUOTE && currentChar != DOUBLE_QUOTE) {
+                    dataBuilder.append((char) currentChar);
+                }
+
+                prevChar = currentChar;
+            }
+            if (currentChar > -1 && currentChar != NEW_LINE) {
+                if (colCount < maxNumOfCols) {
+                    if (discreteVarInfos[colCount] != null) {
+                        if (currentChar == delimiter) {
+                            throw new LineException(row, "Missing data at line %d column %d.", colCount + 1);
+                        } else {
+                            String value = dataBuilder.toString().trim();
+                            dataBuilder.delete(0, dataBuilder.length());
+                            if (value.length() > 0) {
+                                setValue(row, col++, value);
+                            } else {
+                                throw new LineException(row, "Missing data at line %d column %d.", colCount + 1);
+                            }
+                        }
+                    }
+                } else {
+                    throw new LineException(row, "Number of columns exceeded at line %d.  Expect %d column(s) but found %d.", maxNumOfCols, colCount + 1);
+                }
+                if (col < numOfCols) {
+                    throw new LineException(row, "Insufficient number of columns at line %d.  Expect %d column(s) but found %d.", numOfCols, col);
+                }
+                row++;
+            }
+
+            return row;
+        }
+
+        private void setValue(int row, int col, String value) {
+            Map<String, Integer> colCodes = codes.get(col);
+            Integer code = colCodes.get(value);
+            if (code == null) {
+                code = colCodes.size();
+                colCodes.put(value, code);
+                values.get(col).add(value);
+            }
+
+            if (row == data[col].length) {
+                data[col] = Arrays.copyOf(data[col], 2 * row);
+            }
+            data[col][row] = code;
+        }
+
+    }
+
 }
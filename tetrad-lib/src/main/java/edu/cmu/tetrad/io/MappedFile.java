@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2016 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.cmu.tetrad.io;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+/**
+ * A file mapped into memory in segments, so that files larger than 2 GB,
+ * which cannot be mapped as a single buffer, can be read. Bytes are read
+ * through cursors, which step from one segment into the next, so a line may
+ * span segments.
+ *
+ * @author Joseph Ramsey
+ */
+public final class MappedFile {
+
+    // Segments are 1 GB.
+    private static final int SEGMENT_SHIFT = 30;
+
+    private final MappedByteBuffer[] segments;
+    private final long size;
+
+    public MappedFile(Path file) throws IOException {
+        try (FileChannel fc = new RandomAccessFile(file.toFile(), "r").getChannel()) {
+            this.size = fc.size();
+
+            int numSegments = (int) ((size >>> SEGMENT_SHIFT) + 1);
+            this.segments = new MappedByteBuffer[numSegments];
+
+            for (int i = 0; i < numSegments; i++) {
+                long from = (long) i << SEGMENT_SHIFT;
+                long length = Math.min(1L << SEGMENT_SHIFT, size - from);
+                segments[i] = fc.map(FileChannel.MapMode.READ_ONLY, from, length);
+            }
+        }
+    }
+
+    /**
+     * @return the size of the file in bytes.
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * @return the byte at the given position.
+     */
+    public byte get(long position) {
+        return segments[(int) (position >>> SEGMENT_SHIFT)].get((int) (position & ((1L << SEGMENT_SHIFT) - 1)));
+    }
+
+    /**
+     * @return a cursor over the whole file.
+     */
+    public Cursor cursor() {
+        return cursor(0, size);
+    }
+
+    /**
+     * @return a cursor over the bytes from position from up to, but not
+     * including, position to.
+     */
+    public Cursor cursor(long from, long to) {
+        return new Cursor(from, to);
+    }
+
+    /**
+     * Reads bytes in order, in the manner of a ByteBuffer. A cursor should be
+     * used by only one thread, though any number of cursors may be used at
+     * once.
+     */
+    public final class Cursor {
+
+        private long position;
+        private final long end;
+        private ByteBuffer buffer;
+
+        private Cursor(long from, long to) {
+            if (from < 0 || to > size || from > to) {
+                throw new IllegalArgumentException("Range [" + from + ", " + to + ") is not within the file.");
+            }
+
+            this.position = from;
+            this.end = to;
+        }
+
+        public boolean hasRemaining() {
+            return position < end;
+        }
+
+        public byte get() {
+            if (buffer == null || !buffer.hasRemaining()) {
+                int segment = (int) (position >>> SEGMENT_SHIFT);
+                long segmentStart = (long) segment << SEGMENT_SHIFT;
+                buffer = segments[segment].duplicate();
+                buffer.position((int) (position - segmentStart));
+                buffer.limit((int) Math.min(buffer.capacity(), end - segmentStart));
+            }
+
+            position++;
+            return buffer.get();
+        }
+
+        /**
+         * @return the position in the file of the next byte to be read.
+         */
+        public long position() {
+            return position;
+        }
+    }
+
+}
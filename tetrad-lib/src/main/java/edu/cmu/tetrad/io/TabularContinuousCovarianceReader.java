@@ -0,0 +1,239 @@
+/*
+ * Copyright (C) 2016 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.cmu.tetrad.io;
+
+import edu.cmu.tetrad.data.ContinuousVariable;
+import edu.cmu.tetrad.data.CovarianceMoments;
+import edu.cmu.tetrad.data.ICovarianceMatrix;
+import edu.cmu.tetrad.graph.Node;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Reads tabular continuous data straight into a covariance matrix, without
+ * keeping the data. Only the means and co-moments of the variables are kept
+ * (see CovarianceMoments), so memory goes with the square of the number of
+ * variables rather than with the number of rows. A regular file is read in
+ * parts, in parallel, in a single pass, and the moments of the parts merged;
+ * anything else--a pipe, or standard input--is read a line at a time.
+ *
+ * @author Joseph Ramsey
+ */
+public class TabularContinuousCovarianceReader extends AbstractContinuousDataReader {
+
+    // Rows are added to the moments in blocks of this many.
+    private static final int BLOCK_SIZE = 256;
+
+    public TabularContinuousCovarianceReader(Path dataFile, char delimiter) {
+        super(dataFile, delimiter);
+    }
+
+    public ICovarianceMatrix readInCovariance() throws IOException {
+        return readInCovariance(Collections.EMPTY_SET);
+    }
+
+    /**
+     * Read in the covariance matrix of the data. Excludes any variables from
+     * the given set.
+     *
+     * @param excludedVariables set of variables to exclude
+     * @return
+     * @throws IOException whenever unable to read file
+     */
+    public ICovarianceMatrix readInCovariance(Set<String> excludedVariables) throws IOException {
+        if (excludedVariables == null) {
+            excludedVariables = Collections.EMPTY_SET;
+        }
+
+        if (!Files.isRegularFile(dataFile)) {
+            try (InputStream in = Files.newInputStream(dataFile)) {
+                return readInCovariance(in, excludedVariables);
+            }
+        }
+
+        ContinuousVariableAnalysis variableAnalysis = analyzeData(excludedVariables);
+        List<Node> nodes = variableAnalysis.getVariables();
+        int maxNumOfCols = countNumberOfColumns();
+        int[] excludedIndices = variableAnalysis.getExcludedIndices();
+
+        long dataStart = getDataStart();
+        List<MomentsDataPart> parts = new ArrayList<>();
+        for (int i = 0; i < getNumParts(dataStart); i++) {
+            parts.add(new MomentsDataPart(maxNumOfCols, nodes.size(), excludedIndices));
+        }
+
+        readParts(dataStart, parts);
+
+        CovarianceMoments moments = new CovarianceMoments(nodes.size());
+        for (MomentsDataPart part : parts) {
+            moments.merge(part.moments);
+        }
+
+        return moments.getCovarianceMatrix(nodes);
+    }
+
+    /**
+     * Read in the covariance matrix of the data in the given stream, a line
+     * at a time. Excludes any variables from the given set.
+     *
+     * @param in
+     * @param excludedVariables set of variables to exclude
+     * @return
+     * @throws IOException whenever unable to read the stream
+     */
+    public ICovarianceMatrix readInCovariance(InputStream in, Set<String> excludedVariables) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in));
+
+        String line = nextLine(reader);
+        if (line == null) {
+            throw new IOException("No variable names found.");
+        }
+
+        String[] names = split(line);
+        boolean[] excluded = new boolean[names.length];
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].isEmpty()) {
+                throw new IOException(String.format("Missing variable name at column %d.", i + 1));
+            }
+
+            excluded[i] = excludedVariables.contains(names[i]);
+            if (!excluded[i]) {
+                nodes.add(new ContinuousVariable(names[i]));
+            }
+        }
+
+        CovarianceMoments moments = new CovarianceMoments(nodes.size());
+        double[][] block = new double[BLOCK_SIZE][nodes.size()];
+        int numRows = 0;
+        int row = 0;
+
+        while ((line = nextLine(reader)) != null) {
+            String[] values = split(line);
+
+            if (values.length > names.length) {
+                throw new IOException(String.format("Number of columns exceeded at line %d.  Expect %d column(s) but found %d.", row + 2, names.length, values.length));
+            } else if (values.length < names.length) {
+                throw new IOException(String.format("Insufficient number of columns at line %d.  Expect %d column(s) but found %d.", row + 2, names.length, values.length));
+            }
+
+            int col = 0;
+            for (int i = 0; i < values.length; i++) {
+                if (excluded[i]) {
+                    continue;
+                }
+
+                if (values[i].isEmpty()) {
+                    throw new IOException(String.format("Missing data at line %d column %d.", row + 2, i + 1));
+                }
+
+                try {
+                    block[numRows][col++] = Double.parseDouble(values[i]);
+                } catch (NumberFormatException exception) {
+                    throw new IOException(String.format("Unable to parse data at line %d column %d.", row + 2, i + 1), exception);
+                }
+            }
+
+            row++;
+            if (++numRows == BLOCK_SIZE) {
+                moments.add(block, numRows);
+                numRows = 0;
+            }
+        }
+
+        moments.add(block, numRows);
+
+        return moments.getCovarianceMatrix(nodes);
+    }
+
+    // The next line that is not blank, or null at the end of the stream.
+    private String nextLine(BufferedReader reader) throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (!line.trim().isEmpty()) {
+                return line;
+            }
+        }
+
+        return null;
+    }
+
+    // Splits a line at the delimiter, dropping quotes and trimming the values.
+    private String[] split(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder dataBuilder = new StringBuilder();
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == delimiter) {
+                values.add(dataBuilder.toString().trim());
+                dataBuilder.delete(0, dataBuilder.length());
+            } else if (c != SINGLE_QUOTE && c != DOUBLE_QUOTE) {
+                dataBuilder.append(c);
+            }
+        }
+        values.add(dataBuilder.toString().trim());
+
+        return values.toArray(new String[values.size()]);
+    }
+
+    /**
+     * Adds the rows of one part of the file to moments of its own.
+     */
+    private class MomentsDataPart extends ContinuousDataPart {
+
+        private final CovarianceMoments moments;
+        private final double[][] block;
+        private int numRows = 0;
+
+        public MomentsDataPart(int maxNumOfCols, int numOfCols, int[] excludedIndices) {
+            super(maxNumOfCols, numOfCols, excludedIndices);
+            this.moments = new CovarianceMoments(numOfCols);
+            this.block = new double[BLOCK_SIZE][numOfCols];
+        }
+
+        @Override
+        protected int read(MappedFile.Cursor buffer) throws LineException {
+            int numRead = super.read(buffer);
+            moments.add(block, numRows);
+            numRows = 0;
+            return numRead;
+        }
+
+        @Override
+        protected double[] addRow(double[] values) {
+            System.arraycopy(values, 0, block[numRows++], 0, values.length);
+            if (numRows == BLOCK_SIZE) {
+                moments.add(block, numRows);
+                numRows = 0;
+            }
+
+            return values;
+        }
+
+    }
+
+}
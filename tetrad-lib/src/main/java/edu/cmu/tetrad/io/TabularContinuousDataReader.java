@@ -23,15 +23,11 @@ import edu.cmu.tetrad.data.DataSet;
 import edu.cmu.tetrad.data.DoubleDataBox;
 import edu.cmu.tetrad.graph.Node;
 import java.io.IOException;
-import java.io.RandomAccessFile;
-import java.nio.MappedByteBuffer;
-import java.nio.channels.FileChannel;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 /**
  * This data reader reads in tabular data contains continuous variables.
@@ -42,8 +38,6 @@ import org.slf4j.LoggerFactory;
  */
 public class TabularContinuousDataReader extends AbstractContinuousDataReader implements DataReader {
 
-    private static final Logger LOGGER = LoggerFactory.getLogger(TabularContinuousDataReader.class);
-
     public TabularContinuousDataReader(Path dataFile, char delimiter) {
         super(dataFile, delimiter);
     }
@@ -67,7 +61,9 @@ public class TabularContinuousDataReader extends AbstractContinuousDataReader im
     }
 
     /**
-     * Read in data.
+     * Read in data. The lines after the header are read in parts, in
+     * parallel, in a single pass; the rows of the parts are then put
+     * together in order.
      *
      * @param variableAnalysis
      * @return
@@ -76,114 +72,49 @@ public class TabularContinuousDataReader extends AbstractContinuousDataReader im
     protected double[][] extractContinuousData(ContinuousVariableAnalysis variableAnalysis) throws IOException {
         int maxNumOfCols = countNumberOfColumns();
         int numOfCols = variableAnalysis.getVariables().size();
-        int numOfRows = countNumberOfLines() - 1;  // minus the header
-
-        double[][] data = new double[numOfRows][numOfCols];
-        try (FileChannel fc = new RandomAccessFile(dataFile.toFile(), "r").getChannel()) {
-            MappedByteBuffer buffer = fc.map(FileChannel.MapMode.READ_ONLY, 0, fc.size());
-
-            skipToNextLine(buffer);  // skip header
-
-            int[] excludedIndices = variableAnalysis.getExcludedIndices();
-            int excludedIndex = 0;
-            int excludedColumn = excludedIndices[excludedIndex];
-
-            int row = 0;
-            int col = 0;
-            int colCount = 0;
-            byte currentChar = -1;
-            byte prevChar = NEW_LINE;
-            StringBuilder dataBuilder = new StringBuilder();
-            while (buffer.hasRemaining()) {
-                currentChar = buffer.get();
-                if (currentChar == CARRIAGE_RETURN) {
-                    currentChar = NEW_LINE;
-                }
-
-                if (currentChar == delimiter || (currentChar == NEW_LINE && prevChar != NEW_LINE)) {
-                    String value = dataBuilder.toString();
-                    dataBuilder.delete(0, dataBuilder.length());
-                    if (colCount == excludedColumn) {
-                        excludedIndex++;
-                        if (excludedIndex < excludedIndices.length) {
-                            excludedColumn = excludedIndices[excludedIndex];
-                        }
-                    } else {
-                        if (colCount < maxNumOfCols) {
-                            if (value.length() > 0) {
-                                try {
-                                    data[row][col++] = Double.parseDouble(value);
-                                } catch (NumberFormatException exception) {
-                                    throw new IOException(
-                                            String.format("Unable to parse data at line %d column %d.", row + 2, colCount + 1),
-                                            exception);
-                                }
-                            } else {
-                                String errMsg = String.format("Missing data at line %d column %d.", row + 2, colCount + 1);
-                                LOGGER.error(errMsg);
-                                throw new IOException(errMsg);
-                            }
-                        } else {
-                            String errMsg = String.format("Number of columns exceeded at line %d.  Expect %d column(s) but found %d.", row + 2, maxNumOfCols, colCount + 1);
-                            LOGGER.error(errMsg);
-                            throw new IOException(errMsg);
-                        }
-                    }
-
-                    colCount++;
-                    if (currentChar == NEW_LINE) {
-                        if (col < numOfCols) {
-                            String errMsg = String.format("Insufficient number of columns at line %d.  Expect %d column(s) but found %d.", row + 2, maxNumOfCols, colCount);
-                            LOGGER.error(errMsg);
-                            throw new IOException(errMsg);
-                        }
-                        colCount = 0;
-                        col = 0;
-                        row++;
-
-                        excludedIndex = 0;
-                        excludedColumn = excludedIndices[excludedIndex];
-                    }
-                } else if (currentChar > SPACE && (currentChar != SINGLE_QUOTE && currentChar != DOUBLE_QUOTE)) {
-                    dataBuilder.append((char) currentChar);
-                }
-
-                prevChar = currentChar;
-            }
-            if (currentChar > -1 && currentChar != NEW_LINE) {
-                if (currentChar == delimiter) {
-                    String errMsg = String.format("Missing data at line %d column %d.", row + 2, col + 1);
-                    LOGGER.error(errMsg);
-                    throw new IOException(errMsg);
-                } else {
-                    String value = dataBuilder.toString();
-                    dataBuilder.delete(0, dataBuilder.length());
-                    if (colCount != excludedColumn) {
-                        if (colCount < maxNumOfCols) {
-                            if (value.length() > 0) {
-                                try {
-                                    data[row][col++] = Double.parseDouble(value);
-                                } catch (NumberFormatException exception) {
-                                    throw new IOException(
-                                            String.format("Unable to parse data at line %d column %d.", row + 2, colCount + 1),
-                                            exception);
-                                }
-                            } else {
-                                String errMsg = String.format("Missing data at line %d column %d.", row + 2, colCount + 1);
-                                LOGGER.error(errMsg);
-                                throw new IOException(errMsg);
-                            }
-                        } else {
-                            String errMsg = String.format("Number of columns exceeded at line %d.  Expect %d column(s) but found %d.", row + 2, maxNumOfCols, colCount + 1);
-                            LOGGER.error(errMsg);
-                            throw new IOException(errMsg);
-                        }
-                    }
-                }
+        int[] excludedIndices = variableAnalysis.getExcludedIndices();
+
+        long dataStart = getDataStart();
+        List<RowsDataPart> parts = new ArrayList<>();
+        for (int i = 0; i < getNumParts(dataStart); i++) {
+            parts.add(new RowsDataPart(maxNumOfCols, numOfCols, excludedIndices));
+        }
+
+        readParts(dataStart, parts);
+
+        int numOfRows = 0;
+        for (RowsDataPart part : parts) {
+            numOfRows += part.getNumRows();
+        }
+
+        double[][] data = new double[numOfRows][];
+        int row = 0;
+        for (RowsDataPart part : parts) {
+            for (double[] values : part.rows) {
+                data[row++] = values;
             }
         }
 
         return data;
     }
 
+    /**
+     * Collects the rows of one part of the file.
+     */
+    private class RowsDataPart extends ContinuousDataPart {
+
+        private final List<double[]> rows = new ArrayList<>();
+
+        public RowsDataPart(int maxNumOfCols, int numOfCols, int[] excludedIndices) {
+            super(maxNumOfCols, numOfCols, excludedIndices);
+        }
+
+        @Override
+        protected double[] addRow(double[] values) {
+            rows.add(values);
+            return new double[values.length];
+        }
+
+    }
+
 }
@@ -0,0 +1,471 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.search;
+
+import edu.cmu.tetrad.data.CellCounts;
+import edu.cmu.tetrad.data.DataSet;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A sparse AD tree (Moore and Lee, Cached Sufficient Statistics for Efficient Machine Learning with Large Datasets,
+ * JAIR 8, 1998) over the discrete variables of a data set, for counting tables over any list of them, with a cache of
+ * the tables most recently asked for.
+ * <p>
+ * The tree is built on the fly, only along the paths queries take. A node stands for the records matching some values
+ * of some variables; varying it by a later variable splits its records by the value of that variable, except that
+ * the most common value is left out, its counts being recovered as the node's counts less those of the other values.
+ * Nodes with few records are not expanded but count their records directly. Only they and the root keep their
+ * records, the others keeping just the number of them, their records being found again from their parent's during the
+ * query that first varies them by a variable. Missing values are treated as one more value of their variable and
+ * dropped from the tables returned, so that, as for CellCounts, records missing a value for any of the variables are
+ * not counted.
+ * <p>
+ * Tables with at least as many cells as there are records are counted by a scan of the data instead, which for them
+ * is no slower. The tree is kept within a size cap, being dropped and grown again from the root once it outgrows it.
+ * The tree and the cache may be used by several threads at once.
+ *
+ * @author Joseph Ramsey
+ * @see CellCounts
+ * @see AdTrees
+ */
+public final class AdCountTree {
+
+    // Nodes with fewer records than this are not expanded.
+    private static final int LEAF_SIZE = 16;
+
+    // Roughly the size of a node in ints, for keeping the tree within its cap.
+    private static final int NODE_SIZE = 8;
+
+    private final CellCounts counts;
+    private final int numRows;
+
+    // The number of values of each discrete variable, one more than its number of categories if it has missing
+    // values, the last value then standing for missing.
+    private final int[] arity;
+
+    // All records, kept by the root.
+    private final int[] allRows;
+    private volatile AdNode root;
+
+    // The size of the tree in ints, leaf records and child arrays, nodes counting NODE_SIZE each.
+    private final AtomicLong treeSize = new AtomicLong();
+    private volatile long maxTreeSize = 1 << 22;
+
+    // Least recently used tables first.
+    private final LinkedHashMap<Key, int[]> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private long cacheSize = 0;
+    private long maxCacheSize = 1 << 22;
+
+    /**
+     * @param dataSet A data set. Its continuous variables are ignored.
+     */
+    public AdCountTree(DataSet dataSet) {
+        this.counts = new CellCounts(dataSet);
+        this.numRows = dataSet.getNumRows();
+        this.arity = new int[dataSet.getNumColumns()];
+
+        for (int j = 0; j < arity.length; j++) {
+            arity[j] = counts.getNumCategories(j) + (counts.hasMissingValues(j) ? 1 : 0);
+        }
+
+        this.allRows = new int[numRows];
+        for (int i = 0; i < numRows; i++) allRows[i] = i;
+        this.root = newRoot();
+    }
+
+    /**
+     * @return the packed columns the tree is built over.
+     */
+    public CellCounts getCellCounts() {
+        return counts;
+    }
+
+    /**
+     * Counts the records in each cell of the table over the given variables, the first variable most significant,
+     * as for CellCounts.count.
+     *
+     * @return the counts, one for each cell. The array may be shared with other callers and must not be modified.
+     */
+    public int[] count(int[] variables) {
+        Key key = new Key(variables);
+
+        synchronized (cache) {
+            int[] table = cache.get(key);
+
+            if (table != null) {
+                SearchMetrics.increment(SearchMetrics.Counter.CACHE_HITS);
+                return table;
+            }
+        }
+
+        SearchMetrics.increment(SearchMetrics.Counter.CACHE_MISSES);
+
+        int numCells = counts.getNumCells(variables);
+        int[] table;
+
+        if (numCells >= numRows || !distinct(variables)) {
+            table = Arrays.copyOf(counts.count(variables), numCells);
+        } else {
+            table = countFromTree(variables, numCells);
+        }
+
+        synchronized (cache) {
+            if (numCells <= maxCacheSize && !cache.containsKey(key)) {
+                cache.put(key, table);
+                cacheSize += numCells;
+
+                Iterator<Map.Entry<Key, int[]>> entries = cache.entrySet().iterator();
+
+                while (cacheSize > maxCacheSize && entries.hasNext()) {
+                    cacheSize -= entries.next().getValue().length;
+                    entries.remove();
+                }
+            }
+        }
+
+        return table;
+    }
+
+    /**
+     * @return the records in each cell of the table over the given variables, indexed as for count, in order. Records
+     * missing a value for any of the variables are left out.
+     */
+    public int[][] getCellRows(int[] variables) {
+        int[] sizes = count(variables);
+        int[][] rows = new int[sizes.length][];
+
+        for (int k = 0; k < sizes.length; k++) {
+            rows[k] = new int[sizes[k]];
+        }
+
+        int[] cells = counts.cells(variables);
+        int[] next = new int[sizes.length];
+
+        for (int i = 0; i < numRows; i++) {
+            int cell = cells[i];
+            if (cell >= 0) rows[cell][next[cell]++] = i;
+        }
+
+        return rows;
+    }
+
+    /**
+     * Sets the most table cells the cache will hold; the least recently used tables are dropped to keep within it.
+     * 0 turns caching off.
+     */
+    public void setMaxCacheSize(long maxCacheSize) {
+        if (maxCacheSize < 0) throw new IllegalArgumentException("Cache size must be >= 0: " + maxCacheSize);
+
+        synchronized (cache) {
+            this.maxCacheSize = maxCacheSize;
+            cache.clear();
+            cacheSize = 0;
+        }
+    }
+
+    /**
+     * Sets the most ints, roughly, the tree may take up; once it grows past this it is dropped and grown again as
+     * queries need it. 0 keeps no more of the tree than each query builds.
+     */
+    public void setMaxTreeSize(long maxTreeSize) {
+        if (maxTreeSize < 0) throw new IllegalArgumentException("Tree size must be >= 0: " + maxTreeSize);
+        this.maxTreeSize = maxTreeSize;
+        resetTree();
+    }
+
+    //==============================PRIVATE METHODS=========================//
+
+    private AdNode newRoot() {
+        return new AdNode(-1, -1, numRows, allRows);
+    }
+
+    private void resetTree() {
+        this.root = newRoot();
+        treeSize.set(0);
+    }
+
+    // Counts the size of a new part of the tree against the cap.
+    private void grow(long size) {
+        if (treeSize.addAndGet(size) > maxTreeSize) {
+            resetTree();
+        }
+    }
+
+    // Counts from the tree over the variables in increasing order, then lays the counts out in the order asked for,
+    // dropping the cells for missing values.
+    private int[] countFromTree(int[] variables, int numCells) {
+        int n = variables.length;
+        int[] sorted = variables.clone();
+        Arrays.sort(sorted);
+
+        AdNode root = this.root;
+        int[] table = contab(root, sorted, 0, new Rows(root, null));
+
+        // The stride of each variable in the table asked for, then of each sorted variable.
+        int[] strides = new int[n];
+        int stride = 1;
+
+        for (int k = n - 1; k >= 0; k--) {
+            strides[k] = stride;
+            stride *= counts.getNumCategories(variables[k]);
+        }
+
+        int[] sortedStrides = new int[n];
+        for (int k = 0; k < n; k++) sortedStrides[k] = strides[indexOf(variables, sorted[k])];
+
+        int[] result = new int[numCells];
+        int[] digits = new int[n];
+
+        for (int cell = 0; cell < table.length; cell++) {
+            boolean missing = false;
+            int index = 0;
+
+            for (int k = 0; k < n; k++) {
+                if (digits[k] >= counts.getNumCategories(sorted[k])) {
+                    missing = true;
+                    break;
+                }
+
+                index += digits[k] * sortedStrides[k];
+            }
+
+            if (!missing) result[index] = table[cell];
+
+            for (int k = n - 1; k >= 0; k--) {
+                if (++digits[k] < arity[sorted[k]]) break;
+                digits[k] = 0;
+            }
+        }
+
+        return result;
+    }
+
+    // The table over attributes[from], attributes[from + 1], ... for the records of the given node, the attributes
+    // being increasing and after those the node was varied by.
+    private int[] contab(AdNode node, int[] attributes, int from, Rows rows) {
+        if (from == attributes.length) {
+            return new int[]{node.count};
+        }
+
+        if (node.count < LEAF_SIZE) {
+            int[] table = new int[size(attributes, from)];
+
+            for (int row : node.rows) {
+                int index = 0;
+
+                for (int k = from; k < attributes.length; k++) {
+                    index = index * arity[attributes[k]] + value(attributes[k], row);
+                }
+
+                table[index]++;
+            }
+
+            return table;
+        }
+
+        int attribute = attributes[from];
+        Vary vary = node.vary(attribute, rows);
+        int[] mcv = contab(node, attributes, from + 1, rows);
+        int block = mcv.length;
+        int[] table = new int[arity[attribute] * block];
+
+        for (int v = 0; v < arity[attribute]; v++) {
+            AdNode child = vary.children[v];
+            if (child == null) continue;
+
+            int[] sub = contab(child, attributes, from + 1, new Rows(child, rows));
+            System.arraycopy(sub, 0, table, v * block, block);
+
+            for (int k = 0; k < block; k++) {
+                mcv[k] -= sub[k];
+            }
+        }
+
+        System.arraycopy(mcv, 0, table, vary.mcv * block, block);
+        return table;
+    }
+
+    private int size(int[] attributes, int from) {
+        int size = 1;
+        for (int k = from; k < attributes.length; k++) size *= arity[attributes[k]];
+        return size;
+    }
+
+    // The value of the variable in the record, missing values being the last value.
+    private int value(int variable, int row) {
+        int value = counts.value(variable, row);
+        return value < 0 ? arity[variable] - 1 : value;
+    }
+
+    private static int indexOf(int[] array, int value) {
+        for (int k = 0; k < array.length; k++) {
+            if (array[k] == value) return k;
+        }
+
+        return -1;
+    }
+
+    private static boolean distinct(int[] variables) {
+        for (int k = 0; k < variables.length; k++) {
+            for (int m = k + 1; m < variables.length; m++) {
+                if (variables[k] == variables[m]) return false;
+            }
+        }
+
+        return true;
+    }
+
+    // The records of its parent with the given value of the given variable, the root having all records. A node is
+    // only varied by later variables. Only the root and nodes with fewer than LEAF_SIZE records keep their records;
+    // the others keep just the number of them.
+    private final class AdNode {
+        private final int attribute;
+        private final int value;
+        private final int count;
+        private final int[] rows;
+        private Map<Integer, Vary> varies;
+
+        private AdNode(int attribute, int value, int count, int[] rows) {
+            this.attribute = attribute;
+            this.value = value;
+            this.count = count;
+            this.rows = rows;
+        }
+
+        private synchronized Vary vary(int attribute, Rows rows) {
+            if (attribute <= this.attribute) throw new IllegalArgumentException();
+            if (varies == null) varies = new HashMap<>();
+
+            Vary vary = varies.get(attribute);
+
+            if (vary == null) {
+                vary = new Vary(attribute, rows.get());
+                varies.put(attribute, vary);
+                grow(vary.size);
+            }
+
+            return vary;
+        }
+    }
+
+    // The records of a node for one query, found only if the node must be varied by a new variable, from those of
+    // its parent.
+    private final class Rows {
+        private final AdNode node;
+        private final Rows parent;
+        private int[] rows;
+
+        private Rows(AdNode node, Rows parent) {
+            this.node = node;
+            this.parent = parent;
+        }
+
+        private int[] get() {
+            if (rows != null) return rows;
+
+            if (node.rows != null) {
+                rows = node.rows;
+            } else {
+                rows = new int[node.count];
+                int next = 0;
+
+                for (int row : parent.get()) {
+                    if (value(node.attribute, row) == node.value) rows[next++] = row;
+                }
+            }
+
+            return rows;
+        }
+    }
+
+    // The records of a node split by the value of a variable, leaving out the most common value.
+    private final class Vary {
+        private final int mcv;
+        private final AdNode[] children;
+
+        // The size of this vary and its children, as counted against the cap.
+        private final long size;
+
+        private Vary(int attribute, int[] rows) {
+            int[] sizes = new int[arity[attribute]];
+
+            for (int row : rows) {
+                sizes[value(attribute, row)]++;
+            }
+
+            int mcv = 0;
+
+            for (int v = 1; v < sizes.length; v++) {
+                if (sizes[v] > sizes[mcv]) mcv = v;
+            }
+
+            // Only the children that will be leaves keep their records.
+            int[][] split = new int[sizes.length][];
+
+            for (int v = 0; v < sizes.length; v++) {
+                if (v != mcv && sizes[v] > 0 && sizes[v] < LEAF_SIZE) split[v] = new int[sizes[v]];
+            }
+
+            int[] next = new int[sizes.length];
+
+            for (int row : rows) {
+                int v = value(attribute, row);
+                if (split[v] != null) split[v][next[v]++] = row;
+            }
+
+            this.mcv = mcv;
+            this.children = new AdNode[sizes.length];
+            long size = NODE_SIZE + sizes.length;
+
+            for (int v = 0; v < sizes.length; v++) {
+                if (v == mcv || sizes[v] == 0) continue;
+
+                children[v] = new AdNode(attribute, v, sizes[v], split[v]);
+                size += NODE_SIZE + (split[v] == null ? 0 : split[v].length);
+            }
+
+            this.size = size;
+        }
+    }
+
+    private static final class Key {
+        private final int[] variables;
+        private final int hashCode;
+
+        private Key(int[] variables) {
+            this.variables = variables.clone();
+            this.hashCode = Arrays.hashCode(variables);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && Arrays.equals(variables, ((Key) o).variables);
+        }
+    }
+}
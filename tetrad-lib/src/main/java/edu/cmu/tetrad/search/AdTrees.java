@@ -4,6 +4,7 @@ import edu.cmu.tetrad.data.DataSet;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.WeakHashMap;
 
 /**
  * Stores AD trees for data sets for reuse.
@@ -12,6 +13,9 @@ import java.util.Map;
 public class AdTrees {
     private static Map<DataSet, AdLeafTree> adTrees = new HashMap<>();
 
+    // Dropped along with their data sets.
+    private static Map<DataSet, AdCountTree> adCountTrees = new WeakHashMap<>();
+
     public static AdLeafTree getAdLeafTree(DataSet dataSet) {
         AdLeafTree tree = adTrees.get(dataSet);
 
@@ -22,4 +26,19 @@ public class AdTrees {
 
         return tree;
     }
+
+    /**
+     * @return the count tree for the given data set, shared by the discrete tests and scores that count over it.
+     * The data set should not be changed once this has been called for it.
+     */
+    public static synchronized AdCountTree getAdCountTree(DataSet dataSet) {
+        AdCountTree tree = adCountTrees.get(dataSet);
+
+        if (tree == null) {
+            tree = new AdCountTree(dataSet);
+            adCountTrees.put(dataSet, tree);
+        }
+
+        return tree;
+    }
 }
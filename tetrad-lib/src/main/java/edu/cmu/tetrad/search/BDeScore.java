@@ -133,6 +133,11 @@ public class BDeScore implements LocalDiscreteScore {
         return localScore(y, x) - localScore(y);
     }
 
+    @Override
+    public double[] localScoreDiffs(int y, int[] z, int[] xs) {
+        return ScoreUtils.localScoreDiffs(this, y, z, xs);
+    }
+
     int[] append(int[] parents, int extra) {
         int[] all = new int[parents.length + 1];
         System.arraycopy(parents, 0, all, 0, parents.length);
@@ -31,10 +31,21 @@ import java.util.List;
  * Calculates the BDeu score.
  */
 public class BDeuScore implements LocalDiscreteScore, IBDeuScore, Score {
+
+    // Number of records of memory-mapped data read at a time.
+    private static final int BLOCK_SIZE = 1 << 14;
+
     private List<Node> variables;
     private int[][] data;
     private int sampleSize;
 
+    // For memory-mapped data, the data, which are read a block of records at a time; data is then null.
+    private MappedDataBox mapped = null;
+    private int blockSize;
+
+    // For data in memory, the counts for localScore; null for memory-mapped data.
+    private AdCountTree counts = null;
+
     private double samplePrior = 1;
     private double structurePrior = 1;
 
@@ -45,32 +56,23 @@ public class BDeuScore implements LocalDiscreteScore, IBDeuScore, Score {
             throw new NullPointerException("Data was not provided.");
         }
 
-        if (dataSet instanceof BoxDataSet) {
-            DataBox dataBox = ((BoxDataSet) dataSet).getDataBox();
-
-            this.variables = dataSet.getVariables();
+        this.variables = dataSet.getVariables();
+        this.sampleSize = dataSet.getNumRows();
 
-            if (!(dataBox instanceof VerticalIntDataBox)) {
-                dataBox = new VerticalIntDataBox(dataBox);
-            }
-
-            VerticalIntDataBox box = (VerticalIntDataBox) dataBox;
-
-            data = box.getVariableVectors();
-            this.sampleSize = dataSet.getNumRows();
+        if (dataSet instanceof BoxDataSet && ((BoxDataSet) dataSet).getDataBox() instanceof MappedDataBox) {
+            mapped = (MappedDataBox) ((BoxDataSet) dataSet).getDataBox();
+            blockSize = Math.max(1, Math.min(sampleSize, BLOCK_SIZE));
         } else {
+
+            // Columns that are already stored as int[] are used as they are.
             data = new int[dataSet.getNumColumns()][];
-            this.variables = dataSet.getVariables();
 
             for (int j = 0; j < dataSet.getNumColumns(); j++) {
-                data[j] = new int[dataSet.getNumRows()];
-
-                for (int i = 0; i < dataSet.getNumRows(); i++) {
-                    data[j][i] = dataSet.getInt(i, j);
-                }
+                data[j] = DataUtils.getIntColumn(dataSet, j);
             }
 
-            this.sampleSize = dataSet.getNumRows();
+            counts = AdTrees.getAdCountTree(dataSet);
+            blockSize = Math.max(1, sampleSize);
         }
 
         final List<Node> variables = dataSet.getVariables();
@@ -104,52 +106,67 @@ public class BDeuScore implements LocalDiscreteScore, IBDeuScore, Score {
             r *= dims[p];
         }
 
+        if (counts != null) {
+            checkMissing(node);
+            return score(counts.count(append(parents, node)), r, c, parents.length);
+        }
+
         // Conditional cell coefs of data for node given parents(node).
-        int n_jk[][] = new int[r][c];
-        int n_j[] = new int[r];
+        int n_jk[] = new int[r * c];
 
         int[] parentValues = new int[parents.length];
 
         int[][] myParents = new int[parents.length][];
-        for (int i = 0; i < parents.length; i++) {
-            myParents[i] = data[parents[i]];
-        }
+        int[][] buffers = buffers(parents.length + 1);
 
-        int[] myChild = data[node];
+        for (int from = 0; from < sampleSize; from += blockSize) {
+            int length = Math.min(blockSize, sampleSize - from);
 
-
-        for (int i = 0; i < sampleSize; i++) {
-            for (int p = 0; p < parents.length; p++) {
-                parentValues[p] = myParents[p][i];
+            for (int i = 0; i < parents.length; i++) {
+                myParents[i] = column(parents[i], from, length, buffers[i + 1]);
             }
 
-            int childValue = myChild[i];
+            int[] myChild = column(node, from, length, buffers[0]);
 
-            if (childValue == -99) {
-                throw new IllegalStateException("Please remove or impute missing " +
-                        "values (record " + i + " column " + i + ")");
-            }
+            for (int i = 0; i < length; i++) {
+                for (int p = 0; p < parents.length; p++) {
+                    parentValues[p] = myParents[p][i];
+                }
+
+                int childValue = myChild[i];
 
-            int rowIndex = getRowIndex(dims, parentValues);
+                if (childValue == -99) {
+                    throw new IllegalStateException("Please remove or impute missing " +
+                            "values (record " + (from + i) + " column " + node + ")");
+                }
 
-            n_jk[rowIndex][childValue]++;
-            n_j[rowIndex]++;
+                int rowIndex = getRowIndex(dims, parentValues);
+
+                n_jk[rowIndex * c + childValue]++;
+            }
         }
 
-        //Finally, compute the score
+        return score(n_jk, r, c, parents.length);
+    }
+
+    // Computes the score from the counts, n_jk being stored row by row; only the first r * c entries are used.
+    private double score(int[] n_jk, int r, int c, int numParents) {
         double score = 0.0;
 
-        score += getPriorForStructure(parents.length);
+        score += getPriorForStructure(numParents);
 
         final double cellPrior = getSamplePrior() / (c * r);
         final double rowPrior = getSamplePrior() / r;
 
         for (int j = 0; j < r; j++) {
-            score -= Gamma.logGamma(rowPrior + n_j[j]);
+            int n_j = 0;
 
             for (int k = 0; k < c; k++) {
-                score += Gamma.logGamma(cellPrior + n_jk[j][k]);
+                n_j += n_jk[j * c + k];
+                score += Gamma.logGamma(cellPrior + n_jk[j * c + k]);
             }
+
+            score -= Gamma.logGamma(rowPrior + n_j);
         }
 
         score += r * Gamma.logGamma(rowPrior);
@@ -160,7 +177,7 @@ public class BDeuScore implements LocalDiscreteScore, IBDeuScore, Score {
 
     private double getPriorForStructure(int numParents) {
         double e = getStructurePrior();
-        int vm = data.length - 1;
+        int vm = numCategories.length - 1;
         return numParents * Math.log(e / (vm)) + (vm - numParents) * Math.log(1.0 - (e / (vm)));
     }
 
@@ -174,6 +191,105 @@ public class BDeuScore implements LocalDiscreteScore, IBDeuScore, Score {
         return localScore(y, x) - localScore(y);
     }
 
+    /**
+     * The parent configuration of each record given z is computed once and shared by all candidates;
+     * for a candidate x, the configuration given z + x is then just z's configuration times the number
+     * of categories of x plus x's value, as in localScore. The counts for all candidates are filled in
+     * together, one block of records at a time.
+     */
+    @Override
+    public double[] localScoreDiffs(int y, int[] z, int[] xs) {
+        int c = numCategories[y];
+        int r = 1;
+
+        for (int p : z) {
+            r *= numCategories[p];
+        }
+
+        int[] n_jk = new int[r * c];
+        int[][] _n_jk = new int[xs.length][];
+
+        for (int m = 0; m < xs.length; m++) {
+            _n_jk[m] = new int[r * numCategories[xs[m]] * c];
+        }
+
+        int[][] buffers = buffers(2);
+        int[] rows = new int[blockSize];
+
+        for (int from = 0; from < sampleSize; from += blockSize) {
+            int length = Math.min(blockSize, sampleSize - from);
+            int[] myChild = column(y, from, length, buffers[0]);
+
+            for (int i = 0; i < length; i++) {
+                rows[i] = 0;
+            }
+
+            for (int p : z) {
+                int[] myParent = column(p, from, length, buffers[1]);
+
+                for (int i = 0; i < length; i++) {
+                    rows[i] = rows[i] * numCategories[p] + myParent[i];
+                }
+            }
+
+            for (int i = 0; i < length; i++) {
+                int childValue = myChild[i];
+
+                if (childValue == -99) {
+                    throw new IllegalStateException("Please remove or impute missing " +
+                            "values (record " + (from + i) + " column " + y + ")");
+                }
+
+                n_jk[rows[i] * c + childValue]++;
+            }
+
+            for (int m = 0; m < xs.length; m++) {
+                int rx = numCategories[xs[m]];
+                int[] myX = column(xs[m], from, length, buffers[1]);
+                int[] __n_jk = _n_jk[m];
+
+                for (int i = 0; i < length; i++) {
+                    int rowIndex = rows[i] * rx + myX[i];
+                    __n_jk[rowIndex * c + myChild[i]]++;
+                }
+            }
+        }
+
+        double base = score(n_jk, r, c, z.length);
+        double[] diffs = new double[xs.length];
+
+        for (int m = 0; m < xs.length; m++) {
+            int rx = numCategories[xs[m]];
+            diffs[m] = score(_n_jk[m], r * rx, c, z.length + 1) - base;
+        }
+
+        return diffs;
+    }
+
+    private void checkMissing(int node) {
+        CellCounts cellCounts = counts.getCellCounts();
+        if (!cellCounts.hasMissingValues(node)) return;
+
+        for (int i = 0; i < sampleSize; i++) {
+            if (cellCounts.value(node, i) < 0) {
+                throw new IllegalStateException("Please remove or impute missing " +
+                        "values (record " + i + " column " + node + ")");
+            }
+        }
+    }
+
+    // The values of column j for records from, ..., from + length - 1. For data in memory there is a single
+    // block, and the column itself is returned.
+    private int[] column(int j, int from, int length, int[] buffer) {
+        if (data != null) return data[j];
+        mapped.readInts(j, from, length, buffer);
+        return buffer;
+    }
+
+    private int[][] buffers(int n) {
+        return mapped == null ? new int[n][] : new int[n][blockSize];
+    }
+
     int[] append(int[] parents, int extra) {
         int[] all = new int[parents.length + 1];
         System.arraycopy(parents, 0, all, 0, parents.length);
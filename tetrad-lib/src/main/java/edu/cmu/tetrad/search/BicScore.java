@@ -31,7 +31,7 @@ import java.util.List;
  */
 public class BicScore implements LocalDiscreteScore, IBDeuScore {
     private List<Node> variables;
-    private int[][] data;
+    private AdCountTree counts;
     private int sampleSize;
 
     private double penaltyDiscount = 1;
@@ -43,33 +43,9 @@ public class BicScore implements LocalDiscreteScore, IBDeuScore {
             throw new NullPointerException();
         }
 
-        if (dataSet instanceof BoxDataSet) {
-            DataBox dataBox = ((BoxDataSet) dataSet).getDataBox();
-
-            this.variables = dataSet.getVariables();
-
-            if (!(((BoxDataSet) dataSet).getDataBox() instanceof VerticalIntDataBox)) {
-                throw new IllegalArgumentException();
-            }
-
-            VerticalIntDataBox box = (VerticalIntDataBox) dataBox;
-
-            data = box.getVariableVectors();
-            this.sampleSize = dataSet.getNumRows();
-        } else {
-            data = new int[dataSet.getNumColumns()][];
-            this.variables = dataSet.getVariables();
-
-            for (int j = 0; j < dataSet.getNumColumns(); j++) {
-                data[j] = new int[dataSet.getNumRows()];
-
-                for (int i = 0; i < dataSet.getNumRows(); i++) {
-                    data[j][i] = dataSet.getInt(i, j);
-                }
-            }
-
-            this.sampleSize = dataSet.getNumRows();
-        }
+        this.variables = dataSet.getVariables();
+        this.counts = AdTrees.getAdCountTree(dataSet);
+        this.sampleSize = dataSet.getNumRows();
 
         final List<Node> variables = dataSet.getVariables();
         numCategories = new int[variables.size()];
@@ -120,44 +96,26 @@ public class BicScore implements LocalDiscreteScore, IBDeuScore {
             r *= dims[p];
         }
 
-        // Conditional cell coefs of data for node given parents(node).
-        int n_jk[][] = new int[r][c];
-        int n_j[] = new int[r];
-
-        int[] parentValues = new int[parents.length];
-
-        int[][] myParents = new int[parents.length][];
-        for (int i = 0; i < parents.length; i++) {
-            myParents[i] = data[parents[i]];
+        if (counts.getCellCounts().hasMissingValues(node)) {
+            throw new IllegalStateException("Please remove or impute missing " +
+                    "values (column " + node + ")");
         }
 
-        int[] myChild = data[node];
-
-        for (int i = 0; i < sampleSize; i++) {
-            for (int p = 0; p < parents.length; p++) {
-                parentValues[p] = myParents[p][i];
-            }
-
-            int childValue = myChild[i];
-
-            if (childValue == -99) {
-                throw new IllegalStateException("Please remove or impute missing " +
-                        "values (record " + i + " column " + i + ")");
-            }
-
-            int rowIndex = getRowIndex(dims, parentValues);
-
-            n_jk[rowIndex][childValue]++;
-            n_j[rowIndex]++;
-        }
+        // Conditional cell coefs of data for node given parents(node), row by row.
+        int[] n_jk = counts.count(append(parents, node));
 
         //Finally, compute the score
         double lik = 0.0;
 
         for (int rowIndex = 0; rowIndex < r; rowIndex++) {
+            int rowCount = 0;
+
             for (int childValue = 0; childValue < c; childValue++) {
-                int cellCount = n_jk[rowIndex][childValue];
-                int rowCount = n_j[rowIndex];
+                rowCount += n_jk[rowIndex * c + childValue];
+            }
+
+            for (int childValue = 0; childValue < c; childValue++) {
+                int cellCount = n_jk[rowIndex * c + childValue];
 
                 if (cellCount == 0) continue;
                 lik += cellCount * Math.log(cellCount / (double) rowCount);
@@ -172,7 +130,7 @@ public class BicScore implements LocalDiscreteScore, IBDeuScore {
 
     private double getPriorForStructure(int numParents) {
         double e = getStructurePrior();
-        int vm = data.length - 1;
+        int vm = variables.size() - 1;
         return numParents * Math.log(e / (vm)) + (vm - numParents) * Math.log(1.0 - (e / (vm)));
     }
 
@@ -186,6 +144,11 @@ public class BicScore implements LocalDiscreteScore, IBDeuScore {
         return localScore(y, x) - localScore(y);
     }
 
+    @Override
+    public double[] localScoreDiffs(int y, int[] z, int[] xs) {
+        return ScoreUtils.localScoreDiffs(this, y, z, xs);
+    }
+
     int[] append(int[] parents, int extra) {
         int[] all = new int[parents.length + 1];
         System.arraycopy(parents, 0, all, 0, parents.length);
@@ -234,15 +197,6 @@ public class BicScore implements LocalDiscreteScore, IBDeuScore {
         throw new UnsupportedOperationException();
     }
 
-    private static int getRowIndex(int[] dim, int[] values) {
-        int rowIndex = 0;
-        for (int i = 0; i < dim.length; i++) {
-            rowIndex *= dim[i];
-            rowIndex += values[i];
-        }
-        return rowIndex;
-    }
-
     @Override
     public double getStructurePrior() {
         throw new UnsupportedOperationException();
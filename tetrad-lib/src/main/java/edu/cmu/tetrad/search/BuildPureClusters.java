@@ -23,6 +23,8 @@ package edu.cmu.tetrad.search;
 
 import edu.cmu.tetrad.data.*;
 import edu.cmu.tetrad.graph.*;
+import edu.cmu.tetrad.util.ExecutionContext;
+import edu.cmu.tetrad.util.ParallelChoiceGenerator;
 import edu.cmu.tetrad.util.TetradLogger;
 
 import java.util.*;
@@ -89,6 +91,9 @@ public final class BuildPureClusters {
     private double alpha;
     private boolean verbose;
 
+    // Where the pairs of a quartet are checked, if the tetrad test is thread-safe.
+    private ExecutionContext context = ExecutionContext.getDefault();
+
     //*********************************************************
     // * INITIALIZATION
     // *********************************************************/
@@ -1528,7 +1533,7 @@ public final class BuildPureClusters {
      * *******************************************************
      */
 
-    private List initialMeasurementPattern(int ng[][], int cv[][]) {
+    private List initialMeasurementPattern(final int ng[][], int cv[][]) {
 
         boolean notYellow[][] = new boolean[numVariables()][numVariables()];
 
@@ -1582,32 +1587,44 @@ public final class BuildPureClusters {
                 if (ng[v1][v2] != EDGE_BLACK) {
                     continue;
                 }
-                boolean notFound = true;
-                for (int v3 = 0; v3 < numVariables() - 1 && notFound; v3++) {
-                    if (v1 == v3 || v2 == v3 || ng[v1][v3] == EDGE_NONE || ng[v1][v3] ==
-                            EDGE_GRAY || ng[v2][v3] == EDGE_NONE || ng[v2][v3] ==
-                            EDGE_GRAY) {
-                        continue;
-                    }
-                    for (int v4 = v3 + 1; v4 < numVariables() && notFound; v4++) {
-                        if (v1 == v4 || v2 == v4 || ng[v1][v4] == EDGE_NONE ||
-                                ng[v1][v4] == EDGE_GRAY ||
-                                ng[v2][v4] == EDGE_NONE ||
-                                ng[v2][v4] == EDGE_GRAY ||
-                                ng[v3][v4] == EDGE_NONE ||
-                                ng[v3][v4] == EDGE_GRAY) {
-                            continue;
-                        }
-                        if (tetradTest.tetradScore3(v1, v2, v3, v4)) {
-                            notFound = false;
-                            ng[v1][v2] = ng[v2][v1] = EDGE_BLUE;
-                            ng[v1][v3] = ng[v3][v1] = EDGE_BLUE;
-                            ng[v1][v4] = ng[v4][v1] = EDGE_BLUE;
-                            ng[v2][v3] = ng[v3][v2] = EDGE_BLUE;
-                            ng[v2][v4] = ng[v4][v2] = EDGE_BLUE;
-                            ng[v3][v4] = ng[v4][v3] = EDGE_BLUE;
-                        }
-                    }
+                final int _v1 = v1;
+                final int _v2 = v2;
+
+                // ng is only read during the search, so the (v3, v4) pairs may be tried in parallel, taking the
+                // first that works in the order they were tried in sequentially.
+                int[] choice = ParallelChoiceGenerator.findFirst(numVariables(), 2,
+                        new ParallelChoiceGenerator.Condition() {
+                            @Override
+                            public boolean holds(int[] choice) {
+                                int v3 = choice[0];
+                                int v4 = choice[1];
+
+                                if (_v1 == v3 || _v2 == v3 || ng[_v1][v3] == EDGE_NONE || ng[_v1][v3] ==
+                                        EDGE_GRAY || ng[_v2][v3] == EDGE_NONE || ng[_v2][v3] ==
+                                        EDGE_GRAY) {
+                                    return false;
+                                }
+                                if (_v1 == v4 || _v2 == v4 || ng[_v1][v4] == EDGE_NONE ||
+                                        ng[_v1][v4] == EDGE_GRAY ||
+                                        ng[_v2][v4] == EDGE_NONE ||
+                                        ng[_v2][v4] == EDGE_GRAY ||
+                                        ng[v3][v4] == EDGE_NONE ||
+                                        ng[v3][v4] == EDGE_GRAY) {
+                                    return false;
+                                }
+                                return tetradTest.tetradScore3(_v1, _v2, v3, v4);
+                            }
+                        }, tetradTestIsThreadSafe() ? context : null);
+                boolean notFound = choice == null;
+                if (!notFound) {
+                    int v3 = choice[0];
+                    int v4 = choice[1];
+                    ng[v1][v2] = ng[v2][v1] = EDGE_BLUE;
+                    ng[v1][v3] = ng[v3][v1] = EDGE_BLUE;
+                    ng[v1][v4] = ng[v4][v1] = EDGE_BLUE;
+                    ng[v2][v3] = ng[v3][v2] = EDGE_BLUE;
+                    ng[v2][v4] = ng[v4][v2] = EDGE_BLUE;
+                    ng[v3][v4] = ng[v4][v3] = EDGE_BLUE;
                 }
                 if (notFound) {
                     ng[v1][v2] = ng[v2][v1] = EDGE_GRAY;
@@ -2850,6 +2867,14 @@ public final class BuildPureClusters {
         return numVariables;
     }
 
+    // Whether tetradScore3 may be called from several threads at once. Except for GAUSSIAN_FACTOR, a continuous
+    // test scores with the Wishart test, which only reads the covariance matrix; the factor estimators and the
+    // discrete test keep the state of the last test.
+    private boolean tetradTestIsThreadSafe() {
+        return tetradTest instanceof ContinuousTetradTest
+                && ((ContinuousTetradTest) tetradTest).getTestType() != TestType.GAUSSIAN_FACTOR;
+    }
+
     public IndependenceTest getIndependenceTest() {
         return independenceTest;
     }
@@ -2861,6 +2886,18 @@ public final class BuildPureClusters {
     public boolean isVerbose() {
         return verbose;
     }
+
+    public ExecutionContext getExecutionContext() {
+        return context;
+    }
+
+    /**
+     * Sets where the pairs of a quartet are checked. By default, the shared pool.
+     */
+    public void setExecutionContext(ExecutionContext context) {
+        if (context == null) throw new NullPointerException("Execution context must not be null.");
+        this.context = context;
+    }
 }
 
 
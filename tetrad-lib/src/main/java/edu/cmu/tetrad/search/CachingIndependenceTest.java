@@ -0,0 +1,433 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.search;
+
+import edu.cmu.tetrad.data.DataModel;
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.data.ICovarianceMatrix;
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.util.TetradMatrix;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Wraps an independence test so that the result of each test x _||_ y | Z is remembered. Since x _||_ y | Z
+ * and y _||_ x | Z are the same question, and Z is a set, results are keyed on (x, y, Z) with x and y put
+ * in order and Z sorted. Searches that ask the same question more than once--PC, CPC, FCI, RFCI and the
+ * sepset producers used to orient colliders--may be given the wrapped test in place of the original.
+ * <p>
+ * The wrapped test is called through checkIndependence, so this may be shared between threads if the
+ * wrapped test may be. The cache is bounded by a memory budget; when it fills, a quarter of the entries
+ * are dropped. Results may be saved to a file and loaded into a later run on the same data, so that a
+ * search rerun with different orientation settings does not repeat any tests.
+ *
+ * @author Joseph Ramsey
+ */
+public class CachingIndependenceTest implements IndependenceTest {
+
+    // Estimated cost in bytes of one entry, including the map's own overhead.
+    private static final int BYTES_PER_ENTRY = 160;
+
+    // The default memory budget, as a fraction of the maximum heap.
+    private static final double DEFAULT_HEAP_FRACTION = 0.1;
+
+    // The test being wrapped.
+    private final IndependenceTest test;
+
+    // Indices of the wrapped test's variables, by name.
+    private final Map<String, Integer> indices = new HashMap<>();
+
+    private final ConcurrentHashMap<Key, IndependenceResult> cache = new ConcurrentHashMap<>();
+    private final int maxEntries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    // The most recent result, for getPValue.
+    private volatile IndependenceResult lastResult;
+
+    /**
+     * Wraps the given test using a tenth of the maximum heap as the memory budget.
+     */
+    public CachingIndependenceTest(IndependenceTest test) {
+        this(test, (long) (Runtime.getRuntime().maxMemory() * DEFAULT_HEAP_FRACTION));
+    }
+
+    /**
+     * Wraps the given test using the given memory budget in bytes.
+     */
+    public CachingIndependenceTest(IndependenceTest test, long memoryBudget) {
+        if (test == null) throw new NullPointerException("Test must not be null.");
+        if (memoryBudget <= 0) throw new IllegalArgumentException("Memory budget must be positive: " + memoryBudget);
+
+        this.test = test;
+        this.maxEntries = (int) Math.max(16, Math.min(Integer.MAX_VALUE, memoryBudget / BYTES_PER_ENTRY));
+
+        List<Node> variables = test.getVariables();
+
+        for (int i = 0; i < variables.size(); i++) {
+            indices.put(variables.get(i).getName(), i);
+        }
+    }
+
+    @Override
+    public IndependenceResult checkIndependence(Node x, Node y, List<Node> z) {
+        Key key = key(x, y, z);
+
+        if (key == null) {
+            misses.incrementAndGet();
+            return lastResult = test.checkIndependence(x, y, z);
+        }
+
+        IndependenceResult result = cache.get(key);
+
+        if (result != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+            result = test.checkIndependence(x, y, z);
+            put(key, result);
+        }
+
+        return lastResult = result;
+    }
+
+    @Override
+    public boolean isIndependent(Node x, Node y, List<Node> z) {
+        return checkIndependence(x, y, z).isIndependent();
+    }
+
+    @Override
+    public boolean isIndependent(Node x, Node y, Node... z) {
+        return isIndependent(x, y, Arrays.asList(z));
+    }
+
+    @Override
+    public boolean isDependent(Node x, Node y, List<Node> z) {
+        return !isIndependent(x, y, z);
+    }
+
+    @Override
+    public boolean isDependent(Node x, Node y, Node... z) {
+        return !isIndependent(x, y, z);
+    }
+
+    /**
+     * @return the p value of the most recent test, cached or not.
+     */
+    @Override
+    public double getPValue() {
+        IndependenceResult result = lastResult;
+        return result == null ? Double.NaN : result.getPValue();
+    }
+
+    /**
+     * @return alpha minus the p value of the most recent test. The wrapped test's own score cannot be used,
+     * since it reflects the last test the wrapped test actually did.
+     */
+    @Override
+    public double getScore() {
+        return alphaOrNaN() - getPValue();
+    }
+
+    /**
+     * @return a caching test over a subset of the variables, with a cache of its own.
+     */
+    @Override
+    public IndependenceTest indTestSubset(List<Node> vars) {
+        return new CachingIndependenceTest(test.indTestSubset(vars), (long) maxEntries * BYTES_PER_ENTRY);
+    }
+
+    @Override
+    public List<Node> getVariables() {
+        return test.getVariables();
+    }
+
+    @Override
+    public Node getVariable(String name) {
+        return test.getVariable(name);
+    }
+
+    @Override
+    public List<String> getVariableNames() {
+        return test.getVariableNames();
+    }
+
+    @Override
+    public boolean determines(List<Node> z, Node y) {
+        return test.determines(z, y);
+    }
+
+    @Override
+    public double getAlpha() {
+        return test.getAlpha();
+    }
+
+    /**
+     * Sets the significance level of the wrapped test and empties the cache, since the judgments in it
+     * were made at the old level.
+     */
+    @Override
+    public void setAlpha(double alpha) {
+        test.setAlpha(alpha);
+        clearCache();
+    }
+
+    @Override
+    public DataModel getData() {
+        return test.getData();
+    }
+
+    @Override
+    public ICovarianceMatrix getCov() {
+        return test.getCov();
+    }
+
+    @Override
+    public List<DataSet> getDataSets() {
+        return test.getDataSets();
+    }
+
+    @Override
+    public int getSampleSize() {
+        return test.getSampleSize();
+    }
+
+    @Override
+    public List<TetradMatrix> getCovMatrices() {
+        return test.getCovMatrices();
+    }
+
+    public void clearCache() {
+        cache.clear();
+    }
+
+    /**
+     * @return the wrapped test.
+     */
+    public IndependenceTest getTest() {
+        return test;
+    }
+
+    /**
+     * @return the number of results currently cached.
+     */
+    public int size() {
+        return cache.size();
+    }
+
+    /**
+     * @return the number of tests answered from the cache.
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of tests passed to the wrapped test.
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return the number of results dropped to stay within the memory budget.
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * Writes the cached results to the given file, one per line, with variables given by name. The first
+     * line records alpha.
+     */
+    public void save(File file) throws IOException {
+        List<Node> variables = test.getVariables();
+
+        try (PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(file)))) {
+            out.println("alpha\t" + alphaOrNaN());
+
+            for (Map.Entry<Key, IndependenceResult> entry : cache.entrySet()) {
+                int[] key = entry.getKey().key;
+                IndependenceResult result = entry.getValue();
+
+                StringBuilder line = new StringBuilder();
+                line.append(result.isIndependent()).append('\t')
+                        .append(result.getPValue()).append('\t')
+                        .append(result.getStatistic());
+
+                for (int v : key) {
+                    line.append('\t').append(variables.get(v).getName());
+                }
+
+                out.println(line);
+            }
+        }
+    }
+
+    /**
+     * Adds the results in a file written by save to the cache. Results mentioning variables the wrapped test
+     * does not have are skipped.
+     *
+     * @return the number of results loaded.
+     * @throws IllegalArgumentException if the file was written at a different alpha.
+     */
+    public int load(File file) throws IOException {
+        int loaded = 0;
+
+        try (BufferedReader in = new BufferedReader(new FileReader(file))) {
+            String line = in.readLine();
+
+            if (line == null) return 0;
+
+            if (!line.startsWith("alpha\t")) {
+                throw new IllegalArgumentException("Not an independence cache file: " + file);
+            }
+
+            double alpha = Double.parseDouble(line.substring("alpha\t".length()));
+            double _alpha = alphaOrNaN();
+
+            if (Double.compare(alpha, _alpha) != 0) {
+                throw new IllegalArgumentException("Cache file " + file + " was written at alpha = " + alpha
+                        + " but the test is at alpha = " + _alpha + ".");
+            }
+
+            LINES:
+            while ((line = in.readLine()) != null) {
+                String[] tokens = line.split("\t");
+                if (tokens.length < 5) continue;
+
+                int[] key = new int[tokens.length - 3];
+
+                for (int i = 3; i < tokens.length; i++) {
+                    Integer index = indices.get(tokens[i]);
+                    if (index == null) continue LINES;
+                    key[i - 3] = index;
+                }
+
+                // Variables may be indexed differently than when the file was written.
+                if (key[0] > key[1]) {
+                    int t = key[0];
+                    key[0] = key[1];
+                    key[1] = t;
+                }
+
+                Arrays.sort(key, 2, key.length);
+
+                IndependenceResult result = new IndependenceResult(Boolean.parseBoolean(tokens[0]),
+                        Double.parseDouble(tokens[1]), Double.parseDouble(tokens[2]));
+
+                put(new Key(key), result);
+                loaded++;
+            }
+        }
+
+        return loaded;
+    }
+
+    public String toString() {
+        return test.toString();
+    }
+
+    //==============================PRIVATE=============================//
+
+    // Returns null if any of the variables is unknown to the wrapped test.
+    private Key key(Node x, Node y, List<Node> z) {
+        int[] key = new int[z.size() + 2];
+
+        Integer _x = indices.get(x.getName());
+        Integer _y = indices.get(y.getName());
+        if (_x == null || _y == null) return null;
+
+        key[0] = Math.min(_x, _y);
+        key[1] = Math.max(_x, _y);
+
+        for (int i = 0; i < z.size(); i++) {
+            Integer _z = indices.get(z.get(i).getName());
+            if (_z == null) return null;
+            key[i + 2] = _z;
+        }
+
+        Arrays.sort(key, 2, key.length);
+        return new Key(key);
+    }
+
+    private void put(Key key, IndependenceResult result) {
+        cache.put(key, result);
+
+        if (cache.size() > maxEntries) {
+            evict();
+        }
+    }
+
+    // One thread at a time drops entries in the map's own order, which is effectively random, until
+    // the cache is back to three quarters of its capacity.
+    private void evict() {
+        if (!evicting.compareAndSet(false, true)) return;
+
+        try {
+            int target = maxEntries - maxEntries / 4;
+            Iterator<Key> keys = cache.keySet().iterator();
+
+            while (cache.size() > target && keys.hasNext()) {
+                keys.next();
+                keys.remove();
+                evictions.incrementAndGet();
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    private double alphaOrNaN() {
+        try {
+            return test.getAlpha();
+        } catch (UnsupportedOperationException e) {
+            return Double.NaN;
+        }
+    }
+
+    // {min(x, y), max(x, y), sorted Z}, as variable indices.
+    private static final class Key {
+        private final int[] key;
+        private final int hash;
+
+        Key(int[] key) {
+            this.key = key;
+            this.hash = Arrays.hashCode(key);
+        }
+
+        public int hashCode() {
+            return hash;
+        }
+
+        public boolean equals(Object o) {
+            return o instanceof Key && Arrays.equals(key, ((Key) o).key);
+        }
+    }
+}
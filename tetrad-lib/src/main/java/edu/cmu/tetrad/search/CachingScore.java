@@ -0,0 +1,211 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.search;
+
+import edu.cmu.tetrad.graph.Node;
+
+import java.util.List;
+
+/**
+ * Wraps a score so that local scores and local score differences are memoized in a LocalScoreCache.
+ * Any score can be wrapped, and the wrapped score may be passed to Fges, FgesMb, TsFges2 or GFci in
+ * place of the original. Differences are cached as calculated by the wrapped score, so scores whose
+ * differences are not simple differences of local scores are handled correctly.
+ *
+ * @author Joseph Ramsey
+ */
+public class CachingScore implements Score {
+
+    // The score being wrapped.
+    private final Score score;
+
+    // The cache of local scores and score differences.
+    private final LocalScoreCache cache;
+
+    /**
+     * Wraps the given score using a cache with the default memory budget.
+     */
+    public CachingScore(Score score) {
+        this(score, new LocalScoreCache());
+    }
+
+    /**
+     * Wraps the given score using the given cache. A cache should not be shared between scores.
+     */
+    public CachingScore(Score score, LocalScoreCache cache) {
+        if (score == null) throw new NullPointerException("Score must not be null.");
+        if (cache == null) throw new NullPointerException("Cache must not be null.");
+        this.score = score;
+        this.cache = cache;
+    }
+
+    @Override
+    public double localScore(int node, int... parents) {
+        double s = cache.get(node, parents);
+
+        if (Double.isNaN(s)) {
+            SearchMetrics.increment(SearchMetrics.Counter.CACHE_MISSES);
+            s = score.localScore(node, parents);
+            cache.add(node, parents, s);
+        } else {
+            SearchMetrics.increment(SearchMetrics.Counter.CACHE_HITS);
+        }
+
+        return s;
+    }
+
+    @Override
+    public double localScoreDiff(int x, int y, int[] z) {
+        double s = cache.get(y, x, z);
+
+        if (Double.isNaN(s)) {
+            SearchMetrics.increment(SearchMetrics.Counter.CACHE_MISSES);
+            s = score.localScoreDiff(x, y, z);
+            cache.add(y, x, z, s);
+        } else {
+            SearchMetrics.increment(SearchMetrics.Counter.CACHE_HITS);
+        }
+
+        return s;
+    }
+
+    @Override
+    public double localScoreDiff(int x, int y) {
+        return localScoreDiff(x, y, new int[0]);
+    }
+
+    /**
+     * Candidates whose differences are not cached are passed to the wrapped score in a single batch.
+     */
+    @Override
+    public double[] localScoreDiffs(int y, int[] z, int[] xs) {
+        double[] diffs = new double[xs.length];
+        int[] missing = new int[xs.length];
+        int numMissing = 0;
+
+        for (int i = 0; i < xs.length; i++) {
+            diffs[i] = cache.get(y, xs[i], z);
+            if (Double.isNaN(diffs[i])) missing[numMissing++] = i;
+        }
+
+        SearchMetrics.add(SearchMetrics.Counter.CACHE_HITS, xs.length - numMissing);
+        SearchMetrics.add(SearchMetrics.Counter.CACHE_MISSES, numMissing);
+
+        if (numMissing > 0) {
+            int[] _xs = new int[numMissing];
+            for (int m = 0; m < numMissing; m++) _xs[m] = xs[missing[m]];
+
+            double[] _diffs = score.localScoreDiffs(y, z, _xs);
+
+            for (int m = 0; m < numMissing; m++) {
+                diffs[missing[m]] = _diffs[m];
+                cache.add(y, _xs[m], z, _diffs[m]);
+            }
+        }
+
+        return diffs;
+    }
+
+    @Override
+    public double localScore(int node, int parent) {
+        int[] parents = {parent};
+        double s = cache.get(node, parents);
+
+        if (Double.isNaN(s)) {
+            s = score.localScore(node, parent);
+            cache.add(node, parents, s);
+        }
+
+        return s;
+    }
+
+    @Override
+    public double localScore(int node) {
+        int[] parents = {};
+        double s = cache.get(node, parents);
+
+        if (Double.isNaN(s)) {
+            s = score.localScore(node);
+            cache.add(node, parents, s);
+        }
+
+        return s;
+    }
+
+    /**
+     * Empties the cache. This should be called if the parameters of the wrapped score are changed
+     * other than through setParameter1.
+     */
+    public void clearCache() {
+        cache.clear();
+    }
+
+    /**
+     * @return the wrapped score.
+     */
+    public Score getScore() {
+        return score;
+    }
+
+    /**
+     * @return the cache, for inspection of its hit and miss counts.
+     */
+    public LocalScoreCache getCache() {
+        return cache;
+    }
+
+    @Override
+    public List<Node> getVariables() {
+        return score.getVariables();
+    }
+
+    @Override
+    public boolean isEffectEdge(double bump) {
+        return score.isEffectEdge(bump);
+    }
+
+    @Override
+    public double getParameter1() {
+        return score.getParameter1();
+    }
+
+    @Override
+    public void setParameter1(double alpha) {
+        score.setParameter1(alpha);
+        cache.clear();
+    }
+
+    @Override
+    public int getSampleSize() {
+        return score.getSampleSize();
+    }
+
+    @Override
+    public Node getVariable(String targetName) {
+        return score.getVariable(targetName);
+    }
+
+    @Override
+    public int getMaxDegree() {
+        return score.getMaxDegree();
+    }
+}
@@ -52,6 +52,11 @@ public class ChiSquareTest {
      */
     private CellTable cellTable;
 
+    /**
+     * Counts the records of the data by cell, shared with other tests and scores over the same data.
+     */
+    private AdCountTree countTree;
+
     /**
      * The significance level of the test.
      */
@@ -83,6 +88,7 @@ public class ChiSquareTest {
         this.alpha = alpha;
         this.cellTable = new CellTable(null);
         this.getCellTable().setMissingValue(DiscreteVariable.MISSING_VALUE);
+        this.countTree = AdTrees.getAdCountTree(dataSet);
     }
 
     /**
@@ -91,44 +97,21 @@ public class ChiSquareTest {
      * consist entirely of zeros have been removed.
      */
     public ChiSquareTest.Result calcChiSquare(int[] testIndices) {
-
-        // Reset the cell table for the columns referred to in
-        // 'testIndices.' Do cell coefs for those columns.
-        this.getCellTable().addToTable(getDataSet(), testIndices);
-
-        // Indicator arrays to tell the cell table which margins
-        // to calculate. For x _||_ y | z1, z2, ..., we want to
-        // calculate the margin for x, the margin for y, and the
-        // margin for x and y. (These will be used later.)
-        int[] firstVar = new int[]{0};
-        int[] secondVar = new int[]{1};
-        int[] bothVars = new int[]{0, 1};
+        int[] counts = countTables(testIndices);
 
         double xSquare = 0.0;
         int df = 0;
 
-        int[] condDims = new int[testIndices.length - 2];
-        System.arraycopy(selectFromArray(getDims(), testIndices), 2, condDims, 0,
-                condDims.length);
+        int numRows = getDims()[testIndices[0]];
+        int numCols = getDims()[testIndices[1]];
+        int numTables = getNumTables(testIndices);
 
-        int[] coords = new int[testIndices.length];
-        int numRows = this.getCellTable().getNumValues(0);
-        int numCols = this.getCellTable().getNumValues(1);
+        long[] sumRows = new long[numRows];
+        long[] sumCols = new long[numCols];
 
-        boolean[] attestedRows = new boolean[numRows];
-        boolean[] attestedCols = new boolean[numCols];
-
-        CombinationIterator combinationIterator =
-                new CombinationIterator(condDims);
-
-        while (combinationIterator.hasNext()) {
-            int[] combination = (int[]) combinationIterator.next();
-
-            System.arraycopy(combination, 0, coords, 2, combination.length);
-            Arrays.fill(attestedRows, true);
-            Arrays.fill(attestedCols, true);
-
-            long total = this.getCellTable().calcMargin(coords, bothVars);
+        for (int table = 0; table < numTables; table++) {
+            int offset = table * numRows * numCols;
+            long total = margins(counts, offset, sumRows, sumCols);
 
             if (total == 0) {
                 continue;
@@ -136,50 +119,17 @@ public class ChiSquareTest {
 
             for (int i = 0; i < numRows; i++) {
                 for (int j = 0; j < numCols; j++) {
-                    coords[0] = i;
-                    coords[1] = j;
-
-                    long sumRow = this.getCellTable().calcMargin(coords, secondVar);
-                    long sumCol = this.getCellTable().calcMargin(coords, firstVar);
-                    long observed = (int) this.getCellTable().getValue(coords);
-
-                    boolean skip = false;
-
-                    if (sumRow == 0) {
-                        attestedRows[i] = false;
-                        skip = true;
-                    }
-
-                    if (sumCol == 0) {
-                        attestedCols[j] = false;
-                        skip = true;
-                    }
-
-                    if (skip) {
+                    if (sumRows[i] == 0 || sumCols[j] == 0) {
                         continue;
                     }
 
-                    double expected = (double) (sumCol * sumRow) / (double) total;
+                    long observed = counts[offset + i * numCols + j];
+                    double expected = (double) (sumCols[j] * sumRows[i]) / (double) total;
                     xSquare += Math.pow(observed - expected, 2.0) / expected;
                 }
             }
 
-            int numAttestedRows = 0;
-            int numAttestedCols = 0;
-
-            for (boolean attestedRow : attestedRows) {
-                if (attestedRow) {
-                    numAttestedRows++;
-                }
-            }
-
-            for (boolean attestedCol : attestedCols) {
-                if (attestedCol) {
-                    numAttestedCols++;
-                }
-            }
-
-            df += (numAttestedRows - 1) * (numAttestedCols - 1);
+            df += (numNonzero(sumRows) - 1) * (numNonzero(sumCols) - 1);
         }
 
         // If df == 0, return indep.
@@ -352,6 +302,64 @@ public class ChiSquareTest {
 
     //================================PRIVATE==============================//
 
+    /**
+     * Counts the records for the table x by y | z, where testIndices = [x, y, z1, z2, ...]. The counts are returned
+     * one x by y table after another, one for each configuration of z, each table row by row. The array may be
+     * shared and must not be modified.
+     */
+    protected int[] countTables(int[] testIndices) {
+        int[] order = new int[testIndices.length];
+        System.arraycopy(testIndices, 2, order, 0, testIndices.length - 2);
+        order[testIndices.length - 2] = testIndices[0];
+        order[testIndices.length - 1] = testIndices[1];
+        return countTree.count(order);
+    }
+
+    /**
+     * @return the number of x by y tables for testIndices = [x, y, z1, z2, ...], the number of configurations of z.
+     */
+    protected int getNumTables(int[] testIndices) {
+        int numTables = 1;
+
+        for (int k = 2; k < testIndices.length; k++) {
+            numTables *= getDims()[testIndices[k]];
+        }
+
+        return numTables;
+    }
+
+    /**
+     * Fills in the row and column sums of the table starting at offset in counts, returning its total.
+     */
+    protected static long margins(int[] counts, int offset, long[] sumRows, long[] sumCols) {
+        Arrays.fill(sumRows, 0);
+        Arrays.fill(sumCols, 0);
+        long total = 0;
+
+        for (int i = 0; i < sumRows.length; i++) {
+            for (int j = 0; j < sumCols.length; j++) {
+                int observed = counts[offset + i * sumCols.length + j];
+                sumRows[i] += observed;
+                sumCols[j] += observed;
+                total += observed;
+            }
+        }
+
+        return total;
+    }
+
+    protected static int numNonzero(long[] sums) {
+        int count = 0;
+
+        for (long sum : sums) {
+            if (sum != 0) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
     public int[] selectFromArray(int[] arr, int[] indices) {
         int[] retArr = new int[indices.length];
 
@@ -0,0 +1,274 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.search;
+
+import java.math.BigInteger;
+import java.util.*;
+
+/**
+ * Counts and lists the acyclic orientations without new colliders of the connected chordal graphs that are the chain
+ * components of a pattern, by the rooted decomposition of He, Jia and Yu (Counting and Exploring Sizes of Markov
+ * Equivalence Classes of Directed Acyclic Graphs, JMLR 16, 2015).
+ * <p>
+ * Every such orientation has exactly one source. Orienting the edges of the source out of it and closing under Meek's
+ * rules leaves some edges undirected; these make up smaller chordal components, whose orientations may be chosen
+ * independently. So the number of orientations of a component is, summed over its vertices as source, the product of
+ * the numbers for the components left. Counts are cached by vertex set. The orientations are numbered in the same
+ * order, so that any one of them can be built from its number without building the others.
+ * <p>
+ * Vertices are indices into the adjacency sets given, which should be those of the undirected edges of the pattern.
+ *
+ * @author Joseph Ramsey
+ * @see MarkovEquivalenceClass
+ */
+final class ChordalOrientations {
+
+    private final BitSet[] adj;
+    private final Map<BitSet, BigInteger> counts = new HashMap<>();
+
+    ChordalOrientations(BitSet[] adj) {
+        this.adj = adj;
+    }
+
+    /**
+     * @return the number of acyclic orientations without new colliders of the subgraph over the given vertices, which
+     * should be a connected chordal graph.
+     */
+    BigInteger count(BitSet vertices) {
+        if (vertices.cardinality() <= 1) return BigInteger.ONE;
+
+        BigInteger count = counts.get(vertices);
+        if (count != null) return count;
+
+        if (isClique(vertices)) {
+            count = factorial(vertices.cardinality());
+            counts.put((BitSet) vertices.clone(), count);
+            return count;
+        }
+
+        count = BigInteger.ZERO;
+
+        for (int v = vertices.nextSetBit(0); v >= 0; v = vertices.nextSetBit(v + 1)) {
+            count = count.add(rooted(vertices, v).count);
+        }
+
+        counts.put((BitSet) vertices.clone(), count);
+        return count;
+    }
+
+    /**
+     * Adds to arcs, as {from, to} pairs, the edges of the index'th orientation of the subgraph over the given vertices,
+     * 0 <= index < count(vertices).
+     */
+    void orientation(BitSet vertices, BigInteger index, List<int[]> arcs) {
+        if (vertices.cardinality() <= 1) return;
+
+        if (isClique(vertices)) {
+            cliqueOrientation(vertices, index, arcs);
+            return;
+        }
+
+        for (int v = vertices.nextSetBit(0); v >= 0; v = vertices.nextSetBit(v + 1)) {
+            Rooted rooted = rooted(vertices, v);
+
+            if (index.compareTo(rooted.count) >= 0) {
+                index = index.subtract(rooted.count);
+                continue;
+            }
+
+            arcs.addAll(rooted.arcs);
+
+            for (BitSet component : rooted.components) {
+                BigInteger[] qr = index.divideAndRemainder(count(component));
+                orientation(component, qr[1], arcs);
+                index = qr[0];
+            }
+
+            return;
+        }
+
+        throw new IllegalArgumentException("Index out of range.");
+    }
+
+    //==============================PRIVATE METHODS=========================//
+
+    // Any order of the vertices of a clique orients it acyclically with no colliders; the orders are numbered in the
+    // factorial number system.
+    private void cliqueOrientation(BitSet vertices, BigInteger index, List<int[]> arcs) {
+        if (index.signum() < 0 || index.compareTo(factorial(vertices.cardinality())) >= 0) {
+            throw new IllegalArgumentException("Index out of range.");
+        }
+
+        List<Integer> remaining = new ArrayList<>();
+        for (int v = vertices.nextSetBit(0); v >= 0; v = vertices.nextSetBit(v + 1)) remaining.add(v);
+
+        List<Integer> order = new ArrayList<>();
+
+        while (!remaining.isEmpty()) {
+            BigInteger[] qr = index.divideAndRemainder(factorial(remaining.size() - 1));
+            order.add(remaining.remove(qr[0].intValue()));
+            index = qr[1];
+        }
+
+        for (int i = 0; i < order.size(); i++) {
+            for (int j = i + 1; j < order.size(); j++) {
+                arcs.add(new int[]{order.get(i), order.get(j)});
+            }
+        }
+    }
+
+    private boolean isClique(BitSet vertices) {
+        int size = vertices.cardinality();
+
+        for (int v = vertices.nextSetBit(0); v >= 0; v = vertices.nextSetBit(v + 1)) {
+            BitSet neighbors = (BitSet) adj[v].clone();
+            neighbors.and(vertices);
+            if (neighbors.cardinality() != size - 1) return false;
+        }
+
+        return true;
+    }
+
+    private static BigInteger factorial(int n) {
+        BigInteger factorial = BigInteger.ONE;
+        for (int i = 2; i <= n; i++) factorial = factorial.multiply(BigInteger.valueOf(i));
+        return factorial;
+    }
+
+    // Orients the edges of v out of it and closes under Meek's rules.
+    private Rooted rooted(BitSet vertices, int v) {
+        int n = adj.length;
+        BitSet[] undirected = new BitSet[n];
+        BitSet[] parents = new BitSet[n];
+        BitSet[] children = new BitSet[n];
+
+        for (int x = vertices.nextSetBit(0); x >= 0; x = vertices.nextSetBit(x + 1)) {
+            undirected[x] = (BitSet) adj[x].clone();
+            undirected[x].and(vertices);
+            parents[x] = new BitSet(n);
+            children[x] = new BitSet(n);
+        }
+
+        List<int[]> arcs = new ArrayList<>();
+        BitSet first = (BitSet) undirected[v].clone();
+
+        for (int u = first.nextSetBit(0); u >= 0; u = first.nextSetBit(u + 1)) {
+            orient(v, u, undirected, parents, children, arcs);
+        }
+
+        boolean changed = true;
+
+        while (changed) {
+            changed = false;
+
+            for (int b = vertices.nextSetBit(0); b >= 0; b = vertices.nextSetBit(b + 1)) {
+                BitSet neighbors = (BitSet) undirected[b].clone();
+
+                for (int c = neighbors.nextSetBit(0); c >= 0; c = neighbors.nextSetBit(c + 1)) {
+                    if (!undirected[b].get(c)) continue;
+
+                    if (meek(b, c, undirected, parents, children)) {
+                        orient(b, c, undirected, parents, children, arcs);
+                        changed = true;
+                    }
+                }
+            }
+        }
+
+        // What is left undirected splits into components, each oriented on its own.
+        List<BitSet> components = new ArrayList<>();
+        BitSet seen = new BitSet(n);
+        BigInteger count = BigInteger.ONE;
+
+        for (int x = vertices.nextSetBit(0); x >= 0; x = vertices.nextSetBit(x + 1)) {
+            if (seen.get(x) || undirected[x].isEmpty()) continue;
+
+            BitSet component = new BitSet(n);
+            LinkedList<Integer> queue = new LinkedList<>();
+            queue.add(x);
+            component.set(x);
+
+            while (!queue.isEmpty()) {
+                int y = queue.removeFirst();
+
+                for (int z = undirected[y].nextSetBit(0); z >= 0; z = undirected[y].nextSetBit(z + 1)) {
+                    if (!component.get(z)) {
+                        component.set(z);
+                        queue.add(z);
+                    }
+                }
+            }
+
+            seen.or(component);
+            components.add(component);
+            count = count.multiply(count(component));
+        }
+
+        return new Rooted(arcs, components, count);
+    }
+
+    // True if b--c is to be oriented b-->c by Meek's rule 1, 2 or 3.
+    private boolean meek(int b, int c, BitSet[] undirected, BitSet[] parents, BitSet[] children) {
+
+        // Rule 1: a-->b--c, a and c not adjacent.
+        BitSet r1 = (BitSet) parents[b].clone();
+        r1.andNot(adj[c]);
+        if (!r1.isEmpty()) return true;
+
+        // Rule 2: b-->a-->c.
+        if (children[b].intersects(parents[c])) return true;
+
+        // Rule 3: b--a-->c and b--d-->c, a and d not adjacent.
+        BitSet r3 = (BitSet) undirected[b].clone();
+        r3.and(parents[c]);
+
+        for (int a = r3.nextSetBit(0); a >= 0; a = r3.nextSetBit(a + 1)) {
+            BitSet others = (BitSet) r3.clone();
+            others.andNot(adj[a]);
+            others.clear(a);
+            if (!others.isEmpty()) return true;
+        }
+
+        return false;
+    }
+
+    private static void orient(int from, int to, BitSet[] undirected, BitSet[] parents, BitSet[] children,
+                               List<int[]> arcs) {
+        undirected[from].clear(to);
+        undirected[to].clear(from);
+        children[from].set(to);
+        parents[to].set(from);
+        arcs.add(new int[]{from, to});
+    }
+
+    private static final class Rooted {
+        private final List<int[]> arcs;
+        private final List<BitSet> components;
+        private final BigInteger count;
+
+        private Rooted(List<int[]> arcs, List<BitSet> components, BigInteger count) {
+            this.arcs = arcs;
+            this.components = components;
+            this.count = count;
+        }
+    }
+}
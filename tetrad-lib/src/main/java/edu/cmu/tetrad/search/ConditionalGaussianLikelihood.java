@@ -25,9 +25,6 @@ import edu.cmu.tetrad.data.ContinuousVariable;
 import edu.cmu.tetrad.data.DataSet;
 import edu.cmu.tetrad.data.DiscreteVariable;
 import edu.cmu.tetrad.graph.Node;
-import edu.cmu.tetrad.util.TetradMatrix;
-import edu.cmu.tetrad.util.TetradVector;
-import org.apache.commons.math3.stat.correlation.Covariance;
 
 import java.util.*;
 
@@ -51,11 +48,17 @@ public class ConditionalGaussianLikelihood {
     // Indices of variables.
     private Map<Node, Integer> nodesHash;
 
-    // Continuous data only.
+    // Continuous data only, centered.
     private double[][] continuousData;
 
+    // Most records of cells kept for cached statistics, over all sets of discrete variables.
+    private static final int MAX_CACHED_ROWS = 1 << 24;
+
+    // Statistics for the cells of sets of discrete variables, least recently used first.
+    private final LinkedHashMap<List<Integer>, CellStats> cellStats = new LinkedHashMap<>(16, 0.75f, true);
+
     //The AD Tree used to count discrete cells.
-    private AdLeafTree adTree;
+    private AdCountTree adTree;
 
     // True if by assumption the denominator for problems like P(C | X) = P(X | C) P(C) / P(X) is mixed.
     private boolean denominatorMixed = true;
@@ -108,10 +111,17 @@ public class ConditionalGaussianLikelihood {
             if (v instanceof ContinuousVariable) {
                 double[] col = new double[dataSet.getNumRows()];
 
+                double mean = 0.0;
+
                 for (int i = 0; i < dataSet.getNumRows(); i++) {
                     col[i] = dataSet.getDouble(i, j);
+                    mean += col[i];
                 }
 
+                // Centered, so that covariances may be taken from sums of cross-products without cancellation.
+                mean /= dataSet.getNumRows();
+                for (int i = 0; i < col.length; i++) col[i] -= mean;
+
                 continuousData[j] = col;
             }
         }
@@ -123,7 +133,7 @@ public class ConditionalGaussianLikelihood {
             nodesHash.put(v, j);
         }
 
-        this.adTree = AdTrees.getAdLeafTree(dataSet);
+        this.adTree = AdTrees.getAdCountTree(dataSet);
     }
 
     /**
@@ -193,37 +203,30 @@ public class ConditionalGaussianLikelihood {
 
         double c1 = 0, c2 = 0;
 
-        List<List<Integer>> cells = adTree.getCellLeaves(A);
+        CellStats stats = getCellStats(indices(A));
+        double[][] sums = stats.sums(continuousCols);
+        double[][] crossProducts = stats.crossProducts(continuousCols);
+        double[][] cov = new double[k][k];
 
-        for (List<Integer> cell : cells) {
-            int a = cell.size();
+        for (int cell = 0; cell < stats.n.length; cell++) {
+            int a = stats.n[cell];
             if (a == 0) continue;
 
             if (A.size() > 0) {
                 c1 += a * multinomialLikelihood(a, N);
             }
 
-            if (X.size() > 0) {
-                double v;
-
-                try {
+            // Determinant will be zero if data are linearly dependent.
+            if (X.size() > 0 && a > k) {
+                cov(sums, crossProducts, cell, a, cov);
 
-                    // Determinant will be zero if data are linearly dependent.
-                    if (a <= continuousCols.length) {
-                        throw new IllegalArgumentException();
-                    }
-
-                    TetradMatrix cov = cov(getSubsample(continuousCols, cell));
-                    v = gaussianLikelihood(k, cov);
+                if (cholesky(cov)) {
+                    double v = gaussianLikelihood(k, logDet(cov));
 
                     // Double check.
-                    if (Double.isInfinite(v)) {
-                        throw new IllegalArgumentException();
+                    if (!Double.isInfinite(v)) {
+                        c2 += a * v;
                     }
-
-                    c2 += a * v;
-                } catch (Exception e) {
-                    // No contribution.
                 }
             }
         }
@@ -241,15 +244,15 @@ public class ConditionalGaussianLikelihood {
     }
 
     // One record.
-    private double gaussianLikelihood(int k, TetradMatrix sigma) {
-        return -0.5 * (log(sigma.det()) - k - k * log(2.0 * Math.PI));
+    private double gaussianLikelihood(int k, double logDet) {
+        return -0.5 * (logDet - k - k * log(2.0 * Math.PI));
     }
 
     // For cases like P(C | X). This is a ratio of joints, but if the numerator is conditional Gaussian,
-    // the denominator is a mixture of Gaussians.
+    // the denominator is a mixture of Gaussians. The densities are combined on the log scale.
     private Ret likelihoodMixed(List<ContinuousVariable> X, List<DiscreteVariable> A, DiscreteVariable B) {
         final int k = X.size();
-        final double g = Math.pow(2.0 * Math.PI, k);
+        final double logG = k * log(2.0 * Math.PI);
 
         int[] continuousCols = new int[k];
         for (int j = 0; j < k; j++) continuousCols[j] = nodesHash.get(X.get(j));
@@ -257,65 +260,71 @@ public class ConditionalGaussianLikelihood {
 
         int N = dataSet.getNumRows();
 
-        List<List<List<Integer>>> cells = adTree.getCellLeaves(A, B);
+        List<DiscreteVariable> AB = new ArrayList<>(A);
+        AB.add(B);
+        CellStats stats = getCellStats(indices(AB));
+        double[][] sums = stats.sums(continuousCols);
+        double[][] crossProducts = stats.crossProducts(continuousCols);
 
-        TetradMatrix defaultCov = null;
+        int numCategories = B.getNumCategories();
+        int numCells = stats.n.length;
 
-        for (List<List<Integer>> mycells : cells) {
-            List<TetradMatrix> x = new ArrayList<>();
-            List<TetradMatrix> sigmas = new ArrayList<>();
-            List<TetradMatrix> inv = new ArrayList<>();
-            List<TetradVector> mu = new ArrayList<>();
+        // For each cell of A and B that contributes, the mean, the Cholesky factor of the covariance, and the log of
+        // the normalizing factor of its density plus the log of its probability.
+        double[][] mu = new double[numCells][];
+        double[][][] chol = new double[numCells][][];
+        double[] logPrior = new double[numCells];
 
-            for (List<Integer> cell : mycells) {
-                TetradMatrix subsample = getSubsample(continuousCols, cell);
+        // Determinant will be zero if data are linearly dependent.
+        if (numCategories > continuousCols.length) {
+            for (int cell = 0; cell < numCells; cell++) {
+                int a = stats.n[cell];
+                if (a < 2) continue;
 
-                try {
+                double[][] cov = new double[k][k];
+                cov(sums, crossProducts, cell, a, cov);
 
-                    // Determinant will be zero if data are linearly dependent.
-                    if (mycells.size() <= continuousCols.length) throw new IllegalArgumentException();
+                if (!cholesky(cov)) continue;
 
-                    TetradMatrix cov = cov(subsample);
-                    TetradMatrix covinv = cov.inverse();
+                mu[cell] = new double[k];
+                for (int i = 0; i < k; i++) mu[cell][i] = sums[i][cell] / a;
+                chol[cell] = cov;
+                logPrior[cell] = -0.5 * (logG + logDet(cov)) + log(a / (double) N);
+            }
+        }
 
-                    if (defaultCov == null) {
-                        defaultCov = cov;
-                    }
+        double[] x = new double[k];
+        double[] z = new double[k];
+        double[] logA = new double[numCategories];
 
-                    x.add(subsample);
-                    sigmas.add(cov);
-                    inv.add(covinv);
-                    mu.add(means(subsample));
-                } catch (Exception e) {
-                    // No contribution.
-                }
-            }
+        for (int i = 0; i < N; i++) {
+            int cell = stats.cells[i];
+            if (cell < 0 || chol[cell] == null) continue;
 
-            double[] factors = new double[x.size()];
+            for (int j = 0; j < k; j++) x[j] = continuousData[continuousCols[j]][i];
 
-            for (int u = 0; u < x.size(); u++) {
-                factors[u] = Math.pow(g * sigmas.get(u).det(), -0.5);
-            }
+            int first = cell - cell % numCategories;
+            double max = Double.NEGATIVE_INFINITY;
 
-            double[] a = new double[x.size()];
+            for (int v = 0; v < numCategories; v++) {
+                int other = first + v;
 
-            for (int u = 0; u < x.size(); u++) {
-                for (int i = 0; i < x.get(u).rows(); i++) {
-                    for (int v = 0; v < x.size(); v++) {
-                        final TetradVector xm = x.get(u).getRow(i).minus(mu.get(v));
-                        a[v] = prob(factors[v], inv.get(v), xm);
-                    }
+                if (chol[other] == null) {
+                    logA[v] = Double.NEGATIVE_INFINITY;
+                    continue;
+                }
 
-                    double num = a[u] * p(x, u, N);
-                    double denom = 0.0;
+                logA[v] = logPrior[other] - 0.5 * quadraticForm(chol[other], mu[other], x, z);
+                max = Math.max(max, logA[v]);
+            }
 
-                    for (int v = 0; v < x.size(); v++) {
-                        denom += a[v] * (p(x, v, N));
-                    }
+            double denom = 0.0;
 
-                    lnL += log(num) - log(denom);
-                }
+            for (int v = 0; v < numCategories; v++) {
+                denom += Math.exp(logA[v] - max);
             }
+
+            lnL += logA[cell - first] - (max + log(denom));
         }
 
         int p = (int) getPenaltyDiscount();
@@ -325,35 +334,185 @@ public class ConditionalGaussianLikelihood {
         return new Ret(lnL, dof);
     }
 
-    private double p(List<TetradMatrix> x, int u, double N) {
-        return x.get(u).rows() / N;
+    // The statistics for the cells of the given discrete variables, cached.
+    private CellStats getCellStats(int[] discreteCols) {
+        List<Integer> key = new ArrayList<>();
+        for (int col : discreteCols) key.add(col);
+
+        synchronized (cellStats) {
+            CellStats stats = cellStats.get(key);
+
+            if (stats != null) {
+                SearchMetrics.increment(SearchMetrics.Counter.CACHE_HITS);
+                return stats;
+            }
+        }
+
+        // Counted outside the lock so that threads asking for other cells aren't held up; if another thread put
+        // the same cells in the meantime, its statistics are used and these are dropped.
+        SearchMetrics.increment(SearchMetrics.Counter.CACHE_MISSES);
+        CellStats stats = new CellStats(discreteCols);
+
+        synchronized (cellStats) {
+            CellStats existing = cellStats.get(key);
+            if (existing != null) return existing;
+
+            cellStats.put(key, stats);
+
+            int maxEntries = Math.max(1, MAX_CACHED_ROWS / Math.max(1, dataSet.getNumRows()));
+            Iterator<List<Integer>> keys = cellStats.keySet().iterator();
+
+            while (cellStats.size() > maxEntries) {
+                keys.next();
+                keys.remove();
+            }
+
+            return stats;
+        }
     }
 
-    private TetradMatrix cov(TetradMatrix x) {
-        return new TetradMatrix(new Covariance(x.getRealMatrix(), true).getCovarianceMatrix());
+    // Fills in the (unbiased) covariance matrix of the given cell from its sums and sums of cross-products.
+    private void cov(double[][] sums, double[][] crossProducts, int cell, int a, double[][] cov) {
+        int k = sums.length;
+
+        for (int i = 0; i < k; i++) {
+            for (int j = 0; j <= i; j++) {
+                double c = (crossProducts[index(i, j)][cell] - sums[i][cell] * sums[j][cell] / a) / (a - 1);
+                cov[i][j] = c;
+                cov[j][i] = c;
+            }
+        }
     }
 
-    private double prob(Double factor, TetradMatrix inv, TetradVector x) {
-        return factor * Math.exp(-0.5 * inv.times(x).dotProduct(x));
+    // Replaces the lower triangle of the symmetric matrix m with its Cholesky factor, returning false if m is not
+    // positive definite.
+    private static boolean cholesky(double[][] m) {
+        int k = m.length;
+
+        for (int j = 0; j < k; j++) {
+            double d = m[j][j];
+            for (int l = 0; l < j; l++) d -= m[j][l] * m[j][l];
+            if (!(d > 0)) return false;
+            m[j][j] = Math.sqrt(d);
+
+            for (int i = j + 1; i < k; i++) {
+                double s = m[i][j];
+                for (int l = 0; l < j; l++) s -= m[i][l] * m[j][l];
+                m[i][j] = s / m[j][j];
+            }
+        }
+
+        return true;
     }
 
-    // Calculates the means of the columns of x.
-    private TetradVector means(TetradMatrix x) {
-        return x.sum(1).scalarMult(1.0 / x.rows());
+    // The log determinant of a matrix given its Cholesky factor.
+    private static double logDet(double[][] chol) {
+        double logDet = 0.0;
+        for (int i = 0; i < chol.length; i++) logDet += log(chol[i][i]);
+        return 2.0 * logDet;
     }
 
-    // Subsample of the continuous variables conditioning on the given cell.
-    private TetradMatrix getSubsample(int[] continuousCols, List<Integer> cell) {
-        int a = cell.size();
-        TetradMatrix subset = new TetradMatrix(a, continuousCols.length);
+    // (x - mu)' S^-1 (x - mu), for S with the given Cholesky factor, using z as scratch.
+    private static double quadraticForm(double[][] chol, double[] mu, double[] x, double[] z) {
+        double q = 0.0;
+
+        for (int i = 0; i < x.length; i++) {
+            double s = x[i] - mu[i];
+            for (int l = 0; l < i; l++) s -= chol[i][l] * z[l];
+            z[i] = s / chol[i][i];
+            q += z[i] * z[i];
+        }
+
+        return q;
+    }
+
+    // The index of (i, j), j <= i, in a lower triangle stored row by row.
+    private static int index(int i, int j) {
+        return i * (i + 1) / 2 + j;
+    }
+
+    // The cells of a set of discrete variables, with the sums and sums of cross-products of continuous variables
+    // for each cell, computed as they are asked for and kept for reuse by other parent sets with the same discrete
+    // parents.
+    private final class CellStats {
+
+        // The cell of each record, or -1 if it is missing a discrete value.
+        private final int[] cells;
+
+        // The number of records in each cell.
+        private final int[] n;
+
+        private final Map<Integer, double[]> sums = new HashMap<>();
+        private final Map<List<Integer>, double[]> crossProducts = new HashMap<>();
+
+        private CellStats(int[] discreteCols) {
+            this.n = adTree.count(discreteCols);
+            this.cells = adTree.getCellCounts().cells(discreteCols).clone();
+        }
+
+        // The sums for each cell of each of the given continuous columns.
+        private synchronized double[][] sums(int[] cols) {
+            double[][] _sums = new double[cols.length][];
+
+            for (int i = 0; i < cols.length; i++) {
+                double[] s = sums.get(cols[i]);
+
+                if (s == null) {
+                    s = new double[n.length];
+                    double[] x = continuousData[cols[i]];
+
+                    for (int r = 0; r < cells.length; r++) {
+                        if (cells[r] >= 0) s[cells[r]] += x[r];
+                    }
+
+                    sums.put(cols[i], s);
+                }
+
+                _sums[i] = s;
+            }
+
+            return _sums;
+        }
+
+        // The sums of cross-products for each cell of each pair of the given continuous columns, in the order of
+        // index(i, j).
+        private synchronized double[][] crossProducts(int[] cols) {
+            double[][] _crossProducts = new double[cols.length * (cols.length + 1) / 2][];
+
+            for (int i = 0; i < cols.length; i++) {
+                for (int j = 0; j <= i; j++) {
+                    List<Integer> key = Arrays.asList(Math.min(cols[i], cols[j]), Math.max(cols[i], cols[j]));
+                    double[] s = crossProducts.get(key);
+
+                    if (s == null) {
+                        s = new double[n.length];
+                        double[] x = continuousData[cols[i]];
+                        double[] y = continuousData[cols[j]];
 
-        for (int i = 0; i < a; i++) {
-            for (int j = 0; j < continuousCols.length; j++) {
-                subset.set(i, j, continuousData[continuousCols[j]][cell.get(i)]);
+                        for (int r = 0; r < cells.length; r++) {
+                            if (cells[r] >= 0) s[cells[r]] += x[r] * y[r];
+                        }
+
+                        crossProducts.put(key, s);
+                    }
+
+                    _crossProducts[index(i, j)] = s;
+                }
             }
+
+            return _crossProducts;
+        }
+    }
+
+    // The column indices of the given variables.
+    private int[] indices(List<DiscreteVariable> A) {
+        int[] indices = new int[A.size()];
+
+        for (int j = 0; j < A.size(); j++) {
+            indices[j] = nodesHash.get(A.get(j));
         }
 
-        return subset;
+        return indices;
     }
 
     // Degrees of freedom for a discrete distribution is the product of the number of categories for each
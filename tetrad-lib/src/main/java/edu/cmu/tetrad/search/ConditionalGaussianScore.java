@@ -90,6 +90,25 @@ public class ConditionalGaussianScore implements Score {
         return localScore(y, x) - localScore(y);
     }
 
+    /**
+     * Scores y given z once, and reuses a single parent array for the candidates.
+     */
+    @Override
+    public double[] localScoreDiffs(int y, int[] z, int[] xs) {
+        double[] diffs = new double[xs.length];
+        double base = localScore(y, z);
+
+        int[] parents = new int[z.length + 1];
+        System.arraycopy(z, 0, parents, 0, z.length);
+
+        for (int i = 0; i < xs.length; i++) {
+            parents[z.length] = xs[i];
+            diffs[i] = localScore(y, parents) - base;
+        }
+
+        return diffs;
+    }
+
     private int[] append(int[] parents, int extra) {
         int[] all = new int[parents.length + 1];
         System.arraycopy(parents, 0, all, 0, parents.length);
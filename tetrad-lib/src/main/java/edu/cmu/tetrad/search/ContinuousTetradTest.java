@@ -69,7 +69,6 @@ public final class ContinuousTetradTest implements TetradTest {
     private DataSet dataSet;
     private OneFactorEstimator oneFactorEst4, oneFactorEst5, oneFactorEst6;
     private TwoFactorsEstimator twoFactorsEst4, twoFactorsEst5, twoFactorsEst6;
-    private TetradMatrix bufferMatrix;
     //    private Map<Tetrad, Double> tetradDifference;
     private List<Node> variables;
     DeltaTetradTest deltaTest;
@@ -218,7 +217,6 @@ public final class ContinuousTetradTest implements TetradTest {
         twoFactorsEst4 = new TwoFactorsEstimator(covMatrix, sig, 4);
         twoFactorsEst5 = new TwoFactorsEstimator(covMatrix, sig, 5);
         twoFactorsEst6 = new TwoFactorsEstimator(covMatrix, sig, 6);
-        bufferMatrix = new TetradMatrix(4, 4);
         rho = covMatrix.getMatrix();
     }
 
@@ -264,7 +262,14 @@ public final class ContinuousTetradTest implements TetradTest {
         return prob[0] >= sig;
     }
 
+    /**
+     * For the Wishart test this leaves the stored p values alone, so it may be called from several threads at once.
+     */
     public double tetradPValue(int v1, int v2, int v3, int v4) {
+        if (sigTestType == TestType.TETRAD_WISHART || sigTestType == TestType.TETRAD_BASED) {
+            return wishartTetradPValue(v1, v2, v3, v4);
+        }
+
         evalTetradDifference(v1, v2, v3, v4);
         return prob[0];
     }
@@ -452,6 +457,10 @@ public final class ContinuousTetradTest implements TetradTest {
     }
 
     private void wishartEvalTetradDifference(int i, int j, int k, int l) {
+        prob[0] = wishartTetradPValue(i, j, k, l);
+    }
+
+    private double wishartTetradPValue(int i, int j, int k, int l) {
         double TAUijkl;
         double ratio;
 
@@ -467,11 +476,11 @@ public final class ContinuousTetradTest implements TetradTest {
 
         double pValue = 2.0 * ProbUtils.normalCdf(ratio);
 
-        prob[0] = pValue;
-
 //        TetradLogger.getInstance().log("tetrads", new Tetrad(variables.get(i),
 //                variables.get(j), variables.get(k), variables.get(l)).toString()
 //                + " = 0, p = " + pValue);
+
+        return pValue;
     }
 
     private void wishartEvalTetradDifference(int i1, int j1, int k1, int l1, int i2, int j2, int k2, int l2) {
@@ -493,6 +502,7 @@ public final class ContinuousTetradTest implements TetradTest {
     }
 
     private double wishartTestTetradDifference(int a0, int a1, int a2, int a3) {
+        TetradMatrix bufferMatrix = new TetradMatrix(4, 4);
         bufferMatrix.set(0, 0, rho.get(a0, a0));
         bufferMatrix.set(0, 1, rho.get(a0, a1));
         bufferMatrix.set(0, 2, rho.get(a0, a2));
@@ -618,14 +628,10 @@ public final class ContinuousTetradTest implements TetradTest {
         Node ck = getVariables().get(k);
         Node cl = getVariables().get(l);
 
-        deltaTest.calcChiSquare(new Tetrad(ci, cj, ck, cl));
-        prob[0] = deltaTest.getPValue();
-
-        deltaTest.calcChiSquare(new Tetrad(ci, cj, cl, ck));
-        prob[1] = deltaTest.getPValue();
-
-        deltaTest.calcChiSquare(new Tetrad(ci, ck, cl, cj));
-        prob[2] = deltaTest.getPValue();
+        double[] pValues = deltaTest.getQuartetPValues(ci, cj, ck, cl);
+        prob[0] = pValues[0];
+        prob[1] = pValues[1];
+        prob[2] = pValues[2];
     }
 
 
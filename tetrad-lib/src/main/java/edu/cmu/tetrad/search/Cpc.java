@@ -518,7 +518,7 @@ Cpc implements GraphSearch {
 
                 while ((choice = gen.next()) != null) {
                     List<Node> v = GraphUtils.asList(choice, adji);
-                    if (getIndependenceTest().isIndependent(i, k, v)) sepsets.add(v);
+                    if (getIndependenceTest().checkIndependence(i, k, v).isIndependent()) sepsets.add(v);
                 }
             }
 
@@ -528,7 +528,7 @@ Cpc implements GraphSearch {
 
                 while ((choice = gen.next()) != null) {
                     List<Node> v = GraphUtils.asList(choice, adjk);
-                    if (getIndependenceTest().isIndependent(i, k, v)) sepsets.add(v);
+                    if (getIndependenceTest().checkIndependence(i, k, v).isIndependent()) sepsets.add(v);
                 }
             }
         }
@@ -42,12 +42,11 @@ public class DeltaTetradTest {
     private ICovarianceMatrix cov;
     private int df;
     private double chisq;
-    //    private double[][][][] fourthMoment;
+    private FourthMoments fourthMoments;
 //    private int numVars;
 //    private double[] means;
     private List<Node> variables;
     private Map<Node, Integer> variablesHash;
-//    private boolean cacheFourthMoments = false;
 
 
     // As input we require a data set and a list of non-redundant Tetrads.
@@ -79,6 +78,7 @@ public class DeltaTetradTest {
         this.dataSet = data2.get(0);
 
         this.data = this.dataSet.getDoubleData().transpose().toArray();
+        this.fourthMoments = new FourthMoments(data);
         this.N = dataSet.getNumRows();
         this.variables = dataSet.getVariables();
 //        this.numVars = dataSet.getNumColumns();
@@ -116,11 +116,6 @@ public class DeltaTetradTest {
         }
     }
 
-//    private void initializeForthMomentMatrix(List<Node> variables) {
-//        int n = variables.size();
-//        fourthMoment = new double[n][n][n][n];
-//    }
-
     /**
      * Takes a list of tetrads for the given data set and returns the chi square value for the test. We assume that the
      * tetrads are non-redundant; if not, a matrix exception will be thrown.
@@ -130,57 +125,17 @@ public class DeltaTetradTest {
      */
     public double calcChiSquare(Tetrad... tetrads) {
         this.df = tetrads.length;
+        this.chisq = chiSquare(tetrads);
+        return this.chisq;
+    }
 
+    // The T statistic for the given tetrads, leaving the fields alone.
+    private double chiSquare(Tetrad... tetrads) {
         // Need a list of symbolic covariances--i.e. covariances that appear in tetrads.
-        Set<Sigma> boldSigmaSet = new LinkedHashSet<>();
-        List<Sigma> boldSigma = new ArrayList<>();
-
-        for (Tetrad tetrad : tetrads) {
-            boldSigmaSet.add(new Sigma(tetrad.getI(), tetrad.getK()));
-            boldSigmaSet.add(new Sigma(tetrad.getI(), tetrad.getL()));
-            boldSigmaSet.add(new Sigma(tetrad.getJ(), tetrad.getK()));
-            boldSigmaSet.add(new Sigma(tetrad.getJ(), tetrad.getL()));
-        }
-
-        for (Sigma sigma : boldSigmaSet) {
-            boldSigma.add(sigma);
-        }
+        List<Sigma> boldSigma = boldSigma(tetrads);
 
         // Need a matrix of variances and covariances of sample covariances.
-        TetradMatrix sigma_ss = new TetradMatrix(boldSigma.size(), boldSigma.size());
-
-        for (int i = 0; i < boldSigma.size(); i++) {
-            for (int j = 0; j < boldSigma.size(); j++) {
-                Sigma sigmaef = boldSigma.get(i);
-                Sigma sigmagh = boldSigma.get(j);
-
-                Node e = sigmaef.getA();
-                Node f = sigmaef.getB();
-                Node g = sigmagh.getA();
-                Node h = sigmagh.getB();
-
-                if (cov != null && cov instanceof CorrelationMatrix) {
-
-//                Assumes multinormality. Using formula 23. (Not implementing formula 22 because that case
-//                does not come up.)
-                    double rr = 0.5 * (sxy(e, f) * sxy(g, h))
-                            * (sxy(e, g) * sxy(e, g) + sxy(e, h) * sxy(e, h) + sxy(f, g) * sxy(f, g) + sxy(f, h) * sxy(f, h))
-                            + sxy(e, g) * sxy(f, h) + sxy(e, h) * sxy(f, g)
-                            - sxy(e, f) * (sxy(f, g) * sxy(f, h) + sxy(e, g) * sxy(e, h))
-                            - sxy(g, h) * (sxy(f, g) * sxy(e, g) + sxy(f, h) * sxy(e, h));
-
-                    sigma_ss.set(i, j, rr);
-                } else if (cov != null && dataSet == null) {
-
-                    // Assumes multinormality--see p. 160.
-                    double _ss = sxy(e, g) * sxy(f, h) - sxy(e, h) * sxy(f, g);   // + or -? Different advise. + in the code.
-                    sigma_ss.set(i, j, _ss);
-                } else {
-                    double _ss = sxyzw(e, f, g, h) - sxy(e, f) * sxy(g, h);
-                    sigma_ss.set(i, j, _ss);
-                }
-            }
-        }
+        TetradMatrix sigma_ss = sigmaSS(boldSigma);
 
         // Need a matrix of of population estimates of partial derivatives of tetrads
         // with respect to covariances in boldSigma.w
@@ -188,16 +143,7 @@ public class DeltaTetradTest {
 
         for (int i = 0; i < boldSigma.size(); i++) {
             for (int j = 0; j < tetrads.length; j++) {
-                Sigma sigma = boldSigma.get(i);
-                Tetrad tetrad = tetrads[j];
-
-                Node e = tetrad.getI();
-                Node f = tetrad.getJ();
-                Node g = tetrad.getK();
-                Node h = tetrad.getL();
-
-                double derivative = getDerivative(e, f, g, h, sigma.getA(), sigma.getB());
-                del.set(i, j, derivative);
+                del.set(i, j, derivative(tetrads[j], boldSigma.get(i)));
             }
         }
 
@@ -205,20 +151,7 @@ public class DeltaTetradTest {
         TetradMatrix t = new TetradMatrix(tetrads.length, 1);
 
         for (int i = 0; i < tetrads.length; i++) {
-            Tetrad tetrad = tetrads[i];
-
-            Node e = tetrad.getI();
-            Node f = tetrad.getJ();
-            Node g = tetrad.getK();
-            Node h = tetrad.getL();
-
-            double d1 = sxy(e, f);
-            double d2 = sxy(g, h);
-            double d3 = sxy(e, g);
-            double d4 = sxy(f, h);
-
-            double value = d1 * d2 - d3 * d4;
-            t.set(i, 0, value);
+            t.set(i, 0, tetradValue(tetrads[i]));
         }
 
         // Now multiply to get Sigma_tt
@@ -229,11 +162,60 @@ public class DeltaTetradTest {
         TetradMatrix v0 = sigma_tt.inverse();
         TetradMatrix v1 = t.transpose().times(v0);
         TetradMatrix v2 = v1.times(t);
-        double chisq = N * v2.get(0, 0);
+        return N * v2.get(0, 0);
+    }
 
-        this.chisq = chisq;
+    /**
+     * Tests each of the given tetrads on its own, giving the same p values as calling getPValue for each in turn,
+     * but in one pass: the variances and covariances of the sample covariances they involve are computed once for
+     * all of them. Unlike getPValue, this leaves nothing behind, so it may be called from several threads at once.
+     *
+     * @return the p values, in the order of the tetrads.
+     */
+    public double[] getPValues(Tetrad... tetrads) {
+        List<Sigma> boldSigma = boldSigma(tetrads);
+        TetradMatrix sigma_ss = sigmaSS(boldSigma);
+        ChiSquaredDistribution chisq1 = new ChiSquaredDistribution(1);
+        double[] pValues = new double[tetrads.length];
+
+        for (int j = 0; j < tetrads.length; j++) {
+            double[] del = new double[boldSigma.size()];
+
+            // Only the covariances the tetrad would be tested over alone.
+            List<Sigma> own = boldSigma(tetrads[j]);
 
-        return chisq;
+            for (int i = 0; i < boldSigma.size(); i++) {
+                if (own.contains(boldSigma.get(i))) {
+                    del[i] = derivative(tetrads[j], boldSigma.get(i));
+                }
+            }
+
+            double sigma_tt = 0.0;
+
+            for (int a = 0; a < del.length; a++) {
+                if (del[a] == 0) continue;
+
+                for (int b = 0; b < del.length; b++) {
+                    sigma_tt += del[a] * sigma_ss.get(a, b) * del[b];
+                }
+            }
+
+            double t = tetradValue(tetrads[j]);
+            double chisq = N * t * t / sigma_tt;
+            pValues[j] = 1.0 - chisq1.cumulativeProbability(chisq);
+        }
+
+        return pValues;
+    }
+
+    /**
+     * Tests each of the three tetrads of the quartet (i, j, k, l) on its own, in one pass.
+     *
+     * @return the p values of s(i, j)s(k, l) = s(i, k)s(j, l), s(i, j)s(l, k) = s(i, l)s(j, k) and
+     * s(i, k)s(l, j) = s(i, l)s(k, j), in that order.
+     */
+    public double[] getQuartetPValues(Node i, Node j, Node k, Node l) {
+        return getPValues(new Tetrad(i, j, k, l), new Tetrad(i, j, l, k), new Tetrad(i, k, l, j));
     }
 
     /**
@@ -244,9 +226,13 @@ public class DeltaTetradTest {
         return 1.0 - cdf;
     }
 
+    /**
+     * @return the p value for the given tetrads tested jointly. This does not change the result returned by
+     * getPValue(), so it may be called from several threads at once.
+     */
     public double getPValue(Tetrad... tetrads) {
-        calcChiSquare(tetrads);
-        return getPValue();
+        double cdf = new ChiSquaredDistribution(tetrads.length).cumulativeProbability(chiSquare(tetrads));
+        return 1.0 - cdf;
     }
 
     private double sxyzw(Node e, Node f, Node g, Node h) {
@@ -259,56 +245,74 @@ public class DeltaTetradTest {
         int z = variablesHash.get(g);
         int w = variablesHash.get(h);
 
-        return getForthMoment(x, y, z, w);
+        return fourthMoments.get(x, y, z, w);
     }
 
-//    private void setForthMoment(int x, int y, int z, int w, double sxyzw) {
-//        fourthMoment[x][y][z][w] = sxyzw;
-//        fourthMoment[x][y][w][z] = sxyzw;
-//        fourthMoment[x][w][z][y] = sxyzw;
-//        fourthMoment[x][w][y][z] = sxyzw;
-//        fourthMoment[x][z][y][w] = sxyzw;
-//        fourthMoment[x][z][w][y] = sxyzw;
-//
-//        fourthMoment[y][x][z][w] = sxyzw;
-//        fourthMoment[y][x][w][z] = sxyzw;
-//        fourthMoment[y][z][x][w] = sxyzw;
-//        fourthMoment[y][z][w][x] = sxyzw;
-//        fourthMoment[y][w][x][z] = sxyzw;
-//        fourthMoment[y][w][z][x] = sxyzw;
-//
-//        fourthMoment[z][x][y][w] = sxyzw;
-//        fourthMoment[z][x][w][y] = sxyzw;
-//        fourthMoment[z][y][x][w] = sxyzw;
-//        fourthMoment[z][y][w][x] = sxyzw;
-//        fourthMoment[z][w][x][y] = sxyzw;
-//        fourthMoment[z][w][y][x] = sxyzw;
-//
-//        fourthMoment[w][x][y][z] = sxyzw;
-//        fourthMoment[w][x][z][y] = sxyzw;
-//        fourthMoment[w][y][x][z] = sxyzw;
-//        fourthMoment[w][y][z][x] = sxyzw;
-//        fourthMoment[w][z][x][y] = sxyzw;
-//        fourthMoment[w][z][y][x] = sxyzw;
-//    }
+    private List<Sigma> boldSigma(Tetrad... tetrads) {
+        Set<Sigma> boldSigmaSet = new LinkedHashSet<>();
 
-    private double getForthMoment(int x, int y, int z, int w) {
-//        if (cacheFourthMoments) {
-//            if (fourthMoment == null) {
-//                initializeForthMomentMatrix(dataSet.getVariables());
-//            }
-//
-//            double sxyzw = fourthMoment[x][y][z][w];
-//
-//            if (sxyzw == 0.0) {
-//                sxyzw = sxyzw(x, y, z, w);
-////                setForthMoment(x, y, z, w, sxyzw);
-//            }
-//
-//            return sxyzw;
-//        } else {
-        return sxyzw(x, y, z, w);
-//        }
+        for (Tetrad tetrad : tetrads) {
+            boldSigmaSet.add(new Sigma(tetrad.getI(), tetrad.getK()));
+            boldSigmaSet.add(new Sigma(tetrad.getI(), tetrad.getL()));
+            boldSigmaSet.add(new Sigma(tetrad.getJ(), tetrad.getK()));
+            boldSigmaSet.add(new Sigma(tetrad.getJ(), tetrad.getL()));
+        }
+
+        return new ArrayList<>(boldSigmaSet);
+    }
+
+    // The variances and covariances of the sample covariances in boldSigma.
+    private TetradMatrix sigmaSS(List<Sigma> boldSigma) {
+        TetradMatrix sigma_ss = new TetradMatrix(boldSigma.size(), boldSigma.size());
+
+        for (int i = 0; i < boldSigma.size(); i++) {
+            for (int j = 0; j < boldSigma.size(); j++) {
+                Sigma sigmaef = boldSigma.get(i);
+                Sigma sigmagh = boldSigma.get(j);
+
+                Node e = sigmaef.getA();
+                Node f = sigmaef.getB();
+                Node g = sigmagh.getA();
+                Node h = sigmagh.getB();
+
+                if (cov != null && cov instanceof CorrelationMatrix) {
+
+//                Assumes multinormality. Using formula 23. (Not implementing formula 22 because that case
+//                does not come up.)
+                    double rr = 0.5 * (sxy(e, f) * sxy(g, h))
+                            * (sxy(e, g) * sxy(e, g) + sxy(e, h) * sxy(e, h) + sxy(f, g) * sxy(f, g) + sxy(f, h) * sxy(f, h))
+                            + sxy(e, g) * sxy(f, h) + sxy(e, h) * sxy(f, g)
+                            - sxy(e, f) * (sxy(f, g) * sxy(f, h) + sxy(e, g) * sxy(e, h))
+                            - sxy(g, h) * (sxy(f, g) * sxy(e, g) + sxy(f, h) * sxy(e, h));
+
+                    sigma_ss.set(i, j, rr);
+                } else if (cov != null && dataSet == null) {
+
+                    // Assumes multinormality--see p. 160.
+                    double _ss = sxy(e, g) * sxy(f, h) - sxy(e, h) * sxy(f, g);   // + or -? Different advise. + in the code.
+                    sigma_ss.set(i, j, _ss);
+                } else {
+                    double _ss = sxyzw(e, f, g, h) - sxy(e, f) * sxy(g, h);
+                    sigma_ss.set(i, j, _ss);
+                }
+            }
+        }
+
+        return sigma_ss;
+    }
+
+    private double derivative(Tetrad tetrad, Sigma sigma) {
+        return getDerivative(tetrad.getI(), tetrad.getJ(), tetrad.getK(), tetrad.getL(), sigma.getA(), sigma.getB());
+    }
+
+    // The population estimate of the tetrad.
+    private double tetradValue(Tetrad tetrad) {
+        Node e = tetrad.getI();
+        Node f = tetrad.getJ();
+        Node g = tetrad.getK();
+        Node h = tetrad.getL();
+
+        return sxy(e, f) * sxy(g, h) - sxy(e, g) * sxy(f, h);
     }
 
     /**
@@ -364,10 +368,6 @@ public class DeltaTetradTest {
         return 0.0;
     }
 
-//    public void setCacheFourthMoments(boolean cacheFourthMoments) {
-//        this.cacheFourthMoments = cacheFourthMoments;
-//    }
-
     private static class Sigma {
         private Node a;
         private Node b;
@@ -403,23 +403,6 @@ public class DeltaTetradTest {
         }
     }
 
-    private double sxyzw(int x, int y, int z, int w) {
-        double sxyzw = 0.0;
-
-        double[] _x = data[x];
-        double[] _y = data[y];
-        double[] _z = data[z];
-        double[] _w = data[w];
-
-        int N = _x.length;
-
-        for (int j = 0; j < N; j++) {
-            sxyzw += _x[j] * _y[j] * _z[j] * _w[j];
-        }
-
-        return (1.0 / N) * sxyzw;
-    }
-
     private double sxy(double array1[], double array2[], int N) {
         int i;
         double sum = 0.0;
@@ -122,6 +122,9 @@ public class Fas implements IFas {
      */
     private boolean verbose = false;
 
+    // Checked between steps to stop the search early, and told of its progress.
+    private SearchControl control = new SearchControl();
+
     private PrintStream out = System.out;
     private boolean sepsetsReturnEmptyIfNotFixed;
 
@@ -174,6 +177,8 @@ public class Fas implements IFas {
         }
 
         for (int d = 0; d <= _depth; d++) {
+            if (d > 0 && control.isStopped()) break;
+
             boolean more;
 
             if (d == 0) {
@@ -182,6 +187,8 @@ public class Fas implements IFas {
                 more = searchAtDepth(nodes, test, adjacencies, d);
             }
 
+            reportProgress(d, adjacencies);
+
             if (!more) {
                 break;
             }
@@ -225,6 +232,8 @@ public class Fas implements IFas {
         }
 
         for (int d = 0; d <= _depth; d++) {
+            if (d > 0 && control.isStopped()) break;
+
             boolean more;
 
             if (d == 0) {
@@ -233,6 +242,8 @@ public class Fas implements IFas {
                 more = searchAtDepth(nodes, test, adjacencies, d);
             }
 
+            reportProgress(d, adjacencies);
+
             if (!more) {
                 break;
             }
@@ -293,7 +304,7 @@ public class Fas implements IFas {
 
                 try {
                     numIndependenceTests++;
-                    independent = test.isIndependent(x, y, empty);
+                    independent = test.checkIndependence(x, y, empty).isIndependent();
                 } catch (Exception e) {
                     e.printStackTrace();
                     independent = false;
@@ -375,6 +386,8 @@ public class Fas implements IFas {
         int count = 0;
 
         for (Node x : nodes) {
+            if (control.isStopped()) break;
+
             if (verbose) {
                 if (++count % 100 == 0) out.println("count " + count + " of " + nodes.size());
             }
@@ -398,7 +411,7 @@ public class Fas implements IFas {
 
                         try {
                             numIndependenceTests++;
-                            independent = test.isIndependent(x, y, condSet);
+                            independent = test.checkIndependence(x, y, condSet).isIndependent();
                         } catch (Exception e) {
                             independent = false;
                         }
@@ -450,6 +463,16 @@ public class Fas implements IFas {
         return possibleParents;
     }
 
+    // Tells the listeners, if any, how the search is going.
+    private void reportProgress(int depth, Map<Node, Set<Node>> adjacencies) {
+        if (!control.isReporting()) return;
+
+        int numEdges = 0;
+        for (Set<Node> adj : adjacencies.values()) numEdges += adj.size();
+
+        control.reportProgress(new SearchControl.Progress("Fas", "depth", depth, numEdges / 2, -1));
+    }
+
     private boolean possibleParentOf(String z, String x, IKnowledge knowledge) {
         return !knowledge.isForbidden(z, x) && !knowledge.isRequired(x, z);
     }
@@ -478,6 +501,19 @@ public class Fas implements IFas {
         return verbose;
     }
 
+    public SearchControl getSearchControl() {
+        return control;
+    }
+
+    /**
+     * Sets the token by which the search may be stopped early or watched. Depth 0 is always finished; after that a
+     * stopped search returns the adjacencies it has so far, which include all of those it would have found.
+     */
+    public void setSearchControl(SearchControl control) {
+        if (control == null) throw new NullPointerException("Search control must not be null.");
+        this.control = control;
+    }
+
     public void setVerbose(boolean verbose) {
         this.verbose = verbose;
     }
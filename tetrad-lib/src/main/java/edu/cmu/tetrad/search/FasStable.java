@@ -284,10 +284,13 @@ public class FasStable implements IFas {
                 }
 
                 boolean independent;
+                double pValue = Double.NaN;
 
                 try {
                     numIndependenceTests++;
-                    independent = test.isIndependent(x, y, empty);
+                    IndependenceResult result = test.checkIndependence(x, y, empty);
+                    independent = result.isIndependent();
+                    pValue = result.getPValue();
                 } catch (Exception e) {
                     e.printStackTrace();
                     independent = false;
@@ -309,11 +312,11 @@ public class FasStable implements IFas {
                     }
 
                     TetradLogger.getInstance().log("independencies", SearchLogUtils.independenceFact(x, y, empty) + " p = " +
-                            nf.format(test.getPValue()));
+                            nf.format(pValue));
 
                     if (verbose) {
                         out.println(SearchLogUtils.independenceFact(x, y, empty) + " p = " +
-                                nf.format(test.getPValue()));
+                                nf.format(pValue));
                     }
 
                 } else if (!forbiddenEdge(x, y)) {
@@ -322,7 +325,7 @@ public class FasStable implements IFas {
 
                     if (verbose) {
                         TetradLogger.getInstance().log("dependencies", SearchLogUtils.independenceFact(x, y, empty) + " p = " +
-                                nf.format(test.getPValue()));
+                                nf.format(pValue));
                     }
                 }
             }
@@ -395,10 +398,13 @@ public class FasStable implements IFas {
                         List<Node> condSet = GraphUtils.asList(choice, ppx);
 
                         boolean independent;
+                        double pValue = Double.NaN;
 
                         try {
                             numIndependenceTests++;
-                            independent = test.isIndependent(x, y, condSet);
+                            IndependenceResult result = test.checkIndependence(x, y, condSet);
+                            independent = result.isIndependent();
+                            pValue = result.getPValue();
                         } catch (Exception e) {
                             independent = false;
                         }
@@ -420,8 +426,8 @@ public class FasStable implements IFas {
 
                             if (verbose) {
                                 TetradLogger.getInstance().log("independencies", SearchLogUtils.independenceFact(x, y, condSet) + " p = " +
-                                        nf.format(test.getPValue()));
-                                out.println(SearchLogUtils.independenceFactMsg(x, y, condSet, test.getPValue()));
+                                        nf.format(pValue));
+                                out.println(SearchLogUtils.independenceFactMsg(x, y, condSet, pValue));
                             }
 
                             continue EDGE;
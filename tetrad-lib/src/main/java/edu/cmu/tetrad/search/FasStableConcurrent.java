@@ -31,7 +31,6 @@ import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.util.*;
 import java.util.concurrent.ConcurrentSkipListMap;
-import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.RecursiveTask;
 
 /**
@@ -92,8 +91,11 @@ public class FasStableConcurrent implements IFas {
      */
     private boolean verbose = false;
 
-    // The concurrency pool.
-    private ForkJoinPool pool = ForkJoinPoolInstance.getInstance().getPool();
+    // Checked between steps to stop the search early, and told of its progress.
+    private SearchControl control = new SearchControl();
+
+    // Where the tests are run.
+    private ExecutionContext context = ExecutionContext.getDefault();
 
     /**
      * Where verbose output is sent.
@@ -161,14 +163,21 @@ public class FasStableConcurrent implements IFas {
 
 
         for (int d = 0; d <= _depth; d++) {
+            if (d > 0 && control.isStopped()) break;
+
             boolean more;
 
+            SearchMetrics.Phase phase = SearchMetrics.startPhase("fas.depth" + d);
+
             if (d == 0) {
                 more = searchAtDepth0(nodes, test, adjacencies);
             } else {
                 more = searchAtDepth(nodes, test, adjacencies, d);
             }
 
+            phase.end();
+            reportProgress(d, adjacencies);
+
             if (!more) {
                 break;
             }
@@ -272,6 +281,8 @@ public class FasStableConcurrent implements IFas {
 
             @Override
             protected Boolean compute() {
+                SearchMetrics.increment(SearchMetrics.Counter.FORK_JOIN_TASKS);
+
                 if (to - from <= chunk) {
                     for (int i = from; i < to; i++) {
                         if (verbose) {
@@ -293,14 +304,22 @@ public class FasStableConcurrent implements IFas {
                             }
 
                             boolean independent;
+                            double pValue = Double.NaN;
+
+                            long start = SearchMetrics.startTimer();
 
                             try {
-                                independent = test.isIndependent(x, y, empty);
+                                IndependenceResult result = test.checkIndependence(x, y, empty);
+                                independent = result.isIndependent();
+                                pValue = result.getPValue();
                             } catch (Exception e) {
                                 e.printStackTrace();
                                 independent = true;
                             }
 
+                            SearchMetrics.stopTimer(SearchMetrics.Timer.INDEPENDENCE_TEST, start);
+                            SearchMetrics.increment(SearchMetrics.Counter.INDEPENDENCE_TESTS);
+
                             numIndependenceTests++;
 
                             boolean noEdgeRequired =
@@ -314,18 +333,18 @@ public class FasStableConcurrent implements IFas {
                                 // This creates a bottleneck for the parallel search.
 //                                if (verbose) {
 //                                    TetradLogger.getInstance().log("independencies", SearchLogUtils.independenceFact(x, y, empty) + " p = " +
-//                                            nf.format(test.getPValue()));
+//                                            nf.format(pValue));
 //
 //                                    out.println(SearchLogUtils.independenceFact(x, y, empty) + " p = " +
-//                                            nf.format(test.getPValue()));
+//                                            nf.format(pValue));
 //                                }
                             } else if (!forbiddenEdge(x, y)) {
                                 adjacencies.get(x).add(y);
                                 adjacencies.get(y).add(x);
 
-                                if (verbose) {
+                                if (verbose && logger.isLogging("dependencies")) {
                                     TetradLogger.getInstance().log("dependencies", SearchLogUtils.independenceFact(x, y, empty) + " p = " +
-                                            nf.format(test.getPValue()));
+                                            nf.format(pValue));
                                 }
                             }
                         }
@@ -347,7 +366,7 @@ public class FasStableConcurrent implements IFas {
             }
         }
 
-        pool.invoke(new Depth0Task(chunk, 0, nodes.size()));
+        context.invoke(new Depth0Task(chunk, 0, nodes.size()));
 
         return freeDegree(nodes, adjacencies) > 0;
     }
@@ -358,7 +377,7 @@ public class FasStableConcurrent implements IFas {
 
         if (knowledge.isForbidden(name1, name2) &&
                 knowledge.isForbidden(name2, name1)) {
-            if (verbose) {
+            if (verbose && logger.isLogging("edgeRemoved")) {
                 this.logger.log("edgeRemoved", "Removed " + Edges.undirectedEdge(x, y) + " because it was " +
                         "forbidden by background knowledge.");
             }
@@ -427,12 +446,16 @@ public class FasStableConcurrent implements IFas {
 
             @Override
             protected Boolean compute() {
+                SearchMetrics.increment(SearchMetrics.Counter.FORK_JOIN_TASKS);
+
                 if (to - from <= chunk) {
                     for (int i = from; i < to; i++) {
                         if (verbose) {
                             if ((i + 1) % 1000 == 0) System.out.println("i = " + (i + 1));
                         }
 
+                        if (control.isStopped()) return false;
+
                         Node x = nodes.get(i);
 
                         List<Node> adjx = new ArrayList<>(adjacenciesCopy.get(x));
@@ -454,13 +477,18 @@ public class FasStableConcurrent implements IFas {
 
                                     boolean independent;
 
+                                    long start = SearchMetrics.startTimer();
+
                                     try {
                                         numIndependenceTests++;
-                                        independent = test.isIndependent(x, y, condSet);
+                                        independent = test.checkIndependence(x, y, condSet).isIndependent();
                                     } catch (Exception e) {
                                         independent = false;
                                     }
 
+                                    SearchMetrics.stopTimer(SearchMetrics.Timer.INDEPENDENCE_TEST, start);
+                                    SearchMetrics.increment(SearchMetrics.Counter.INDEPENDENCE_TESTS);
+
                                     boolean noEdgeRequired =
                                             knowledge.noEdgeRequired(x.getName(), y.getName());
 
@@ -495,7 +523,7 @@ public class FasStableConcurrent implements IFas {
             }
         }
 
-        pool.invoke(new DepthTask(chunk, 0, nodes.size()));
+        context.invoke(new DepthTask(chunk, 0, nodes.size()));
 
         if (verbose) {
             System.out.println("Done with depth");
@@ -504,6 +532,16 @@ public class FasStableConcurrent implements IFas {
         return freeDegree(nodes, adjacencies) > depth;
     }
 
+    // Tells the listeners, if any, how the search is going.
+    private void reportProgress(int depth, Map<Node, Set<Node>> adjacencies) {
+        if (!control.isReporting()) return;
+
+        int numEdges = 0;
+        for (Set<Node> adj : adjacencies.values()) numEdges += adj.size();
+
+        control.reportProgress(new SearchControl.Progress("FasStableConcurrent", "depth", depth, numEdges / 2, -1));
+    }
+
     private List<Node> possibleParents(Node x, List<Node> adjx,
                                        IKnowledge knowledge) {
         List<Node> possibleParents = new LinkedList<>();
@@ -566,6 +604,31 @@ public class FasStableConcurrent implements IFas {
         return verbose;
     }
 
+    public ExecutionContext getExecutionContext() {
+        return context;
+    }
+
+    /**
+     * Sets where the tests are run.
+     */
+    public void setExecutionContext(ExecutionContext context) {
+        if (context == null) throw new NullPointerException("Execution context must not be null.");
+        this.context = context;
+    }
+
+    public SearchControl getSearchControl() {
+        return control;
+    }
+
+    /**
+     * Sets the token by which the search may be stopped early or watched. Depth 0 is always finished; after that a
+     * stopped search returns the adjacencies it has so far, which include all of those it would have found.
+     */
+    public void setSearchControl(SearchControl control) {
+        if (control == null) throw new NullPointerException("Search control must not be null.");
+        this.control = control;
+    }
+
     public void setVerbose(boolean verbose) {
         this.verbose = verbose;
     }
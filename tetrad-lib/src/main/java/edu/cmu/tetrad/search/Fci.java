@@ -29,6 +29,7 @@ import edu.cmu.tetrad.graph.Edge;
 import edu.cmu.tetrad.graph.Endpoint;
 import edu.cmu.tetrad.graph.Graph;
 import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.util.ExecutionContext;
 import edu.cmu.tetrad.util.TetradLogger;
 
 import java.util.*;
@@ -109,6 +110,16 @@ public final class Fci implements GraphSearch {
      */
     private boolean verbose = false;
     private Graph truePag;
+
+    /**
+     * Checked between steps to stop the search early, and told of its progress.
+     */
+    private SearchControl control = new SearchControl();
+
+    /**
+     * Where the parallel steps of the adjacency search are run, if it has any.
+     */
+    private ExecutionContext context = ExecutionContext.getDefault();
     private ConcurrentMap<Node, Integer> hashIndices;
     private ICovarianceMatrix covarianceMatrix;
     private double penaltyDiscount = 2;
@@ -193,11 +204,24 @@ public final class Fci implements GraphSearch {
         fas.setKnowledge(getKnowledge());
         fas.setDepth(depth);
         fas.setVerbose(verbose);
+
+        if (fas instanceof Fas) {
+            ((Fas) fas).setSearchControl(control);
+        } else if (fas instanceof FasStableConcurrent) {
+            ((FasStableConcurrent) fas).setSearchControl(control);
+            ((FasStableConcurrent) fas).setExecutionContext(context);
+        }
+
         this.graph = fas.search();
         this.sepsets = fas.getSepsets();
 
         graph.reorientAllWith(Endpoint.CIRCLE);
 
+        if (control.isStopped()) {
+            graph.setPag(true);
+            return graph;
+        }
+
         SepsetProducer sp = new SepsetsPossibleDsep(graph, independenceTest, knowledge, depth, maxPathLength);
         sp.setVerbose(verbose);
 
@@ -208,6 +232,8 @@ public final class Fci implements GraphSearch {
             new FciOrient(new SepsetsSet(this.sepsets, independenceTest)).ruleR0(graph);
 
             for (Edge edge : new ArrayList<>(graph.getEdges())) {
+                if (control.isStopped()) break;
+
                 Node x = edge.getNode1();
                 Node y = edge.getNode2();
 
@@ -253,6 +279,12 @@ public final class Fci implements GraphSearch {
         long time6 = System.currentTimeMillis();
         logger.log("info", "Step CI C: " + (time6 - time5) / 1000. + "s");
 
+        if (control.isStopped()) {
+            graph.reorientAllWith(Endpoint.CIRCLE);
+            graph.setPag(true);
+            return graph;
+        }
+
         final FciOrient fciOrient = new FciOrient(new SepsetsSet(this.sepsets, independenceTest));
 
         fciOrient.setCompleteRuleSetUsed(completeRuleSetUsed);
@@ -329,6 +361,31 @@ public final class Fci implements GraphSearch {
         return verbose;
     }
 
+    public ExecutionContext getExecutionContext() {
+        return context;
+    }
+
+    /**
+     * Sets where the parallel steps of the adjacency search are run, if it has any.
+     */
+    public void setExecutionContext(ExecutionContext context) {
+        if (context == null) throw new NullPointerException("Execution context must not be null.");
+        this.context = context;
+    }
+
+    public SearchControl getSearchControl() {
+        return control;
+    }
+
+    /**
+     * Sets the token by which the search may be stopped early or watched. A search stopped before orienting returns the
+     * adjacencies it has so far with all endpoints circles.
+     */
+    public void setSearchControl(SearchControl control) {
+        if (control == null) throw new NullPointerException("Search control must not be null.");
+        this.control = control;
+    }
+
     public void setVerbose(boolean verbose) {
         this.verbose = verbose;
     }
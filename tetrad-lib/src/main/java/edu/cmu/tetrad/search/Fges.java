@@ -24,8 +24,7 @@ package edu.cmu.tetrad.search;
 import edu.cmu.tetrad.data.*;
 import edu.cmu.tetrad.graph.*;
 import edu.cmu.tetrad.util.ChoiceGenerator;
-import edu.cmu.tetrad.util.ForkJoinPoolInstance;
-import edu.cmu.tetrad.util.TaskManager;
+import edu.cmu.tetrad.util.ExecutionContext;
 import edu.cmu.tetrad.util.TetradLogger;
 
 import java.io.PrintStream;
@@ -33,6 +32,7 @@ import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 /**
@@ -126,6 +126,9 @@ public final class Fges implements GraphSearch, GraphScorer {
     // Potential arrows sorted by bump high to low. The first one is a candidate for adding to the graph.
     private SortedSet<Arrow> sortedArrows = null;
 
+    // The number of arrows in sortedArrows, whose size() walks the whole set.
+    private final AtomicInteger numArrows = new AtomicInteger();
+
     // Arrows added to sortedArrows for each <i, j>.
     private Map<OrderedPair<Node>, Set<Arrow>> lookupArrows = null;
 
@@ -135,8 +138,11 @@ public final class Fges implements GraphSearch, GraphScorer {
     // Map from variables to their column indices in the data set.
     private ConcurrentMap<Node, Integer> hashIndices;
 
-    // The static ForkJoinPool instance.
-    private ForkJoinPool pool = ForkJoinPoolInstance.getInstance().getPool();
+    // Checked between steps to stop the search early, and told of its progress.
+    private SearchControl control = new SearchControl();
+
+    // Where the parallel steps of the search are run.
+    private ExecutionContext context = ExecutionContext.getDefault();
 
     // A running tally of the total BIC totalScore.
     private double totalScore;
@@ -174,8 +180,6 @@ public final class Fges implements GraphSearch, GraphScorer {
     // Bounds the degree of the graph.
     private int maxDegree = -1;
 
-    final int maxThreads = ForkJoinPoolInstance.getInstance().getPool().getParallelism();
-
     //===========================CONSTRUCTORS=============================//
 
     /**
@@ -238,10 +242,12 @@ public final class Fges implements GraphSearch, GraphScorer {
             fes();
             bes();
 
-            this.mode = Mode.coverNoncolliders;
-            initializeTwoStepEdges(getVariables());
-            fes();
-            bes();
+            if (!control.isStopped()) {
+                this.mode = Mode.coverNoncolliders;
+                initializeTwoStepEdges(getVariables());
+                fes();
+                bes();
+            }
         } else {
             initializeForwardEdgesFromEmptyGraph(getVariables());
 
@@ -250,10 +256,12 @@ public final class Fges implements GraphSearch, GraphScorer {
             fes();
             bes();
 
-            this.mode = Mode.allowUnfaithfulness;
-            initializeForwardEdgesFromExistingGraph(getVariables());
-            fes();
-            bes();
+            if (!control.isStopped()) {
+                this.mode = Mode.allowUnfaithfulness;
+                initializeForwardEdgesFromExistingGraph(getVariables());
+                fes();
+                bes();
+            }
         }
 
         long start = System.currentTimeMillis();
@@ -261,7 +269,9 @@ public final class Fges implements GraphSearch, GraphScorer {
 
         long endTime = System.currentTimeMillis();
         this.elapsedTime = endTime - start;
-        this.logger.log("graph", "\nReturning this graph: " + graph);
+        if (this.logger.isLogging("graph")) {
+            this.logger.log("graph", "\nReturning this graph: " + graph);
+        }
 
         this.logger.log("info", "Elapsed time = " + (elapsedTime) / 1000. + " s");
         this.logger.flush();
@@ -367,6 +377,19 @@ public final class Fges implements GraphSearch, GraphScorer {
         this.verbose = verbose;
     }
 
+    public SearchControl getSearchControl() {
+        return control;
+    }
+
+    /**
+     * Sets the token by which the search may be stopped early or watched. A stopped search returns the pattern it
+     * has so far.
+     */
+    public void setSearchControl(SearchControl control) {
+        if (control == null) throw new NullPointerException("Search control must not be null.");
+        this.control = control;
+    }
+
     /**
      * Sets the output stream that output (except for log output) should be sent to.
      * By detault System.out.
@@ -417,10 +440,22 @@ public final class Fges implements GraphSearch, GraphScorer {
     }
 
     /**
-     * Creates a new processors pool with the specified number of threads.
+     * Limits the search to the given number of threads of the shared pool.
      */
     public void setParallelism(int numProcessors) {
-        this.pool = new ForkJoinPool(numProcessors);
+        this.context = ExecutionContext.forJob(numProcessors);
+    }
+
+    public ExecutionContext getExecutionContext() {
+        return context;
+    }
+
+    /**
+     * Sets where the parallel steps of the search are run.
+     */
+    public void setExecutionContext(ExecutionContext context) {
+        if (context == null) throw new NullPointerException("Execution context must not be null.");
+        this.context = context;
     }
 
     /**
@@ -511,7 +546,7 @@ public final class Fges implements GraphSearch, GraphScorer {
     final int[] count = new int[1];
 
     public int getMinChunk(int n) {
-        return Math.max(n / maxThreads, minChunk);
+        return Math.max(n / context.getParallelism(), minChunk);
     }
 
     class NodeTaskEmptyGraph extends RecursiveTask<Boolean> {
@@ -529,6 +564,8 @@ public final class Fges implements GraphSearch, GraphScorer {
 
         @Override
         protected Boolean compute() {
+            SearchMetrics.increment(SearchMetrics.Counter.FORK_JOIN_TASKS);
+
             for (int i = from; i < to; i++) {
                 if ((i + 1) % 1000 == 0) {
                     count[0] += 1000;
@@ -538,6 +575,9 @@ public final class Fges implements GraphSearch, GraphScorer {
                 Node y = nodes.get(i);
                 neighbors.put(y, emptySet);
 
+                // All candidate parents of y are scored against the empty set in one batch.
+                List<Node> candidates = new ArrayList<>();
+
                 for (int j = i + 1; j < nodes.size(); j++) {
                     Node x = nodes.get(j);
 
@@ -555,12 +595,27 @@ public final class Fges implements GraphSearch, GraphScorer {
                         continue;
                     }
 
-                    int child = hashIndices.get(y);
-                    int parent = hashIndices.get(x);
-                    double bump = score.localScoreDiff(parent, child);
-
                     if (boundGraph != null && !boundGraph.isAdjacentTo(x, y)) continue;
 
+                    candidates.add(x);
+                }
+
+                int child = hashIndices.get(y);
+                int[] parents = new int[candidates.size()];
+
+                for (int j = 0; j < candidates.size(); j++) {
+                    parents[j] = hashIndices.get(candidates.get(j));
+                }
+
+                long start = SearchMetrics.startTimer();
+                double[] bumps = score.localScoreDiffs(child, new int[0], parents);
+                SearchMetrics.stopTimer(SearchMetrics.Timer.SCORE_EVALUATION, start);
+                SearchMetrics.add(SearchMetrics.Counter.SCORE_EVALUATIONS, parents.length);
+
+                for (int j = 0; j < candidates.size(); j++) {
+                    Node x = candidates.get(j);
+                    double bump = bumps[j];
+
                     if (bump > 0) {
                         final Edge edge = Edges.undirectedEdge(x, y);
                         effectEdgesGraph.addEdge(edge);
@@ -583,6 +638,7 @@ public final class Fges implements GraphSearch, GraphScorer {
 //        }
 
         sortedArrows = new ConcurrentSkipListSet<>();
+        numArrows.set(0);
         lookupArrows = new ConcurrentHashMap<>();
         neighbors = new ConcurrentHashMap<>();
         final Set<Node> emptySet = new HashSet<>();
@@ -597,9 +653,11 @@ public final class Fges implements GraphSearch, GraphScorer {
 
             @Override
             protected Boolean compute() {
+                SearchMetrics.increment(SearchMetrics.Counter.FORK_JOIN_TASKS);
+
                 Queue<NodeTaskEmptyGraph> tasks = new ArrayDeque<>();
 
-                int numNodesPerTask = Math.max(100, nodes.size() / maxThreads);
+                int numNodesPerTask = Math.max(100, nodes.size() / context.getParallelism());
 
                 for (int i = 0; i < nodes.size(); i += numNodesPerTask) {
                     NodeTaskEmptyGraph task = new NodeTaskEmptyGraph(i, Math.min(nodes.size(), i + numNodesPerTask),
@@ -614,7 +672,7 @@ public final class Fges implements GraphSearch, GraphScorer {
                         }
                     }
 
-                    while (tasks.size() > maxThreads) {
+                    while (tasks.size() > context.getParallelism()) {
                         NodeTaskEmptyGraph _task = tasks.poll();
                         _task.join();
                     }
@@ -628,7 +686,9 @@ public final class Fges implements GraphSearch, GraphScorer {
             }
         }
 
-        pool.invoke(new InitializeFromEmptyGraphTask());
+        SearchMetrics.Phase phase = SearchMetrics.startPhase("fges.initialize");
+        context.invoke(new InitializeFromEmptyGraphTask());
+        phase.end();
 
         long stop = System.currentTimeMillis();
 
@@ -645,6 +705,7 @@ public final class Fges implements GraphSearch, GraphScorer {
         count[0] = 0;
 
         sortedArrows = new ConcurrentSkipListSet<>();
+        numArrows.set(0);
         lookupArrows = new ConcurrentHashMap<>();
         neighbors = new ConcurrentHashMap<>();
 
@@ -675,7 +736,9 @@ public final class Fges implements GraphSearch, GraphScorer {
 
             @Override
             protected Boolean compute() {
-                if (TaskManager.getInstance().isCanceled()) return false;
+                SearchMetrics.increment(SearchMetrics.Counter.FORK_JOIN_TASKS);
+
+                if (control.isStopped()) return false;
 
                 if (to - from <= chunk) {
                     for (int i = from; i < to; i++) {
@@ -745,7 +808,9 @@ public final class Fges implements GraphSearch, GraphScorer {
             }
         }
 
-        pool.invoke(new InitializeFromExistingGraphTask(getMinChunk(nodes.size()), 0, nodes.size()));
+        SearchMetrics.Phase phase = SearchMetrics.startPhase("fges.initialize");
+        context.invoke(new InitializeFromExistingGraphTask(getMinChunk(nodes.size()), 0, nodes.size()));
+        phase.end();
     }
 
     private void initializeForwardEdgesFromExistingGraph(final List<Node> nodes) {
@@ -756,6 +821,7 @@ public final class Fges implements GraphSearch, GraphScorer {
         count[0] = 0;
 
         sortedArrows = new ConcurrentSkipListSet<>();
+        numArrows.set(0);
         lookupArrows = new ConcurrentHashMap<>();
         neighbors = new ConcurrentHashMap<>();
 
@@ -786,7 +852,9 @@ public final class Fges implements GraphSearch, GraphScorer {
 
             @Override
             protected Boolean compute() {
-                if (TaskManager.getInstance().isCanceled()) return false;
+                SearchMetrics.increment(SearchMetrics.Counter.FORK_JOIN_TASKS);
+
+                if (control.isStopped()) return false;
 
                 if (to - from <= chunk) {
                     for (int i = from; i < to; i++) {
@@ -837,17 +905,22 @@ public final class Fges implements GraphSearch, GraphScorer {
             }
         }
 
-        pool.invoke(new InitializeFromExistingGraphTask(getMinChunk(nodes.size()), 0, nodes.size()));
+        SearchMetrics.Phase phase = SearchMetrics.startPhase("fges.initialize");
+        context.invoke(new InitializeFromExistingGraphTask(getMinChunk(nodes.size()), 0, nodes.size()));
+        phase.end();
     }
 
     private void fes() {
         TetradLogger.getInstance().log("info", "** FORWARD EQUIVALENCE SEARCH");
+        SearchMetrics.Phase phase = SearchMetrics.startPhase("fges.forward");
 
         int maxDegree = this.maxDegree == -1 ? 1000 : this.maxDegree;
 
         while (!sortedArrows.isEmpty()) {
+            if (control.isStopped()) break;
+
             Arrow arrow = sortedArrows.first();
-            sortedArrows.remove(arrow);
+            if (sortedArrows.remove(arrow)) numArrows.decrementAndGet();
 
             Node x = arrow.getA();
             Node y = arrow.getB();
@@ -878,6 +951,7 @@ public final class Fges implements GraphSearch, GraphScorer {
             if (!inserted) continue;
 
             totalScore += bump;
+            reportProgress("forward");
 
             Set<Node> visited = reapplyOrientation(x, y, null);
             Set<Node> toProcess = new HashSet<>();
@@ -897,20 +971,32 @@ public final class Fges implements GraphSearch, GraphScorer {
             storeGraph();
             reevaluateForward(toProcess, arrow);
         }
+
+        phase.end();
     }
 
     private void bes() {
         TetradLogger.getInstance().log("info", "** BACKWARD EQUIVALENCE SEARCH");
 
+        if (control.isStopped()) {
+            meekOrientRestricted(getVariables(), getKnowledge());
+            return;
+        }
+
+        SearchMetrics.Phase phase = SearchMetrics.startPhase("fges.backward");
+
         sortedArrows = new ConcurrentSkipListSet<>();
+        numArrows.set(0);
         lookupArrows = new ConcurrentHashMap<>();
         neighbors = new ConcurrentHashMap<>();
 
         initializeArrowsBackward();
 
         while (!sortedArrows.isEmpty()) {
+            if (control.isStopped()) break;
+
             Arrow arrow = sortedArrows.first();
-            sortedArrows.remove(arrow);
+            if (sortedArrows.remove(arrow)) numArrows.decrementAndGet();
 
             Node x = arrow.getA();
             Node y = arrow.getB();
@@ -936,6 +1022,7 @@ public final class Fges implements GraphSearch, GraphScorer {
             if (!deleted) continue;
 
             totalScore += bump;
+            reportProgress("backward");
 
             clearArrow(x, y);
 
@@ -961,6 +1048,7 @@ public final class Fges implements GraphSearch, GraphScorer {
         }
 
         meekOrientRestricted(getVariables(), getKnowledge());
+        phase.end();
     }
 
     private Set<Node> getCommonAdjacents(Node x, Node y) {
@@ -1033,6 +1121,8 @@ public final class Fges implements GraphSearch, GraphScorer {
 
             @Override
             protected Boolean compute() {
+                SearchMetrics.increment(SearchMetrics.Counter.FORK_JOIN_TASKS);
+
                 if (to - from <= chunk) {
                     for (int _w = from; _w < to; _w++) {
                         Node x = nodes.get(_w);
@@ -1099,7 +1189,7 @@ public final class Fges implements GraphSearch, GraphScorer {
         }
 
         final AdjTask task = new AdjTask(getMinChunk(nodes.size()), new ArrayList<>(nodes), 0, nodes.size());
-        pool.invoke(task);
+        context.invoke(task);
     }
 
     // Calculates the new arrows for an a->b edge.
@@ -1171,7 +1261,7 @@ public final class Fges implements GraphSearch, GraphScorer {
 
     private void addArrow(Node a, Node b, Set<Node> naYX, Set<Node> hOrT, double bump) {
         Arrow arrow = new Arrow(bump, a, b, hOrT, naYX, arrowIndex++);
-        sortedArrows.add(arrow);
+        if (sortedArrows.add(arrow)) numArrows.incrementAndGet();
         addLookupArrow(a, b, arrow);
     }
 
@@ -1197,6 +1287,8 @@ public final class Fges implements GraphSearch, GraphScorer {
 
             @Override
             protected Boolean compute() {
+                SearchMetrics.increment(SearchMetrics.Counter.FORK_JOIN_TASKS);
+
                 if (to - from <= chunk) {
                     for (int _w = from; _w < to; _w++) {
                         final Node w = adj.get(_w);
@@ -1237,7 +1329,7 @@ public final class Fges implements GraphSearch, GraphScorer {
         for (Node r : toProcess) {
             this.neighbors.put(r, getNeighbors(r));
             List<Node> adjacentNodes = graph.getAdjacentNodes(r);
-            pool.invoke(new BackwardTask(r, adjacentNodes, getMinChunk(adjacentNodes.size()), 0,
+            context.invoke(new BackwardTask(r, adjacentNodes, getMinChunk(adjacentNodes.size()), 0,
                     adjacentNodes.size(), hashIndices));
         }
     }
@@ -1430,6 +1522,7 @@ public final class Fges implements GraphSearch, GraphScorer {
         if (boundGraph != null && !boundGraph.isAdjacentTo(x, y)) return false;
 
         graph.addDirectedEdge(x, y);
+        SearchMetrics.increment(SearchMetrics.Counter.ARROWS_INSERTED);
 
         if (verbose) {
             String label = trueGraph != null && trueEdge != null ? "*" : "";
@@ -1485,6 +1578,7 @@ public final class Fges implements GraphSearch, GraphScorer {
         diff.removeAll(H);
 
         graph.removeEdge(oldxy);
+        SearchMetrics.increment(SearchMetrics.Counter.ARROWS_DELETED);
         removedEdges.add(Edges.undirectedEdge(x, y));
 
 //        if (verbose) {
@@ -1745,6 +1839,13 @@ public final class Fges implements GraphSearch, GraphScorer {
         return null;
     }
 
+    // Tells the listeners, if any, how the search is going.
+    private void reportProgress(String phase) {
+        if (control.isReporting()) {
+            control.reportProgress(new SearchControl.Progress("Fges", phase, -1, graph.getNumEdges(), numArrows.get()));
+        }
+    }
+
     // Runs Meek rules on just the changed adj.
     private Set<Node> reorientNode(List<Node> nodes) {
         addRequiredEdges(graph);
@@ -1777,7 +1878,9 @@ public final class Fges implements GraphSearch, GraphScorer {
         final Set<Arrow> lookupArrows = this.lookupArrows.get(pair);
 
         if (lookupArrows != null) {
-            sortedArrows.removeAll(lookupArrows);
+            for (Arrow arrow : lookupArrows) {
+                if (sortedArrows.remove(arrow)) numArrows.decrementAndGet();
+            }
         }
 
         this.lookupArrows.remove(pair);
@@ -1839,7 +1942,12 @@ public final class Fges implements GraphSearch, GraphScorer {
             parentIndices[count++] = hashIndices.get(parent);
         }
 
-        return score.localScoreDiff(hashIndices.get(x), yIndex, parentIndices);
+        long start = SearchMetrics.startTimer();
+        double diff = score.localScoreDiff(hashIndices.get(x), yIndex, parentIndices);
+        SearchMetrics.stopTimer(SearchMetrics.Timer.SCORE_EVALUATION, start);
+        SearchMetrics.increment(SearchMetrics.Counter.SCORE_EVALUATIONS);
+
+        return diff;
     }
 
     private List<Node> getVariables() {
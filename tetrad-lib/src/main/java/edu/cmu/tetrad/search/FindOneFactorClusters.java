@@ -75,6 +75,9 @@ public class FindOneFactorClusters {
     private boolean significanceCalculated = false;
     private Algorithm algorithm = Algorithm.GAP;
 
+    // Where the triples and quartets are checked.
+    private ExecutionContext context = ExecutionContext.getDefault();
+
     //========================================PUBLIC METHODS====================================//
 
     public FindOneFactorClusters(ICovarianceMatrix cov, TestType testType, Algorithm algorithm, double alpha) {
@@ -263,51 +266,53 @@ public class FindOneFactorClusters {
 
     }
 
-    private Set<Set<Integer>> findPuretriples(List<Integer> allVariables) {
+    private Set<Set<Integer>> findPuretriples(final List<Integer> allVariables) {
         if (allVariables.size() < 4) {
             return new HashSet<>();
         }
 
         log("Finding pure triples.", true);
 
-        ChoiceGenerator gen = new ChoiceGenerator(allVariables.size(), 3);
-        int[] choice;
-        Set<Set<Integer>> puretriples = new HashSet<>();
-        CHOICE:
-        while ((choice = gen.next()) != null) {
-            int n1 = allVariables.get(choice[0]);
-            int n2 = allVariables.get(choice[1]);
-            int n3 = allVariables.get(choice[2]);
+        // The triples are checked independently of one another, so many are checked at once.
+        List<int[]> choices = ParallelChoiceGenerator.findAll(allVariables.size(), 3,
+                new ParallelChoiceGenerator.Condition() {
+                    @Override
+                    public boolean holds(int[] choice) {
+                        int n1 = allVariables.get(choice[0]);
+                        int n2 = allVariables.get(choice[1]);
+                        int n3 = allVariables.get(choice[2]);
 
-            List<Integer> triple = triple(n1, n2, n3);
+                        List<Integer> triple = triple(n1, n2, n3);
 
-            if (zeroCorr(triple)) continue;
+                        if (zeroCorr(triple)) return false;
 
-            for (int o : allVariables) {
-                if (triple.contains(o)) {
-                    continue;
-                }
+                        for (int o : allVariables) {
+                            if (triple.contains(o)) {
+                                continue;
+                            }
 
-                List<Integer> quartet = quartet(n1, n2, n3, o);
+                            List<Integer> quartet = quartet(n1, n2, n3, o);
 
-                boolean vanishes = vanishes(quartet);
+                            if (!vanishes(quartet)) {
+                                return false;
+                            }
+                        }
 
-                if (!vanishes) {
-                    continue CHOICE;
-                }
+                        return true;
+                    }
+                }, context);
 
-//                if (!(avgSumLnP(quartet) > -20)) {
-//                    continue CHOICE;
-//                }
-            }
+        Set<Set<Integer>> puretriples = new HashSet<>();
 
-            HashSet<Integer> _cluster = new HashSet<>(triple);
+        for (int[] choice : choices) {
+            List<Integer> triple = triple(allVariables.get(choice[0]), allVariables.get(choice[1]),
+                    allVariables.get(choice[2]));
 
             if (verbose) {
                 log("++" + variablesForIndices(triple), false);
             }
 
-            puretriples.add(_cluster);
+            puretriples.add(new HashSet<>(triple));
         }
 
         return puretriples;
@@ -665,11 +670,11 @@ public class FindOneFactorClusters {
     Map<Set<Integer>, Double> avgSumLnPs = new HashMap<>();
 
     // Finds clusters of size 4 or higher for the tetrad first algorithm.
-    private Set<List<Integer>> findPureClusters(List<Integer> _variables) {
+    private Set<List<Integer>> findPureClusters(final List<Integer> _variables) {
         Set<List<Integer>> clusters = new HashSet<>();
 //        List<Integer> allVariables = new ArrayList<Integer>();
 //        for (int i = 0; i < this.variables.size(); i++) allVariables.add(i);
-        List<Integer> allVariables = allVariables();
+        final List<Integer> allVariables = allVariables();
 
         VARIABLES:
         while (!_variables.isEmpty()) {
@@ -678,10 +683,21 @@ public class FindOneFactorClusters {
             }
             if (_variables.size() < 4) break;
 
-            ChoiceGenerator gen = new ChoiceGenerator(_variables.size(), 4);
-            int[] choice;
+            // The first pure quartet in the order of ChoiceGenerator; later ones are not checked once it is found.
+            int[] choice = ParallelChoiceGenerator.findFirst(_variables.size(), 4,
+                    new ParallelChoiceGenerator.Condition() {
+                        @Override
+                        public boolean holds(int[] choice) {
+                            List<Integer> cluster = quartet(_variables.get(choice[0]), _variables.get(choice[1]),
+                                    _variables.get(choice[2]), _variables.get(choice[3]));
+
+                            // Note that purity needs to be assessed with respect to all of the variables in order to
+                            // remove all latent-measure impurities between pairs of latents.
+                            return pure(cluster, allVariables, alpha);
+                        }
+                    }, context);
 
-            while ((choice = gen.next()) != null) {
+            if (choice != null) {
                 int n1 = _variables.get(choice[0]);
                 int n2 = _variables.get(choice[1]);
                 int n3 = _variables.get(choice[2]);
@@ -689,25 +705,21 @@ public class FindOneFactorClusters {
 
                 List<Integer> cluster = quartet(n1, n2, n3, n4);
 
-                // Note that purity needs to be assessed with respect to all of the variables in order to
-                // remove all latent-measure impurities between pairs of latents.
-                if (pure(cluster, allVariables, alpha)) {
-                    if (verbose) {
-                        log("Found a pure: " + variablesForIndices(cluster), false);
-                    }
-
-//                    if (modelInsignificantWithNewCluster(clusters, cluster)) continue;
+                if (verbose) {
+                    log("Found a pure: " + variablesForIndices(cluster), false);
+                }
 
-                    addOtherVariables(_variables, allVariables, cluster);
+//                if (modelInsignificantWithNewCluster(clusters, cluster)) continue;
 
-                    if (verbose) {
-                        log("Cluster found: " + variablesForIndices(cluster), true);
-                    }
-                    clusters.add(cluster);
-                    _variables.removeAll(cluster);
+                addOtherVariables(_variables, allVariables, cluster);
 
-                    continue VARIABLES;
+                if (verbose) {
+                    log("Cluster found: " + variablesForIndices(cluster), true);
                 }
+                clusters.add(cluster);
+                _variables.removeAll(cluster);
+
+                continue VARIABLES;
             }
 
             break;
@@ -1088,6 +1100,18 @@ public class FindOneFactorClusters {
         this.verbose = verbose;
     }
 
+    public ExecutionContext getExecutionContext() {
+        return context;
+    }
+
+    /**
+     * Sets where the triples and quartets are checked. By default, the shared pool.
+     */
+    public void setExecutionContext(ExecutionContext context) {
+        if (context == null) throw new NullPointerException("Execution context must not be null.");
+        this.context = context;
+    }
+
     private boolean vanishes(int x, int y, int z, int w) {
         if (testType == TestType.TETRAD_DELTA) {
             Tetrad t1 = new Tetrad(variables.get(x), variables.get(y), variables.get(z), variables.get(w));
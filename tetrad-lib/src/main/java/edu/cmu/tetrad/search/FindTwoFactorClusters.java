@@ -68,6 +68,9 @@ public class FindTwoFactorClusters {
     private boolean verbose = false;
     private Algorithm algorithm = Algorithm.GAP;
 
+    // Where the pentads and sextets are checked.
+    private ExecutionContext context = ExecutionContext.getDefault();
+
     //========================================PUBLIC METHODS====================================//
 
     public FindTwoFactorClusters(ICovarianceMatrix cov, Algorithm algorithm, double alpha) {
@@ -246,52 +249,58 @@ public class FindTwoFactorClusters {
 
     }
 
-    private Set<List<Integer>> findPurepentads(List<Integer> variables) {
+    private Set<List<Integer>> findPurepentads(final List<Integer> variables) {
         if (variables.size() < 6) {
             return new HashSet<>();
         }
 
         log("Finding pure pentads.", true);
 
-        ChoiceGenerator gen = new ChoiceGenerator(variables.size(), 5);
-        int[] choice;
-        Set<List<Integer>> purePentads = new HashSet<>();
-        CHOICE:
-        while ((choice = gen.next()) != null) {
-            int n1 = variables.get(choice[0]);
-            int n2 = variables.get(choice[1]);
-            int n3 = variables.get(choice[2]);
-            int n4 = variables.get(choice[3]);
-            int n5 = variables.get(choice[4]);
+        // The pentads are checked independently of one another, so many are checked at once.
+        List<int[]> choices = ParallelChoiceGenerator.findAll(variables.size(), 5,
+                new ParallelChoiceGenerator.Condition() {
+                    @Override
+                    public boolean holds(int[] choice) {
+                        int n1 = variables.get(choice[0]);
+                        int n2 = variables.get(choice[1]);
+                        int n3 = variables.get(choice[2]);
+                        int n4 = variables.get(choice[3]);
+                        int n5 = variables.get(choice[4]);
 
-            List<Integer> pentad = pentad(n1, n2, n3, n4, n5);
+                        List<Integer> pentad = pentad(n1, n2, n3, n4, n5);
 
-            if (zeroCorr(pentad, 4)) continue;
+                        if (zeroCorr(pentad, 4)) return false;
 
-            for (int o : variables) {
-                if (pentad.contains(o)) {
-                    continue;
-                }
+                        for (int o : variables) {
+                            if (pentad.contains(o)) {
+                                continue;
+                            }
 
-                List<Integer> sextet = sextet(n1, n2, n3, n4, n5, o);
+                            List<Integer> sextet = sextet(n1, n2, n3, n4, n5, o);
 
-                Collections.sort(sextet);
+                            Collections.sort(sextet);
 
-                boolean vanishes = vanishes(sextet);
+                            if (!vanishes(sextet)) {
+                                return false;
+                            }
+                        }
 
-                if (!vanishes) {
-                    continue CHOICE;
-                }
-            }
+                        return true;
+                    }
+                }, context);
+
+        Set<List<Integer>> purePentads = new HashSet<>();
 
-            List<Integer> _cluster = new ArrayList<>(pentad);
+        for (int[] choice : choices) {
+            List<Integer> pentad = pentad(variables.get(choice[0]), variables.get(choice[1]),
+                    variables.get(choice[2]), variables.get(choice[3]), variables.get(choice[4]));
 
             if (verbose) {
                 System.out.println(variablesForIndices(pentad));
                 log("++" + variablesForIndices(pentad), false);
             }
 
-            purePentads.add(_cluster);
+            purePentads.add(pentad);
         }
 
         return purePentads;
@@ -609,7 +618,7 @@ public class FindTwoFactorClusters {
     }
 
     // Finds clusters of size 6 or higher for the IntSextad first algorithm.
-    private Set<List<Integer>> findPureClusters(List<Integer> _variables) {
+    private Set<List<Integer>> findPureClusters(final List<Integer> _variables) {
         Set<List<Integer>> clusters = new HashSet<>();
 
         for (int k = 6; k >= 6; k--) {
@@ -620,10 +629,22 @@ public class FindTwoFactorClusters {
                 }
                 if (_variables.size() < 6) break;
 
-                ChoiceGenerator gen = new ChoiceGenerator(_variables.size(), 6);
-                int[] choice;
-
-                while ((choice = gen.next()) != null) {
+                // The first pure sextet in the order of ChoiceGenerator; later ones are not checked once it is found.
+                int[] choice = ParallelChoiceGenerator.findFirst(_variables.size(), 6,
+                        new ParallelChoiceGenerator.Condition() {
+                            @Override
+                            public boolean holds(int[] choice) {
+                                List<Integer> cluster = sextet(_variables.get(choice[0]), _variables.get(choice[1]),
+                                        _variables.get(choice[2]), _variables.get(choice[3]),
+                                        _variables.get(choice[4]), _variables.get(choice[5]));
+
+                                // Note that purity needs to be assessed with respect to all of the variables in
+                                // order to remove all latent-measure impurities between pairs of latents.
+                                return pure(cluster);
+                            }
+                        }, context);
+
+                if (choice != null) {
                     int n1 = _variables.get(choice[0]);
                     int n2 = _variables.get(choice[1]);
                     int n3 = _variables.get(choice[2]);
@@ -633,27 +654,21 @@ public class FindTwoFactorClusters {
 
                     List<Integer> cluster = sextet(n1, n2, n3, n4, n5, n6);
 
-                    // Note that purity needs to be assessed with respect to all of the variables in order to
-                    // remove all latent-measure impurities between pairs of latents.
-                    if (pure(cluster)) {
-                        if (verbose) {
-                            log("Found a pure: " + variablesForIndices(cluster), false);
-                        }
-
-                        addOtherVariables(_variables, cluster);
+                    if (verbose) {
+                        log("Found a pure: " + variablesForIndices(cluster), false);
+                    }
 
-                        if (cluster.size() < k) continue;
+                    addOtherVariables(_variables, cluster);
 
-                        if (verbose) {
-                            log("Cluster found: " + variablesForIndices(cluster), true);
-                            System.out.println("Indices for cluster = " + cluster);
-                        }
+                    if (verbose) {
+                        log("Cluster found: " + variablesForIndices(cluster), true);
+                        System.out.println("Indices for cluster = " + cluster);
+                    }
 
-                        clusters.add(cluster);
-                        _variables.removeAll(cluster);
+                    clusters.add(cluster);
+                    _variables.removeAll(cluster);
 
-                        continue VARIABLES;
-                    }
+                    continue VARIABLES;
                 }
 
                 break;
@@ -1056,6 +1071,18 @@ public class FindTwoFactorClusters {
         this.verbose = verbose;
     }
 
+    public ExecutionContext getExecutionContext() {
+        return context;
+    }
+
+    /**
+     * Sets where the pentads and sextets are checked. By default, the shared pool.
+     */
+    public void setExecutionContext(ExecutionContext context) {
+        if (context == null) throw new NullPointerException("Execution context must not be null.");
+        this.context = context;
+    }
+
     private boolean vanishes(int n1, int n2, int n3, int n4, int n5, int n6) {
         IntSextad t1 = new IntSextad(n1, n2, n3, n4, n5, n6);
         IntSextad t2 = new IntSextad(n1, n5, n6, n2, n3, n4);
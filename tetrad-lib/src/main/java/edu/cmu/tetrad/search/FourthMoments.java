@@ -0,0 +1,150 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.search;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Sample fourth moments E(xyzw) of mean-centered data, computed when first asked for and remembered. Since the
+ * moment is symmetric in its four indices, each is stored once under its indices in sorted order, so
+ * s(x, y, z, w), s(w, z, y, x) and the other 22 orderings share an entry. Nothing of size p^4 is allocated; only
+ * the moments actually asked for are kept, up to a memory budget, after which a quarter of them are dropped.
+ * <p>
+ * May be shared between threads, and between the tetrad and sextad tests of one data set.
+ *
+ * @author Joseph Ramsey
+ */
+public final class FourthMoments {
+
+    // Estimated cost in bytes of one entry, including the map's own overhead.
+    private static final int BYTES_PER_ENTRY = 96;
+
+    // The default memory budget, as a fraction of the maximum heap.
+    private static final double DEFAULT_HEAP_FRACTION = 0.1;
+
+    // Columns of the centered data, one array per variable.
+    private final double[][] data;
+
+    private final ConcurrentHashMap<Long, Double> moments = new ConcurrentHashMap<>();
+    private final int maxEntries;
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    /**
+     * Uses a tenth of the maximum heap as the memory budget.
+     *
+     * @param data Columns of mean-centered data, data[i] being the column of variable i.
+     */
+    public FourthMoments(double[][] data) {
+        this(data, (long) (Runtime.getRuntime().maxMemory() * DEFAULT_HEAP_FRACTION));
+    }
+
+    /**
+     * @param data         Columns of mean-centered data, data[i] being the column of variable i.
+     * @param memoryBudget The most memory in bytes to spend on remembered moments.
+     */
+    public FourthMoments(double[][] data, long memoryBudget) {
+        if (data == null) throw new NullPointerException("Data must not be null.");
+        if (data.length > 0xFFFF) throw new IllegalArgumentException("Too many variables: " + data.length);
+        if (memoryBudget <= 0) throw new IllegalArgumentException("Memory budget must be positive: " + memoryBudget);
+
+        this.data = data;
+        this.maxEntries = (int) Math.max(16, Math.min(Integer.MAX_VALUE, memoryBudget / BYTES_PER_ENTRY));
+    }
+
+    /**
+     * @return (1 / N) sum_j x_j y_j z_j w_j, for the columns of variables x, y, z and w.
+     */
+    public double get(int x, int y, int z, int w) {
+        Long key = key(x, y, z, w);
+        Double moment = moments.get(key);
+
+        if (moment == null) {
+            moment = compute(x, y, z, w);
+            moments.put(key, moment);
+
+            if (moments.size() > maxEntries) {
+                evict();
+            }
+        }
+
+        return moment;
+    }
+
+    /**
+     * @return the number of moments currently remembered.
+     */
+    public int size() {
+        return moments.size();
+    }
+
+    //==============================PRIVATE=============================//
+
+    // The four indices sorted, 16 bits each.
+    private static long key(int x, int y, int z, int w) {
+        int t;
+
+        // A sorting network for four.
+        if (x > y) { t = x; x = y; y = t; }
+        if (z > w) { t = z; z = w; w = t; }
+        if (x > z) { t = x; x = z; z = t; }
+        if (y > w) { t = y; y = w; w = t; }
+        if (y > z) { t = y; y = z; z = t; }
+
+        return ((long) x << 48) | ((long) y << 32) | ((long) z << 16) | w;
+    }
+
+    private double compute(int x, int y, int z, int w) {
+        double[] _x = data[x];
+        double[] _y = data[y];
+        double[] _z = data[z];
+        double[] _w = data[w];
+
+        int N = _x.length;
+        double sxyzw = 0.0;
+
+        for (int j = 0; j < N; j++) {
+            sxyzw += _x[j] * _y[j] * _z[j] * _w[j];
+        }
+
+        return (1.0 / N) * sxyzw;
+    }
+
+    // One thread at a time drops entries in the map's own order until it is back to three quarters of
+    // its capacity.
+    private void evict() {
+        if (!evicting.compareAndSet(false, true)) return;
+
+        try {
+            int target = maxEntries - maxEntries / 4;
+            Iterator<Long> keys = moments.keySet().iterator();
+
+            while (moments.size() > target && keys.hasNext()) {
+                keys.next();
+                keys.remove();
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+}
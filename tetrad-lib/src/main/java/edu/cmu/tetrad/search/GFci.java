@@ -23,6 +23,7 @@ package edu.cmu.tetrad.search;
 import edu.cmu.tetrad.data.*;
 import edu.cmu.tetrad.graph.*;
 import edu.cmu.tetrad.util.ChoiceGenerator;
+import edu.cmu.tetrad.util.ExecutionContext;
 import edu.cmu.tetrad.util.TetradLogger;
 import java.io.PrintStream;
 import java.util.Iterator;
@@ -62,6 +63,12 @@ public final class GFci implements GraphSearch {
     // True iff verbose output should be printed.
     private boolean verbose = false;
 
+    // Checked between steps to stop the search early, and told of its progress.
+    private SearchControl control = new SearchControl();
+
+    // Where the parallel steps of the search are run.
+    private ExecutionContext context = ExecutionContext.getDefault();
+
     // The covariance matrix beign searched over. Assumes continuous data.
     ICovarianceMatrix covarianceMatrix;
 
@@ -108,12 +115,16 @@ public final class GFci implements GraphSearch {
         fges.setFaithfulnessAssumed(faithfulnessAssumed);
         fges.setMaxDegree(maxDegree);
         fges.setOut(out);
+        fges.setSearchControl(control);
+        fges.setExecutionContext(context);
         graph = fges.search();
         Graph fgesGraph = new EdgeListGraphSingleConnections(graph);
 
         sepsets = new SepsetsGreedy(fgesGraph, independenceTest, null, maxDegree);
 
         for (Node b : nodes) {
+            if (control.isStopped()) break;
+
             List<Node> adjacentNodes = fgesGraph.getAdjacentNodes(b);
 
             if (adjacentNodes.size() < 2) {
@@ -135,6 +146,13 @@ public final class GFci implements GraphSearch {
             }
         }
 
+        if (control.isStopped()) {
+            graph.reorientAllWith(Endpoint.CIRCLE);
+            GraphUtils.replaceNodes(graph, independenceTest.getVariables());
+            graph.setPag(true);
+            return graph;
+        }
+
         modifiedR0(fgesGraph);
 
         FciOrient fciOrient = new FciOrient(sepsets);
@@ -273,6 +291,31 @@ public final class GFci implements GraphSearch {
         return verbose;
     }
 
+    public ExecutionContext getExecutionContext() {
+        return context;
+    }
+
+    /**
+     * Sets where the parallel steps of the search are run.
+     */
+    public void setExecutionContext(ExecutionContext context) {
+        if (context == null) throw new NullPointerException("Execution context must not be null.");
+        this.context = context;
+    }
+
+    public SearchControl getSearchControl() {
+        return control;
+    }
+
+    /**
+     * Sets the token by which the search may be stopped early or watched. A search stopped before orienting returns the
+     * adjacencies it has so far with all endpoints circles.
+     */
+    public void setSearchControl(SearchControl control) {
+        if (control == null) throw new NullPointerException("Search control must not be null.");
+        this.control = control;
+    }
+
     public void setVerbose(boolean verbose) {
         this.verbose = verbose;
     }
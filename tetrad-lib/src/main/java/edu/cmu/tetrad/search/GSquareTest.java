@@ -22,11 +22,8 @@
 package edu.cmu.tetrad.search;
 
 import edu.cmu.tetrad.data.DataSet;
-import edu.cmu.tetrad.util.CombinationIterator;
 import edu.cmu.tetrad.util.ProbUtils;
 
-import java.util.Arrays;
-
 /**
  * Performs conditional independence tests of discrete data using the G Square method. Degrees of freedom are calculated
  * as in Fienberg, The Analysis of Cross-Classified Categorical Data, 2nd Edition, 142.
@@ -83,44 +80,21 @@ public final class GSquareTest extends ChiSquareTest {
      * entirely of zeros have been removed.
      */
     public GSquareTest.Result calcGSquare(int[] testIndices) {
-
-        // Reset the cell table for the columns referred to in
-        // 'testIndices.' Do cell coefs for those columns.
-        getCellTable().addToTable(getDataSet(), testIndices);
-
-        // Indicator arrays to tell the cell table which margins
-        // to calculate. For x _||_ y | z1, z2, ..., we want to
-        // calculate the margin for x, the margin for y, and the
-        // margin for x and y. (These will be used later.)
-        int[] firstVar = new int[]{0};
-        int[] secondVar = new int[]{1};
-        int[] bothVars = new int[]{0, 1};
+        int[] counts = countTables(testIndices);
 
         double g2 = 0.0;
         int df = 0;
 
-        int[] condDims = new int[testIndices.length - 2];
-        System.arraycopy(selectFromArray(getDims(), testIndices), 2, condDims, 0,
-                condDims.length);
-
-        int[] coords = new int[testIndices.length];
-        int numRows = this.getCellTable().getNumValues(0);
-        int numCols = this.getCellTable().getNumValues(1);
-
-        boolean[] attestedRows = new boolean[numRows];
-        boolean[] attestedCols = new boolean[numCols];
-
-        CombinationIterator combinationIterator =
-                new CombinationIterator(condDims);
+        int numRows = getDims()[testIndices[0]];
+        int numCols = getDims()[testIndices[1]];
+        int numTables = getNumTables(testIndices);
 
-        while (combinationIterator.hasNext()) {
-            int[] combination = (int[]) combinationIterator.next();
+        long[] sumRows = new long[numRows];
+        long[] sumCols = new long[numCols];
 
-            System.arraycopy(combination, 0, coords, 2, combination.length);
-            Arrays.fill(attestedRows, true);
-            Arrays.fill(attestedCols, true);
-
-            long total = this.getCellTable().calcMargin(coords, bothVars);
+        for (int table = 0; table < numTables; table++) {
+            int offset = table * numRows * numCols;
+            long total = margins(counts, offset, sumRows, sumCols);
 
             if (total == 0) {
                 continue;
@@ -128,31 +102,13 @@ public final class GSquareTest extends ChiSquareTest {
 
             for (int i = 0; i < numRows; i++) {
                 for (int j = 0; j < numCols; j++) {
-                    coords[0] = i;
-                    coords[1] = j;
-
-                    long sumRow = this.getCellTable().calcMargin(coords, secondVar);
-                    long sumCol = this.getCellTable().calcMargin(coords, firstVar);
-                    long observed = (int) this.getCellTable().getValue(coords);
-
-                    boolean skip = false;
-
-                    if (sumRow == 0) {
-                        attestedRows[i] = false;
-                        skip = true;
-                    }
-
-                    if (sumCol == 0) {
-                        attestedCols[j] = false;
-                        skip = true;
-                    }
-
-                    if (skip) {
+                    if (sumRows[i] == 0 || sumCols[j] == 0) {
                         continue;
                     }
 
+                    long observed = counts[offset + i * numCols + j];
                     double expected =
-                            (double) (sumCol * sumRow) / (double) total;
+                            (double) (sumCols[j] * sumRows[i]) / (double) total;
 
                     if (observed != 0) {
                         g2 += 2.0 * observed * Math.log(observed / expected);
@@ -160,22 +116,7 @@ public final class GSquareTest extends ChiSquareTest {
                 }
             }
 
-            int numAttestedRows = 0;
-            int numAttestedCols = 0;
-
-            for (boolean attestedRow : attestedRows) {
-                if (attestedRow) {
-                    numAttestedRows++;
-                }
-            }
-
-            for (boolean attestedCol : attestedCols) {
-                if (attestedCol) {
-                    numAttestedCols++;
-                }
-            }
-
-            df += (numAttestedRows - 1) * (numAttestedCols - 1);
+            df += (numNonzero(sumRows) - 1) * (numNonzero(sumCols) - 1);
         }
 
         // If df == 0, return indep.
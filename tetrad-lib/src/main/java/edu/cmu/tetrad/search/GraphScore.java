@@ -87,6 +87,11 @@ public class GraphScore implements Score {
 //        return localScore(y, x) - localScore(y);
     }
 
+    @Override
+    public double[] localScoreDiffs(int y, int[] z, int[] xs) {
+        return ScoreUtils.localScoreDiffs(this, y, z, xs);
+    }
+
     private double locallyConsistentScoringCriterion(int x, int y, int[] z) {
         Node _y = variables.get(y);
         Node _x = variables.get(x);
@@ -0,0 +1,291 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.search;
+
+import edu.cmu.tetrad.data.ICovarianceMatrix;
+
+import java.util.Arrays;
+
+/**
+ * Keeps a Cholesky factor L of cov(Z) for a set Z of variables that changes from call to call. When Z
+ * differs from the previously factored set by a few variables, the factor is brought up to date by
+ * appending rows (for added variables) and by deleting rows followed by a rank-one update (for removed
+ * variables), each O(|Z|^2), rather than being recomputed. Residual variances of other variables given Z
+ * are then found by triangular solves.
+ * <p>
+ * Not thread safe; SemBicScore keeps one of these per thread. Once its arrays have grown to the size
+ * of the largest Z seen, no further allocation is done.
+ *
+ * @author Joseph Ramsey
+ */
+final class IncrementalCholesky {
+
+    // Pivots smaller than this fraction of the variance are treated as singular.
+    private static final double SINGULARITY_TOLERANCE = 1e-10;
+
+    // More removals than this and it is cheaper to refactor.
+    private static final int MAX_DOWNDATES = 2;
+
+    private final ICovarianceMatrix cov;
+
+    // The variables of Z, in factor order.
+    private int[] vars;
+
+    // The factor, row major, capacity x capacity; only the lower triangle is used.
+    private double[] l;
+
+    // The allocated and used numbers of rows of the factor.
+    private int capacity;
+    private int size;
+
+    // pos[v] is the row of variable v in the factor, or -1.
+    private final int[] pos;
+
+    // stamp[v] == epoch iff v is in the set being factored.
+    private final int[] stamp;
+    private int epoch;
+
+    // Scratch vectors for solves and updates.
+    private double[] w;
+    private double[] u;
+    private double[] c;
+
+    // Holds the residual variances found by residualVariances.
+    final double[] pair = new double[2];
+
+    // The number of parent sets scored by the thread using this factor.
+    long count;
+
+    IncrementalCholesky(ICovarianceMatrix cov) {
+        this.cov = cov;
+        int p = cov.getDimension();
+        this.pos = new int[p];
+        this.stamp = new int[p];
+        Arrays.fill(pos, -1);
+        allocate(8);
+    }
+
+    /**
+     * Brings the factor up to date for the set z (order does not matter).
+     *
+     * @return false if cov(z) is singular or z contains repeated variables.
+     */
+    boolean setTo(int[] z) {
+        if (++epoch == Integer.MAX_VALUE) {
+            Arrays.fill(stamp, 0);
+            epoch = 1;
+        }
+
+        for (int v : z) stamp[v] = epoch;
+
+        int removals = 0;
+
+        for (int r = 0; r < size; r++) {
+            if (stamp[vars[r]] != epoch) removals++;
+        }
+
+        if (removals > MAX_DOWNDATES) {
+            clear();
+        } else {
+            for (int r = size - 1; r >= 0; r--) {
+                if (stamp[vars[r]] != epoch) delete(r);
+            }
+        }
+
+        for (int v : z) {
+            if (pos[v] < 0 && !append(v)) return false;
+        }
+
+        return size == z.length;
+    }
+
+    /**
+     * @return the residual variance of y regressed on the factored set, or NaN if y is in the set.
+     */
+    double residualVariance(int y) {
+        if (pos[y] >= 0) return Double.NaN;
+        solve(y, w);
+        double r = cov.getValue(y, y);
+        for (int j = 0; j < size; j++) r -= w[j] * w[j];
+        return r;
+    }
+
+    /**
+     * The residual variance of y given Z + x, where Z is the factored set and rvz is the residual variance
+     * of y given Z, as returned by the immediately preceding call to residualVariance(y). Only x's row is
+     * solved for, so this may be called for many x in turn.
+     *
+     * @return NaN if x is (nearly) a linear function of Z, or x is in Z.
+     */
+    double residualVarianceAdding(int x, int y, double rvz) {
+        if (pos[x] >= 0 || x == y) return Double.NaN;
+
+        solve(x, u);
+
+        double rxx = cov.getValue(x, x);
+        double rxy = cov.getValue(x, y);
+
+        for (int j = 0; j < size; j++) {
+            rxx -= u[j] * u[j];
+            rxy -= u[j] * w[j];
+        }
+
+        if (!(rxx > SINGULARITY_TOLERANCE * cov.getValue(x, x))) return Double.NaN;
+
+        return rvz - rxy * rxy / rxx;
+    }
+
+    /**
+     * Residual variances of y given Z and given Z + x, where Z is the factored set, stored in pair[0] and
+     * pair[1]. This is one extra row of the factor, computed without modifying it.
+     *
+     * @return false if x is (nearly) a linear function of Z, or x or y is in Z.
+     */
+    boolean residualVariances(int x, int y) {
+        if (pos[x] >= 0 || pos[y] >= 0 || x == y) return false;
+
+        solve(y, w);
+        solve(x, u);
+
+        double ryy = cov.getValue(y, y);
+        double rxx = cov.getValue(x, x);
+        double rxy = cov.getValue(x, y);
+
+        for (int j = 0; j < size; j++) {
+            ryy -= w[j] * w[j];
+            rxx -= u[j] * u[j];
+            rxy -= u[j] * w[j];
+        }
+
+        if (!(rxx > SINGULARITY_TOLERANCE * cov.getValue(x, x))) return false;
+
+        pair[0] = ryy;
+        pair[1] = ryy - rxy * rxy / rxx;
+        return true;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        for (int r = 0; r < size; r++) pos[vars[r]] = -1;
+        size = 0;
+    }
+
+    //==============================PRIVATE=============================//
+
+    // Solves L t = cov(Z, v) by forward substitution.
+    private void solve(int v, double[] t) {
+        for (int j = 0; j < size; j++) {
+            int row = j * capacity;
+            double s = cov.getValue(v, vars[j]);
+            for (int m = 0; m < j; m++) s -= l[row + m] * t[m];
+            t[j] = s / l[row + j];
+        }
+    }
+
+    // Adds a row for v to the bottom of the factor.
+    private boolean append(int v) {
+        if (size == capacity) grow();
+
+        int row = size * capacity;
+        double d = cov.getValue(v, v);
+
+        for (int j = 0; j < size; j++) {
+            int rowj = j * capacity;
+            double s = cov.getValue(v, vars[j]);
+            for (int m = 0; m < j; m++) s -= l[row + m] * l[rowj + m];
+            s /= l[rowj + j];
+            l[row + j] = s;
+            d -= s * s;
+        }
+
+        if (!(d > SINGULARITY_TOLERANCE * cov.getValue(v, v))) return false;
+
+        l[row + size] = Math.sqrt(d);
+        vars[size] = v;
+        pos[v] = size;
+        size++;
+        return true;
+    }
+
+    // Removes row and column r, then restores the trailing block with a rank-one update by the part of
+    // column r below the diagonal.
+    private void delete(int r) {
+        int n = size - 1;
+        int removed = vars[r];
+
+        for (int i = r + 1; i < size; i++) {
+            c[i - 1] = l[i * capacity + r];
+        }
+
+        for (int i = r; i < n; i++) {
+            int to = i * capacity;
+            int from = (i + 1) * capacity;
+            System.arraycopy(l, from, l, to, r);
+            System.arraycopy(l, from + r + 1, l, to + r, i + 1 - r);
+            vars[i] = vars[i + 1];
+            pos[vars[i]] = i;
+        }
+
+        for (int j = r; j < n; j++) {
+            int rowj = j * capacity;
+            double ljj = l[rowj + j];
+            double h = Math.hypot(ljj, c[j]);
+            double cs = h / ljj;
+            double sn = c[j] / ljj;
+            l[rowj + j] = h;
+
+            for (int i = j + 1; i < n; i++) {
+                int k = i * capacity + j;
+                l[k] = (l[k] + sn * c[i]) / cs;
+                c[i] = cs * c[i] - sn * l[k];
+            }
+        }
+
+        pos[removed] = -1;
+        size = n;
+    }
+
+    private void grow() {
+        int oldCapacity = capacity;
+        double[] oldL = l;
+        int[] oldVars = vars;
+        allocate(2 * oldCapacity);
+
+        for (int i = 0; i < size; i++) {
+            System.arraycopy(oldL, i * oldCapacity, l, i * capacity, i + 1);
+        }
+
+        System.arraycopy(oldVars, 0, vars, 0, size);
+    }
+
+    private void allocate(int capacity) {
+        this.capacity = capacity;
+        this.l = new double[capacity * capacity];
+        this.vars = new int[capacity];
+        this.w = new double[capacity];
+        this.u = new double[capacity];
+        this.c = new double[capacity];
+    }
+}
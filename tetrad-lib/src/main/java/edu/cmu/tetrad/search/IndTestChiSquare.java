@@ -178,6 +178,23 @@ public final class IndTestChiSquare implements IndependenceTest {
      * @return true iff x _||_ y | z.
      */
     public boolean isIndependent(Node x, Node y, List<Node> z) {
+        ChiSquareTest.Result result = test(x, y, z);
+        this.xSquare = result.getXSquare();
+        this.df = result.getDf();
+        this.pValue = result.getPValue();
+        return result.isIndep();
+    }
+
+    /**
+     * Like isIndependent, but leaves nothing behind in this test, so it may be called from many threads at once.
+     * The statistic is chi square.
+     */
+    public IndependenceResult checkIndependence(Node x, Node y, List<Node> z) {
+        ChiSquareTest.Result result = test(x, y, z);
+        return new IndependenceResult(result.isIndep(), result.getPValue(), result.getXSquare());
+    }
+
+    private ChiSquareTest.Result test(Node x, Node y, List<Node> z) {
         NumberFormat nf = NumberFormatUtil.getInstance().getNumberFormat();
 
         if (z == null) {
@@ -209,10 +226,12 @@ public final class IndTestChiSquare implements IndependenceTest {
             }
         }
 
-        ChiSquareTest.Result result = chiSquareTest.calcChiSquare(testIndices);
-        this.xSquare = result.getXSquare();
-        this.df = result.getDf();
-        this.pValue = result.getPValue();
+        ChiSquareTest.Result result;
+
+        // The chi square test counts into a cell table it keeps.
+        synchronized (chiSquareTest) {
+            result = chiSquareTest.calcChiSquare(testIndices);
+        }
 
         if (result.isIndep()) {
             StringBuilder sb = new StringBuilder();
@@ -235,10 +254,12 @@ public final class IndTestChiSquare implements IndependenceTest {
 //        }
 
         if (facts != null) {
-            this.facts.add(new IndependenceFact(x, y, z));
+            synchronized (facts) {
+                this.facts.add(new IndependenceFact(x, y, z));
+            }
         }
 
-        return result.isIndep();
+        return result;
     }
 
     public boolean isIndependent(Node x, Node y, Node... z) {
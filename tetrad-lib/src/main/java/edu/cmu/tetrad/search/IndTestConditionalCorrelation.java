@@ -149,6 +149,10 @@ public final class IndTestConditionalCorrelation implements IndependenceTest {
         return isIndependent(x, y, Arrays.asList(z));
     }
 
+    public IndependenceResult checkIndependence(Node x, Node y, List<Node> z) {
+        return IndependenceResult.checkSynchronized(this, x, y, z);
+    }
+
     public boolean isDependent(Node x, Node y, List<Node> z) {
         String _x = x.getName();
         String _y = y.getName();
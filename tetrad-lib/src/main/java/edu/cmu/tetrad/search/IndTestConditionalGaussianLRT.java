@@ -123,6 +123,10 @@ public class IndTestConditionalGaussianLRT implements IndependenceTest {
         return isIndependent(x, y, zList);
     }
 
+    public IndependenceResult checkIndependence(Node x, Node y, List<Node> z) {
+        return IndependenceResult.checkSynchronized(this, x, y, z);
+    }
+
     /**
      * @return true if the given independence question is judged false, true if not. The independence question is of the
      * form x _||_ y | z, z = <z1,...,zn>, where x, y, z1,...,zn are searchVariables in the list returned by
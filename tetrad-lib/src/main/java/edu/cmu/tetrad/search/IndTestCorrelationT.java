@@ -214,6 +214,10 @@ public final class IndTestCorrelationT implements IndependenceTest {
         return isIndependent(x, y, Arrays.asList(z));
     }
 
+    public IndependenceResult checkIndependence(Node x, Node y, List<Node> z) {
+        return IndependenceResult.checkSynchronized(this, x, y, z);
+    }
+
     public boolean isDependent(Node x, Node y, List<Node> z) {
         return !isIndependent(x, y, z);
     }
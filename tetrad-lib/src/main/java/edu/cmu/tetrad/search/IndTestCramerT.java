@@ -263,6 +263,10 @@ public final class IndTestCramerT implements IndependenceTest {
         return isIndependent(x, y, zList);
     }
 
+    public IndependenceResult checkIndependence(Node x, Node y, List<Node> z) {
+        return IndependenceResult.checkSynchronized(this, x, y, z);
+    }
+
     public boolean isDependent(Node x, Node y, List<Node> z) {
         return !isIndependent(x, y, z);
     }
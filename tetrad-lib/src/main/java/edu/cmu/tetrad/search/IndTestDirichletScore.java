@@ -155,6 +155,15 @@ public final class IndTestDirichletScore implements IndependenceTest {
         return isIndependent(x, y, Arrays.asList(z));
     }
 
+    /**
+     * This test has no p value, so only the judgment is returned.
+     */
+    public IndependenceResult checkIndependence(Node x, Node y, List<Node> z) {
+        synchronized (this) {
+            return new IndependenceResult(isIndependent(x, y, z), Double.NaN, Double.NaN);
+        }
+    }
+
     public boolean isDependent(Node x, Node y, List<Node> z) {
         return !isIndependent(x, y, z);
     }
@@ -180,48 +180,10 @@ public final class IndTestFisherZ implements IndependenceTest {
      * @throws RuntimeException if a matrix singularity is encountered.
      */
     public boolean isIndependent(Node x, Node y, List<Node> z) {
-        int n = sampleSize();
-        double r = partialCorrelation(x, y, z);
-
-
-//        double high = 0.999999;
-//
-//        if (r > high) r = high;
-//        if (r < -high) r = -high;
-//
-        double fisherZ = Math.sqrt(n - 3 - z.size()) * 0.5 * (Math.log(1.0 + r) - Math.log(1.0 - r));
-//        fisherZ /= 2.0;
-
-        this.fisherZ = fisherZ;
-
-//        double pValue = 2.0 * (1.0 - value);//  RandomUtil.getInstance().normalCdf(0, 1, key));// abs(fisherZ)));
-//        double pValue = 2.0 * (1.0 - RandomUtil.getInstance().normalCdf(0, 1, abs(fisherZ)));
-//
-//        boolean independent = pValue > alpha;
-
-        boolean independent = Math.abs(fisherZ) < cutoff;
-
-//        this.pValue = pValue;
-
-//        if (verbose) {
-//            if (independent) {
-//                if (TetradLogger.getInstance().isEventActive("independencies")) {
-//                    TetradLogger.getInstance().log("independencies",
-//                            SearchLogUtils.independenceFactMsg(x, y, z, pValue));
-//                }
-//            } else {
-//                if (pValueLogger != null) {
-//                    pValueLogger.println(getPValue());
-//                }
-//
-//                if (TetradLogger.getInstance().isEventActive("dependencies")) {
-//                    TetradLogger.getInstance().log("dependencies",
-//                            SearchLogUtils.dependenceFactMsg(x, y, z, pValue));
-//                }
-//            }
-//        }
-
-        return independent;
+        IndependenceResult result = checkIndependence(x, y, z);
+        this.fisherZ = result.getStatistic();
+        this.pValue = result.getPValue();
+        return result.isIndependent();
     }
 
     private double partialCorrelation(Node x, Node y, List<Node> z) {
@@ -244,6 +206,18 @@ public final class IndTestFisherZ implements IndependenceTest {
         return isIndependent(x, y, Arrays.asList(z));
     }
 
+    /**
+     * Like isIndependent, but also calculates the p value, and leaves nothing behind in this test, so it may be
+     * called from many threads at once. The statistic is Fisher's Z.
+     */
+    public IndependenceResult checkIndependence(Node x, Node y, List<Node> z) {
+        int n = sampleSize();
+        double r = partialCorrelation(x, y, z);
+        double fisherZ = Math.sqrt(n - 3 - z.size()) * 0.5 * (Math.log(1.0 + r) - Math.log(1.0 - r));
+        double pValue = 2.0 * (1.0 - ProbUtils.normalCdf(abs(fisherZ)));
+        return new IndependenceResult(Math.abs(fisherZ) < cutoff, pValue, fisherZ);
+    }
+
     public boolean isDependent(Node x, Node y, List<Node> z) {
         return !isIndependent(x, y, z);
     }
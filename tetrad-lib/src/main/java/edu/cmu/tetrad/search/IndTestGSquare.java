@@ -169,6 +169,22 @@ public final class IndTestGSquare implements IndependenceTest {
      * @return true iff x _||_ y | z.
      */
     public boolean isIndependent(Node x, Node y, List<Node> z) {
+        GSquareTest.Result result = test(x, y, z);
+        this.gSquare = result.getGSquare();
+        this.pValue = result.getPValue();
+        return result.isIndep();
+    }
+
+    /**
+     * Like isIndependent, but leaves nothing behind in this test, so it may be called from many threads at once.
+     * The statistic is G square.
+     */
+    public IndependenceResult checkIndependence(Node x, Node y, List<Node> z) {
+        GSquareTest.Result result = test(x, y, z);
+        return new IndependenceResult(result.isIndep(), result.getPValue(), result.getGSquare());
+    }
+
+    private GSquareTest.Result test(Node x, Node y, List<Node> z) {
         if (x == null) {
             throw new NullPointerException();
         }
@@ -208,9 +224,12 @@ public final class IndTestGSquare implements IndependenceTest {
 
         //        System.out.println("Testing " + x + " _||_ " + y + " | " + z);
 
-        GSquareTest.Result result = gSquareTest.calcGSquare(testIndices);
-        this.gSquare = result.getGSquare();
-        this.pValue = result.getPValue();
+        GSquareTest.Result result;
+
+        // The G square test counts into a cell table it keeps.
+        synchronized (gSquareTest) {
+            result = gSquareTest.calcGSquare(testIndices);
+        }
 
         if (result.isIndep()) {
             StringBuilder sb = new StringBuilder();
@@ -230,7 +249,7 @@ public final class IndTestGSquare implements IndependenceTest {
             TetradLogger.getInstance().log("independencies", sb.toString());
         }
 
-        return result.isIndep();
+        return result;
     }
 
     public boolean isIndependent(Node x, Node y, Node... z) {
@@ -29,15 +29,13 @@ import edu.cmu.tetrad.graph.Node;
 import edu.cmu.tetrad.search.kernel.Kernel;
 import edu.cmu.tetrad.search.kernel.KernelGaussian;
 import edu.cmu.tetrad.search.kernel.KernelUtils;
+import edu.cmu.tetrad.search.kernel.PermutationTest;
 import edu.cmu.tetrad.util.NumberFormatUtil;
 import edu.cmu.tetrad.util.TetradLogger;
 import edu.cmu.tetrad.util.TetradMatrix;
 
 import java.text.NumberFormat;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.List;
+import java.util.*;
 
 /**
  * Checks the conditional independence X _||_ Y | S, where S is a set of continuous variable, and X and Y are discrete
@@ -90,7 +88,8 @@ public final class IndTestHsic implements IndependenceTest {
     private double regularizer = 0.0001;
 
     /**
-     * Number of permutations to approximate the null distribution
+     * The largest number of permutations to approximate the null distribution. Fewer are used once the
+     * p value is clearly above or below alpha.
      */
     private int perms = 100;
 
@@ -100,6 +99,26 @@ public final class IndTestHsic implements IndependenceTest {
     private double useIncompleteCholesky = 1e-18;
     private boolean verbose = false;
 
+    /**
+     * Incomplete Cholesky factors of the Gram matrices of single variables, which are the same in every test.
+     */
+    private final Map<Node, TetradMatrix> factors = new HashMap<>();
+
+    /**
+     * Clusters of the rows by conditioning set, most recently used last. Rows are permuted within clusters.
+     */
+    private final Map<Set<Node>, int[][]> clusters = new LinkedHashMap<Set<Node>, int[][]>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Set<Node>, int[][]> eldest) {
+            return size() > MAX_CLUSTERINGS;
+        }
+    };
+
+    /**
+     * The number of conditioning sets for which clusters are kept.
+     */
+    private static final int MAX_CLUSTERINGS = 64;
+
     //==========================CONSTRUCTORS=============================//
 
     /**
@@ -171,17 +190,9 @@ public final class IndTestHsic implements IndependenceTest {
         int m = sampleSize();
 
         // choose kernels using median distance heuristic
-        Kernel xKernel = new KernelGaussian(1);
-        Kernel yKernel = new KernelGaussian(1);
         List<Kernel> zKernel = new ArrayList<>();
-        yKernel.setDefaultBw(this.dataSet, y);
-        xKernel.setDefaultBw(this.dataSet, x);
-        if (!z.isEmpty()) {
-            for (int i = 0; i < z.size(); i++) {
-                Kernel Zi = new KernelGaussian(1);
-                Zi.setDefaultBw(this.dataSet, z.get(i));
-                zKernel.add(Zi);
-            }
+        for (Node zi : z) {
+            zKernel.add(new KernelGaussian(this.dataSet, zi));
         }
 
         // consruct Gram matricces
@@ -190,14 +201,16 @@ public final class IndTestHsic implements IndependenceTest {
         TetradMatrix Kz = null;
         // use incomplete Cholesky to approximate
         if (useIncompleteCholesky > 0) {
-            Ky = KernelUtils.incompleteCholeskyGramMatrix(Arrays.asList(yKernel), this.dataSet, Arrays.asList(y), useIncompleteCholesky);
-            Kx = KernelUtils.incompleteCholeskyGramMatrix(Arrays.asList(xKernel), this.dataSet, Arrays.asList(x), useIncompleteCholesky);
+            Ky = incompleteCholeskyFactor(y);
+            Kx = incompleteCholeskyFactor(x);
             if (!z.isEmpty()) {
                 Kz = KernelUtils.incompleteCholeskyGramMatrix(zKernel, this.dataSet, z, useIncompleteCholesky);
             }
         }
         // otherwise compute directly
         else {
+            Kernel yKernel = new KernelGaussian(this.dataSet, y);
+            Kernel xKernel = new KernelGaussian(this.dataSet, x);
             Ky = KernelUtils.constructCentralizedGramMatrix(Arrays.asList(yKernel), this.dataSet, Arrays.asList(y));
             Kx = KernelUtils.constructCentralizedGramMatrix(Arrays.asList(xKernel), this.dataSet, Arrays.asList(x));
             if (!z.isEmpty()) {
@@ -220,100 +233,22 @@ public final class IndTestHsic implements IndependenceTest {
             }
         }
 
-        // shuffle data for approximate the null distribution
-        double[] nullapprox = new double[this.perms];
-        int[] zind = null;
-        int ycol = this.dataSet.getColumn(y);
-        List<List<Integer>> clusterAssign = null;
-        if (!z.isEmpty()) {
-            // get clusters for z
-            KMeans kmeans = KMeans.randomClusters((m / 3));
-            zind = new int[z.size()];
-            for (int j = 0; j < z.size(); j++) {
-                zind[j] = dataSet.getColumn(z.get(j));
-            }
-            kmeans.cluster(dataSet.subsetColumns(z).getDoubleData());
-            clusterAssign = kmeans.getClusters();
-        }
-        for (int i = 0; i < this.perms; i++) {
-            DataSet shuffleData = new ColtDataSet((ColtDataSet) dataSet);
-            // shuffle data
-            if (z.isEmpty()) {
-                List<Integer> indicesList = new ArrayList<>();
-                for (int j = 0; j < m; j++) {
-                    indicesList.add(j);
-                }
-                Collections.shuffle(indicesList);
-                for (int j = 0; j < m; j++) {
-                    double shuffleVal = dataSet.getDouble(indicesList.get(j), ycol);
-                    shuffleData.setDouble(j, ycol, shuffleVal);
-                }
-            } else {
-                // shuffle data within clusters
-                for (int j = 0; j < clusterAssign.size(); j++) {
-                    List<Integer> shuffleCluster = new ArrayList<>(clusterAssign.get(j));
-
-                    Collections.shuffle(shuffleCluster);
-
-                    for (int k = 0; k < shuffleCluster.size(); k++) {
-                        // first swap y;
-                        double swapVal = dataSet.getDouble(clusterAssign.get(j).get(k), ycol);
-                        shuffleData.setDouble(shuffleCluster.get(k), ycol, swapVal);
-                        // now swap z
-                        for (int zi = 0; zi < z.size(); zi++) {
-                            swapVal = dataSet.getDouble(clusterAssign.get(j).get(k), zind[zi]);
-                            shuffleData.setDouble(shuffleCluster.get(k), zind[zi], swapVal);
-                        }
-                    }
-                }
-            }
-            // reset bandwidths
-            yKernel.setDefaultBw(shuffleData, y);
-            for (int j = 0; j < z.size(); j++) {
-                zKernel.get(j).setDefaultBw(shuffleData, z.get(j));
-            }
-            // Gram matrices
-            TetradMatrix Kyn = null;
-            if (useIncompleteCholesky > 0) {
-                Kyn = KernelUtils.incompleteCholeskyGramMatrix(Arrays.asList(yKernel), shuffleData, Arrays.asList(y), useIncompleteCholesky);
-            } else {
-                Kyn = KernelUtils.constructCentralizedGramMatrix(Arrays.asList(yKernel), shuffleData, Arrays.asList(y));
-
-            }
-            TetradMatrix Kzn = null;
-            if (!z.isEmpty()) {
-                if (useIncompleteCholesky > 0) {
-                    Kzn = KernelUtils.incompleteCholeskyGramMatrix(zKernel, shuffleData, z, useIncompleteCholesky);
-                } else {
-                    Kzn = KernelUtils.constructCentralizedGramMatrix(zKernel, shuffleData, z);
-                }
-            }
-            // HSIC
-            if (z.isEmpty()) {
-                if (useIncompleteCholesky > 0) {
-                    nullapprox[i] = empiricalHSICincompleteCholesky(Kyn, Kx, m);
-                } else {
-                    nullapprox[i] = empiricalHSIC(Kyn, Kx, m);
-                }
-            } else {
-                if (useIncompleteCholesky > 0) {
-                    nullapprox[i] = empiricalHSICincompleteCholesky(Kyn, Kx, Kz, m);
-                } else {
-                    nullapprox[i] = empiricalHSIC(Kyn, Kx, Kz, m);
-                }
-            }
-        }
-
-        // permutation test to get p-value
-        double evalCdf = 0.0;
-        for (int i = 0; i < this.perms; i++) {
-            if (nullapprox[i] <= this.hsic) {
-                evalCdf += 1.0;
-            }
+        // permute y to approximate the null distribution, within clusters of z if z is not empty. Under the null
+        // y depends on x only through z, so moving y among records with much the same z approximates drawing it
+        // again given z, with x and z left as observed. Permuting z along with y would not change the null, since
+        // the statistic is taken against the Gram matrix of z as observed, so only y is permuted, and the x and z
+        // sides of the statistic are computed once.
+        PermutationTest.Statistic statistic;
+        if (useIncompleteCholesky > 0) {
+            statistic = new FactorStatistic(residualFactor(Kx, Kz), centralize(Ky));
+        } else {
+            statistic = new GramStatistic(residualGramMatrix(Kx, Kz, m), Ky.toArray());
         }
 
-        evalCdf /= (double) this.perms;
-        this.pValue = 1.0 - evalCdf;
+        PermutationTest test = z.isEmpty() ? new PermutationTest(statistic, m)
+                : new PermutationTest(statistic, m, clusters(z));
+        test.setNumPerms(this.perms);
+        this.pValue = test.pValue(this.alpha);
 
         // reject if pvalue <= alpha
         if (this.pValue <= this.alpha) {
@@ -663,6 +598,10 @@ public final class IndTestHsic implements IndependenceTest {
         return isIndependent(x, y, Arrays.asList(z));
     }
 
+    public IndependenceResult checkIndependence(Node x, Node y, List<Node> z) {
+        return IndependenceResult.checkSynchronized(this, x, y, z);
+    }
+
     public boolean isDependent(Node x, Node y, List<Node> z) {
         return !isIndependent(x, y, z);
     }
@@ -705,6 +644,7 @@ public final class IndTestHsic implements IndependenceTest {
      */
     public void setIncompleteCholesky(double precision) {
         this.useIncompleteCholesky = precision;
+        this.factors.clear();
     }
 
     /**
@@ -838,6 +778,162 @@ public final class IndTestHsic implements IndependenceTest {
         return this.dataSet.getNumRows();
     }
 
+    // The incomplete Cholesky factor of the Gram matrix of the given variable, with the bandwidth set by
+    // the median distance heuristic.
+    private TetradMatrix incompleteCholeskyFactor(Node node) {
+        TetradMatrix G = factors.get(node);
+
+        if (G == null) {
+            Kernel kernel = new KernelGaussian(this.dataSet, node);
+            G = KernelUtils.incompleteCholeskyGramMatrix(Arrays.asList(kernel), this.dataSet,
+                    Collections.singletonList(node), useIncompleteCholesky);
+            factors.put(node, G);
+        }
+
+        return G;
+    }
+
+    // Clusters of the rows by the values of z, found by KMeans once for each conditioning set.
+    private int[][] clusters(List<Node> z) {
+        Set<Node> key = new HashSet<>(z);
+        int[][] clusters = this.clusters.get(key);
+
+        if (clusters == null) {
+            KMeans kmeans = KMeans.randomClusters(sampleSize() / 3);
+            kmeans.cluster(dataSet.subsetColumns(z).getDoubleData());
+            List<List<Integer>> clusterAssign = kmeans.getClusters();
+
+            clusters = new int[clusterAssign.size()][];
+
+            for (int j = 0; j < clusterAssign.size(); j++) {
+                List<Integer> cluster = clusterAssign.get(j);
+                clusters[j] = new int[cluster.size()];
+                int k = 0;
+                for (int i : cluster) clusters[j][k++] = i;
+            }
+
+            this.clusters.put(key, clusters);
+        }
+
+        return clusters;
+    }
+
+    // Subtracts the column means of G, which is the same as multiplying by H, without forming H.
+    private static double[][] centralize(TetradMatrix G) {
+        double[][] Gc = G.toArray();
+        int m = Gc.length;
+
+        for (int j = 0; j < G.columns(); j++) {
+            double mean = 0.0;
+            for (int i = 0; i < m; i++) mean += Gc[i][j];
+            mean /= m;
+            for (int i = 0; i < m; i++) Gc[i][j] -= mean;
+        }
+
+        return Gc;
+    }
+
+    // For Cholesky factors Gx and Gz, the factor (I - M) Gcx, where M = Gcz N Gcz' is the projection used by
+    // empiricalHSICincompleteCholesky, so that the statistic for a permuted Gcy is, up to a constant, the
+    // squared Frobenius norm of Gcy' (I - M) Gcx. N = S^-1 Gcz'Gcz S^-1 for S = Gcz'Gcz + regularizer I,
+    // by the Woodbury identity.
+    private double[][] residualFactor(TetradMatrix Gx, TetradMatrix Gz) {
+        if (Gz == null) return centralize(Gx);
+
+        TetradMatrix Gcx = new TetradMatrix(centralize(Gx));
+        TetradMatrix Gcz = new TetradMatrix(centralize(Gz));
+        TetradMatrix Gczt = Gcz.transpose();
+        TetradMatrix Gztz = Gczt.times(Gcz);
+        TetradMatrix S = Gztz.copy();
+        for (int i = 0; i < S.rows(); i++) {
+            S.set(i, i, S.get(i, i) + this.regularizer);
+        }
+        TetradMatrix SI = S.inverse();
+        TetradMatrix N = SI.times(Gztz).times(SI);
+        return Gcx.minus(Gcz.times(N.times(Gczt.times(Gcx)))).toArray();
+    }
+
+    // For centralized Gram matrices Kx and Kz, (I - M) Kx (I - M), where M = Kz (Kz + regularizer I)^-2 Kz,
+    // so that the statistic of empiricalHSIC for a permuted Ky is, up to a constant, the trace of this
+    // times Ky.
+    private TetradMatrix residualGramMatrix(TetradMatrix Kx, TetradMatrix Kz, int m) {
+        if (Kz == null) return Kx;
+
+        TetradMatrix Kzreg = Kz.copy();
+        for (int i = 0; i < m; i++) {
+            Kzreg.set(i, i, Kzreg.get(i, i) + this.regularizer);
+        }
+        TetradMatrix A = Kzreg.inverse();
+        TetradMatrix M = Kz.times(A.times(A)).times(Kz);
+        TetradMatrix IM = TetradMatrix.identity(m).minus(M);
+        return IM.times(Kx).times(IM);
+    }
+
+    // tr(A Ky') for Ky' the Gram matrix of the permuted y, found by indexing into Ky.
+    private static class GramStatistic implements PermutationTest.Statistic {
+        private final double[][] A;
+        private final double[][] Ky;
+
+        GramStatistic(TetradMatrix A, double[][] Ky) {
+            this.A = A.toArray();
+            this.Ky = Ky;
+        }
+
+        public double value(int[] perm) {
+            double trace = 0.0;
+
+            for (int i = 0; i < A.length; i++) {
+                double[] Ai = A[i];
+                double[] Kyi = Ky[perm[i]];
+
+                for (int j = 0; j < Ai.length; j++) {
+                    trace += Ai[j] * Kyi[perm[j]];
+                }
+            }
+
+            return trace;
+        }
+    }
+
+    // The squared Frobenius norm of X' Y', for Y' the rows of the factor Y in permuted order.
+    private static class FactorStatistic implements PermutationTest.Statistic {
+        private final double[][] X;
+        private final double[][] Y;
+
+        FactorStatistic(double[][] X, double[][] Y) {
+            this.X = X;
+            this.Y = Y;
+        }
+
+        public double value(int[] perm) {
+            int kx = X.length == 0 ? 0 : X[0].length;
+            int ky = Y.length == 0 ? 0 : Y[0].length;
+            double[][] XtY = new double[kx][ky];
+
+            for (int i = 0; i < X.length; i++) {
+                double[] Xi = X[i];
+                double[] Yi = Y[perm[i]];
+
+                for (int a = 0; a < kx; a++) {
+                    double x = Xi[a];
+                    double[] row = XtY[a];
+
+                    for (int b = 0; b < ky; b++) {
+                        row[b] += x * Yi[b];
+                    }
+                }
+            }
+
+            double norm = 0.0;
+
+            for (double[] row : XtY) {
+                for (double v : row) norm += v * v;
+            }
+
+            return norm;
+        }
+    }
+
     private double matrixProductEntry(TetradMatrix X, TetradMatrix Y, int i, int j) {
         double entry = 0.0;
         for (int k = 0; k < X.columns(); k++) {
@@ -89,6 +89,10 @@ public final class IndTestIndependenceFacts implements IndependenceTest {
         return isIndependent(x, y, zz);
     }
 
+    public IndependenceResult checkIndependence(Node x, Node y, List<Node> z) {
+        return IndependenceResult.checkSynchronized(this, x, y, z);
+    }
+
     public boolean isDependent(Node x, Node y, List<Node> z) {
         return !isIndependent(x, y, z);
     }
@@ -0,0 +1,592 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.search;
+
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.data.DataUtils;
+import edu.cmu.tetrad.data.ICovarianceMatrix;
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.util.NumberFormatUtil;
+import edu.cmu.tetrad.util.RandomUtil;
+import edu.cmu.tetrad.util.TetradLogger;
+import edu.cmu.tetrad.util.TetradMatrix;
+import org.apache.commons.math3.distribution.GammaDistribution;
+
+import java.text.NumberFormat;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Checks the conditional independence X _||_ Y | Z of continuous variables with the randomized conditional
+ * independence test (RCIT) of Strobl, Zhang and Visweswaran, "Approximate kernel-based conditional independence
+ * tests for fast non-parametric causal discovery," 2017. This is an approximation to the kernel tests in IndTestHsic
+ * and IndTestKciMatlab in which the Gaussian kernels of X, Y and Z are replaced by random Fourier features, so that
+ * no n x n Gram matrix is ever formed. The features of X and Y are regressed on those of Z by ridge regression, and
+ * the squared Frobenius norm of the cross-covariance of the residuals is compared to a gamma distribution matched
+ * to the first two moments of its null distribution.
+ * <p>
+ * With D features for X and Y and Dz features for Z, a test takes O(n (Dz^2 + D^4)) time and O(n Dz) memory.
+ *
+ * @author Joseph Ramsey
+ */
+public final class IndTestRcit implements IndependenceTest {
+
+    /**
+     * The variables of the data set, in order. (Unmodifiable list.)
+     */
+    private final List<Node> variables;
+
+    /**
+     * The data set being analyzed.
+     */
+    private final DataSet dataSet;
+
+    /**
+     * The significance level of the independence tests.
+     */
+    private double alpha;
+
+    /**
+     * The p value of the most recent test.
+     */
+    private double pValue = Double.NaN;
+
+    /**
+     * The number of random features used for each of X and Y.
+     */
+    private int numFeatures = 5;
+
+    /**
+     * The number of random features used for the conditioning set.
+     */
+    private int numConditioningFeatures = 100;
+
+    /**
+     * The ridge penalty used in regressing the features of X and Y on those of Z.
+     */
+    private double regularizer = 1e-10;
+
+    /**
+     * The seed from which the random frequencies of every feature map are derived, so that the same question
+     * always gets the same answer.
+     */
+    private long seed = RandomUtil.getInstance().nextLong();
+
+    /**
+     * The bandwidth of the kernel is the median distance between the first this many rows.
+     */
+    private static final int BANDWIDTH_SAMPLE = 500;
+
+    /**
+     * Standardized columns of the data, by variable.
+     */
+    private final Map<Node, double[]> columns = new ConcurrentHashMap<>();
+
+    /**
+     * Centered features of single variables, by variable. These are used for X and Y in every test.
+     */
+    private final Map<Node, double[][]> features = new ConcurrentHashMap<>();
+
+    private boolean verbose = false;
+
+    /**
+     * Formats as 0.0000.
+     */
+    private static NumberFormat nf = NumberFormatUtil.getInstance().getNumberFormat();
+
+    //==========================CONSTRUCTORS=============================//
+
+    /**
+     * Constructs a new RCIT test. The given significance level is used.
+     *
+     * @param dataSet A data set containing only continuous columns.
+     * @param alpha   The alpha level of the test.
+     */
+    public IndTestRcit(DataSet dataSet, double alpha) {
+        if (!(dataSet.isContinuous())) {
+            throw new IllegalArgumentException("Data set must be continuous.");
+        }
+
+        this.variables = Collections.unmodifiableList(dataSet.getVariables());
+        this.dataSet = dataSet;
+        setAlpha(alpha);
+    }
+
+    //==========================PUBLIC METHODS=============================//
+
+    /**
+     * Creates a new IndTestRcit instance for a subset of the variables, with the same settings.
+     */
+    public IndependenceTest indTestSubset(List<Node> vars) {
+        if (vars.isEmpty()) {
+            throw new IllegalArgumentException("Subset may not be empty.");
+        }
+
+        for (Node var : vars) {
+            if (!variables.contains(var)) {
+                throw new IllegalArgumentException("All vars must be original vars");
+            }
+        }
+
+        IndTestRcit test = new IndTestRcit(dataSet.subsetColumns(vars), alpha);
+        test.numFeatures = numFeatures;
+        test.numConditioningFeatures = numConditioningFeatures;
+        test.regularizer = regularizer;
+        test.seed = seed;
+        return test;
+    }
+
+    /**
+     * Determines whether variable x is independent of variable y given a list of conditioning variables z.
+     *
+     * @param x the one variable being compared.
+     * @param y the second variable being compared.
+     * @param z the list of conditioning variables.
+     * @return true iff x _||_ y | z.
+     */
+    public boolean isIndependent(Node x, Node y, List<Node> z) {
+        IndependenceResult result = checkIndependence(x, y, z);
+        this.pValue = result.getPValue();
+
+        if (verbose) {
+            if (result.isIndependent()) {
+                TetradLogger.getInstance().log("independencies",
+                        SearchLogUtils.independenceFactMsg(x, y, z, result.getPValue()));
+            } else {
+                TetradLogger.getInstance().log("dependencies",
+                        SearchLogUtils.dependenceFactMsg(x, y, z, result.getPValue()));
+            }
+        }
+
+        return result.isIndependent();
+    }
+
+    public boolean isIndependent(Node x, Node y, Node... z) {
+        return isIndependent(x, y, Arrays.asList(z));
+    }
+
+    /**
+     * Computes the test without touching the state of this object other than its caches of features, so it
+     * may be called from several threads at once.
+     */
+    public IndependenceResult checkIndependence(Node x, Node y, List<Node> z) {
+        int n = sampleSize();
+
+        double[][] fx = features(x);
+        double[][] fy = features(y);
+
+        if (!z.isEmpty()) {
+            double[][] fz = conditioningFeatures(z);
+            fx = residuals(fx, fz);
+            fy = residuals(fy, fz);
+        }
+
+        int dx = fx.length;
+        int dy = fy.length;
+        int d = dx * dy;
+
+        // The cross-covariance of the features, and the covariance of the products of features row by row,
+        // which gives the moments of the null distribution.
+        double[] cxy = new double[d];
+        double[][] sigma = new double[d][d];
+        double[] p = new double[d];
+
+        for (int i = 0; i < n; i++) {
+            for (int a = 0; a < dx; a++) {
+                double xa = fx[a][i];
+                for (int b = 0; b < dy; b++) {
+                    p[a * dy + b] = xa * fy[b][i];
+                }
+            }
+
+            for (int k = 0; k < d; k++) {
+                cxy[k] += p[k];
+                double[] row = sigma[k];
+                double pk = p[k];
+                for (int l = k; l < d; l++) {
+                    row[l] += pk * p[l];
+                }
+            }
+        }
+
+        double statistic = 0.0;
+
+        for (int k = 0; k < d; k++) {
+            cxy[k] /= n;
+            statistic += cxy[k] * cxy[k];
+        }
+
+        statistic *= n;
+
+        double trace = 0.0;
+        double traceSquared = 0.0;
+
+        for (int k = 0; k < d; k++) {
+            for (int l = k; l < d; l++) {
+                double s = sigma[k][l] / n - cxy[k] * cxy[l];
+                if (k == l) {
+                    trace += s;
+                    traceSquared += s * s;
+                } else {
+                    traceSquared += 2 * s * s;
+                }
+            }
+        }
+
+        double pValue;
+
+        if (trace <= 0 || traceSquared <= 0) {
+            pValue = 1.0;
+        } else {
+            double mean = trace;
+            double variance = 2 * traceSquared;
+            GammaDistribution gamma = new GammaDistribution(mean * mean / variance, variance / mean);
+            pValue = 1.0 - gamma.cumulativeProbability(statistic);
+        }
+
+        return new IndependenceResult(pValue > alpha, pValue, statistic);
+    }
+
+    public boolean isDependent(Node x, Node y, List<Node> z) {
+        return !isIndependent(x, y, z);
+    }
+
+    public boolean isDependent(Node x, Node y, Node... z) {
+        return isDependent(x, y, Arrays.asList(z));
+    }
+
+    /**
+     * @return the probability associated with the most recently computed independence test.
+     */
+    public double getPValue() {
+        return this.pValue;
+    }
+
+    /**
+     * Sets the significance level at which independence judgments should be made.
+     */
+    public void setAlpha(double alpha) {
+        if (alpha < 0.0 || alpha > 1.0) {
+            throw new IllegalArgumentException("Significance out of range: " + alpha);
+        }
+
+        this.alpha = alpha;
+    }
+
+    /**
+     * Gets the getModel significance level.
+     */
+    public double getAlpha() {
+        return this.alpha;
+    }
+
+    public int getNumFeatures() {
+        return numFeatures;
+    }
+
+    /**
+     * Sets the number of random Fourier features used for each of X and Y. The null distribution is computed from
+     * a covariance matrix of size numFeatures^2, so this should be small; the default is 5.
+     */
+    public void setNumFeatures(int numFeatures) {
+        if (numFeatures < 1) throw new IllegalArgumentException("Need at least one feature: " + numFeatures);
+        this.numFeatures = numFeatures;
+        this.features.clear();
+    }
+
+    public int getNumConditioningFeatures() {
+        return numConditioningFeatures;
+    }
+
+    /**
+     * Sets the number of random Fourier features used for the conditioning set. The default is 100.
+     */
+    public void setNumConditioningFeatures(int numConditioningFeatures) {
+        if (numConditioningFeatures < 1) {
+            throw new IllegalArgumentException("Need at least one feature: " + numConditioningFeatures);
+        }
+
+        this.numConditioningFeatures = numConditioningFeatures;
+    }
+
+    public double getRegularizer() {
+        return regularizer;
+    }
+
+    /**
+     * Sets the ridge penalty used in regressing the features of X and Y on those of the conditioning set.
+     */
+    public void setRegularizer(double regularizer) {
+        if (regularizer < 0) throw new IllegalArgumentException("Regularizer must be >= 0: " + regularizer);
+        this.regularizer = regularizer;
+    }
+
+    /**
+     * Sets the seed from which the random frequencies of the features are drawn.
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+        this.features.clear();
+    }
+
+    /**
+     * @return the list of variables over which this independence checker is capable of determinine independence
+     * relations-- that is, all the variables in the given graph or the given data set.
+     */
+    public List<Node> getVariables() {
+        return this.variables;
+    }
+
+    /**
+     * @return the variable with the given name.
+     */
+    public Node getVariable(String name) {
+        for (Node variable : getVariables()) {
+            if (variable.getName().equals(name)) {
+                return variable;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * @return the list of variable varNames.
+     */
+    public List<String> getVariableNames() {
+        List<String> variableNames = new ArrayList<>();
+        for (Node variable : getVariables()) {
+            variableNames.add(variable.getName());
+        }
+        return variableNames;
+    }
+
+    public boolean determines(List<Node> z, Node x) throws UnsupportedOperationException {
+        throw new UnsupportedOperationException("Method not implemented");
+    }
+
+    /**
+     * @return the data set being analyzed.
+     */
+    public DataSet getData() {
+        return dataSet;
+    }
+
+    @Override
+    public ICovarianceMatrix getCov() {
+        return null;
+    }
+
+    @Override
+    public List<DataSet> getDataSets() {
+        return Collections.singletonList(dataSet);
+    }
+
+    @Override
+    public int getSampleSize() {
+        return sampleSize();
+    }
+
+    @Override
+    public List<TetradMatrix> getCovMatrices() {
+        return null;
+    }
+
+    @Override
+    public double getScore() {
+        return getPValue();
+    }
+
+    public boolean isVerbose() {
+        return verbose;
+    }
+
+    public void setVerbose(boolean verbose) {
+        this.verbose = verbose;
+    }
+
+    /**
+     * @return a string representation of this test.
+     */
+    public String toString() {
+        return "RCIT, alpha = " + nf.format(getAlpha());
+    }
+
+    //==========================PRIVATE METHODS============================//
+
+    private int sampleSize() {
+        return this.dataSet.getNumRows();
+    }
+
+    private double[] column(Node node) {
+        double[] column = columns.get(node);
+
+        if (column == null) {
+            double[] data = DataUtils.getDoubleColumn(dataSet, dataSet.getColumn(node));
+            int n = data.length;
+            column = new double[n];
+
+            double mean = 0.0;
+            for (double v : data) mean += v;
+            mean /= n;
+
+            double variance = 0.0;
+            for (double v : data) variance += (v - mean) * (v - mean);
+            double sd = Math.sqrt(variance / (n - 1));
+            if (sd == 0) sd = 1;
+
+            for (int i = 0; i < n; i++) column[i] = (data[i] - mean) / sd;
+
+            columns.put(node, column);
+        }
+
+        return column;
+    }
+
+    private double[][] features(Node node) {
+        double[][] f = features.get(node);
+
+        if (f == null) {
+            int col = dataSet.getColumn(node);
+            f = randomFourierFeatures(new double[][]{column(node)}, numFeatures, new Random(seed ^ (31L * col + 1)));
+            features.put(node, f);
+        }
+
+        return f;
+    }
+
+    private double[][] conditioningFeatures(List<Node> z) {
+        List<Node> sorted = new ArrayList<>(z);
+        Collections.sort(sorted);
+        int[] cols = new int[sorted.size()];
+        double[][] data = new double[sorted.size()][];
+
+        for (int j = 0; j < sorted.size(); j++) {
+            cols[j] = dataSet.getColumn(sorted.get(j));
+            data[j] = column(sorted.get(j));
+        }
+
+        Random random = new Random(seed ^ (0x9E3779B97F4A7C15L * Arrays.hashCode(cols)));
+        return randomFourierFeatures(data, numConditioningFeatures, random);
+    }
+
+    // Centered random Fourier features of the Gaussian kernel over the given columns, one row of the result per
+    // feature. The bandwidth is the median distance between rows.
+    private double[][] randomFourierFeatures(double[][] data, int numFeatures, Random random) {
+        int n = sampleSize();
+        int p = data.length;
+        double bandwidth = medianDistance(data);
+        double scale = Math.sqrt(2.0 / numFeatures);
+        double[][] f = new double[numFeatures][n];
+
+        for (int k = 0; k < numFeatures; k++) {
+            double[] w = new double[p];
+            for (int j = 0; j < p; j++) w[j] = random.nextGaussian() / bandwidth;
+            double b = 2 * Math.PI * random.nextDouble();
+
+            double[] fk = f[k];
+            double mean = 0.0;
+
+            for (int i = 0; i < n; i++) {
+                double t = b;
+                for (int j = 0; j < p; j++) t += w[j] * data[j][i];
+                fk[i] = scale * Math.cos(t);
+                mean += fk[i];
+            }
+
+            mean /= n;
+            for (int i = 0; i < n; i++) fk[i] -= mean;
+        }
+
+        return f;
+    }
+
+    private double medianDistance(double[][] data) {
+        int m = Math.min(sampleSize(), BANDWIDTH_SAMPLE);
+        double[] distances = new double[m * (m - 1) / 2];
+        int c = 0;
+
+        for (int i = 0; i < m; i++) {
+            for (int i2 = i + 1; i2 < m; i2++) {
+                double d = 0.0;
+                for (double[] column : data) {
+                    double diff = column[i] - column[i2];
+                    d += diff * diff;
+                }
+                distances[c++] = Math.sqrt(d);
+            }
+        }
+
+        if (c == 0) return 1.0;
+        Arrays.sort(distances);
+        double median = distances[c / 2];
+        return median > 0 ? median : 1.0;
+    }
+
+    // The residuals of the ridge regression of each feature in f on the features in fz.
+    private double[][] residuals(double[][] f, double[][] fz) {
+        int n = sampleSize();
+        int dz = fz.length;
+        int d = f.length;
+
+        double[][] czz = new double[dz][dz];
+        double[][] czf = new double[dz][d];
+
+        for (int k = 0; k < dz; k++) {
+            double[] zk = fz[k];
+
+            for (int l = k; l < dz; l++) {
+                double[] zl = fz[l];
+                double s = 0.0;
+                for (int i = 0; i < n; i++) s += zk[i] * zl[i];
+                czz[k][l] = s / n;
+                czz[l][k] = s / n;
+            }
+
+            for (int a = 0; a < d; a++) {
+                double[] fa = f[a];
+                double s = 0.0;
+                for (int i = 0; i < n; i++) s += zk[i] * fa[i];
+                czf[k][a] = s / n;
+            }
+
+            czz[k][k] += regularizer;
+        }
+
+        TetradMatrix beta = new TetradMatrix(czz).inverse().times(new TetradMatrix(czf));
+        double[][] r = new double[d][];
+
+        for (int a = 0; a < d; a++) {
+            double[] ra = f[a].clone();
+
+            for (int k = 0; k < dz; k++) {
+                double bka = beta.get(k, a);
+                double[] zk = fz[k];
+                for (int i = 0; i < n; i++) ra[i] -= bka * zk[i];
+            }
+
+            r[a] = ra;
+        }
+
+        return r;
+    }
+}
@@ -106,6 +106,10 @@ public class IndTestScore implements IndependenceTest {
         return isIndependent(x, y, Arrays.asList(z));
     }
 
+    public IndependenceResult checkIndependence(Node x, Node y, List<Node> z) {
+        return IndependenceResult.checkSynchronized(this, x, y, z);
+    }
+
     public boolean isDependent(Node x, Node y, Node... z) {
         List<Node> zList = Arrays.asList(z);
         return isDependent(x, y, zList);
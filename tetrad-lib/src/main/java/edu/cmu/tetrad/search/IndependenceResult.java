@@ -0,0 +1,89 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.search;
+
+import edu.cmu.tetrad.graph.Node;
+
+import java.util.List;
+
+/**
+ * The immutable result of a single independence test: whether independence was judged to hold, the p value, and
+ * the value of the test statistic. Since nothing is left behind in the test itself, a test that returns these
+ * from checkIndependence may be called from many threads at once.
+ *
+ * @author Joseph Ramsey
+ */
+public final class IndependenceResult {
+
+    /**
+     * True iff independence was judged to hold.
+     */
+    private final boolean independent;
+
+    /**
+     * The p value of the test, or NaN if the test has no meaningful p value.
+     */
+    private final double pValue;
+
+    /**
+     * The value of the test statistic, or NaN if the test does not report one.
+     */
+    private final double statistic;
+
+    public IndependenceResult(boolean independent, double pValue, double statistic) {
+        this.independent = independent;
+        this.pValue = pValue;
+        this.statistic = statistic;
+    }
+
+    /**
+     * Runs isIndependent on the given test and reads the p value it leaves behind, holding the test's lock
+     * throughout so that the p value cannot be overwritten by another thread in between. This is how tests
+     * that keep their last result in fields implement checkIndependence; those calls are serialized.
+     */
+    public static IndependenceResult checkSynchronized(IndependenceTest test, Node x, Node y, List<Node> z) {
+        synchronized (test) {
+            boolean independent = test.isIndependent(x, y, z);
+            return new IndependenceResult(independent, test.getPValue(), Double.NaN);
+        }
+    }
+
+    public boolean isIndependent() {
+        return independent;
+    }
+
+    public boolean isDependent() {
+        return !independent;
+    }
+
+    public double getPValue() {
+        return pValue;
+    }
+
+    public double getStatistic() {
+        return statistic;
+    }
+
+    public String toString() {
+        return (independent ? "Independent" : "Dependent") + ", p = " + pValue + ", statistic = " + statistic;
+    }
+}
@@ -71,6 +71,12 @@ public interface IndependenceTest {
      */
     boolean isDependent(Node x, Node y, Node... z);
 
+    /**
+     * Tests x _||_ y | z, z = <z1,...,zn>, and returns the judgment together with its p value and test statistic.
+     * Unlike isIndependent followed by getPValue, this is safe to call on one test from many threads at once.
+     */
+    IndependenceResult checkIndependence(Node x, Node y, List<Node> z);
+
     /**
      * @return the probability associated with the most recently executed independence test, of Double.NaN if p value is
      * not meaningful for tis test.
@@ -21,46 +21,380 @@
 
 package edu.cmu.tetrad.search;
 
-import org.apache.commons.collections4.map.MultiKeyMap;
-
-import java.util.HashSet;
-import java.util.Set;
+import java.util.Arrays;
 
 /**
- * Stores a map from (variable, parents) to score.
+ * Stores a map from (variable, parents) to score. Keys and values are held in primitive open-addressing
+ * tables, so a lookup allocates nothing; the parent set is treated as a set, so the order in which parents
+ * are given does not matter. The cache is split into independently locked stripes and is bounded by a
+ * memory budget; when a stripe goes over its share of the budget, entries are evicted using the CLOCK
+ * (second chance) policy.
+ * <p>
+ * An optional "extra" index may be given with a key, so that scores for (variable, extra, parents)
+ * can be kept alongside plain local scores--this is used to cache score differences.
  *
  * @author Joseph Ramsey
  */
 public class LocalScoreCache {
-    private MultiKeyMap map;
 
+    // Marks the absence of an extra index in a key.
+    private static final int NO_EXTRA = -1;
+
+    // Estimated fixed cost in bytes of one entry, not counting its parents.
+    private static final int ENTRY_OVERHEAD = 64;
+
+    // The default memory budget, as a fraction of the maximum heap.
+    private static final double DEFAULT_HEAP_FRACTION = 0.1;
+
+    private final Segment[] segments;
+    private final int segmentMask;
+    private final long memoryBudget;
+
+    /**
+     * Constructs a cache using a tenth of the maximum heap as its memory budget.
+     */
     public LocalScoreCache() {
-        map = new MultiKeyMap();
+        this((long) (Runtime.getRuntime().maxMemory() * DEFAULT_HEAP_FRACTION));
     }
 
-    public void add(int variable, int[] parents, double score) {
-        Set<Integer> _parents = new HashSet<>(parents.length);
+    /**
+     * Constructs a cache with the given memory budget in bytes, striped for the number of available
+     * processors.
+     */
+    public LocalScoreCache(long memoryBudget) {
+        this(memoryBudget, 4 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs a cache with the given memory budget in bytes and (at least) the given number of
+     * lock stripes.
+     */
+    public LocalScoreCache(long memoryBudget, int numStripes) {
+        if (memoryBudget <= 0) throw new IllegalArgumentException("Memory budget must be positive: " + memoryBudget);
+        if (numStripes <= 0) throw new IllegalArgumentException("Number of stripes must be positive: " + numStripes);
+
+        int n = 1;
+        while (n < numStripes) n <<= 1;
 
-        for (int parent : parents) {
-            _parents.add(parent);
+        this.memoryBudget = memoryBudget;
+        this.segments = new Segment[n];
+        this.segmentMask = n - 1;
+
+        long segmentBudget = Math.max(ENTRY_OVERHEAD * 16, memoryBudget / n);
+
+        for (int i = 0; i < n; i++) {
+            segments[i] = new Segment(segmentBudget);
         }
+    }
 
-        map.put(variable, _parents, score);
+    public void add(int variable, int[] parents, double score) {
+        add(variable, NO_EXTRA, parents, score);
     }
 
+    /**
+     * @return the score stored for the given variable and parents, or NaN if there is none.
+     */
     public double get(int variable, int[] parents) {
-        Set<Integer> _parents = new HashSet<>(parents.length);
+        return get(variable, NO_EXTRA, parents);
+    }
 
-        for (int parent : parents) {
-            _parents.add(parent);
-        }
+    /**
+     * Stores a score keyed on the variable, an extra (nonnegative) index, and the parents.
+     */
+    public void add(int variable, int extra, int[] parents, double score) {
+        long hash = hash(variable, extra, parents);
+        segmentFor(hash).put(hash, variable, extra, parents, score);
+    }
 
-        Double _score = (Double) map.get(variable, _parents);
-        return _score == null ? Double.NaN : (_score);
+    /**
+     * @return the score stored for the given variable, extra index and parents, or NaN if there is none.
+     */
+    public double get(int variable, int extra, int[] parents) {
+        long hash = hash(variable, extra, parents);
+        return segmentFor(hash).get(hash, variable, extra, parents);
     }
 
     public void clear() {
-        map.clear();
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * @return the number of entries currently stored.
+     */
+    public int size() {
+        int size = 0;
+
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size;
+            }
+        }
+
+        return size;
+    }
+
+    /**
+     * @return the number of lookups that found a stored score.
+     */
+    public long getHits() {
+        long hits = 0;
+
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                hits += segment.hits;
+            }
+        }
+
+        return hits;
+    }
+
+    /**
+     * @return the number of lookups that did not find a stored score.
+     */
+    public long getMisses() {
+        long misses = 0;
+
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                misses += segment.misses;
+            }
+        }
+
+        return misses;
+    }
+
+    /**
+     * @return the number of entries evicted to stay within the memory budget.
+     */
+    public long getEvictions() {
+        long evictions = 0;
+
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                evictions += segment.evictions;
+            }
+        }
+
+        return evictions;
+    }
+
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    //============================PRIVATE==============================//
+
+    private Segment segmentFor(long hash) {
+        return segments[(int) (hash >>> 40) & segmentMask];
+    }
+
+    // The parents are combined commutatively so that the hash does not depend on their order.
+    private static long hash(int variable, int extra, int[] parents) {
+        long sum = 0;
+        long xor = 0;
+
+        for (int p : parents) {
+            long m = mix(p + 0x9E3779B9L);
+            sum += m;
+            xor ^= m;
+        }
+
+        long h = mix(variable * 0xC2B2AE3D27D4EB4FL + extra);
+        h = mix(h ^ sum);
+        h = mix(h + xor + parents.length);
+        return h == 0 ? 1 : h;
+    }
+
+    // The finalizer from MurmurHash3.
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static int entryCost(int[] key) {
+        return ENTRY_OVERHEAD + 4 * key.length;
+    }
+
+    /**
+     * One lock stripe: a linear probing table with backward shift deletion. A hash of 0 marks an
+     * empty slot. Stored keys are laid out as {variable, extra, sorted parents...}.
+     */
+    private static final class Segment {
+        private final long budget;
+        private long[] hashes;
+        private int[][] keys;
+        private double[] values;
+        private boolean[] referenced;
+        private int size;
+        private long bytes;
+        private int hand;
+        private long hits;
+        private long misses;
+        private long evictions;
+
+        Segment(long budget) {
+            this.budget = budget;
+            allocate(16);
+        }
+
+        synchronized double get(long hash, int variable, int extra, int[] parents) {
+            int mask = hashes.length - 1;
+
+            for (int i = (int) hash & mask; hashes[i] != 0; i = (i + 1) & mask) {
+                if (hashes[i] == hash && matches(keys[i], variable, extra, parents)) {
+                    referenced[i] = true;
+                    hits++;
+                    return values[i];
+                }
+            }
+
+            misses++;
+            return Double.NaN;
+        }
+
+        synchronized void put(long hash, int variable, int extra, int[] parents, double value) {
+            int mask = hashes.length - 1;
+            int i = (int) hash & mask;
+
+            for (; hashes[i] != 0; i = (i + 1) & mask) {
+                if (hashes[i] == hash && matches(keys[i], variable, extra, parents)) {
+                    values[i] = value;
+                    referenced[i] = true;
+                    return;
+                }
+            }
+
+            int[] key = new int[parents.length + 2];
+            key[0] = variable;
+            key[1] = extra;
+            System.arraycopy(parents, 0, key, 2, parents.length);
+            Arrays.sort(key, 2, key.length);
+
+            int cost = entryCost(key);
+
+            while (size > 0 && bytes + cost > budget) {
+                evict();
+            }
+
+            if (2 * (size + 1) > hashes.length) {
+                resize(2 * hashes.length);
+            }
+
+            insert(hash, key, value, false);
+            bytes += cost;
+        }
+
+        synchronized void clear() {
+            allocate(16);
+        }
+
+        // Stored parents are sorted, so each parent in the query can be found by binary search. Parent
+        // sets are assumed not to contain duplicates.
+        private static boolean matches(int[] key, int variable, int extra, int[] parents) {
+            if (key[0] != variable || key[1] != extra || key.length != parents.length + 2) return false;
+
+            for (int p : parents) {
+                if (Arrays.binarySearch(key, 2, key.length, p) < 0) return false;
+            }
+
+            return true;
+        }
+
+        private void insert(long hash, int[] key, double value, boolean ref) {
+            int mask = hashes.length - 1;
+            int i = (int) hash & mask;
+            while (hashes[i] != 0) i = (i + 1) & mask;
+            hashes[i] = hash;
+            keys[i] = key;
+            values[i] = value;
+            referenced[i] = ref;
+            size++;
+        }
+
+        // Advances the clock hand, giving referenced entries a second chance, and removes the first
+        // unreferenced entry found.
+        private void evict() {
+            int mask = hashes.length - 1;
+
+            while (true) {
+                int i = hand;
+                hand = (hand + 1) & mask;
+
+                if (hashes[i] == 0) continue;
+
+                if (referenced[i]) {
+                    referenced[i] = false;
+                } else {
+                    bytes -= entryCost(keys[i]);
+                    remove(i);
+                    evictions++;
+                    return;
+                }
+            }
+        }
+
+        // Backward shift deletion, so that no tombstones are needed.
+        private void remove(int i) {
+            int mask = hashes.length - 1;
+            int j = i;
+
+            while (true) {
+                j = (j + 1) & mask;
+                if (hashes[j] == 0) break;
+
+                int home = (int) hashes[j] & mask;
+
+                // Move j back into i unless its home slot lies cyclically in (i, j].
+                boolean stays = (i <= j) ? (i < home && home <= j) : (i < home || home <= j);
+
+                if (!stays) {
+                    hashes[i] = hashes[j];
+                    keys[i] = keys[j];
+                    values[i] = values[j];
+                    referenced[i] = referenced[j];
+                    i = j;
+                }
+            }
+
+            hashes[i] = 0;
+            keys[i] = null;
+            values[i] = 0;
+            referenced[i] = false;
+            size--;
+        }
+
+        private void resize(int capacity) {
+            long[] oldHashes = hashes;
+            int[][] oldKeys = keys;
+            double[] oldValues = values;
+            boolean[] oldReferenced = referenced;
+            long oldBytes = bytes;
+
+            allocate(capacity);
+            bytes = oldBytes;
+
+            for (int i = 0; i < oldHashes.length; i++) {
+                if (oldHashes[i] != 0) {
+                    insert(oldHashes[i], oldKeys[i], oldValues[i], oldReferenced[i]);
+                }
+            }
+        }
+
+        private void allocate(int capacity) {
+            hashes = new long[capacity];
+            keys = new int[capacity][];
+            values = new double[capacity];
+            referenced = new boolean[capacity];
+            size = 0;
+            bytes = 0;
+            hand = 0;
+        }
     }
 }
 
@@ -0,0 +1,189 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.search;
+
+import edu.cmu.tetrad.graph.*;
+import edu.cmu.tetrad.util.RandomUtil;
+
+import java.math.BigInteger;
+import java.util.*;
+
+/**
+ * The DAGs in a pattern, counted, sampled and listed without being enumerated.
+ * <p>
+ * The undirected edges of a pattern make up chain components, which are chordal, and the DAGs in the pattern are
+ * exactly the choices, for each component, of an acyclic orientation of it with no new colliders. These are counted
+ * component by component, so that the size of the class is known for patterns far too large for
+ * SearchGraphUtils.getDagsInPatternMeek. The DAGs are numbered from 0 to size() - 1, and any one of them can be built
+ * from its number, which gives both a uniform sample and an iterator that holds only the DAG it last returned.
+ * <p>
+ * Knowledge is not taken into account; every DAG in the pattern is counted.
+ *
+ * @author Joseph Ramsey
+ * @see SearchGraphUtils#getDagsInPatternMeek
+ * @see DagInPatternIterator
+ */
+public final class MarkovEquivalenceClass implements Iterable<Graph> {
+
+    private final Graph pattern;
+    private final List<Node> nodes;
+    private final ChordalOrientations orientations;
+    private final List<BitSet> components = new ArrayList<>();
+    private final BigInteger size;
+
+    /**
+     * @param pattern A pattern, that is, a graph with only directed and undirected edges in which the undirected
+     *                edges make up chordal chain components.
+     */
+    public MarkovEquivalenceClass(Graph pattern) {
+        if (pattern == null) throw new NullPointerException("Pattern must not be null.");
+
+        this.pattern = pattern;
+        this.nodes = pattern.getNodes();
+
+        Map<Node, Integer> indices = new HashMap<>();
+        for (int i = 0; i < nodes.size(); i++) indices.put(nodes.get(i), i);
+
+        BitSet[] adj = new BitSet[nodes.size()];
+        for (int i = 0; i < adj.length; i++) adj[i] = new BitSet(adj.length);
+
+        for (Edge edge : pattern.getEdges()) {
+            if (Edges.isUndirectedEdge(edge)) {
+                int i = indices.get(edge.getNode1());
+                int j = indices.get(edge.getNode2());
+                adj[i].set(j);
+                adj[j].set(i);
+            } else if (!Edges.isDirectedEdge(edge)) {
+                throw new IllegalArgumentException("Not a pattern edge: " + edge);
+            }
+        }
+
+        this.orientations = new ChordalOrientations(adj);
+
+        BitSet seen = new BitSet(adj.length);
+        BigInteger size = BigInteger.ONE;
+
+        for (int i = 0; i < adj.length; i++) {
+            if (seen.get(i) || adj[i].isEmpty()) continue;
+
+            BitSet component = new BitSet(adj.length);
+            LinkedList<Integer> queue = new LinkedList<>();
+            queue.add(i);
+            component.set(i);
+
+            while (!queue.isEmpty()) {
+                int j = queue.removeFirst();
+
+                for (int k = adj[j].nextSetBit(0); k >= 0; k = adj[j].nextSetBit(k + 1)) {
+                    if (!component.get(k)) {
+                        component.set(k);
+                        queue.add(k);
+                    }
+                }
+            }
+
+            seen.or(component);
+            components.add(component);
+            size = size.multiply(orientations.count(component));
+        }
+
+        this.size = size;
+    }
+
+    /**
+     * @return the number of DAGs in the pattern.
+     */
+    public BigInteger size() {
+        return size;
+    }
+
+    /**
+     * @param index 0 <= index < size().
+     * @return the index'th DAG in the pattern, over the nodes of the pattern.
+     */
+    public Graph getDag(BigInteger index) {
+        if (index.signum() < 0 || index.compareTo(size) >= 0) {
+            throw new IllegalArgumentException("Index must be in [0, " + size + "): " + index);
+        }
+
+        List<int[]> arcs = new ArrayList<>();
+
+        for (BitSet component : components) {
+            BigInteger[] qr = index.divideAndRemainder(orientations.count(component));
+            orientations.orientation(component, qr[1], arcs);
+            index = qr[0];
+        }
+
+        Graph dag = new EdgeListGraph(pattern);
+
+        for (int[] arc : arcs) {
+            Node from = nodes.get(arc[0]);
+            Node to = nodes.get(arc[1]);
+            dag.removeEdge(from, to);
+            dag.addDirectedEdge(from, to);
+        }
+
+        return dag;
+    }
+
+    /**
+     * @return a DAG drawn uniformly from those in the pattern.
+     */
+    public Graph sampleDag() {
+        Random random = new Random(RandomUtil.getInstance().nextLong());
+        BigInteger index;
+
+        do {
+            index = new BigInteger(size.bitLength(), random);
+        } while (index.compareTo(size) >= 0);
+
+        return getDag(index);
+    }
+
+    /**
+     * @return the DAGs in the pattern in order of index, each built as it is asked for.
+     */
+    @Override
+    public Iterator<Graph> iterator() {
+        return new Iterator<Graph>() {
+            private BigInteger next = BigInteger.ZERO;
+
+            @Override
+            public boolean hasNext() {
+                return next.compareTo(size) < 0;
+            }
+
+            @Override
+            public Graph next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                Graph dag = getDag(next);
+                next = next.add(BigInteger.ONE);
+                return dag;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+}
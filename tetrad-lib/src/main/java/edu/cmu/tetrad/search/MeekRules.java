@@ -91,6 +91,7 @@ public class MeekRules implements ImpliedOrientation {
     public void orientImplied(Graph graph, List<Node> nodes) {
         this.nodes = nodes;
         this.visited.addAll(nodes);
+        SearchMetrics.increment(SearchMetrics.Counter.MEEK_PASSES);
 
         TetradLogger.getInstance().log("impliedOrientations", "Starting Orientation Step D.");
         orientUsingMeekRulesLocally(knowledge, graph);
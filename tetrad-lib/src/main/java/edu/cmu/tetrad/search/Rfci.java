@@ -295,7 +295,7 @@ public final class Rfci implements GraphSearch {
             if (knowledge.noEdgeRequired(i.getName(), j.getName()))  // if BK allows
             {
                 try {
-                    independent1 = independenceTest.isIndependent(i, j, sepSet);
+                    independent1 = independenceTest.checkIndependence(i, j, sepSet).isIndependent();
                 } catch (Exception e) {
                     independent1 = true;
                 }
@@ -305,7 +305,7 @@ public final class Rfci implements GraphSearch {
             if (knowledge.noEdgeRequired(j.getName(), k.getName()))  // if BK allows
             {
                 try {
-                    independent2 = independenceTest.isIndependent(j, k, sepSet);
+                    independent2 = independenceTest.checkIndependence(j, k, sepSet).isIndependent();
                 } catch (Exception e) {
                     independent2 = true;
                 }
@@ -471,7 +471,7 @@ public final class Rfci implements GraphSearch {
         boolean indep;
 
         try {
-            indep = independenceTest.isIndependent(x, y, empty);
+            indep = independenceTest.checkIndependence(x, y, empty).isIndependent();
         } catch (Exception e) {
             indep = false;
         }
@@ -490,7 +490,7 @@ public final class Rfci implements GraphSearch {
                 List<Node> condSet = GraphUtils.asList(combination, sepSet);
 
                 try {
-                    indep = independenceTest.isIndependent(x, y, condSet);
+                    indep = independenceTest.checkIndependence(x, y, condSet).isIndependent();
                 } catch (Exception e) {
                     indep = false;
                 }
@@ -35,6 +35,13 @@ public interface Score {
 
     double localScoreDiff(int x, int y);
 
+    /**
+     * Scores adding each of the candidates xs as a parent of y given the parents z, returning
+     * localScoreDiff(xs[i], y, z) in the i'th entry. Scores that can share work across candidates of
+     * the same child do so here; the others use ScoreUtils.localScoreDiffs.
+     */
+    double[] localScoreDiffs(int y, int[] z, int[] xs);
+
     double localScore(int node, int parent);
 
     double localScore(int node);
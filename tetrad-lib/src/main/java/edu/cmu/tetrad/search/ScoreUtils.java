@@ -0,0 +1,50 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.search;
+
+/**
+ * Contains utilities for implementing scores.
+ *
+ * @author Joseph Ramsey
+ * @see Score
+ */
+public final class ScoreUtils {
+
+    private ScoreUtils() {
+    }
+
+    /**
+     * Scores adding each of the candidates xs as a parent of y given the parents z one at a time, for scores that
+     * have no way to share work across candidates.
+     *
+     * @return localScoreDiff(xs[i], y, z) in the i'th entry.
+     */
+    public static double[] localScoreDiffs(Score score, int y, int[] z, int[] xs) {
+        double[] diffs = new double[xs.length];
+
+        for (int i = 0; i < xs.length; i++) {
+            diffs[i] = score.localScoreDiff(xs[i], y, z);
+        }
+
+        return diffs;
+    }
+}
@@ -0,0 +1,169 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.search;
+
+import edu.cmu.tetrad.util.TaskManager;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A token for stopping a search early and watching its progress. A search given one checks it between steps--in the
+ * forward and backward loops of Fges, the depth loops of the adjacency searches, and between the stages of Fci and
+ * GFci--and once it is stopped, either because it was cancelled or because its deadline passed, returns the graph it
+ * has so far. Callers can tell such a graph from a finished one by isStopped.
+ * <p>
+ * A search is also stopped by TaskManager.getInstance().setCanceled(true), so that the GUI's cancel buttons work as
+ * before. A token may be shared by several searches, in which case stopping it stops them all.
+ *
+ * @author Joseph Ramsey
+ */
+public final class SearchControl {
+
+    /**
+     * Told how a search is going.
+     */
+    public interface ProgressListener {
+
+        /**
+         * Called from the thread running the search, which waits for it to return.
+         */
+        void progress(Progress progress);
+    }
+
+    private volatile boolean cancelled = false;
+    private volatile long deadline = 0;
+    private volatile boolean hasDeadline = false;
+    private final List<ProgressListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Stops the searches using this token at their next check.
+     */
+    public void cancel() {
+        this.cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Stops the searches using this token at their first check after the given time from now.
+     */
+    public void setTimeout(long timeout, TimeUnit unit) {
+        if (timeout < 0) throw new IllegalArgumentException("Timeout must be >= 0: " + timeout);
+        this.deadline = System.nanoTime() + unit.toNanos(timeout);
+        this.hasDeadline = true;
+    }
+
+    /**
+     * @return true iff a timeout was set and has passed.
+     */
+    public boolean isTimedOut() {
+        return hasDeadline && System.nanoTime() - deadline >= 0;
+    }
+
+    /**
+     * @return true iff the searches using this token should stop: it was cancelled, its deadline passed, or all tasks
+     * were cancelled through the TaskManager.
+     */
+    public boolean isStopped() {
+        return cancelled || isTimedOut() || TaskManager.getInstance().isCanceled();
+    }
+
+    public void addProgressListener(ProgressListener listener) {
+        if (listener == null) throw new NullPointerException("Listener must not be null.");
+        listeners.add(listener);
+    }
+
+    public void removeProgressListener(ProgressListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * @return true iff anyone is listening for progress, so that searches need not work out progress no one will see.
+     */
+    public boolean isReporting() {
+        return !listeners.isEmpty();
+    }
+
+    /**
+     * Tells the listeners how a search is going.
+     */
+    public void reportProgress(Progress progress) {
+        for (ProgressListener listener : listeners) {
+            listener.progress(progress);
+        }
+    }
+
+    /**
+     * How far a search has got.
+     */
+    public static final class Progress {
+        private final String search;
+        private final String phase;
+        private final int depth;
+        private final int numEdges;
+        private final int numArrows;
+
+        /**
+         * @param search    the name of the search, e.g. "Fges".
+         * @param phase     the phase of the search, e.g. "forward".
+         * @param depth     the depth being searched, or -1 if the search has no depths.
+         * @param numEdges  the number of edges in the graph so far.
+         * @param numArrows the number of arrows waiting to be tried, or -1 if the search has none.
+         */
+        public Progress(String search, String phase, int depth, int numEdges, int numArrows) {
+            this.search = search;
+            this.phase = phase;
+            this.depth = depth;
+            this.numEdges = numEdges;
+            this.numArrows = numArrows;
+        }
+
+        public String getSearch() {
+            return search;
+        }
+
+        public String getPhase() {
+            return phase;
+        }
+
+        public int getDepth() {
+            return depth;
+        }
+
+        public int getNumEdges() {
+            return numEdges;
+        }
+
+        public int getNumArrows() {
+            return numArrows;
+        }
+
+        public String toString() {
+            return search + " " + phase + (depth >= 0 ? " depth = " + depth : "") + " edges = " + numEdges
+                    + (numArrows >= 0 ? " arrows = " + numArrows : "");
+        }
+    }
+}
@@ -1657,7 +1657,10 @@ public final class SearchGraphUtils {
     }
 
     /**
-     * Generates the list of DAGs in the given pattern.
+     * Generates the list of DAGs in the given pattern. For large patterns, use MarkovEquivalenceClass to count or sample
+     * them instead.
+     *
+     * @see MarkovEquivalenceClass
      */
     public static List<Graph> generatePatternDags(Graph pattern, boolean orientBidirectedEdges) {
         if (orientBidirectedEdges) {
@@ -1667,6 +1670,10 @@ public final class SearchGraphUtils {
         return getDagsInPatternMeek(pattern, new Knowledge2());
     }
 
+    /**
+     * @return the DAGs in the given pattern that the knowledge allows, all held at once.
+     * @see MarkovEquivalenceClass
+     */
     public static List<Graph> getDagsInPatternMeek(Graph pattern, IKnowledge knowledge) {
         DagInPatternIterator iterator = new DagInPatternIterator(pattern, knowledge);
         List<Graph> dags = new ArrayList<>();
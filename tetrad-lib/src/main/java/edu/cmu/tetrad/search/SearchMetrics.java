@@ -0,0 +1,358 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.search;
+
+import javax.management.*;
+import java.lang.management.*;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counters and timers for the searches, so that a slow run can be told apart as score bound, lock bound or GC bound.
+ * <p>
+ * Metrics are off by default, in which case recording one costs a read of a volatile flag. When on, counts go to
+ * striped counters, one stripe per group of threads, so that threads seldom write the same cache line. Phases of a
+ * search are timed by wall clock, by CPU time summed over all threads, by time spent in garbage collection and, where
+ * the JVM supports contention monitoring, by time threads spent blocked on locks. Threads that end during a phase do
+ * not count toward its CPU or blocked time, so for these phases should run in a pool whose threads outlive them.
+ * <p>
+ * The metrics are published over JMX as edu.cmu.tetrad:type=SearchMetrics once registerMBean is called, and getValues
+ * returns them all, by name, for dumping.
+ *
+ * @author Joseph Ramsey
+ */
+public final class SearchMetrics {
+
+    /**
+     * Events counted.
+     */
+    public enum Counter {
+        SCORE_EVALUATIONS, INDEPENDENCE_TESTS, CACHE_HITS, CACHE_MISSES, ARROWS_INSERTED, ARROWS_DELETED,
+        MEEK_PASSES, FORK_JOIN_TASKS
+    }
+
+    /**
+     * Calls timed, each by total nanoseconds.
+     */
+    public enum Timer {
+        SCORE_EVALUATION, INDEPENDENCE_TEST
+    }
+
+    /**
+     * The name of the JMX bean.
+     */
+    public static final String MBEAN_NAME = "edu.cmu.tetrad:type=SearchMetrics";
+
+    // Returned by startTimer when metrics are off.
+    private static final long NOT_TIMED = Long.MIN_VALUE;
+
+    private static final Phase NO_PHASE = new Phase(null);
+
+    private static volatile boolean enabled = false;
+
+    private static final Striped[] counters = striped(Counter.values().length);
+    private static final Striped[] timers = striped(Timer.values().length);
+    private static final ConcurrentMap<String, Striped> phases = new ConcurrentHashMap<>();
+
+    private static boolean registered = false;
+
+    private SearchMetrics() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Turns metrics on or off. Turning them on also turns on thread contention monitoring, if the JVM supports it.
+     */
+    public static void setEnabled(boolean enabled) {
+        if (enabled) {
+            ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+            if (threads.isThreadContentionMonitoringSupported()) {
+                threads.setThreadContentionMonitoringEnabled(true);
+            }
+        }
+
+        SearchMetrics.enabled = enabled;
+    }
+
+    public static void increment(Counter counter) {
+        if (enabled) counters[counter.ordinal()].add(1);
+    }
+
+    public static void add(Counter counter, long n) {
+        if (enabled) counters[counter.ordinal()].add(n);
+    }
+
+    public static long get(Counter counter) {
+        return counters[counter.ordinal()].sum();
+    }
+
+    /**
+     * @return a start time to pass to stopTimer.
+     */
+    public static long startTimer() {
+        return enabled ? System.nanoTime() : NOT_TIMED;
+    }
+
+    /**
+     * Adds the time since the start time to the timer.
+     */
+    public static void stopTimer(Timer timer, long start) {
+        if (start != NOT_TIMED) timers[timer.ordinal()].add(System.nanoTime() - start);
+    }
+
+    /**
+     * @return the nanoseconds recorded by the timer.
+     */
+    public static long get(Timer timer) {
+        return timers[timer.ordinal()].sum();
+    }
+
+    /**
+     * Starts timing a phase of a search, to be ended by calling end on the phase returned. Phases of the same name
+     * add up.
+     */
+    public static Phase startPhase(String name) {
+        if (!enabled) return NO_PHASE;
+        if (name == null) throw new NullPointerException("Phase name must not be null.");
+        return new Phase(name);
+    }
+
+    /**
+     * @return every metric by name: counters by their names, timers as timer.name.nanos, and phases as phase.name.count,
+     * phase.name.wallNanos, phase.name.cpuNanos, phase.name.gcMillis and phase.name.blockedMillis.
+     */
+    public static Map<String, Long> getValues() {
+        Map<String, Long> values = new TreeMap<>();
+
+        for (Counter counter : Counter.values()) {
+            values.put(camelCase(counter.name()), get(counter));
+        }
+
+        for (Timer timer : Timer.values()) {
+            values.put("timer." + camelCase(timer.name()) + ".nanos", get(timer));
+        }
+
+        for (Map.Entry<String, Striped> entry : phases.entrySet()) {
+            Striped phase = entry.getValue();
+
+            for (int k = 0; k < Phase.FIELDS.length; k++) {
+                values.put("phase." + entry.getKey() + "." + Phase.FIELDS[k], phase.sum(k));
+            }
+        }
+
+        return values;
+    }
+
+    /**
+     * Sets all metrics back to zero.
+     */
+    public static void reset() {
+        for (Striped counter : counters) counter.clear();
+        for (Striped timer : timers) timer.clear();
+        phases.clear();
+    }
+
+    /**
+     * Publishes the metrics over JMX, under MBEAN_NAME. Later calls do nothing.
+     */
+    public static synchronized void registerMBean() {
+        if (registered) return;
+
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(new MBean(), new ObjectName(MBEAN_NAME));
+            registered = true;
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not register " + MBEAN_NAME, e);
+        }
+    }
+
+    /**
+     * The metrics as seen over JMX.
+     */
+    public interface SearchMetricsMXBean {
+        boolean isEnabled();
+
+        void setEnabled(boolean enabled);
+
+        Map<String, Long> getValues();
+
+        void reset();
+    }
+
+    /**
+     * A phase of a search being timed.
+     */
+    public static final class Phase {
+        private static final String[] FIELDS = {"count", "wallNanos", "cpuNanos", "gcMillis", "blockedMillis"};
+
+        private final String name;
+        private final long[] start;
+
+        private Phase(String name) {
+            this.name = name;
+            this.start = name == null ? null : sample();
+        }
+
+        /**
+         * Ends the phase, adding its times to those of earlier phases of the same name.
+         */
+        public void end() {
+            if (name == null) return;
+
+            long[] end = sample();
+            Striped phase = phases.get(name);
+
+            if (phase == null) {
+                phases.putIfAbsent(name, new Striped(FIELDS.length));
+                phase = phases.get(name);
+            }
+
+            phase.add(0, 1);
+
+            for (int k = 1; k < FIELDS.length; k++) {
+                phase.add(k, Math.max(0, end[k] - start[k]));
+            }
+        }
+
+        // Readings of the clocks, indexed as FIELDS.
+        private static long[] sample() {
+            long[] sample = new long[FIELDS.length];
+            sample[1] = System.nanoTime();
+
+            ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            long[] ids = threads.getAllThreadIds();
+
+            if (threads.isThreadCpuTimeSupported() && threads.isThreadCpuTimeEnabled()) {
+                for (long id : ids) {
+                    long time = threads.getThreadCpuTime(id);
+                    if (time > 0) sample[2] += time;
+                }
+            }
+
+            for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+                long time = collector.getCollectionTime();
+                if (time > 0) sample[3] += time;
+            }
+
+            if (threads.isThreadContentionMonitoringEnabled()) {
+                for (ThreadInfo info : threads.getThreadInfo(ids)) {
+                    if (info != null && info.getBlockedTime() > 0) sample[4] += info.getBlockedTime();
+                }
+            }
+
+            return sample;
+        }
+    }
+
+    //==============================PRIVATE METHODS=========================//
+
+    private static Striped[] striped(int n) {
+        Striped[] striped = new Striped[n];
+        for (int i = 0; i < n; i++) striped[i] = new Striped(1);
+        return striped;
+    }
+
+    // SCORE_EVALUATIONS to scoreEvaluations.
+    private static String camelCase(String name) {
+        StringBuilder buf = new StringBuilder();
+        boolean upper = false;
+
+        for (char c : name.toCharArray()) {
+            if (c == '_') {
+                upper = true;
+            } else {
+                buf.append(upper ? c : Character.toLowerCase(c));
+                upper = false;
+            }
+        }
+
+        return buf.toString();
+    }
+
+    // Some longs, each summed over stripes that threads add to by their ids. Stripes are a cache line apart.
+    private static final class Striped {
+        private static final int PAD = 8;
+        private static final int NUM_STRIPES =
+                Integer.highestOneBit(Math.max(1, 2 * Runtime.getRuntime().availableProcessors() - 1)) << 1;
+
+        private final int size;
+        private final AtomicLongArray cells;
+
+        private Striped(int size) {
+            this.size = size;
+            this.cells = new AtomicLongArray(NUM_STRIPES * PAD * ((size + PAD - 1) / PAD) + PAD);
+        }
+
+        private void add(long n) {
+            add(0, n);
+        }
+
+        private void add(int k, long n) {
+            int stripe = (int) (Thread.currentThread().getId() * 0x9E3779B9L >>> 16) & (NUM_STRIPES - 1);
+            cells.getAndAdd(index(stripe, k), n);
+        }
+
+        private long sum() {
+            return sum(0);
+        }
+
+        private long sum(int k) {
+            long sum = 0;
+            for (int stripe = 0; stripe < NUM_STRIPES; stripe++) sum += cells.get(index(stripe, k));
+            return sum;
+        }
+
+        private void clear() {
+            for (int i = 0; i < cells.length(); i++) cells.set(i, 0);
+        }
+
+        private int index(int stripe, int k) {
+            return PAD + stripe * PAD * ((size + PAD - 1) / PAD) + k;
+        }
+    }
+
+    private static final class MBean implements SearchMetricsMXBean {
+        public boolean isEnabled() {
+            return SearchMetrics.isEnabled();
+        }
+
+        public void setEnabled(boolean enabled) {
+            SearchMetrics.setEnabled(enabled);
+        }
+
+        public Map<String, Long> getValues() {
+            return SearchMetrics.getValues();
+        }
+
+        public void reset() {
+            SearchMetrics.reset();
+        }
+    }
+}
@@ -30,6 +30,7 @@ import edu.cmu.tetrad.util.TetradVector;
 
 import java.io.PrintStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -65,6 +66,27 @@ public class SemBicScore implements Score {
     private Set<Integer> forbidden = new HashSet<>();
     private final double logn;
 
+    // True if parent sets should be scored from incrementally updated Cholesky factors rather than
+    // by inverting each covariance submatrix.
+    private boolean useCholesky = true;
+
+    // Each thread keeps its own factor, since FGES scores from many threads at once.
+    private final List<IncrementalCholesky> allFactors
+            = Collections.synchronizedList(new ArrayList<IncrementalCholesky>());
+
+    private final ThreadLocal<IncrementalCholesky> factors = new ThreadLocal<IncrementalCholesky>() {
+        @Override
+        protected IncrementalCholesky initialValue() {
+            IncrementalCholesky factor = new IncrementalCholesky(getCovariances());
+            allFactors.add(factor);
+            return factor;
+        }
+    };
+
+    // For reporting the rate at which parent sets are scored.
+    private long statisticsStart = System.currentTimeMillis();
+    private long statisticsBaseline = 0;
+
     /**
      * Constructs the score using a covariance matrix.
      */
@@ -84,11 +106,29 @@ public class SemBicScore implements Score {
      * Calculates the sample likelihood and BIC score for i given its parents in a simple SEM model
      */
     public double localScore(int i, int... parents) {
-        for (int p : parents) if (forbidden.contains(p)) return Double.NaN;
+        if (!forbidden.isEmpty()) {
+            for (int p : parents) if (forbidden.contains(p)) return Double.NaN;
+        }
 
 //        if (parents.length == 0) return localScore(i);
 //        else if (parents.length == 1) return localScore(i, parents[0]);
 
+        IncrementalCholesky factor = factors.get();
+        factor.count++;
+
+        if (useCholesky && factor.setTo(parents)) {
+            double residualVariance = factor.residualVariance(i);
+
+            if (!Double.isNaN(residualVariance)) {
+                return bic(i, residualVariance, parents.length);
+            }
+        }
+
+        return localScoreByInverse(i, parents);
+    }
+
+    // The original calculation, which also takes care of linearly dependent parents.
+    private double localScoreByInverse(int i, int[] parents) {
         double residualVariance = getCovariances().getValue(i, i);
         int n = getSampleSize();
         int p = parents.length;
@@ -126,8 +166,21 @@ public class SemBicScore implements Score {
         }
     }
 
+    /**
+     * Calculates localScore(y, z + x) - localScore(y, z). The factor for z is shared by the two scores,
+     * and is usually a small update of the factor used for the previous call from the same thread.
+     */
     @Override
     public double localScoreDiff(int x, int y, int[] z) {
+        if (useCholesky && forbidden.isEmpty()) {
+            IncrementalCholesky factor = factors.get();
+
+            if (factor.setTo(z) && factor.residualVariances(x, y)) {
+                factor.count += 2;
+                return bic(y, factor.pair[1], z.length + 1) - bic(y, factor.pair[0], z.length);
+            }
+        }
+
         return localScore(y, append(z, x)) - localScore(y, z);
     }
 
@@ -136,6 +189,45 @@ public class SemBicScore implements Score {
         return localScore(y, x) - localScore(y);
     }
 
+    /**
+     * Factors cov(z) and solves for y once; each candidate then costs one more row of the factor, which
+     * gives cov(x, y | z) and var(x | z) for that candidate.
+     */
+    @Override
+    public double[] localScoreDiffs(int y, int[] z, int[] xs) {
+        double[] diffs = new double[xs.length];
+        boolean[] done = new boolean[xs.length];
+
+        if (useCholesky && forbidden.isEmpty()) {
+            IncrementalCholesky factor = factors.get();
+
+            if (factor.setTo(z)) {
+                double rvz = factor.residualVariance(y);
+
+                if (!Double.isNaN(rvz)) {
+                    double base = bic(y, rvz, z.length);
+
+                    for (int i = 0; i < xs.length; i++) {
+                        double rv = factor.residualVarianceAdding(xs[i], y, rvz);
+
+                        if (!Double.isNaN(rv)) {
+                            diffs[i] = bic(y, rv, z.length + 1) - base;
+                            done[i] = true;
+                        }
+                    }
+
+                    factor.count += xs.length + 1;
+                }
+            }
+        }
+
+        for (int i = 0; i < xs.length; i++) {
+            if (!done[i]) diffs[i] = localScoreDiff(xs[i], y, z);
+        }
+
+        return diffs;
+    }
+
     private int[] append(int[] parents, int extra) {
         int[] all = new int[parents.length + 1];
         System.arraycopy(parents, 0, all, 0, parents.length);
@@ -205,6 +297,48 @@ public class SemBicScore implements Score {
         this.ignoreLinearDependent = ignoreLinearDependent;
     }
 
+    /**
+     * True iff parent sets are scored using incrementally updated Cholesky factors. If false, each
+     * covariance submatrix is inverted afresh, as was done originally.
+     */
+    public boolean isUseCholesky() {
+        return useCholesky;
+    }
+
+    public void setUseCholesky(boolean useCholesky) {
+        this.useCholesky = useCholesky;
+    }
+
+    /**
+     * @return the number of parent sets scored (by localScore(int, int...) or localScoreDiff) since
+     * construction or the last call to resetStatistics().
+     */
+    public long getNumParentSetsScored() {
+        long count = 0;
+
+        synchronized (allFactors) {
+            for (IncrementalCholesky factor : allFactors) {
+                count += factor.count;
+            }
+        }
+
+        return count - statisticsBaseline;
+    }
+
+    /**
+     * @return the number of parent sets scored per second since construction or the last call to
+     * resetStatistics().
+     */
+    public double getParentSetsPerSecond() {
+        long elapsed = System.currentTimeMillis() - statisticsStart;
+        return elapsed == 0 ? Double.NaN : getNumParentSetsScored() / (elapsed / 1000.0);
+    }
+
+    public void resetStatistics() {
+        statisticsBaseline += getNumParentSetsScored();
+        statisticsStart = System.currentTimeMillis();
+    }
+
     public void setOut(PrintStream out) {
         this.out = out;
     }
@@ -257,6 +391,17 @@ public class SemBicScore implements Score {
         this.penaltyDiscount = alpha;
     }
 
+    private double bic(int i, double residualVariance, int p) {
+        if (residualVariance <= 0) {
+            if (isVerbose()) {
+                out.println("Nonpositive residual varianceY: resVar / varianceY = " + (residualVariance / getCovariances().getValue(i, i)));
+            }
+            return Double.NaN;
+        }
+
+        return score(residualVariance, getSampleSize(), logn, p, getPenaltyDiscount());
+    }
+
     // Calculates the BIC score.
     private double score(double residualVariance, int n, double logn, int p, double c) {
         int cols = getCovariances().getDimension();
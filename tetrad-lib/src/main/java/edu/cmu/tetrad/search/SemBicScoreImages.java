@@ -127,6 +127,11 @@ public class SemBicScoreImages implements ISemBicScore, Score {
         return localScoreDiff(x, y, new int[0]);
     }
 
+    @Override
+    public double[] localScoreDiffs(int y, int[] z, int[] xs) {
+        return ScoreUtils.localScoreDiffs(this, y, z, xs);
+    }
+
     /**
      * Calculates the sample likelihood and BIC score for i given its parents in a simple SEM model
      */
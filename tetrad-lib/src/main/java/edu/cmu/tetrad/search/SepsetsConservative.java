@@ -39,6 +39,9 @@ public class SepsetsConservative implements SepsetProducer {
     private int depth = 3;
     private boolean verbose = false;
 
+    // The result of the last isIndependent call on each thread, for getPValue and getScore.
+    private final ThreadLocal<IndependenceResult> lastResult = new ThreadLocal<>();
+
     public SepsetsConservative(Graph graph, IndependenceTest independenceTest, SepsetMap extraSepsets, int depth) {
         this.graph = graph;
         this.independenceTest = independenceTest;
@@ -56,8 +59,7 @@ public class SepsetsConservative implements SepsetProducer {
         if (extraSepsets != null) {
             final List<Node> possibleDsep = extraSepsets.get(i, k);
             if (possibleDsep != null) {
-                independenceTest.isIndependent(i, k, possibleDsep);
-                _p = independenceTest.getPValue();
+                _p = independenceTest.checkIndependence(i, k, possibleDsep).getPValue();
                 _v = possibleDsep;
             }
         }
@@ -75,8 +77,10 @@ public class SepsetsConservative implements SepsetProducer {
                 while ((choice = gen.next()) != null) {
                     List<Node> v = GraphUtils.asList(choice, adji);
 
-                    if (getIndependenceTest().isIndependent(i, k, v)) {
-                        double pValue = getIndependenceTest().getPValue();
+                    IndependenceResult result = getIndependenceTest().checkIndependence(i, k, v);
+
+                    if (result.isIndependent()) {
+                        double pValue = result.getPValue();
                         if (pValue > _p) {
                             _p = pValue;
                             _v = v;
@@ -91,8 +95,10 @@ public class SepsetsConservative implements SepsetProducer {
 
                 while ((choice = gen.next()) != null) {
                     List<Node> v = GraphUtils.asList(choice, adjk);
-                    if (getIndependenceTest().isIndependent(i, k, v)) {
-                        double pValue = getIndependenceTest().getPValue();
+                    IndependenceResult result = getIndependenceTest().checkIndependence(i, k, v);
+
+                    if (result.isIndependent()) {
+                        double pValue = result.getPValue();
                         if (pValue > _p) {
                             _p = pValue;
                             _v = v;
@@ -139,7 +145,7 @@ public class SepsetsConservative implements SepsetProducer {
             while ((choice = cg.next()) != null) {
                 List<Node> cond = GraphUtils.asList(choice, _nodes);
 
-                if (test.isIndependent(x, z, cond)) {
+                if (test.checkIndependence(x, z, cond).isIndependent()) {
                     if (verbose) {
                         System.out.println("Indep: " + x + " _||_ " + z + " | " + cond);
                     }
@@ -169,7 +175,7 @@ public class SepsetsConservative implements SepsetProducer {
             while ((choice = cg.next()) != null) {
                 List<Node> cond = GraphUtils.asList(choice, _nodes);
 
-                if (test.isIndependent(x, z, cond)) {
+                if (test.checkIndependence(x, z, cond).isIndependent()) {
                     if (cond.contains(y)) {
                         sepsetsContainingY.add(cond);
                     } else {
@@ -189,17 +195,20 @@ public class SepsetsConservative implements SepsetProducer {
 
     @Override
     public boolean isIndependent(Node a, Node b, List<Node> c) {
-        return independenceTest.isIndependent(a, b, c);
+        IndependenceResult result = independenceTest.checkIndependence(a, b, c);
+        lastResult.set(result);
+        return result.isIndependent();
     }
 
     @Override
     public double getPValue() {
-        return independenceTest.getPValue();
+        IndependenceResult result = lastResult.get();
+        return result == null ? Double.NaN : result.getPValue();
     }
 
     @Override
     public double getScore() {
-        return -(independenceTest.getPValue() - independenceTest.getAlpha());
+        return -(getPValue() - independenceTest.getAlpha());
     }
 
     @Override
@@ -40,6 +40,9 @@ public class SepsetsGreedy implements SepsetProducer {
     private boolean verbose = false;
     private Graph dag;
 
+    // The result of the last isIndependent call on each thread, for getPValue and getScore.
+    private final ThreadLocal<IndependenceResult> lastResult = new ThreadLocal<>();
+
     public SepsetsGreedy(Graph graph, IndependenceTest independenceTest, SepsetMap extraSepsets, int depth) {
         this.graph = graph;
         this.independenceTest = independenceTest;
@@ -86,7 +89,7 @@ public class SepsetsGreedy implements SepsetProducer {
                 while ((choice = gen.next()) != null) {
                     List<Node> v = GraphUtils.asList(choice, adji);
 
-                    if (getIndependenceTest().isIndependent(i, k, v)) {
+                    if (getIndependenceTest().checkIndependence(i, k, v).isIndependent()) {
                         return v;
                     }
                 }
@@ -99,7 +102,7 @@ public class SepsetsGreedy implements SepsetProducer {
                 while ((choice = gen.next()) != null) {
                     List<Node> v = GraphUtils.asList(choice, adjk);
 
-                    if (getIndependenceTest().isIndependent(i, k, v)) {
+                    if (getIndependenceTest().checkIndependence(i, k, v).isIndependent()) {
                         return v;
                     }
                 }
@@ -111,17 +114,20 @@ public class SepsetsGreedy implements SepsetProducer {
 
     @Override
     public boolean isIndependent(Node a, Node b, List<Node> c) {
-        return independenceTest.isIndependent(a, b, c);
+        IndependenceResult result = independenceTest.checkIndependence(a, b, c);
+        lastResult.set(result);
+        return result.isIndependent();
     }
 
     @Override
     public double getPValue() {
-        return independenceTest.getPValue();
+        IndependenceResult result = lastResult.get();
+        return result == null ? Double.NaN : result.getPValue();
     }
 
     @Override
     public double getScore() {
-        return -(independenceTest.getPValue() - independenceTest.getAlpha());
+        return -(getPValue() - independenceTest.getAlpha());
     }
 
     @Override
@@ -40,6 +40,9 @@ public class SepsetsMaxPValue implements SepsetProducer {
     private double p = Double.NaN;
     private boolean verbose = false;
 
+    // The result of the last isIndependent call on each thread, for getPValue and getScore.
+    private final ThreadLocal<IndependenceResult> lastResult = new ThreadLocal<>();
+
     public SepsetsMaxPValue(Graph graph, IndependenceTest independenceTest, SepsetMap extraSepsets, int depth) {
         this.graph = graph;
         this.independenceTest = independenceTest;
@@ -72,8 +75,7 @@ public class SepsetsMaxPValue implements SepsetProducer {
             final List<Node> sepset = extraSepsets.get(i, k);
 
             if (sepset != null) {
-                independenceTest.isIndependent(i, k, sepset);
-                double p = independenceTest.getPValue();
+                double p = independenceTest.checkIndependence(i, k, sepset).getPValue();
 
                 if (p > _p) {
                     _p = p;
@@ -95,8 +97,7 @@ public class SepsetsMaxPValue implements SepsetProducer {
                 while ((choice = gen.next()) != null) {
                     List<Node> v = GraphUtils.asList(choice, adji);
 
-                    getIndependenceTest().isIndependent(i, k, v);
-                    double p = getIndependenceTest().getPValue();
+                    double p = getIndependenceTest().checkIndependence(i, k, v).getPValue();
 
                     if (p > _p) {
                         _p = p;
@@ -112,8 +113,7 @@ public class SepsetsMaxPValue implements SepsetProducer {
                 while ((choice = gen.next()) != null) {
                     List<Node> v = GraphUtils.asList(choice, adjk);
 
-                    getIndependenceTest().isIndependent(i, k, v);
-                    double p = getIndependenceTest().getPValue();
+                    double p = getIndependenceTest().checkIndependence(i, k, v).getPValue();
 
                     if (p > _p) {
                         _p = p;
@@ -130,17 +130,20 @@ public class SepsetsMaxPValue implements SepsetProducer {
 
     @Override
     public boolean isIndependent(Node a, Node b, List<Node> c) {
-        return independenceTest.isIndependent(a, b, c);
+        IndependenceResult result = independenceTest.checkIndependence(a, b, c);
+        lastResult.set(result);
+        return result.isIndependent();
     }
 
     @Override
     public double getPValue() {
-        return independenceTest.getPValue();
+        IndependenceResult result = lastResult.get();
+        return result == null ? Double.NaN : result.getPValue();
     }
 
     @Override
     public double getScore() {
-        return -(independenceTest.getPValue() - independenceTest.getAlpha());
+        return -(getPValue() - independenceTest.getAlpha());
     }
 
     @Override
@@ -100,8 +100,7 @@ public class SepsetsMaxPValuePossDsep implements SepsetProducer {
                 while ((choice = gen.next()) != null) {
                     List<Node> v = GraphUtils.asList(choice, adji);
 
-                    getIndependenceTest().isIndependent(i, k, v);
-                    double p = getIndependenceTest().getPValue();
+                    double p = getIndependenceTest().checkIndependence(i, k, v).getPValue();
 
                     if (p > _p) {
                         _p = p;
@@ -117,8 +116,7 @@ public class SepsetsMaxPValuePossDsep implements SepsetProducer {
                 while ((choice = gen.next()) != null) {
                     List<Node> v = GraphUtils.asList(choice, adjk);
 
-                    getIndependenceTest().isIndependent(i, k, v);
-                    double p = getIndependenceTest().getPValue();
+                    double p = getIndependenceTest().checkIndependence(i, k, v).getPValue();
 
                     if (p > _p) {
                         _p = p;
@@ -253,7 +251,7 @@ public class SepsetsMaxPValuePossDsep implements SepsetProducer {
 
     @Override
     public boolean isIndependent(Node a, Node b, List<Node> c) {
-        return independenceTest.isIndependent(a, b, c);
+        return independenceTest.checkIndependence(a, b, c).isIndependent();
     }
 
 
@@ -72,8 +72,7 @@ public class SepsetsMinPValue implements SepsetProducer {
         if (extraSepsets != null) {
             final List<Node> possibleDsep = extraSepsets.get(i, k);
             if (possibleDsep != null) {
-                independenceTest.isIndependent(i, k, possibleDsep);
-                double p = independenceTest.getPValue();
+                double p = independenceTest.checkIndependence(i, k, possibleDsep).getPValue();
 
                 if (p < _p) {
                     _p = p;
@@ -95,8 +94,7 @@ public class SepsetsMinPValue implements SepsetProducer {
                 while ((choice = gen.next()) != null) {
                     List<Node> v = GraphUtils.asList(choice, adji);
 
-                    getIndependenceTest().isIndependent(i, k, v);
-                    double p = getIndependenceTest().getPValue();
+                    double p = getIndependenceTest().checkIndependence(i, k, v).getPValue();
 
                     if (p < _p) {
                         _p = p;
@@ -112,8 +110,7 @@ public class SepsetsMinPValue implements SepsetProducer {
                 while ((choice = gen.next()) != null) {
                     List<Node> v = GraphUtils.asList(choice, adjk);
 
-                    getIndependenceTest().isIndependent(i, k, v);
-                    double p = getIndependenceTest().getPValue();
+                    double p = getIndependenceTest().checkIndependence(i, k, v).getPValue();
 
                     if (p < _p) {
                         _p = p;
@@ -130,7 +127,7 @@ public class SepsetsMinPValue implements SepsetProducer {
 
     @Override
     public boolean isIndependent(Node a, Node b, List<Node> c) {
-        return independenceTest.isIndependent(a, b, c);
+        return independenceTest.checkIndependence(a, b, c).isIndependent();
     }
 
     @Override
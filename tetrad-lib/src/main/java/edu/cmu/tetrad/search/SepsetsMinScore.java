@@ -138,7 +138,7 @@ public class SepsetsMinScore implements SepsetProducer {
 
     @Override
     public boolean isIndependent(Node a, Node b, List<Node> c) {
-        return independenceTest.isIndependent(a, b, c);
+        return independenceTest.checkIndependence(a, b, c).isIndependent();
     }
 
     @Override
@@ -41,6 +41,9 @@ public class SepsetsPossibleDsep implements SepsetProducer {
     private int depth = -1;
     private boolean verbose = false;
 
+    // The result of the last isIndependent call on each thread, for getPValue and getScore.
+    private final ThreadLocal<IndependenceResult> lastResult = new ThreadLocal<>();
+
     public SepsetsPossibleDsep(Graph graph, IndependenceTest independenceTest, IKnowledge knowledge,
                                int depth, int maxPathLength) {
         this.graph = graph;
@@ -75,7 +78,9 @@ public class SepsetsPossibleDsep implements SepsetProducer {
 
     @Override
     public boolean isIndependent(Node a, Node b, List<Node> c) {
-        return independenceTest.isIndependent(a, b, c);
+        IndependenceResult result = independenceTest.checkIndependence(a, b, c);
+        lastResult.set(result);
+        return result.isIndependent();
     }
 
     private List<Node> getCondSet(Node node1, Node node2, int maxPathLength) {
@@ -93,7 +98,7 @@ public class SepsetsPossibleDsep implements SepsetProducer {
 
             while ((choice = cg.next()) != null) {
                 List<Node> condSet = GraphUtils.asList(choice, possParents);
-                boolean independent = independenceTest.isIndependent(node1, node2, condSet);
+                boolean independent = independenceTest.checkIndependence(node1, node2, condSet).isIndependent();
 
                 if (independent && noEdgeRequired) {
                     return condSet;
@@ -141,12 +146,13 @@ public class SepsetsPossibleDsep implements SepsetProducer {
 
     @Override
     public double getPValue() {
-        return independenceTest.getPValue();
+        IndependenceResult result = lastResult.get();
+        return result == null ? Double.NaN : result.getPValue();
     }
 
     @Override
     public double getScore() {
-        return -(independenceTest.getPValue() - independenceTest.getAlpha());
+        return -(getPValue() - independenceTest.getAlpha());
     }
 
     @Override
@@ -34,6 +34,9 @@ public class SepsetsSet implements SepsetProducer {
     private double p;
     private boolean verbose = false;
 
+    // The result of the last isIndependent call on each thread, for getPValue and getScore.
+    private final ThreadLocal<IndependenceResult> lastResult = new ThreadLocal<>();
+
     public SepsetsSet(SepsetMap sepsets, IndependenceTest test) {
         this.sepsets = sepsets;
         this.test = test;
@@ -61,17 +64,20 @@ public class SepsetsSet implements SepsetProducer {
 
     @Override
     public boolean isIndependent(Node a, Node b, List<Node> c) {
-        return test.isIndependent(a, b, c);
+        IndependenceResult result = test.checkIndependence(a, b, c);
+        lastResult.set(result);
+        return result.isIndependent();
     }
 
     @Override
     public double getPValue() {
-        return test.getPValue();
+        IndependenceResult result = lastResult.get();
+        return result == null ? Double.NaN : result.getPValue();
     }
 
     @Override
     public double getScore() {
-        return -(test.getPValue() - test.getAlpha());
+        return -(getPValue() - test.getAlpha());
     }
 
     @Override
@@ -52,12 +52,11 @@ public class KernelUtils {
             for (int i = 0; i < m; i++) {
                 for (int j = i; j < m; j++) {
                     double keval = kernel.eval(dataset.getDouble(i, col), dataset.getDouble(j, col));
-                    if (k == 0) {
-                        gram.set(i, j, keval);
-                    } else {
+                    if (k != 0) {
                         keval *= gram.get(i, j);
-                        gram.set(i, j, keval);
                     }
+                    gram.set(i, j, keval);
+                    gram.set(j, i, keval);
                 }
             }
         }
@@ -96,6 +95,7 @@ public class KernelUtils {
                     H.set(i, j, d);
                 } else {
                     H.set(i, j, od);
+                    H.set(j, i, od);
                 }
             }
         }
@@ -0,0 +1,278 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.search.kernel;
+
+import edu.cmu.tetrad.util.ExecutionContext;
+import edu.cmu.tetrad.util.RandomUtil;
+import org.apache.commons.math3.special.Beta;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * A permutation test for a statistic computed from two samples of rows, one of which is permuted. Only an
+ * array of row indices is permuted; the statistic is expected to read the permuted side through it, so
+ * that nothing computed from the data need be rebuilt for each permutation. Rows may be divided into
+ * blocks, in which case rows are only permuted within their blocks.
+ * <p>
+ * Permutations are run in batches in an execution context, by default the shared pool, each task drawing
+ * from a random stream of its own. If early stopping is on, no more batches are run once the p value is clearly on one side
+ * of alpha--either because the remaining permutations could not change the decision, or because the
+ * chance of the decision changing has fallen below the tolerance.
+ *
+ * @author Joseph Ramsey
+ */
+public final class PermutationTest {
+
+    // The smallest number of permutations run between checks for early stopping.
+    private static final int MIN_BATCH_SIZE = 16;
+
+    // The number of permutations done by each task in a batch.
+    private static final int PERMS_PER_TASK = 4;
+
+    /**
+     * A statistic of the data with the rows of one side permuted.
+     */
+    public interface Statistic {
+
+        /**
+         * @param perm row i of the permuted side is to be taken from row perm[i].
+         * @return the value of the statistic. May be called from several threads at once.
+         */
+        double value(int[] perm);
+    }
+
+    private final Statistic statistic;
+    private final int numRows;
+    private final int[][] blocks;
+
+    private int numPerms = 100;
+    private boolean earlyStopping = true;
+    private double tolerance = 1e-3;
+    private long seed = RandomUtil.getInstance().nextLong();
+    private ExecutionContext context = ExecutionContext.getDefault();
+
+    private double observed = Double.NaN;
+    private int numPermsDone;
+
+    /**
+     * Permutes all rows together.
+     */
+    public PermutationTest(Statistic statistic, int numRows) {
+        this(statistic, numRows, new int[][]{range(numRows)});
+    }
+
+    /**
+     * Permutes rows only within the given blocks, which should be disjoint. Rows in no block are not permuted.
+     */
+    public PermutationTest(Statistic statistic, int numRows, int[][] blocks) {
+        if (statistic == null) throw new NullPointerException("Statistic must not be null.");
+        if (numRows < 1) throw new IllegalArgumentException("Need at least one row: " + numRows);
+
+        this.statistic = statistic;
+        this.numRows = numRows;
+        this.blocks = blocks;
+    }
+
+    /**
+     * Runs the test.
+     *
+     * @param alpha the level at which the decision is made; used only for early stopping.
+     * @return the fraction of permutations for which the statistic exceeded its unpermuted value.
+     */
+    public double pValue(double alpha) {
+        int batchSize = Math.max(MIN_BATCH_SIZE, context.getParallelism() * PERMS_PER_TASK);
+
+        this.observed = statistic.value(range(numRows));
+
+        int done = 0;
+        int exceeded = 0;
+        int stream = 0;
+
+        while (done < numPerms) {
+            int size = Math.min(batchSize, numPerms - done);
+            List<PermTask> tasks = new ArrayList<>();
+
+            for (int from = 0; from < size; from += PERMS_PER_TASK) {
+                tasks.add(new PermTask(Math.min(PERMS_PER_TASK, size - from), stream++));
+            }
+
+            exceeded += context.invoke(new BatchTask(tasks));
+            done += size;
+
+            if (earlyStopping && isSettled(exceeded, done, alpha)) break;
+        }
+
+        this.numPermsDone = done;
+        return exceeded / (double) done;
+    }
+
+    /**
+     * @return the unpermuted value of the statistic from the last run.
+     */
+    public double getObserved() {
+        return observed;
+    }
+
+    /**
+     * @return the number of permutations done in the last run.
+     */
+    public int getNumPermsDone() {
+        return numPermsDone;
+    }
+
+    public int getNumPerms() {
+        return numPerms;
+    }
+
+    /**
+     * Sets the largest number of permutations to run.
+     */
+    public void setNumPerms(int numPerms) {
+        if (numPerms < 1) throw new IllegalArgumentException("Need at least one permutation: " + numPerms);
+        this.numPerms = numPerms;
+    }
+
+    public boolean isEarlyStopping() {
+        return earlyStopping;
+    }
+
+    public void setEarlyStopping(boolean earlyStopping) {
+        this.earlyStopping = earlyStopping;
+    }
+
+    public double getTolerance() {
+        return tolerance;
+    }
+
+    /**
+     * Sets the largest chance, for a p value at alpha, of stopping early on the wrong side of alpha. Zero
+     * stops only when the remaining permutations cannot change the decision.
+     */
+    public void setTolerance(double tolerance) {
+        if (tolerance < 0 || tolerance >= 0.5) {
+            throw new IllegalArgumentException("Tolerance must be in [0, 0.5): " + tolerance);
+        }
+
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * Sets the seed from which the random streams of the tasks are derived.
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public ExecutionContext getExecutionContext() {
+        return context;
+    }
+
+    /**
+     * Sets where the permutations are run.
+     */
+    public void setExecutionContext(ExecutionContext context) {
+        if (context == null) throw new NullPointerException("Execution context must not be null.");
+        this.context = context;
+    }
+
+    //==============================PRIVATE=============================//
+
+    private boolean isSettled(int exceeded, int done, double alpha) {
+        double p = exceeded / (double) done;
+        double bound = alpha * numPerms;
+
+        // Whatever the remaining permutations do, the final p value is above alpha, or at or below it.
+        if (exceeded > bound) return true;
+        if (exceeded + (numPerms - done) <= bound) return true;
+
+        if (tolerance == 0 || alpha <= 0 || alpha >= 1) return false;
+
+        // Binomial tails for a p value of exactly alpha.
+        if (p <= alpha && Beta.regularizedBeta(1 - alpha, done - exceeded, exceeded + 1) < tolerance) return true;
+        return p > alpha && exceeded > 0 && Beta.regularizedBeta(alpha, exceeded, done - exceeded + 1) < tolerance;
+    }
+
+    private static int[] range(int n) {
+        int[] range = new int[n];
+        for (int i = 0; i < n; i++) range[i] = i;
+        return range;
+    }
+
+    private class BatchTask extends RecursiveTask<Integer> {
+        private final List<PermTask> tasks;
+
+        BatchTask(List<PermTask> tasks) {
+            this.tasks = tasks;
+        }
+
+        @Override
+        protected Integer compute() {
+            invokeAll(tasks);
+
+            int exceeded = 0;
+
+            for (PermTask task : tasks) {
+                exceeded += task.join();
+            }
+
+            return exceeded;
+        }
+    }
+
+    private class PermTask extends RecursiveTask<Integer> {
+        private final int numPerms;
+        private final RandomUtil random;
+
+        PermTask(int numPerms, int stream) {
+            this.numPerms = numPerms;
+            this.random = RandomUtil.stream(seed, stream);
+        }
+
+        @Override
+        protected Integer compute() {
+            // Rows in no block stay where they are.
+            int[] perm = range(numRows);
+            int exceeded = 0;
+
+            for (int k = 0; k < numPerms; k++) {
+                for (int[] block : blocks) {
+                    for (int i = 0; i < block.length; i++) {
+                        perm[block[i]] = block[i];
+                    }
+
+                    for (int i = block.length - 1; i > 0; i--) {
+                        int j = random.nextInt(i + 1);
+                        int t = perm[block[i]];
+                        perm[block[i]] = perm[block[j]];
+                        perm[block[j]] = t;
+                    }
+                }
+
+                if (statistic.value(perm) > observed) exceeded++;
+            }
+
+            return exceeded;
+        }
+    }
+}
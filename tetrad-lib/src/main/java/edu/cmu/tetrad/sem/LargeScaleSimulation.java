@@ -29,6 +29,7 @@ import edu.cmu.tetrad.util.dist.Split;
 import edu.cmu.tetrad.util.dist.Uniform;
 import org.apache.commons.collections4.map.HashedMap;
 import org.apache.commons.math3.distribution.NormalDistribution;
+import org.apache.commons.math3.random.RandomGenerator;
 import org.apache.commons.math3.random.Well1024a;
 
 import java.io.PrintStream;
@@ -60,9 +61,9 @@ public final class LargeScaleSimulation {
     private PrintStream out = System.out;
     private int[] tierIndices;
     private boolean verbose = false;
-    long seed = new Date().getTime();
     private boolean alreadySetUp = false;
     private boolean coefSymmetric = false;
+    private ExecutionContext context = ExecutionContext.getDefault();
 
     //=============================CONSTRUCTORS============================//
 
@@ -113,6 +114,10 @@ public final class LargeScaleSimulation {
         int size = variableNodes.size();
         setupModel(size);
 
+        // Each chunk of rows draws its errors from its own stream, so the data depend only on the seed of
+        // RandomUtil and the chunk size, not on which thread gets which chunk.
+        final long rootSeed = RandomUtil.getInstance().nextLong();
+
         class SimulateTask extends RecursiveTask<Boolean> {
             private final int from;
             private final int to;
@@ -128,8 +133,8 @@ public final class LargeScaleSimulation {
 
             @Override
             protected Boolean compute() {
-                if (from - to > chunk) {
-                    int mid = from + to / 2;
+                if (to - from > chunk) {
+                    int mid = (from + to) / 2;
                     SimulateTask left = new SimulateTask(from, mid, all, chunk);
                     SimulateTask right = new SimulateTask(mid, to, all, chunk);
                     left.fork();
@@ -137,9 +142,10 @@ public final class LargeScaleSimulation {
                     left.join();
                     return true;
                 } else {
+                    RandomGenerator random = RandomUtil.stream(rootSeed, from).getRandomGenerator();
+                    NormalDistribution normal = new NormalDistribution(random, 0, 1);
+
                     for (int i = from; i < to; i++) {
-                        NormalDistribution normal = new NormalDistribution(new Well1024a(++seed), 0, 1);//sqrt(errorVars[col]));
-                        normal.sample();
 
                         if (verbose && (i + 1) % 50 == 0)
                             System.out.println("Simulating " + (i + 1));
@@ -168,9 +174,9 @@ public final class LargeScaleSimulation {
 
         double[][] all = new double[variableNodes.size()][sampleSize];
 
-        int chunk = sampleSize / ForkJoinPoolInstance.getInstance().getPool().getParallelism() + 1;
+        int chunk = sampleSize / context.getParallelism() + 1;
 
-        ForkJoinPoolInstance.getInstance().getPool().invoke(new SimulateTask(0, sampleSize, all, chunk));
+        context.invoke(new SimulateTask(0, sampleSize, all, chunk));
 
         if (graph instanceof TimeLagGraph) {
             int[] rem = new int[200];
@@ -197,7 +203,7 @@ public final class LargeScaleSimulation {
         int size = variableNodes.size();
         setupModel(size);
 
-        NormalDistribution normal = new NormalDistribution(new Well1024a(++seed), 0, 1);
+        NormalDistribution normal = new NormalDistribution(new Well1024a(RandomUtil.getInstance().nextLong()), 0, 1);
 
         TetradMatrix B = new TetradMatrix(getCoefficientMatrix());
         TetradMatrix iMinusBInv = TetradAlgebra.identity(B.rows()).minus(B).inverse();
@@ -504,6 +510,14 @@ public final class LargeScaleSimulation {
         return verbose;
     }
 
+    /**
+     * Sets where recursive simulation is run.
+     */
+    public void setExecutionContext(ExecutionContext context) {
+        if (context == null) throw new NullPointerException("Execution context must not be null.");
+        this.context = context;
+    }
+
     public void setVerbose(boolean verbose) {
         this.verbose = verbose;
     }
@@ -732,7 +746,7 @@ public final class LargeScaleSimulation {
     }
 
     public double[][] getUncorrelatedGaussianShocks(int sampleSize) {
-        NormalDistribution normal = new NormalDistribution(new Well1024a(++seed), 0, 1);
+        NormalDistribution normal = new NormalDistribution(new Well1024a(RandomUtil.getInstance().nextLong()), 0, 1);
 
         int numVars = variableNodes.size();
         setupModel(numVars);
@@ -0,0 +1,690 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.sem;
+
+import edu.cmu.tetrad.data.DataUtils;
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.util.ExecutionContext;
+import edu.cmu.tetrad.util.RandomUtil;
+import edu.cmu.tetrad.util.TetradMatrix;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Optimizes a SEM by L-BFGS on the FML or FGLS fitting function, using its analytic gradient. With A = (I - B')^-1
+ * for edge coefficients B and error covariance Omega, the implied covariance of the measured variables is
+ * Sigma = F A Omega A' F', where F selects the measured variables. If dF = tr(M dSigma), the gradient with respect to
+ * Omega is G = A' F' M F A, and that with respect to B is 2 A Omega G. For FML, M = Sigma^-1 - Sigma^-1 S Sigma^-1;
+ * for FGLS, M = S^-1 Sigma S^-1 - S^-1.
+ * <p>
+ * The search is started from the current values of the SEM and from numRestarts random points, and the starts are run
+ * in parallel. Each start keeps its own matrices and reuses them from one evaluation to the next.
+ *
+ * @author Joseph Ramsey
+ */
+public class SemOptimizerLbfgs implements SemOptimizer {
+    static final long serialVersionUID = 23L;
+
+    private int numRestarts = 0;
+
+    // The number of past steps used to approximate the inverse Hessian.
+    private int memory = 10;
+
+    private int maxIterations = 10000;
+
+    // The search stops when an iteration improves the fitting function by less than this, relatively.
+    private double tolerance = 1e-12;
+
+    // Where the starts are run; not serialized, so the default context is used after deserialization.
+    private transient ExecutionContext context;
+
+    //=========================CONSTRUCTORS============================//
+
+    /**
+     * Blank constructor.
+     */
+    public SemOptimizerLbfgs() {
+    }
+
+    /**
+     * Generates a simple exemplar of this class to test serialization.
+     */
+    public static SemOptimizerLbfgs serializableInstance() {
+        return new SemOptimizerLbfgs();
+    }
+
+    //=========================PUBLIC METHODS==========================//
+
+    public void optimize(SemIm semIm) {
+        TetradMatrix sampleCovar = semIm.getSampleCovar();
+
+        if (sampleCovar == null) {
+            throw new NullPointerException("Sample covar has not been set.");
+        }
+
+        if (DataUtils.containsMissingValue(sampleCovar)) {
+            throw new IllegalArgumentException("Please remove or impute missing values.");
+        }
+
+        final Model model = new Model(semIm);
+
+        // The starting points are drawn here, in order, so that a seeded run gives the same answer however the
+        // starts are scheduled.
+        final List<double[]> starts = new ArrayList<>();
+        starts.add(semIm.getFreeParamValues());
+
+        for (int count = 0; count < numRestarts; count++) {
+            double[] p = new double[model.numParams];
+
+            for (int i = 0; i < p.length; i++) {
+                if (model.types[i] == ParamType.VAR) {
+                    p[i] = RandomUtil.getInstance().nextUniform(0, 1);
+                } else {
+                    p[i] = RandomUtil.getInstance().nextUniform(-1, 1);
+                }
+            }
+
+            starts.add(p);
+        }
+
+        final List<StartTask> tasks = new ArrayList<>();
+
+        for (double[] start : starts) {
+            tasks.add(new StartTask(model, start));
+        }
+
+        if (tasks.size() == 1) {
+            tasks.get(0).invoke();
+        } else {
+            getExecutionContext().invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    invokeAll(tasks);
+                }
+            });
+        }
+
+        double min = Double.POSITIVE_INFINITY;
+        double[] point = null;
+
+        for (StartTask task : tasks) {
+            double[] _point = task.join();
+            if (_point == null) continue;
+
+            double value = task.getValue();
+
+            if (value < min) {
+                min = value;
+                point = _point;
+            }
+        }
+
+        if (point == null) {
+            throw new IllegalArgumentException("The fitting function could not be evaluated at any starting point.");
+        }
+
+        semIm.setFreeParamValues(point);
+    }
+
+    public String toString() {
+        return "Sem Optimizer L-BFGS";
+    }
+
+    @Override
+    public void setNumRestarts(int numRestarts) {
+        this.numRestarts = numRestarts;
+    }
+
+    @Override
+    public int getNumRestarts() {
+        return numRestarts;
+    }
+
+    /**
+     * @param memory The number of past steps used to approximate the inverse Hessian. Default 10.
+     */
+    public void setMemory(int memory) {
+        if (memory < 1) throw new IllegalArgumentException("Memory must be at least 1: " + memory);
+        this.memory = memory;
+    }
+
+    public void setMaxIterations(int maxIterations) {
+        if (maxIterations < 1) throw new IllegalArgumentException("Max iterations must be at least 1: " + maxIterations);
+        this.maxIterations = maxIterations;
+    }
+
+    /**
+     * @param tolerance The search stops when an iteration improves the fitting function by less than this times
+     *                  the magnitude of the function. Default 1e-12.
+     */
+    public void setTolerance(double tolerance) {
+        if (tolerance < 0) throw new IllegalArgumentException("Tolerance must be non-negative: " + tolerance);
+        this.tolerance = tolerance;
+    }
+
+    public ExecutionContext getExecutionContext() {
+        return context == null ? ExecutionContext.getDefault() : context;
+    }
+
+    /**
+     * Sets where the starts are run. By default, the shared pool.
+     */
+    public void setExecutionContext(ExecutionContext context) {
+        if (context == null) throw new NullPointerException("Execution context must not be null.");
+        this.context = context;
+    }
+
+    //=========================PRIVATE METHODS==========================//
+
+    /**
+     * Runs L-BFGS from the given point, returning the best point found, or null if the fitting function is not
+     * defined at the start. Backtracks along each search direction until the Armijo condition holds, so points
+     * where the model is not identified or a variance is not positive are never accepted.
+     */
+    private double[] lbfgs(FittingFunction f, double[] x0, double[] value) {
+        int n = x0.length;
+        double[] x = x0.clone();
+        double[] g = new double[n];
+        double fx = f.value(x, g);
+
+        if (Double.isNaN(fx) || Double.isInfinite(fx)) return null;
+
+        double[][] s = new double[memory][n];
+        double[][] y = new double[memory][n];
+        double[] rho = new double[memory];
+        double[] alpha = new double[memory];
+        int stored = 0;
+        int newest = -1;
+
+        double[] d = new double[n];
+        double[] xNew = new double[n];
+        double[] gNew = new double[n];
+
+        for (int iter = 0; iter < maxIterations; iter++) {
+
+            // Two-loop recursion for d = -H g.
+            for (int i = 0; i < n; i++) d[i] = -g[i];
+
+            for (int k = 0; k < stored; k++) {
+                int m = (newest - k + memory) % memory;
+                alpha[m] = rho[m] * dot(s[m], d);
+                axpy(-alpha[m], y[m], d);
+            }
+
+            if (stored > 0) {
+                double gamma = dot(s[newest], y[newest]) / dot(y[newest], y[newest]);
+                for (int i = 0; i < n; i++) d[i] *= gamma;
+            }
+
+            for (int k = stored - 1; k >= 0; k--) {
+                int m = (newest - k + memory) % memory;
+                double beta = rho[m] * dot(y[m], d);
+                axpy(alpha[m] - beta, s[m], d);
+            }
+
+            double slope = dot(g, d);
+
+            if (!(slope < 0)) {
+
+                // Not a descent direction; start over from steepest descent.
+                stored = 0;
+                for (int i = 0; i < n; i++) d[i] = -g[i];
+                slope = dot(g, d);
+                if (slope == 0) break;
+            }
+
+            double step = stored == 0 ? Math.min(1.0, 1.0 / Math.sqrt(-slope)) : 1.0;
+            double fNew;
+
+            while (true) {
+                for (int i = 0; i < n; i++) xNew[i] = x[i] + step * d[i];
+                fNew = f.value(xNew, gNew);
+                if (fNew <= fx + 1e-4 * step * slope) break;
+                step *= 0.5;
+                if (step < 1e-20) break;
+            }
+
+            if (!(fNew <= fx + 1e-4 * step * slope)) break;
+
+            int m = (newest + 1) % memory;
+            double sy = 0.0;
+
+            for (int i = 0; i < n; i++) {
+                s[m][i] = xNew[i] - x[i];
+                y[m][i] = gNew[i] - g[i];
+                sy += s[m][i] * y[m][i];
+            }
+
+            // Keeps the inverse Hessian approximation positive definite.
+            if (sy > 1e-12 * Math.sqrt(dot(s[m], s[m]) * dot(y[m], y[m]))) {
+                rho[m] = 1.0 / sy;
+                newest = m;
+                stored = Math.min(stored + 1, memory);
+            }
+
+            double improvement = fx - fNew;
+
+            System.arraycopy(xNew, 0, x, 0, n);
+            System.arraycopy(gNew, 0, g, 0, n);
+            fx = fNew;
+
+            if (improvement <= tolerance * Math.max(1.0, Math.abs(fx))) break;
+        }
+
+        value[0] = fx;
+        return x;
+    }
+
+    private static double dot(double[] a, double[] b) {
+        double sum = 0.0;
+        for (int i = 0; i < a.length; i++) sum += a[i] * b[i];
+        return sum;
+    }
+
+    private static void axpy(double a, double[] x, double[] y) {
+        for (int i = 0; i < x.length; i++) y[i] += a * x[i];
+    }
+
+    /**
+     * What is needed of a SemIm to evaluate its fitting function, copied out once so that several starts can be run
+     * at once without touching the SemIm.
+     */
+    private static class Model {
+        private final int numVars;
+        private final int numParams;
+
+        // The type and matrix position of each free parameter, in the order of getFreeParameters().
+        private final ParamType[] types;
+        private final int[] rows;
+        private final int[] cols;
+
+        // Indices of the measured variables among all the variables.
+        private final int[] measured;
+
+        // The edge coefficients and error covariances, holding the values of the fixed parameters.
+        private final double[][] edgeCoef;
+        private final double[][] errCovar;
+
+        private final double[][] sampleCovar;
+        private final double[][] sampleCovarInv;
+        private final double logDetSampleCovar;
+        private final SemIm.ScoreType scoreType;
+
+        private Model(SemIm semIm) {
+            List<Node> variables = semIm.getVariableNodes();
+            List<Parameter> parameters = semIm.getFreeParameters();
+            SemGraph graph = semIm.getSemPm().getGraph();
+
+            this.numVars = variables.size();
+            this.numParams = parameters.size();
+            this.types = new ParamType[numParams];
+            this.rows = new int[numParams];
+            this.cols = new int[numParams];
+
+            for (int k = 0; k < numParams; k++) {
+                Parameter parameter = parameters.get(k);
+                types[k] = parameter.getType();
+                rows[k] = variables.indexOf(graph.getVarNode(parameter.getNodeA()));
+                cols[k] = variables.indexOf(graph.getVarNode(parameter.getNodeB()));
+            }
+
+            List<Node> measuredNodes = semIm.getMeasuredNodes();
+            this.measured = new int[measuredNodes.size()];
+
+            for (int r = 0; r < measured.length; r++) {
+                measured[r] = variables.indexOf(measuredNodes.get(r));
+            }
+
+            this.edgeCoef = semIm.getEdgeCoef().toArray();
+            this.errCovar = semIm.getErrCovar().toArray();
+
+            TetradMatrix sampleCovar = semIm.getSampleCovar();
+            this.sampleCovar = sampleCovar.toArray();
+            this.sampleCovarInv = sampleCovar.inverse().toArray();
+            this.logDetSampleCovar = Math.log(sampleCovar.det());
+            this.scoreType = semIm.getScoreType();
+        }
+    }
+
+    /**
+     * The fitting function and its gradient for one start, with its own workspace.
+     */
+    private static class FittingFunction {
+        private final Model model;
+        private final int n;
+        private final int p;
+
+        private final double[][] b;
+        private final double[][] omega;
+        private final double[][] lu;
+        private final double[][] a;
+        private final int[] pivot;
+        private final double[][] t;
+        private final double[][] sigma;
+        private final double[][] chol;
+        private final double[][] sigmaInv;
+        private final double[][] w;
+        private final double[][] mm;
+        private final double[][] k;
+        private final double[][] gOmega;
+        private final double[][] dd;
+
+        private FittingFunction(Model model) {
+            this.model = model;
+            this.n = model.numVars;
+            this.p = model.measured.length;
+
+            this.b = copy(model.edgeCoef);
+            this.omega = copy(model.errCovar);
+            this.lu = new double[n][n];
+            this.a = new double[n][n];
+            this.pivot = new int[n];
+            this.t = new double[p][n];
+            this.sigma = new double[p][p];
+            this.chol = new double[p][p];
+            this.sigmaInv = new double[p][p];
+            this.w = new double[p][p];
+            this.mm = new double[p][p];
+            this.k = new double[p][n];
+            this.gOmega = new double[n][n];
+            this.dd = new double[n][n];
+        }
+
+        /**
+         * @return the value of the fitting function at x, putting its gradient in grad, or positive infinity if a
+         * variance is not positive or the implied covariance matrix is not positive definite.
+         */
+        private double value(double[] x, double[] grad) {
+            for (int q = 0; q < x.length; q++) {
+                if (Double.isNaN(x[q]) || Double.isInfinite(x[q])) return Double.POSITIVE_INFINITY;
+
+                int i = model.rows[q];
+                int j = model.cols[q];
+
+                if (model.types[q] == ParamType.COEF) {
+                    b[i][j] = x[q];
+                } else if (model.types[q] == ParamType.VAR) {
+                    if (x[q] <= 0) return Double.POSITIVE_INFINITY;
+                    omega[i][i] = x[q];
+                } else if (model.types[q] == ParamType.COVAR) {
+                    omega[i][j] = x[q];
+                    omega[j][i] = x[q];
+                }
+            }
+
+            // A = (I - B')^-1.
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) {
+                    lu[i][j] = (i == j ? 1.0 : 0.0) - b[j][i];
+                }
+            }
+
+            if (!invert()) return Double.POSITIVE_INFINITY;
+
+            // Sigma = F A Omega A' F'.
+            for (int r = 0; r < p; r++) {
+                double[] ar = a[model.measured[r]];
+
+                for (int c = 0; c < n; c++) {
+                    double sum = 0.0;
+                    for (int l = 0; l < n; l++) sum += ar[l] * omega[l][c];
+                    t[r][c] = sum;
+                }
+            }
+
+            for (int r = 0; r < p; r++) {
+                for (int s = 0; s <= r; s++) {
+                    double[] as = a[model.measured[s]];
+                    double sum = 0.0;
+                    for (int l = 0; l < n; l++) sum += t[r][l] * as[l];
+                    sigma[r][s] = sum;
+                    sigma[s][r] = sum;
+                }
+            }
+
+            double f;
+
+            if (model.scoreType == SemIm.ScoreType.Fml) {
+                if (!cholesky()) return Double.POSITIVE_INFINITY;
+
+                double logDet = 0.0;
+                for (int r = 0; r < p; r++) logDet += 2.0 * Math.log(chol[r][r]);
+
+                choleskyInverse();
+
+                // w = Sigma^-1 S.
+                multiply(sigmaInv, model.sampleCovar, w);
+
+                double trace = 0.0;
+                for (int r = 0; r < p; r++) trace += w[r][r];
+
+                f = logDet + trace - model.logDetSampleCovar - p;
+
+                // M = Sigma^-1 - Sigma^-1 S Sigma^-1.
+                for (int r = 0; r < p; r++) {
+                    for (int s = 0; s < p; s++) {
+                        double sum = 0.0;
+                        for (int l = 0; l < p; l++) sum += w[r][l] * sigmaInv[l][s];
+                        mm[r][s] = sigmaInv[r][s] - sum;
+                    }
+                }
+            } else {
+
+                // w = Sigma S^-1.
+                multiply(sigma, model.sampleCovarInv, w);
+
+                f = 0.0;
+
+                for (int r = 0; r < p; r++) {
+                    for (int s = 0; s < p; s++) {
+                        f += ((r == s ? 1.0 : 0.0) - w[r][s]) * ((r == s ? 1.0 : 0.0) - w[s][r]);
+                    }
+                }
+
+                f *= 0.5;
+
+                // M = S^-1 Sigma S^-1 - S^-1, where S^-1 Sigma = w'.
+                for (int r = 0; r < p; r++) {
+                    for (int s = 0; s < p; s++) {
+                        double sum = 0.0;
+                        for (int l = 0; l < p; l++) sum += w[l][r] * model.sampleCovarInv[l][s];
+                        mm[r][s] = sum - model.sampleCovarInv[r][s];
+                    }
+                }
+            }
+
+            if (Double.isNaN(f) || Double.isInfinite(f)) return Double.POSITIVE_INFINITY;
+
+            // G = A' F' M F A, by way of K = M F A.
+            for (int r = 0; r < p; r++) {
+                for (int c = 0; c < n; c++) {
+                    double sum = 0.0;
+                    for (int s = 0; s < p; s++) sum += mm[r][s] * a[model.measured[s]][c];
+                    k[r][c] = sum;
+                }
+            }
+
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) {
+                    double sum = 0.0;
+                    for (int r = 0; r < p; r++) sum += a[model.measured[r]][i] * k[r][j];
+                    gOmega[i][j] = sum;
+                }
+            }
+
+            // D = Omega G; the gradient for B is 2 A D.
+            multiply(omega, gOmega, dd);
+
+            for (int q = 0; q < x.length; q++) {
+                int i = model.rows[q];
+                int j = model.cols[q];
+
+                if (model.types[q] == ParamType.COEF) {
+                    double sum = 0.0;
+                    for (int l = 0; l < n; l++) sum += a[i][l] * dd[l][j];
+                    grad[q] = 2.0 * sum;
+                } else if (model.types[q] == ParamType.VAR) {
+                    grad[q] = gOmega[i][i];
+                } else if (model.types[q] == ParamType.COVAR) {
+                    grad[q] = 2.0 * gOmega[i][j];
+                } else {
+                    grad[q] = 0.0;
+                }
+            }
+
+            return f;
+        }
+
+        // Inverts lu into a by Gaussian elimination with partial pivoting, returning false if lu is singular.
+        private boolean invert() {
+            for (int i = 0; i < n; i++) pivot[i] = i;
+
+            for (int c = 0; c < n; c++) {
+                int max = c;
+
+                for (int r = c + 1; r < n; r++) {
+                    if (Math.abs(lu[r][c]) > Math.abs(lu[max][c])) max = r;
+                }
+
+                if (Math.abs(lu[max][c]) < 1e-12) return false;
+
+                if (max != c) {
+                    double[] row = lu[max];
+                    lu[max] = lu[c];
+                    lu[c] = row;
+                    int _p = pivot[max];
+                    pivot[max] = pivot[c];
+                    pivot[c] = _p;
+                }
+
+                for (int r = c + 1; r < n; r++) {
+                    lu[r][c] /= lu[c][c];
+                    double factor = lu[r][c];
+                    if (factor == 0) continue;
+                    for (int l = c + 1; l < n; l++) lu[r][l] -= factor * lu[c][l];
+                }
+            }
+
+            // Solves for each column of the inverse.
+            for (int col = 0; col < n; col++) {
+                for (int r = 0; r < n; r++) {
+                    double sum = pivot[r] == col ? 1.0 : 0.0;
+                    for (int l = 0; l < r; l++) sum -= lu[r][l] * a[l][col];
+                    a[r][col] = sum;
+                }
+
+                for (int r = n - 1; r >= 0; r--) {
+                    double sum = a[r][col];
+                    for (int l = r + 1; l < n; l++) sum -= lu[r][l] * a[l][col];
+                    a[r][col] = sum / lu[r][r];
+                }
+            }
+
+            return true;
+        }
+
+        // Puts the lower Cholesky factor of sigma in chol, returning false if sigma is not positive definite.
+        private boolean cholesky() {
+            for (int r = 0; r < p; r++) {
+                for (int s = 0; s <= r; s++) {
+                    double sum = sigma[r][s];
+                    for (int l = 0; l < s; l++) sum -= chol[r][l] * chol[s][l];
+
+                    if (r == s) {
+                        if (!(sum > 0)) return false;
+                        chol[r][r] = Math.sqrt(sum);
+                    } else {
+                        chol[r][s] = sum / chol[s][s];
+                    }
+                }
+            }
+
+            return true;
+        }
+
+        // Puts sigma^-1 in sigmaInv from its Cholesky factor, using w for L^-1.
+        private void choleskyInverse() {
+            for (int c = 0; c < p; c++) {
+                for (int r = 0; r < p; r++) {
+                    if (r < c) {
+                        w[r][c] = 0.0;
+                        continue;
+                    }
+
+                    double sum = r == c ? 1.0 : 0.0;
+                    for (int l = c; l < r; l++) sum -= chol[r][l] * w[l][c];
+                    w[r][c] = sum / chol[r][r];
+                }
+            }
+
+            for (int r = 0; r < p; r++) {
+                for (int s = 0; s <= r; s++) {
+                    double sum = 0.0;
+                    for (int l = r; l < p; l++) sum += w[l][r] * w[l][s];
+                    sigmaInv[r][s] = sum;
+                    sigmaInv[s][r] = sum;
+                }
+            }
+        }
+
+        private static void multiply(double[][] x, double[][] y, double[][] z) {
+            int inner = y.length;
+
+            for (int r = 0; r < z.length; r++) {
+                for (int c = 0; c < z[r].length; c++) {
+                    double sum = 0.0;
+                    for (int l = 0; l < inner; l++) sum += x[r][l] * y[l][c];
+                    z[r][c] = sum;
+                }
+            }
+        }
+
+        private static double[][] copy(double[][] x) {
+            double[][] y = new double[x.length][];
+            for (int i = 0; i < x.length; i++) y[i] = x[i].clone();
+            return y;
+        }
+    }
+
+    private class StartTask extends RecursiveTask<double[]> {
+        private final Model model;
+        private final double[] start;
+        private final double[] value = {Double.POSITIVE_INFINITY};
+
+        StartTask(Model model, double[] start) {
+            this.model = model;
+            this.start = start;
+        }
+
+        @Override
+        protected double[] compute() {
+            return lbfgs(new FittingFunction(model), start, value);
+        }
+
+        double getValue() {
+            return value[0];
+        }
+    }
+}
@@ -0,0 +1,209 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.util;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Where a search, score or covariance builder runs its fork-join tasks, and how much of the machine it may use.
+ * <p>
+ * Contexts are drawn from a fork-join pool. Each has a parallelism, the most threads its tasks run on at a time, by
+ * which callers also decide how finely to split their work. A context with less parallelism than its pool runs its
+ * tasks in a pool of its own with that many threads, created on first use; its threads exit once they have been idle
+ * for a while, and shutdown frees them at once. Work stealing thus cannot spread a job's tasks over more threads than
+ * it was given.
+ * <p>
+ * A context also holds its parallelism as a claim on the pool it was drawn from while it runs a task: the pool has as
+ * many permits as threads, and a context takes as many as its parallelism for each task it invokes, waiting its turn,
+ * first come first served, when the pool is taken up by other jobs. Several searches run side by side in one JVM thus
+ * share the machine fairly rather than oversubscribe it. Tasks invoked from inside a context's own pool run at once,
+ * as do tasks invoked from inside any pool drawing on the same permits, under the claim of the task that invoked them.
+ * <p>
+ * The default context is the whole of the shared pool of ForkJoinPoolInstance. forJob gives a job a bounded share of
+ * the shared pool; dedicated gives a tenant a work-stealing pool of its own, to be shut down when no longer needed.
+ *
+ * @author Joseph Ramsey
+ */
+public final class ExecutionContext {
+
+    // The permits each pool's tasks run under. A task running in one of these pools already holds a claim on them.
+    private static final Map<ForkJoinPool, Semaphore> CLAIMS =
+            Collections.synchronizedMap(new WeakHashMap<ForkJoinPool, Semaphore>());
+
+    private static final ExecutionContext DEFAULT = new ExecutionContext(ForkJoinPoolInstance.getInstance().getPool(),
+            new Semaphore(ForkJoinPoolInstance.getInstance().getPool().getParallelism(), true),
+            ForkJoinPoolInstance.getInstance().getPool().getParallelism(), false);
+
+    static {
+        CLAIMS.put(DEFAULT.base, DEFAULT.permits);
+    }
+
+    // The pool this context is drawn from, and the permits to it.
+    private final ForkJoinPool base;
+    private final Semaphore permits;
+    private final int parallelism;
+
+    // True if this context owns the base pool.
+    private final boolean dedicated;
+
+    // The pool of a context with less parallelism than its base pool; created on first use.
+    private ForkJoinPool own;
+
+    private final AtomicLong numInvocations = new AtomicLong();
+    private final AtomicLong waitNanos = new AtomicLong();
+    private final AtomicLong numWaits = new AtomicLong();
+
+    private ExecutionContext(ForkJoinPool base, Semaphore permits, int parallelism, boolean dedicated) {
+        this.base = base;
+        this.permits = permits;
+        this.parallelism = parallelism;
+        this.dedicated = dedicated;
+
+        if (dedicated) CLAIMS.put(base, permits);
+    }
+
+    /**
+     * @return the whole of the shared pool.
+     */
+    public static ExecutionContext getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * @return a share of the shared pool for one job, running on at most the given number of threads at a time, and
+     * on fewer if the pool has not so many.
+     */
+    public static ExecutionContext forJob(int parallelism) {
+        return DEFAULT.withParallelism(parallelism);
+    }
+
+    /**
+     * @return a context with a work-stealing pool of its own with the given number of threads. It should be shut
+     * down when no longer needed.
+     */
+    public static ExecutionContext dedicated(int parallelism) {
+        if (parallelism < 1) throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
+        return new ExecutionContext(new ForkJoinPool(parallelism), new Semaphore(parallelism, true), parallelism, true);
+    }
+
+    /**
+     * @return a share of this context's pool, running on at most the given number of threads at a time. Shutting
+     * down the share does not shut down the pool it was drawn from.
+     */
+    public ExecutionContext withParallelism(int parallelism) {
+        if (parallelism < 1) throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
+        return new ExecutionContext(base, permits, Math.min(parallelism, this.parallelism), false);
+    }
+
+    /**
+     * Runs the task in this context's pool and waits for its result, first waiting, if need be, for the pool it was
+     * drawn from to have room for this context's parallelism.
+     */
+    public <T> T invoke(ForkJoinTask<T> task) {
+        ForkJoinPool pool = getPool();
+        ForkJoinPool current = ForkJoinTask.getPool();
+
+        if (current == pool) {
+            return task.invoke();
+        }
+
+        numInvocations.incrementAndGet();
+
+        if (current != null && CLAIMS.get(current) == permits) {
+            return pool.invoke(task);
+        }
+
+        if (!permits.tryAcquire(parallelism)) {
+            long start = System.nanoTime();
+            permits.acquireUninterruptibly(parallelism);
+            waitNanos.addAndGet(System.nanoTime() - start);
+            numWaits.incrementAndGet();
+        }
+
+        try {
+            return pool.invoke(task);
+        } finally {
+            permits.release(parallelism);
+        }
+    }
+
+    /**
+     * @return the most threads this context's tasks run on at a time, by which callers should split their work.
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * @return the pool tasks are run in. Tasks run in it directly are not counted against the claims of contexts.
+     */
+    public synchronized ForkJoinPool getPool() {
+        if (parallelism >= base.getParallelism()) return base;
+
+        if (own == null) {
+            own = new ForkJoinPool(parallelism);
+            CLAIMS.put(own, permits);
+        }
+
+        return own;
+    }
+
+    /**
+     * Shuts down the pool of a dedicated context, or the pool of its own of a share, which is created again if the
+     * share is used again. Does nothing for shares run in the pool they were drawn from.
+     */
+    public synchronized void shutdown() {
+        if (dedicated) {
+            base.shutdown();
+        } else if (own != null) {
+            own.shutdown();
+            own = null;
+        }
+    }
+
+    /**
+     * @return how saturated the pool is and how long this context has waited for it: invocations, waits and waitNanos
+     * for this context, and, for the pool tasks are run in, its number of threads, active threads, permits free,
+     * queued tasks, queued submissions and steals.
+     */
+    public Map<String, Long> getStats() {
+        ForkJoinPool pool = getPool();
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("invocations", numInvocations.get());
+        stats.put("waits", numWaits.get());
+        stats.put("waitNanos", waitNanos.get());
+        stats.put("poolSize", (long) pool.getPoolSize());
+        stats.put("activeThreads", (long) pool.getActiveThreadCount());
+        stats.put("permitsFree", (long) permits.availablePermits());
+        stats.put("queuedTasks", pool.getQueuedTaskCount());
+        stats.put("queuedSubmissions", (long) pool.getQueuedSubmissionCount());
+        stats.put("steals", pool.getStealCount());
+        return stats;
+    }
+}
@@ -26,6 +26,8 @@ import java.util.concurrent.ForkJoinPool;
 /**
  * Static instance of a ForkJoinPool. Not sure this is necessary.
  * Created by josephramsey on 2/7/15.
+ *
+ * @see ExecutionContext for running tasks in this pool with a bounded, fairly shared parallelism.
  */
 public class ForkJoinPoolInstance {
     private static final ForkJoinPoolInstance INSTANCE = new ForkJoinPoolInstance();
@@ -0,0 +1,293 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Searches the combinations of a choose b, in the order of ChoiceGenerator, for those satisfying a condition,
+ * checking the condition on many combinations at once in an execution context, by default the shared pool. Each combination is identified
+ * by its rank in that order, so the sequence can be split into ranges of ranks that are searched independently and
+ * whose results are merged back in order. The answers are therefore the same as those of a sequential walk through
+ * ChoiceGenerator, however the work is divided.
+ * <p>
+ * The condition is called from several threads at once and so must be thread-safe. The array it is given is reused
+ * and should not be kept.
+ *
+ * @author Joseph Ramsey
+ */
+public final class ParallelChoiceGenerator {
+
+    /**
+     * A condition on a combination.
+     */
+    public interface Condition {
+
+        /**
+         * @param choice the combination, in increasing order.
+         */
+        boolean holds(int[] choice);
+    }
+
+    // Ranges of at most this many combinations are searched sequentially.
+    private static final int MIN_RANGE = 64;
+
+    // Binomial coefficients, binomial[i][j] = i choose j, for i <= a and j <= b.
+    private final long[][] binomial;
+
+    private final int a;
+    private final int b;
+    private final Condition condition;
+
+    private ParallelChoiceGenerator(int a, int b, Condition condition) {
+        if (a < 0 || b < 0 || a < b) {
+            throw new IllegalArgumentException("Expecting 0 <= b <= a: a = " + a + ", b = " + b);
+        }
+
+        if (condition == null) throw new NullPointerException("Condition must not be null.");
+
+        this.a = a;
+        this.b = b;
+        this.condition = condition;
+        this.binomial = binomials(a, b);
+    }
+
+    /**
+     * @return all the combinations of a choose b satisfying the condition, in the order of ChoiceGenerator.
+     */
+    public static List<int[]> findAll(int a, int b, Condition condition) {
+        return findAll(a, b, condition, ExecutionContext.getDefault());
+    }
+
+    /**
+     * @param parallel False if the condition is not thread-safe, in which case the combinations are checked one at
+     *                 a time on this thread.
+     * @return all the combinations of a choose b satisfying the condition, in the order of ChoiceGenerator.
+     */
+    public static List<int[]> findAll(int a, int b, Condition condition, boolean parallel) {
+        return findAll(a, b, condition, parallel ? ExecutionContext.getDefault() : null);
+    }
+
+    /**
+     * @param context Where the condition is checked. With a parallelism of 1, or if null, the combinations are
+     *                checked one at a time on this thread.
+     * @return all the combinations of a choose b satisfying the condition, in the order of ChoiceGenerator.
+     */
+    public static List<int[]> findAll(int a, int b, Condition condition, ExecutionContext context) {
+        ParallelChoiceGenerator gen = new ParallelChoiceGenerator(a, b, condition);
+        long count = gen.binomial[a][b];
+
+        if (context == null || context.getParallelism() == 1 || count <= MIN_RANGE) {
+            return gen.findAll(0, count);
+        }
+
+        return context.invoke(gen.new FindAllTask(0, count));
+    }
+
+    /**
+     * @return the first combination of a choose b, in the order of ChoiceGenerator, satisfying the condition, or null
+     * if there is none. Combinations after one already found are not checked.
+     */
+    public static int[] findFirst(int a, int b, Condition condition) {
+        return findFirst(a, b, condition, ExecutionContext.getDefault());
+    }
+
+    /**
+     * @param parallel False if the condition is not thread-safe, in which case the combinations are checked one at
+     *                 a time on this thread.
+     * @return the first combination of a choose b, in the order of ChoiceGenerator, satisfying the condition, or null
+     * if there is none. Combinations after one already found are not checked.
+     */
+    public static int[] findFirst(int a, int b, Condition condition, boolean parallel) {
+        return findFirst(a, b, condition, parallel ? ExecutionContext.getDefault() : null);
+    }
+
+    /**
+     * @param context Where the condition is checked. With a parallelism of 1, or if null, the combinations are
+     *                checked one at a time on this thread.
+     * @return the first combination of a choose b, in the order of ChoiceGenerator, satisfying the condition, or null
+     * if there is none. Combinations after one already found are not checked.
+     */
+    public static int[] findFirst(int a, int b, Condition condition, ExecutionContext context) {
+        ParallelChoiceGenerator gen = new ParallelChoiceGenerator(a, b, condition);
+        long count = gen.binomial[a][b];
+        AtomicLong first = new AtomicLong(Long.MAX_VALUE);
+
+        if (context == null || context.getParallelism() == 1 || count <= MIN_RANGE) {
+            gen.findFirst(0, count, first);
+        } else {
+            context.invoke(gen.new FindFirstTask(0, count, first));
+        }
+
+        return first.get() == Long.MAX_VALUE ? null : gen.unrank(first.get());
+    }
+
+    //==============================PRIVATE=============================//
+
+    private List<int[]> findAll(long from, long to) {
+        List<int[]> found = new ArrayList<>();
+        int[] choice = unrank(from);
+
+        for (long rank = from; rank < to; rank++) {
+            if (condition.holds(choice)) {
+                found.add(choice.clone());
+            }
+
+            next(choice);
+        }
+
+        return found;
+    }
+
+    // Records in first the lowest rank in [from, to) whose combination satisfies the condition, unless a lower one
+    // has already been found.
+    private void findFirst(long from, long to, AtomicLong first) {
+        int[] choice = unrank(from);
+
+        for (long rank = from; rank < to && rank < first.get(); rank++) {
+            if (condition.holds(choice)) {
+                long current;
+
+                do {
+                    current = first.get();
+                } while (rank < current && !first.compareAndSet(current, rank));
+
+                return;
+            }
+
+            next(choice);
+        }
+    }
+
+    // The combination with the given rank in the order of ChoiceGenerator.
+    private int[] unrank(long rank) {
+        int[] choice = new int[b];
+        int x = 0;
+
+        for (int i = 0; i < b; i++) {
+
+            // The number of combinations that start with x at position i.
+            while (binomial[a - x - 1][b - i - 1] <= rank) {
+                rank -= binomial[a - x - 1][b - i - 1];
+                x++;
+            }
+
+            choice[i] = x++;
+        }
+
+        return choice;
+    }
+
+    // Steps the combination to the next in the order of ChoiceGenerator. Past the last, the array is left as is.
+    private void next(int[] choice) {
+        int i = b - 1;
+
+        while (i >= 0 && choice[i] == a - b + i) {
+            i--;
+        }
+
+        if (i < 0) return;
+
+        choice[i]++;
+
+        for (int j = i + 1; j < b; j++) {
+            choice[j] = choice[j - 1] + 1;
+        }
+    }
+
+    private static long[][] binomials(int a, int b) {
+        long[][] binomial = new long[a + 1][b + 1];
+
+        for (int i = 0; i <= a; i++) {
+            binomial[i][0] = 1;
+
+            for (int j = 1; j <= Math.min(i, b); j++) {
+                binomial[i][j] = binomial[i - 1][j - 1] + (j <= i - 1 ? binomial[i - 1][j] : 0);
+
+                if (binomial[i][j] < 0) {
+                    throw new IllegalArgumentException("Too many combinations: " + a + " choose " + b);
+                }
+            }
+        }
+
+        return binomial;
+    }
+
+    private class FindAllTask extends RecursiveTask<List<int[]>> {
+        private final long from;
+        private final long to;
+
+        FindAllTask(long from, long to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<int[]> compute() {
+            if (to - from <= MIN_RANGE) {
+                return findAll(from, to);
+            }
+
+            long mid = from + (to - from) / 2;
+            FindAllTask left = new FindAllTask(from, mid);
+            FindAllTask right = new FindAllTask(mid, to);
+            right.fork();
+
+            List<int[]> found = left.compute();
+            found.addAll(right.join());
+            return found;
+        }
+    }
+
+    private class FindFirstTask extends RecursiveTask<Void> {
+        private final long from;
+        private final long to;
+        private final AtomicLong first;
+
+        FindFirstTask(long from, long to, AtomicLong first) {
+            this.from = from;
+            this.to = to;
+            this.first = first;
+        }
+
+        @Override
+        protected Void compute() {
+            if (from >= first.get()) return null;
+
+            if (to - from <= MIN_RANGE) {
+                findFirst(from, to, first);
+                return null;
+            }
+
+            long mid = from + (to - from) / 2;
+            FindFirstTask left = new FindFirstTask(from, mid, first);
+            FindFirstTask right = new FindFirstTask(mid, to, first);
+            right.fork();
+            left.compute();
+            right.join();
+            return null;
+        }
+    }
+}
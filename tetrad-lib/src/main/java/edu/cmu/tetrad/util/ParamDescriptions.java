@@ -101,6 +101,8 @@ public class ParamDescriptions {
         put("targetName", new ParamDescription("Target name", ""));
         put("verbose", new ParamDescription("Yes if verbose output should be printed to standard out", false));
         put("faithfulnessAssumed", new ParamDescription("Yes if (one edge) faithfulness should be assumed", false));
+        put("cacheScores", new ParamDescription("Yes if local scores should be cached", false));
+        put("cacheIndependenceTests", new ParamDescription("Yes if independence test results should be cached", false));
 
         put("useWishart", new ParamDescription("Yes if the Wishart test shoud be used. No if the Delta test should be used", false));
         put("useGap", new ParamDescription("Yes if the GAP algorithms should be used. No if the SAG algorithm should be used", false));
@@ -146,6 +148,13 @@ public class ParamDescriptions {
         put("completeRuleSetUsed", new ParamDescription(
                 "Yes if the complete FCI rule set should be used",
                 false));
+
+        put("numFourierFeatures", new ParamDescription(
+                "Number of random Fourier features for each of X and Y in RCIT",
+                5, 1, Integer.MAX_VALUE));
+        put("numConditioningFourierFeatures", new ParamDescription(
+                "Number of random Fourier features for the conditioning set in RCIT",
+                100, 1, Integer.MAX_VALUE));
     }
 
     public static ParamDescriptions instance() {
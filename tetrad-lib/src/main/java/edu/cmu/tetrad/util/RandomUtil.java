@@ -42,6 +42,12 @@ import java.util.Map;
  * The 64-bit Mersenne Twister implementation from the COLT library is used to generate random numbers.
  * <p>
  * To see what distributions are currently supported, look at the methods of the class. These many change over time.
+ * <p>
+ * For parallel work, each task should draw from its own stream rather than from the shared generator, which is
+ * synchronized and whose draws land on tasks in whatever order they are scheduled. stream(rootSeed, index) gives
+ * a generator determined entirely by a root seed, drawn once from the shared generator, and the task's index, so
+ * that the results don't depend on scheduling. A task may install its stream with setThreadInstance for the code it
+ * calls, so that getInstance() returns the stream on that thread until the previous instance is restored.
  *
  * @author Joseph Ramsey
  */
@@ -52,6 +58,11 @@ public class RandomUtil {
      */
     private static final RandomUtil randomUtil = new RandomUtil();
 
+    /**
+     * Streams installed for the current thread, if any.
+     */
+    private static final ThreadLocal<RandomUtil> threadInstance = new ThreadLocal<>();
+
     // Random number generator from the Apache library.
     private RandomGenerator randomGenerator;
 
@@ -81,10 +92,52 @@ public class RandomUtil {
     }
 
     /**
-     * @return the singleton instance of this class.
+     * Constructs a stream for one thread, not synchronized.
+     */
+    private RandomUtil(RandomGenerator randomGenerator, long seed) {
+        this.randomGenerator = randomGenerator;
+        this.normal = new NormalDistribution(randomGenerator, 0, 1);
+        this.seed = seed;
+    }
+
+    /**
+     * @return the stream installed for the current thread by setThreadInstance, if there is one, otherwise the
+     * singleton instance of this class.
      */
     public static RandomUtil getInstance() {
-        return randomUtil;
+        RandomUtil instance = threadInstance.get();
+        return instance != null ? instance : randomUtil;
+    }
+
+    /**
+     * Returns a generator for the given stream of the given root seed. Different indices give independent streams,
+     * and the same root seed and index always give the same stream. The generator is not synchronized; it is meant to
+     * be used by one task at a time.
+     *
+     * @param rootSeed A seed for a family of streams, typically drawn once with nextLong().
+     * @param index    The index of the stream in the family, typically the index of a task.
+     */
+    public static RandomUtil stream(long rootSeed, long index) {
+        long seed = mix(rootSeed + mix(index + 1));
+        return new RandomUtil(new Well44497b(seed), seed);
+    }
+
+    /**
+     * Makes getInstance() return the given stream on the current thread, or, for null, the singleton again.
+     * Callers should restore the instance this returns when they are done, in a finally block.
+     *
+     * @return the stream previously installed for this thread, or null if there was none.
+     */
+    public static RandomUtil setThreadInstance(RandomUtil stream) {
+        RandomUtil previous = threadInstance.get();
+
+        if (stream == null) {
+            threadInstance.remove();
+        } else {
+            threadInstance.set(stream);
+        }
+
+        return previous;
     }
 
     //=======================================PUBLIC METHODS=================================//
@@ -261,6 +314,13 @@ public class RandomUtil {
     public long nextLong() {
         return randomGenerator.nextLong();
     }
+
+    // The SplitMix64 finalizer, which spreads nearby values over all 64 bits.
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
 }
 
 
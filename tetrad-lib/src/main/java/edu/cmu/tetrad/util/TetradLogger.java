@@ -244,6 +244,17 @@ public class TetradLogger {
     }
 
 
+    /**
+     * States whether a message for the given event would be written, so that callers can skip building messages
+     * that would not be.
+     *
+     * @return true iff the logger is logging, the event is active and there is somewhere to write.
+     */
+    public boolean isLogging(String event) {
+        return this.logging && isEventActive(event) && !writers.isEmpty();
+    }
+
+
     /**
      * Sets whether the logger is on or not.
      */
@@ -281,10 +292,7 @@ public class TetradLogger {
      * @param message - The messag eto be logged.
      */
     public void log(String event, String message) {
-
-        boolean eventActive = isEventActive(event);
-
-        if ((this.logging && eventActive && !writers.isEmpty())) {
+        if (isLogging(event)) {
             try {
                 for (Writer writer : writers.values()) {
                     writer.write(message);
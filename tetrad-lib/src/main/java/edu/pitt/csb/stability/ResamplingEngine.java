@@ -0,0 +1,470 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.pitt.csb.stability;
+
+import cern.colt.matrix.DoubleFactory2D;
+import cern.colt.matrix.DoubleMatrix2D;
+import edu.cmu.tetrad.data.*;
+import edu.cmu.tetrad.graph.Edge;
+import edu.cmu.tetrad.graph.Endpoint;
+import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.util.ExecutionContext;
+import edu.cmu.tetrad.util.RandomUtil;
+import edu.cmu.tetrad.util.TetradMatrix;
+
+import java.util.*;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs a search over bootstrap samples or subsamples of a data set and records how often each edge is found.
+ * <p>
+ * A replicate is just the rows drawn for it, not a copy of the data. Searches ask the replicate for what they need:
+ * a covariance matrix, computed from the rows of the original data, counts of a discrete table, computed from how
+ * many times each row was drawn, or, failing those, a data set of the rows. Replicates are run in parallel in batches,
+ * each with its own random stream (RandomUtil.stream) for the engine's seed and its index, which draws its rows and is
+ * installed as RandomUtil.getInstance() while its search runs, so the results for a replicate don't depend on how the
+ * replicates are scheduled. Only the replicates of the current batch are held
+ * in memory; each graph is added to the edge counts as soon as it is found.
+ * <p>
+ * Optionally the run stops early, once no edge frequency has changed by more than a tolerance over a number of
+ * batches in a row.
+ *
+ * @author Joseph Ramsey
+ * @see StabilityUtils
+ */
+public class ResamplingEngine {
+
+    public enum Method {BOOTSTRAP, SUBSAMPLE}
+
+    /**
+     * A search over a replicate.
+     */
+    public interface ReplicateSearch {
+        Graph search(Replicate replicate);
+    }
+
+    private final DataSet data;
+    private final List<Node> variables;
+    private final Map<String, Integer> indices = new HashMap<>();
+    private final Method method;
+    private final int sampleSize;
+
+    private long seed = RandomUtil.getInstance().nextLong();
+    private ExecutionContext context = ExecutionContext.getDefault();
+
+    // Zero for twice the parallelism of the context.
+    private int batchSize = 0;
+    private double tolerance = 0.0;
+    private int stableBatches = 0;
+    private int minReplicates = 0;
+
+    // Built on first use and shared by the replicates.
+    private double[][] centered;
+    private CellCounts cellCounts;
+
+    /**
+     * @param data       The data to resample.
+     * @param method     Bootstrap (with replacement) or subsample (without).
+     * @param sampleSize The number of rows in each replicate; for subsampling no more than the number of rows of data.
+     */
+    public ResamplingEngine(DataSet data, Method method, int sampleSize) {
+        if (data == null) throw new NullPointerException("Data was not provided.");
+        if (method == null) throw new NullPointerException("Method was not provided.");
+
+        if (sampleSize < 1) {
+            throw new IllegalArgumentException("Sample size must be > 0: " + sampleSize);
+        }
+
+        if (method == Method.SUBSAMPLE && sampleSize > data.getNumRows()) {
+            throw new IllegalArgumentException("Can't subsample " + sampleSize + " of " + data.getNumRows() + " rows.");
+        }
+
+        this.data = data;
+        this.variables = data.getVariables();
+        this.method = method;
+        this.sampleSize = sampleSize;
+
+        for (int j = 0; j < variables.size(); j++) {
+            indices.put(variables.get(j).getName(), j);
+        }
+    }
+
+    /**
+     * Runs the search over up to numReplicates replicates, fewer if the edge frequencies settle first.
+     */
+    public Result run(final int numReplicates, final ReplicateSearch search) {
+        if (numReplicates < 1) throw new IllegalArgumentException("Need at least one replicate: " + numReplicates);
+
+        final int p = variables.size();
+        final int[][] adjacencies = new int[p][p];
+        final int[][] directed = new int[p][p];
+
+        class ReplicateAction extends RecursiveAction {
+            private final int from;
+            private final int to;
+
+            private ReplicateAction(int from, int to) {
+                this.from = from;
+                this.to = to;
+            }
+
+            @Override
+            protected void compute() {
+                if (to - from == 1) {
+                    RandomUtil random = RandomUtil.stream(seed, from);
+                    RandomUtil previous = RandomUtil.setThreadInstance(random);
+
+                    try {
+                        Graph graph = search.search(new Replicate(from, random));
+                        record(graph, adjacencies, directed);
+                    } finally {
+                        RandomUtil.setThreadInstance(previous);
+                    }
+                } else {
+                    int mid = (from + to) / 2;
+                    invokeAll(new ReplicateAction(from, mid), new ReplicateAction(mid, to));
+                }
+            }
+        }
+
+        int batchSize = this.batchSize > 0 ? this.batchSize : 2 * context.getParallelism();
+        double[][] previous = null;
+        int stable = 0;
+        int done = 0;
+
+        while (done < numReplicates) {
+            int to = Math.min(numReplicates, done + batchSize);
+            context.invoke(new ReplicateAction(done, to));
+            done = to;
+
+            if (stableBatches > 0) {
+                double[][] frequencies = frequencies(adjacencies, done);
+
+                if (previous != null && maxChange(previous, frequencies) <= tolerance) {
+                    stable++;
+                } else {
+                    stable = 0;
+                }
+
+                previous = frequencies;
+
+                if (stable >= stableBatches && done >= minReplicates) break;
+            }
+        }
+
+        return new Result(frequencies(adjacencies, done), frequencies(directed, done), done);
+    }
+
+    /**
+     * Sets the root seed of the replicates' random streams. By default it is drawn from RandomUtil.
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Sets the number of replicates run in parallel before the edge frequencies are checked, which bounds the number
+     * of replicates in memory at once. By default twice the parallelism of the execution context.
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1) throw new IllegalArgumentException("Batch size must be > 0: " + batchSize);
+        this.batchSize = batchSize;
+    }
+
+    public ExecutionContext getExecutionContext() {
+        return context;
+    }
+
+    /**
+     * Sets where the replicates are run. By default, the shared pool.
+     */
+    public void setExecutionContext(ExecutionContext context) {
+        if (context == null) throw new NullPointerException("Execution context must not be null.");
+        this.context = context;
+    }
+
+    /**
+     * Stops the run once no edge frequency has changed by more than tolerance for stableBatches batches in a row,
+     * but not before minReplicates replicates have been run. stableBatches = 0, the default, turns this off.
+     */
+    public void setStopping(double tolerance, int stableBatches, int minReplicates) {
+        if (tolerance < 0) throw new IllegalArgumentException("Tolerance must be >= 0: " + tolerance);
+        if (stableBatches < 0) throw new IllegalArgumentException("Batches must be >= 0: " + stableBatches);
+        this.tolerance = tolerance;
+        this.stableBatches = stableBatches;
+        this.minReplicates = minReplicates;
+    }
+
+    /**
+     * The edge frequencies over the replicates run.
+     */
+    public static class Result {
+        private final DoubleMatrix2D adjacencies;
+        private final DoubleMatrix2D directed;
+        private final int numReplicates;
+
+        private Result(double[][] adjacencies, double[][] directed, int numReplicates) {
+            this.adjacencies = DoubleFactory2D.dense.make(adjacencies);
+            this.directed = DoubleFactory2D.dense.make(directed);
+            this.numReplicates = numReplicates;
+        }
+
+        /**
+         * @return the fraction of replicates in which each pair of variables was adjacent, indexed as the variables
+         * of the data.
+         */
+        public DoubleMatrix2D getAdjacencyFrequencies() {
+            return adjacencies;
+        }
+
+        /**
+         * @return the fraction of replicates in which there was an edge i --> j, at (i, j).
+         */
+        public DoubleMatrix2D getDirectedFrequencies() {
+            return directed;
+        }
+
+        /**
+         * @return the number of replicates run.
+         */
+        public int getNumReplicates() {
+            return numReplicates;
+        }
+    }
+
+    /**
+     * The rows drawn for one replicate, with the statistics searches take from them.
+     */
+    public final class Replicate {
+        private final int index;
+        private final int[] rows;
+        private int[] weights;
+        private ICovarianceMatrix covariances;
+
+        private Replicate(int index, RandomUtil random) {
+            this.index = index;
+            this.rows = drawRows(random);
+        }
+
+        /**
+         * @return the index of the replicate, from 0.
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * @return the rows of the data drawn, in increasing order, with repeats for bootstrap samples.
+         */
+        public int[] getRows() {
+            return rows;
+        }
+
+        /**
+         * @return the number of times each row of the data was drawn.
+         */
+        public int[] getWeights() {
+            if (weights == null) {
+                weights = new int[data.getNumRows()];
+                for (int row : rows) weights[row]++;
+            }
+
+            return weights;
+        }
+
+        /**
+         * @return the covariance matrix of the replicate, for continuous data.
+         */
+        public ICovarianceMatrix getCovarianceMatrix() {
+            if (covariances == null) {
+                covariances = new CovarianceMatrix(variables, covariances(rows), rows.length);
+            }
+
+            return covariances;
+        }
+
+        /**
+         * @return the counts of the replicate for the table over the given discrete variables, indexed as in
+         * CellCounts, in an array belonging to this thread.
+         * @see CellCounts#count(int[])
+         */
+        public int[] count(int[] variables) {
+            return getCellCounts().count(variables, getWeights());
+        }
+
+        /**
+         * @return a copy of the rows of the data drawn, for searches that need a data set.
+         */
+        public DataSet getDataSet() {
+            return data.subsetRows(rows);
+        }
+    }
+
+    //==============================PRIVATE METHODS=========================//
+
+    private int[] drawRows(RandomUtil random) {
+        int n = data.getNumRows();
+        int[] rows = new int[sampleSize];
+
+        if (method == Method.BOOTSTRAP) {
+            for (int i = 0; i < sampleSize; i++) {
+                rows[i] = random.nextInt(n);
+            }
+        } else {
+            int[] perm = new int[n];
+            for (int i = 0; i < n; i++) perm[i] = i;
+
+            for (int i = 0; i < sampleSize; i++) {
+                int j = i + random.nextInt(n - i);
+                int t = perm[i];
+                perm[i] = perm[j];
+                perm[j] = t;
+            }
+
+            System.arraycopy(perm, 0, rows, 0, sampleSize);
+        }
+
+        Arrays.sort(rows);
+        return rows;
+    }
+
+    // The covariance matrix over the given rows, with repeats.
+    private TetradMatrix covariances(int[] rows) {
+        double[][] x = getCentered();
+        int p = x.length;
+        int n = rows.length;
+
+        if (n < 2) throw new IllegalArgumentException("Need at least two rows for covariances.");
+
+        double[] means = new double[p];
+
+        for (int j = 0; j < p; j++) {
+            double sum = 0.0;
+            for (int row : rows) sum += x[j][row];
+            means[j] = sum / n;
+        }
+
+        TetradMatrix cov = new TetradMatrix(p, p);
+
+        for (int j = 0; j < p; j++) {
+            for (int k = 0; k <= j; k++) {
+                double sum = 0.0;
+                double[] xj = x[j];
+                double[] xk = x[k];
+
+                for (int row : rows) {
+                    sum += (xj[row] - means[j]) * (xk[row] - means[k]);
+                }
+
+                cov.set(j, k, sum / (n - 1));
+                cov.set(k, j, sum / (n - 1));
+            }
+        }
+
+        return cov;
+    }
+
+    // The columns of the data, centered, shared by all replicates.
+    private synchronized double[][] getCentered() {
+        if (centered == null) {
+            if (!data.isContinuous()) {
+                throw new IllegalStateException("Covariances need continuous data.");
+            }
+
+            int n = data.getNumRows();
+            double[][] x = new double[variables.size()][n];
+
+            for (int j = 0; j < x.length; j++) {
+                double mean = 0.0;
+
+                for (int i = 0; i < n; i++) {
+                    x[j][i] = data.getDouble(i, j);
+                    mean += x[j][i];
+                }
+
+                mean /= n;
+                for (int i = 0; i < n; i++) x[j][i] -= mean;
+            }
+
+            centered = x;
+        }
+
+        return centered;
+    }
+
+    private synchronized CellCounts getCellCounts() {
+        if (cellCounts == null) {
+            cellCounts = new CellCounts(data);
+        }
+
+        return cellCounts;
+    }
+
+    private void record(Graph graph, int[][] adjacencies, int[][] directed) {
+        synchronized (adjacencies) {
+            for (Edge edge : graph.getEdges()) {
+                Integer i = indices.get(edge.getNode1().getName());
+                Integer j = indices.get(edge.getNode2().getName());
+
+                if (i == null || j == null) {
+                    throw new IllegalArgumentException("Edge " + edge + " is not over the variables of the data.");
+                }
+
+                adjacencies[i][j]++;
+                adjacencies[j][i]++;
+
+                if (edge.getEndpoint1() == Endpoint.TAIL && edge.getEndpoint2() == Endpoint.ARROW) {
+                    directed[i][j]++;
+                } else if (edge.getEndpoint1() == Endpoint.ARROW && edge.getEndpoint2() == Endpoint.TAIL) {
+                    directed[j][i]++;
+                }
+            }
+        }
+    }
+
+    private double[][] frequencies(int[][] counts, int numReplicates) {
+        double[][] frequencies = new double[counts.length][counts.length];
+
+        synchronized (counts) {
+            for (int i = 0; i < counts.length; i++) {
+                for (int j = 0; j < counts.length; j++) {
+                    frequencies[i][j] = counts[i][j] / (double) numReplicates;
+                }
+            }
+        }
+
+        return frequencies;
+    }
+
+    private static double maxChange(double[][] a, double[][] b) {
+        double max = 0.0;
+
+        for (int i = 0; i < a.length; i++) {
+            for (int j = 0; j < a.length; j++) {
+                max = Math.max(max, Math.abs(a[i][j] - b[i][j]));
+            }
+        }
+
+        return max;
+    }
+}
@@ -29,7 +29,6 @@ import edu.cmu.tetrad.data.DataSet;
 import edu.cmu.tetrad.graph.Graph;
 import edu.cmu.tetrad.graph.GraphUtils;
 import edu.cmu.tetrad.graph.Node;
-import edu.cmu.tetrad.util.ForkJoinPoolInstance;
 import edu.pitt.csb.mgm.MGM;
 import edu.pitt.csb.mgm.MixedUtils;
 
@@ -38,8 +37,6 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.ForkJoinPool;
-import java.util.concurrent.RecursiveAction;
 
 /**
  * Runs a search algorithm over a N subsamples of size b to asses stability
@@ -71,70 +68,20 @@ public class StabilityUtils {
     }
 
     //returns an adjacency matrix containing the edgewise instability as defined in Liu et al
+    //subsamples are drawn as they are run rather than all up front; see ResamplingEngine
     public static DoubleMatrix2D StabilitySearchPar(final DataSet data, final DataGraphSearch gs, int N, int b){
+        ResamplingEngine engine = new ResamplingEngine(data, ResamplingEngine.Method.SUBSAMPLE, b);
 
-        final int numVars = data.getNumColumns();
-        final DoubleMatrix2D thetaMat = DoubleFactory2D.dense.make(numVars, numVars, 0.0);
-
-        final int[][] samps = subSampleNoReplacement(data.getNumRows(), b, N);
-
-        final ForkJoinPool pool = ForkJoinPoolInstance.getInstance().getPool();
-
-        class StabilityAction extends RecursiveAction{
-            private int chunk;
-            private int from;
-            private int to;
-
-            public StabilityAction(int chunk, int from, int to){
-                this.chunk = chunk;
-                this.from = from;
-                this.to = to;
-            }
-
-            //could avoid using syncronized if we keep track of array of mats and add at end, but that needs lots of
-            //memory
-            private synchronized void addToMat(DoubleMatrix2D matSum, DoubleMatrix2D curMat){
-                matSum.assign(curMat, Functions.plus);
-            }
-
+        ResamplingEngine.Result result = engine.run(N, new ResamplingEngine.ReplicateSearch() {
             @Override
-            protected void compute(){
-                if (to - from <= chunk) {
-                    for (int s = from; s < to; s++) {
-                        DataSet dataSubSamp = data.subsetRows(samps[s]).copy();
-                        DataGraphSearch curGs = gs.copy();
-                        Graph g = curGs.search(dataSubSamp);
-
-                        DoubleMatrix2D curAdj = MixedUtils.skeletonToMatrix(g); //set weights so that undirected stability works
-                        addToMat(thetaMat, curAdj);
-                    }
-
-                    return;
-                } else {
-                    List<StabilityAction> tasks = new ArrayList<>();
-
-                    final int mid = (to + from) / 2;
-
-                    tasks.add(new StabilityAction(chunk, from, mid));
-                    tasks.add(new StabilityAction(chunk, mid, to));
-
-                    invokeAll(tasks);
-
-                    return;
-                }
+            public Graph search(ResamplingEngine.Replicate replicate) {
+                return gs.copy().search(replicate.getDataSet());
             }
-
-        }
-
-        final int chunk = 2;
-
-        pool.invoke(new StabilityAction(chunk, 0, N));
-
-        thetaMat.assign(Functions.mult(1.0 / N));
+        });
 
         //do this elsewhere
         //thetaMat.assign(thetaMat.copy().assign(Functions.minus(1.0)), Functions.mult).assign(Functions.mult(-2.0));
-        return thetaMat;
+        return result.getAdjacencyFrequencies();
     }
 
     //needs a symmetric matrix
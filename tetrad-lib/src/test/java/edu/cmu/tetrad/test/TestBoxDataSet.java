@@ -142,6 +142,47 @@ public final class TestBoxDataSet {
         assertTrue(Double.isNaN(dataSet.getDouble(1, 0)));
     }
 
+    @Test
+    public void testPrimitiveAccessors() {
+        List<Node> variables = new LinkedList<>();
+        variables.add(new DiscreteVariable("X1"));
+        variables.add(new ContinuousVariable("X2"));
+
+        DataBox[] boxes = {new DoubleDataBox(4, 2), new VerticalDoubleDataBox(4, 2), new IntDataBox(4, 2),
+                new VerticalIntDataBox(4, 2), new ShortDataBox(4, 2), new MixedDataBox(variables, 4)};
+
+        for (DataBox box : boxes) {
+            for (int i = 0; i < 3; i++) {
+                box.set(i, 0, i);
+                box.set(i, 1, 2 * i);
+            }
+
+            box.set(3, 0, null);
+            box.set(3, 1, null);
+
+            for (int j = 0; j < 2; j++) {
+                double[] doubles = box.getDoubleColumn(j);
+                int[] ints = box.getIntColumn(j);
+
+                for (int i = 0; i < 3; i++) {
+                    assertEquals(box.get(i, j).doubleValue(), box.getDouble(i, j), 0.0);
+                    assertEquals(box.get(i, j).intValue(), box.getInt(i, j));
+                    assertEquals(box.getDouble(i, j), doubles[i], 0.0);
+                    assertEquals(box.getInt(i, j), ints[i]);
+                }
+
+                assertTrue(Double.isNaN(box.getDouble(3, j)));
+                assertTrue(Double.isNaN(doubles[3]));
+                assertEquals(-99, box.getInt(3, j));
+                assertEquals(-99, ints[3]);
+            }
+        }
+
+        // Column major boxes hand back their own columns.
+        assertTrue(boxes[1].getDoubleColumn(1) == boxes[1].getDoubleColumn(1));
+        assertTrue(boxes[3].getIntColumn(0) == boxes[3].getIntColumn(0));
+    }
+
     @Test
     public void testRemoveColumn() {
         int rows = 10;
@@ -0,0 +1,136 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.test;
+
+import edu.cmu.tetrad.data.ContinuousVariable;
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.graph.GraphUtils;
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.search.CachingIndependenceTest;
+import edu.cmu.tetrad.search.IndTestFisherZ;
+import edu.cmu.tetrad.search.IndependenceResult;
+import edu.cmu.tetrad.search.Pc;
+import edu.cmu.tetrad.sem.SemIm;
+import edu.cmu.tetrad.sem.SemPm;
+import edu.cmu.tetrad.util.RandomUtil;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the independence test cache.
+ *
+ * @author Joseph Ramsey
+ */
+public class TestCachingIndependenceTest {
+
+    @Test
+    public void testOrderIgnored() {
+        DataSet data = simulate();
+        CachingIndependenceTest test = new CachingIndependenceTest(new IndTestFisherZ(data, 0.05));
+        List<Node> v = test.getVariables();
+
+        IndependenceResult r1 = test.checkIndependence(v.get(0), v.get(1), Arrays.asList(v.get(2), v.get(3)));
+        IndependenceResult r2 = test.checkIndependence(v.get(1), v.get(0), Arrays.asList(v.get(3), v.get(2)));
+
+        assertTrue(r1 == r2);
+        assertEquals(1, test.getHits());
+        assertEquals(1, test.getMisses());
+
+        test.checkIndependence(v.get(0), v.get(1), Collections.singletonList(v.get(2)));
+        assertEquals(2, test.getMisses());
+    }
+
+    @Test
+    public void testSameGraph() {
+        DataSet data = simulate();
+
+        Graph graph1 = new Pc(new IndTestFisherZ(data, 0.05)).search();
+
+        CachingIndependenceTest test = new CachingIndependenceTest(new IndTestFisherZ(data, 0.05));
+        Graph graph2 = new Pc(test).search();
+
+        assertEquals(graph1, graph2);
+        assertTrue(test.getHits() > 0);
+
+        // A second search is answered entirely from the cache.
+        long misses = test.getMisses();
+        new Pc(test).search();
+        assertEquals(misses, test.getMisses());
+    }
+
+    @Test
+    public void testSaveAndLoad() throws IOException {
+        DataSet data = simulate();
+        CachingIndependenceTest test = new CachingIndependenceTest(new IndTestFisherZ(data, 0.05));
+        new Pc(test).search();
+
+        File file = File.createTempFile("indtests", ".txt");
+        file.deleteOnExit();
+        test.save(file);
+
+        CachingIndependenceTest test2 = new CachingIndependenceTest(new IndTestFisherZ(data, 0.05));
+        assertEquals(test.size(), test2.load(file));
+
+        new Pc(test2).search();
+        assertEquals(0, test2.getMisses());
+    }
+
+    @Test
+    public void testBounded() {
+        DataSet data = simulate();
+        CachingIndependenceTest test = new CachingIndependenceTest(new IndTestFisherZ(data, 0.05), 160 * 100);
+        List<Node> v = test.getVariables();
+
+        for (int i = 0; i < v.size(); i++) {
+            for (int j = i + 1; j < v.size(); j++) {
+                for (int k = 0; k < v.size(); k++) {
+                    if (k == i || k == j) continue;
+                    test.checkIndependence(v.get(i), v.get(j), Collections.singletonList(v.get(k)));
+                }
+            }
+        }
+
+        assertTrue(test.size() <= 100);
+        assertTrue(test.getEvictions() > 0);
+    }
+
+    private DataSet simulate() {
+        RandomUtil.getInstance().setSeed(29483L);
+
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < 10; i++) nodes.add(new ContinuousVariable("X" + (i + 1)));
+
+        Graph graph = GraphUtils.randomGraph(nodes, 0, 12, 30, 15, 15, false);
+        SemIm im = new SemIm(new SemPm(graph));
+        return im.simulateData(500, false);
+    }
+}
@@ -21,21 +21,26 @@
 
 package edu.cmu.tetrad.test;
 
+import edu.cmu.tetrad.data.CellCounts;
 import edu.cmu.tetrad.data.CellTable;
 import edu.cmu.tetrad.data.ColtDataSet;
 import edu.cmu.tetrad.data.DataSet;
 import edu.cmu.tetrad.data.DiscreteVariable;
 import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.search.AdCountTree;
 import edu.cmu.tetrad.util.RandomUtil;
 import org.junit.Test;
 
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
 public final class TestCellTable {
     private CellTable table;
+    private DataSet dataSet;
     private final int[] dims = new int[]{2, 2, 2, 2};
 
     private final int[][] data = new int[][]{{1, 1, 1, 0}, {0, 0, 1, 0},
@@ -301,7 +306,7 @@ public final class TestCellTable {
         variables.add(new DiscreteVariable("X3", 2));
         variables.add(new DiscreteVariable("X4", 2));
 
-        DataSet dataSet = new ColtDataSet(data.length, variables);
+        dataSet = new ColtDataSet(data.length, variables);
 
         for (int i = 0; i < data.length; i++) {
             for (int j = 0; j < data[0].length; j++) {
@@ -408,6 +413,79 @@ public final class TestCellTable {
         }
     }
 
+    @Test
+    public final void testCellCounts() {
+        setUp();
+
+        // A missing value, which both should skip.
+        dataSet.setInt(3, 2, DiscreteVariable.MISSING_VALUE);
+
+        CellCounts counts = new CellCounts(dataSet);
+        int[][] orders = {{0}, {2, 1}, {3, 0, 2}, {1, 2, 3, 0}};
+
+        for (int[] order : orders) {
+            CellTable cellTable = new CellTable(null);
+            cellTable.setMissingValue(DiscreteVariable.MISSING_VALUE);
+            cellTable.addToTable(dataSet, order);
+
+            int[] n = counts.count(order);
+            int[] cell = new int[order.length];
+
+            for (int index = 0; index < counts.getNumCells(order); index++) {
+                int rest = index;
+
+                for (int k = order.length - 1; k >= 0; k--) {
+                    cell[k] = rest % 2;
+                    rest /= 2;
+                }
+
+                assertEquals(cellTable.getValue(cell), n[index]);
+            }
+        }
+    }
+
+    @Test
+    public final void testAdCountTree() {
+        setUp();
+
+        dataSet.setInt(5, 1, DiscreteVariable.MISSING_VALUE);
+
+        AdCountTree tree = new AdCountTree(dataSet);
+        CellCounts counts = new CellCounts(dataSet);
+        int[][] orders = {{}, {1}, {2, 1}, {3, 0, 2}, {1, 2, 3, 0}, {2, 1}};
+
+        for (int[] order : orders) {
+            int numCells = counts.getNumCells(order);
+            int[] expected = Arrays.copyOf(counts.count(order), numCells);
+            assertArrayEquals(expected, tree.count(order));
+
+            int[][] rows = tree.getCellRows(order);
+
+            for (int cell = 0; cell < numCells; cell++) {
+                assertEquals(expected[cell], rows[cell].length);
+            }
+        }
+    }
+
+    @Test
+    public final void testAdCountTreeCapped() {
+        setUp();
+
+        CellCounts counts = new CellCounts(dataSet);
+        int[][] orders = {{1}, {2, 1}, {3, 0, 2}, {1, 2, 3, 0}, {0, 3}, {2, 1}, {3, 0, 2}};
+
+        for (long maxTreeSize : new long[]{0, 20, 200}) {
+            AdCountTree tree = new AdCountTree(dataSet);
+            tree.setMaxCacheSize(0);
+            tree.setMaxTreeSize(maxTreeSize);
+
+            for (int[] order : orders) {
+                int[] expected = Arrays.copyOf(counts.count(order), counts.getNumCells(order));
+                assertArrayEquals(expected, tree.count(order));
+            }
+        }
+    }
+
     private static int[] pickRandomCell(int size) {
 
         int[] cell = new int[size];
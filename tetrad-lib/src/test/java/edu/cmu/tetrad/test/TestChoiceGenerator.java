@@ -23,11 +23,18 @@ package edu.cmu.tetrad.test;
 
 import edu.cmu.tetrad.util.ChoiceGenerator;
 import edu.cmu.tetrad.util.DepthChoiceGenerator;
+import edu.cmu.tetrad.util.ParallelChoiceGenerator;
 import edu.cmu.tetrad.util.PermutationGenerator;
 import edu.cmu.tetrad.util.SelectionGenerator;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 /**
@@ -118,10 +125,67 @@ public class TestChoiceGenerator {
         }
     }
 
+    /**
+     * The parallel search should find the same choices, in the same order, as a sequential pass through
+     * ChoiceGenerator.
+     */
+    @Test
+    public void testParallelChoiceGenerator() {
+        ParallelChoiceGenerator.Condition even = new ParallelChoiceGenerator.Condition() {
+            @Override
+            public boolean holds(int[] choice) {
+                int sum = 0;
+                for (int c : choice) sum += c;
+                return sum % 2 == 0;
+            }
+        };
 
-}
+        for (int a = 0; a <= 20; a++) {
+            for (int b = 0; b <= Math.min(a, 5); b++) {
+                ChoiceGenerator generator = new ChoiceGenerator(a, b);
+                List<int[]> expected = new ArrayList<>();
+                int[] choice;
+
+                while ((choice = generator.next()) != null) {
+                    if (even.holds(choice)) expected.add(choice.clone());
+                }
 
+                List<int[]> found = ParallelChoiceGenerator.findAll(a, b, even);
 
+                assertEquals(expected.size(), found.size());
 
+                for (int i = 0; i < expected.size(); i++) {
+                    assertTrue(Arrays.equals(expected.get(i), found.get(i)));
+                }
 
+                int[] first = ParallelChoiceGenerator.findFirst(a, b, even);
 
+                if (expected.isEmpty()) {
+                    assertNull(first);
+                } else {
+                    assertTrue(Arrays.equals(expected.get(0), first));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testParallelChoiceGeneratorFindFirst() {
+        ParallelChoiceGenerator.Condition late = new ParallelChoiceGenerator.Condition() {
+            @Override
+            public boolean holds(int[] choice) {
+                return choice[0] >= 20 && choice[3] % 3 == 0;
+            }
+        };
+
+        ChoiceGenerator generator = new ChoiceGenerator(30, 4);
+        int[] expected;
+
+        do {
+            expected = generator.next();
+        } while (!late.holds(expected));
+
+        assertTrue(Arrays.equals(expected, ParallelChoiceGenerator.findFirst(30, 4, late)));
+        assertTrue(Arrays.equals(expected, ParallelChoiceGenerator.findFirst(30, 4, late, false)));
+    }
+}
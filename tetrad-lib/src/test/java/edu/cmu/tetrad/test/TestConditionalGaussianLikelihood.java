@@ -0,0 +1,214 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.test;
+
+import edu.cmu.tetrad.data.ColtDataSet;
+import edu.cmu.tetrad.data.ContinuousVariable;
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.data.DiscreteVariable;
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.search.ConditionalGaussianLikelihood;
+import edu.cmu.tetrad.util.RandomUtil;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.lang.Math.PI;
+import static java.lang.Math.log;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks the conditional Gaussian likelihood against likelihoods calculated directly from the data.
+ *
+ * @author Joseph Ramsey
+ */
+public class TestConditionalGaussianLikelihood {
+
+    @Test
+    public void testContinuousGivenDiscrete() {
+        RandomUtil.getInstance().setSeed(482938L);
+
+        List<Node> variables = new ArrayList<>();
+        variables.add(new ContinuousVariable("X"));
+        variables.add(new ContinuousVariable("Y"));
+        variables.add(new DiscreteVariable("A", 3));
+
+        int N = 600;
+        DataSet data = new ColtDataSet(N, variables);
+
+        for (int i = 0; i < N; i++) {
+            int a = RandomUtil.getInstance().nextInt(3);
+            double y = RandomUtil.getInstance().nextNormal(a, 1);
+            data.setInt(i, 2, a);
+            data.setDouble(i, 1, y);
+            data.setDouble(i, 0, 0.5 * y - a + RandomUtil.getInstance().nextNormal(0, 1));
+        }
+
+        ConditionalGaussianLikelihood likelihood = new ConditionalGaussianLikelihood(data);
+
+        // X given Y and A is the joint of X, Y and A less the joint of Y and A.
+        double expected = 0.0;
+
+        for (int a = 0; a < 3; a++) {
+            List<Integer> rows = new ArrayList<>();
+
+            for (int i = 0; i < N; i++) {
+                if (data.getInt(i, 2) == a) rows.add(i);
+            }
+
+            int n = rows.size();
+            double[][] cov = cov(data, rows);
+            double logDet2 = log(cov[0][0] * cov[1][1] - cov[0][1] * cov[1][0]);
+            double logDet1 = log(cov[1][1]);
+
+            expected += n * log(n / (double) N) - 0.5 * n * (logDet2 - 2 - 2 * log(2 * PI));
+            expected -= n * log(n / (double) N) - 0.5 * n * (logDet1 - 1 - log(2 * PI));
+        }
+
+        ConditionalGaussianLikelihood.Ret ret = likelihood.getLikelihood(0, new int[]{1, 2});
+        assertEquals(expected, ret.getLik(), 1e-8 * Math.abs(expected));
+
+        // The statistics for A are reused for a second parent set with the same discrete parent.
+        ConditionalGaussianLikelihood.Ret ret2 = likelihood.getLikelihood(0, new int[]{2, 1});
+        assertEquals(ret.getLik(), ret2.getLik(), 1e-8 * Math.abs(expected));
+    }
+
+    @Test
+    public void testDiscreteGivenContinuous() {
+        RandomUtil.getInstance().setSeed(3928471L);
+
+        List<Node> variables = new ArrayList<>();
+        variables.add(new ContinuousVariable("X"));
+        variables.add(new ContinuousVariable("Y"));
+        variables.add(new DiscreteVariable("A", 2));
+        variables.add(new DiscreteVariable("B", 4));
+
+        int N = 600;
+        DataSet data = new ColtDataSet(N, variables);
+
+        for (int i = 0; i < N; i++) {
+            int a = RandomUtil.getInstance().nextInt(2);
+            int b = RandomUtil.getInstance().nextInt(a == 0 ? 3 : 2);
+
+            // A single record for B = 3, and for B = 2 when A = 1, so that those cells are left out of the mixture.
+            if (i == 0) {
+                a = 0;
+                b = 3;
+            } else if (i == 1) {
+                a = 1;
+                b = 2;
+            }
+
+            double x = RandomUtil.getInstance().nextNormal(b, 1);
+            data.setInt(i, 2, a);
+            data.setInt(i, 3, b);
+            data.setDouble(i, 0, x);
+            data.setDouble(i, 1, 0.5 * x - a + RandomUtil.getInstance().nextNormal(b, 1 + a));
+        }
+
+        ConditionalGaussianLikelihood likelihood = new ConditionalGaussianLikelihood(data);
+
+        assertEquals(mixtureLikelihood(data, false), likelihood.getLikelihood(3, new int[]{0, 1}).getLik(), 1e-8 * N);
+        assertEquals(mixtureLikelihood(data, true), likelihood.getLikelihood(3, new int[]{0, 1, 2}).getLik(), 1e-8 * N);
+    }
+
+    // The log likelihood of B given X, Y and, if withA, A, summed over records: the probability of a record's B is
+    // the Gaussian density of its X and Y in its cell, weighted by the size of the cell, over the weighted densities
+    // in each cell with the same A. Cells with fewer than two records have no covariance matrix and are left out,
+    // both as records and as terms of the denominator.
+    private double mixtureLikelihood(DataSet data, boolean withA) {
+        int N = data.getNumRows();
+        List<List<Integer>> cells = new ArrayList<>();
+
+        for (int cell = 0; cell < 8; cell++) {
+            cells.add(new ArrayList<Integer>());
+        }
+
+        for (int i = 0; i < N; i++) {
+            cells.get(cell(data, i, withA)).add(i);
+        }
+
+        double lnL = 0.0;
+
+        for (int i = 0; i < N; i++) {
+            int cell = cell(data, i, withA);
+            if (cells.get(cell).size() < 2) continue;
+
+            int first = cell - cell % 4;
+            double denom = 0.0;
+
+            for (int other = first; other < first + 4; other++) {
+                List<Integer> rows = cells.get(other);
+                if (rows.size() < 2) continue;
+                denom += rows.size() / (double) N * density(data, i, rows);
+            }
+
+            lnL += log(cells.get(cell).size() / (double) N * density(data, i, cells.get(cell)) / denom);
+        }
+
+        return lnL;
+    }
+
+    // The cell of a record in the table over A, if withA, and B.
+    private int cell(DataSet data, int i, boolean withA) {
+        return (withA ? 4 * data.getInt(i, 2) : 0) + data.getInt(i, 3);
+    }
+
+    // The Gaussian density of X and Y for the given record, with the mean and covariance of the given rows.
+    private double density(DataSet data, int i, List<Integer> rows) {
+        double[] means = new double[2];
+
+        for (int r : rows) {
+            for (int j = 0; j < 2; j++) means[j] += data.getDouble(r, j) / rows.size();
+        }
+
+        double[][] cov = cov(data, rows);
+        double det = cov[0][0] * cov[1][1] - cov[0][1] * cov[1][0];
+        double dx = data.getDouble(i, 0) - means[0];
+        double dy = data.getDouble(i, 1) - means[1];
+        double q = (cov[1][1] * dx * dx - 2 * cov[0][1] * dx * dy + cov[0][0] * dy * dy) / det;
+
+        return Math.exp(-0.5 * q) / (2 * PI * Math.sqrt(det));
+    }
+
+    // The unbiased covariance matrix of the two continuous columns over the given rows.
+    private double[][] cov(DataSet data, List<Integer> rows) {
+        double[] means = new double[2];
+
+        for (int i : rows) {
+            for (int j = 0; j < 2; j++) means[j] += data.getDouble(i, j) / rows.size();
+        }
+
+        double[][] cov = new double[2][2];
+
+        for (int i : rows) {
+            for (int j = 0; j < 2; j++) {
+                for (int k = 0; k < 2; k++) {
+                    cov[j][k] += (data.getDouble(i, j) - means[j]) * (data.getDouble(i, k) - means[k]) / (rows.size() - 1);
+                }
+            }
+        }
+
+        return cov;
+    }
+}
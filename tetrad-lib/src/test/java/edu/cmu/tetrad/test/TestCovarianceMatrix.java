@@ -27,6 +27,7 @@ import edu.cmu.tetrad.util.RandomUtil;
 import edu.cmu.tetrad.util.TetradMatrix;
 import org.junit.Test;
 
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -83,9 +84,146 @@ public final class TestCovarianceMatrix {
         assertEquals(-.051, c2.getValue(0, 1), 0.001);
         assertEquals(-.609, c3.getValue(0, 1), 0.001);
     }
-}
 
+    /**
+     * Covariances must not depend on how the data are stored, and the data must be left as they were.
+     */
+    @Test
+    public void testBoxes() {
+        RandomUtil.getInstance().setSeed(2938472L);
+
+        List<Node> variables = new LinkedList<>();
+
+        for (int i = 0; i < 4; i++) {
+            variables.add(new ContinuousVariable("X" + i));
+        }
+
+        double[][] columns = new double[4][50];
+
+        for (int j = 0; j < 4; j++) {
+            for (int i = 0; i < 50; i++) {
+                columns[j][i] = 10 + j + RandomUtil.getInstance().nextDouble();
+            }
+        }
+
+        DataSet vertical = new BoxDataSet(new VerticalDoubleDataBox(columns), variables);
+        DataSet horizontal = new BoxDataSet(new DoubleDataBox(vertical.getDoubleData().toArray()), variables);
+        double before = vertical.getDouble(0, 0);
+
+        ICovarianceMatrix c1 = new CovarianceMatrix(vertical);
+        ICovarianceMatrix c2 = new CovarianceMatrix(horizontal);
+        ICovarianceMatrix c3 = new CovarianceMatrixOnTheFly(horizontal);
+
+        assertEquals(before, vertical.getDouble(0, 0), 0.0);
+
+        for (int i = 0; i < 4; i++) {
+            for (int j = 0; j < 4; j++) {
+                assertEquals(c2.getValue(i, j), c1.getValue(i, j), 1e-10);
+                assertEquals(c2.getValue(i, j), c3.getValue(i, j), 1e-10);
+            }
+        }
+    }
+
+    @Test
+    public void testMoments() {
+        RandomUtil.getInstance().setSeed(4857362L);
+
+        double[][] rows = new double[1000][3];
+
+        for (int i = 0; i < rows.length; i++) {
+            rows[i][0] = 1e8 + RandomUtil.getInstance().nextNormal(0, 1);
+            rows[i][1] = rows[i][0] + RandomUtil.getInstance().nextNormal(0, 1);
+            rows[i][2] = RandomUtil.getInstance().nextNormal(0, 1);
+        }
+
+        // Two passes, about the exact means.
+        double[] means = new double[3];
+
+        for (double[] row : rows) {
+            for (int j = 0; j < 3; j++) means[j] += row[j] / rows.length;
+        }
+
+        CovarianceMoments byRow = new CovarianceMoments(3);
+        CovarianceMoments first = new CovarianceMoments(3);
+        CovarianceMoments second = new CovarianceMoments(3);
+
+        for (int i = 0; i < rows.length; i++) {
+            byRow.add(rows[i]);
+        }
 
+        first.add(rows, 300);
+        second.add(Arrays.copyOfRange(rows, 300, rows.length), rows.length - 300);
+        first.merge(second);
 
+        assertEquals(rows.length, first.getCount());
 
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 3; j++) {
+                double c = 0.0;
 
+                for (double[] row : rows) {
+                    c += (row[i] - means[i]) * (row[j] - means[j]);
+                }
+
+                c /= rows.length - 1;
+
+                assertEquals(c, byRow.getCovariance(i, j), 1e-6);
+                assertEquals(c, first.getCovariance(i, j), 1e-6);
+            }
+        }
+    }
+
+    @Test
+    public void testMergeable() {
+        RandomUtil.getInstance().setSeed(3948576L);
+
+        List<Node> variables = new LinkedList<>();
+
+        for (int i = 0; i < 3; i++) {
+            variables.add(new ContinuousVariable("X" + i));
+        }
+
+        DataSet[] batches = new DataSet[4];
+
+        for (int b = 0; b < batches.length; b++) {
+            double[][] rows = new double[100 + 10 * b][3];
+
+            for (int i = 0; i < rows.length; i++) {
+                rows[i][0] = b + RandomUtil.getInstance().nextNormal(0, 1);
+                rows[i][1] = rows[i][0] + RandomUtil.getInstance().nextNormal(0, 1);
+                rows[i][2] = rows[i][1] * b + RandomUtil.getInstance().nextNormal(0, 1);
+            }
+
+            batches[b] = new BoxDataSet(new DoubleDataBox(rows), variables);
+        }
+
+        MergeableCovarianceMatrix cov = new MergeableCovarianceMatrix(batches[0]);
+        cov.addRows(batches[1]);
+
+        MergeableCovarianceMatrix other = new MergeableCovarianceMatrix(batches[2]);
+        other.addRows(batches[3]);
+        cov.merge(other);
+
+        assertEquals(4, cov.getNumBatches());
+        assertCovarianceMatches(DataUtils.concatenate(batches), cov);
+
+        cov.setWindow(3);
+        assertEquals(3, cov.getNumBatches());
+        assertCovarianceMatches(DataUtils.concatenate(batches[1], batches[2], batches[3]), cov);
+
+        cov.setWindow(2);
+        cov.addRows(batches[0]);
+        assertCovarianceMatches(DataUtils.concatenate(batches[3], batches[0]), cov);
+    }
+
+    private void assertCovarianceMatches(DataSet data, ICovarianceMatrix cov) {
+        ICovarianceMatrix expected = new CovarianceMatrix(data);
+        assertEquals(expected.getSampleSize(), cov.getSampleSize());
+
+        for (int i = 0; i < expected.getDimension(); i++) {
+            for (int j = 0; j < expected.getDimension(); j++) {
+                assertEquals(expected.getValue(i, j), cov.getValue(i, j), 1e-10);
+            }
+        }
+    }
+}
@@ -28,6 +28,7 @@ import edu.cmu.tetrad.data.CovarianceMatrix;
 import edu.cmu.tetrad.data.DataSet;
 import edu.cmu.tetrad.graph.*;
 import edu.cmu.tetrad.search.DeltaTetradTest;
+import edu.cmu.tetrad.search.FourthMoments;
 import edu.cmu.tetrad.search.Tetrad;
 import edu.cmu.tetrad.sem.SemIm;
 import edu.cmu.tetrad.sem.SemPm;
@@ -261,6 +262,46 @@ public class TestDeltaTetradTest {
         double chiSq2 = test2.calcChiSquare(t1234, t1342);
     }
 
+    @Test
+    public void testQuartetPValues() {
+        RandomUtil.getInstance().setSeed(2938473L);
+        SemPm pm = makePm();
+        DataSet data = new SemIm(pm).simulateData(1000, false);
+
+        List<Node> variables = data.getVariables();
+        Node x1 = variables.get(0);
+        Node x2 = variables.get(1);
+        Node x3 = variables.get(2);
+        Node x4 = variables.get(3);
+
+        // With fourth moments from the data, and assuming normality from the covariance matrix.
+        for (DeltaTetradTest test : new DeltaTetradTest[]{new DeltaTetradTest(data),
+                new DeltaTetradTest(new CovarianceMatrix(data))}) {
+            double[] pValues = test.getQuartetPValues(x1, x2, x3, x4);
+
+            assertEquals(test.getPValue(new Tetrad(x1, x2, x3, x4)), pValues[0], 1e-10);
+            assertEquals(test.getPValue(new Tetrad(x1, x2, x4, x3)), pValues[1], 1e-10);
+            assertEquals(test.getPValue(new Tetrad(x1, x3, x4, x2)), pValues[2], 1e-10);
+        }
+    }
+
+    @Test
+    public void testFourthMoments() {
+        double[][] data = {{1, -2, 3}, {0.5, 1, -1}, {2, 2, -4}, {-1, 0, 1}};
+        FourthMoments moments = new FourthMoments(data);
+
+        double expected = (1 * 0.5 * 2 * -1 + 0 + 3 * -1 * -4 * 1) / 3.0;
+
+        assertEquals(expected, moments.get(0, 1, 2, 3), 1e-15);
+        assertEquals(expected, moments.get(3, 1, 0, 2), 1e-15);
+        assertEquals(expected, moments.get(2, 3, 1, 0), 1e-15);
+        assertEquals(1, moments.size());
+
+        moments.get(0, 0, 1, 1);
+        moments.get(1, 0, 1, 0);
+        assertEquals(2, moments.size());
+    }
+
     private SemPm makePm() {
         List<Node> variableNodes = new ArrayList<>();
         ContinuousVariable x1 = new ContinuousVariable("X1");
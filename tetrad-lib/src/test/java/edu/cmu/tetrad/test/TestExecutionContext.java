@@ -0,0 +1,232 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.test;
+
+import edu.cmu.tetrad.data.CovarianceMatrix;
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.graph.GraphUtils;
+import edu.cmu.tetrad.search.Fges;
+import edu.cmu.tetrad.search.SemBicScore;
+import edu.cmu.tetrad.sem.LargeScaleSimulation;
+import edu.cmu.tetrad.util.ExecutionContext;
+import edu.cmu.tetrad.util.RandomUtil;
+import org.junit.Test;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests ExecutionContext.
+ *
+ * @author Joseph Ramsey
+ */
+public class TestExecutionContext {
+
+    @Test
+    public void testParallelism() {
+        int max = ExecutionContext.getDefault().getParallelism();
+
+        assertEquals(1, ExecutionContext.forJob(1).getParallelism());
+        assertEquals(max, ExecutionContext.forJob(max + 10).getParallelism());
+
+        ExecutionContext dedicated = ExecutionContext.dedicated(3);
+        assertEquals(3, dedicated.getParallelism());
+        assertEquals(2, dedicated.withParallelism(2).getParallelism());
+        assertEquals(3, dedicated.withParallelism(5).getParallelism());
+        dedicated.shutdown();
+    }
+
+    @Test
+    public void testConcurrentJobs() throws InterruptedException {
+        final ExecutionContext job = ExecutionContext.forJob(2);
+        Thread[] threads = new Thread[4];
+        final boolean[] ok = new boolean[threads.length];
+
+        for (int t = 0; t < threads.length; t++) {
+            final int _t = t;
+
+            threads[t] = new Thread() {
+                public void run() {
+                    boolean _ok = true;
+
+                    for (int k = 0; k < 20; k++) {
+                        _ok &= job.invoke(new Sum(0, 100000)) == 4999950000L;
+                    }
+
+                    ok[_t] = _ok;
+                }
+            };
+
+            threads[t].start();
+        }
+
+        for (Thread thread : threads) thread.join();
+        for (boolean _ok : ok) assertTrue(_ok);
+
+        assertEquals(80, (long) job.getStats().get("invocations"));
+        assertEquals(ExecutionContext.getDefault().getParallelism(), (long) job.getStats().get("permitsFree"));
+    }
+
+    @Test
+    public void testFges() {
+        RandomUtil.getInstance().setSeed(394857L);
+        Graph graph = GraphUtils.randomGraph(30, 0, 30, 30, 15, 15, false);
+        DataSet data = new LargeScaleSimulation(graph).simulateDataRecursive(1000);
+
+        ExecutionContext dedicated = ExecutionContext.dedicated(2);
+
+        Graph pattern1 = new Fges(new SemBicScore(new CovarianceMatrix(data))).search();
+
+        Fges fges = new Fges(new SemBicScore(new CovarianceMatrix(data, dedicated)));
+        fges.setExecutionContext(dedicated);
+        Graph pattern2 = fges.search();
+
+        dedicated.shutdown();
+
+        assertEquals(pattern1, pattern2);
+        assertTrue(dedicated.getStats().get("invocations") > 0);
+    }
+
+    @Test
+    public void testInvokeFromAnotherPool() {
+        final ExecutionContext dedicated = ExecutionContext.dedicated(2);
+
+        ForkJoinPool pool = ExecutionContext.getDefault().invoke(new RecursiveTask<ForkJoinPool>() {
+            @Override
+            protected ForkJoinPool compute() {
+                return dedicated.invoke(new RecursiveTask<ForkJoinPool>() {
+                    @Override
+                    protected ForkJoinPool compute() {
+                        return getPool();
+                    }
+                });
+            }
+        });
+
+        assertSame(dedicated.getPool(), pool);
+        dedicated.shutdown();
+    }
+
+    @Test
+    public void testParallelismBound() {
+        final ExecutionContext job = ExecutionContext.forJob(2);
+
+        Leaves leaves = new Leaves(0, 64);
+        job.invoke(leaves);
+        assertTrue(leaves.running.getMax() <= job.getParallelism());
+
+        // Likewise from inside a task of the whole shared pool, which holds all of its permits.
+        final Leaves nested = new Leaves(0, 64);
+
+        ExecutionContext.getDefault().invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                job.invoke(nested);
+            }
+        });
+
+        assertTrue(nested.running.getMax() <= job.getParallelism());
+        job.shutdown();
+    }
+
+    // Counts the tasks running at once, and the most there have been.
+    private static class Running {
+        private int count;
+        private int max;
+
+        synchronized void enter() {
+            max = Math.max(max, ++count);
+        }
+
+        synchronized void exit() {
+            count--;
+        }
+
+        synchronized int getMax() {
+            return max;
+        }
+    }
+
+    private static class Leaves extends RecursiveAction {
+        private final int from;
+        private final int to;
+        private final Running running;
+
+        Leaves(int from, int to) {
+            this(from, to, new Running());
+        }
+
+        private Leaves(int from, int to, Running running) {
+            this.from = from;
+            this.to = to;
+            this.running = running;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                running.enter();
+
+                try {
+                    Thread.sleep(2);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    running.exit();
+                }
+
+                return;
+            }
+
+            int mid = (from + to) / 2;
+            invokeAll(new Leaves(from, mid, running), new Leaves(mid, to, running));
+        }
+    }
+
+    private static class Sum extends RecursiveTask<Long> {
+        private final int from;
+        private final int to;
+
+        Sum(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Long compute() {
+            if (to - from <= 1000) {
+                long sum = 0;
+                for (int i = from; i < to; i++) sum += i;
+                return sum;
+            }
+
+            int mid = (from + to) / 2;
+            Sum left = new Sum(from, mid);
+            left.fork();
+            return new Sum(mid, to).compute() + left.join();
+        }
+    }
+}
@@ -24,6 +24,7 @@ package edu.cmu.tetrad.test;
 import edu.cmu.tetrad.data.*;
 import edu.cmu.tetrad.graph.*;
 import edu.cmu.tetrad.search.IndTestFisherZ;
+import edu.cmu.tetrad.search.IndependenceResult;
 import edu.cmu.tetrad.search.IndependenceTest;
 import edu.cmu.tetrad.sem.SemIm;
 import edu.cmu.tetrad.sem.SemPm;
@@ -33,10 +34,13 @@ import edu.cmu.tetrad.util.StatUtils;
 import edu.cmu.tetrad.util.TetradMatrix;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import static java.lang.Math.*;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 
 
 /**
@@ -181,6 +185,66 @@ public class TestIndTestFisherZ {
             System.out.println(abs(f1) > abs(f2));
         }
     }
-}
 
+    @Test
+    public void testCheckIndependence() throws InterruptedException {
+        RandomUtil.getInstance().setSeed(382947239L);
+
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < 8; i++) nodes.add(new ContinuousVariable("X" + (i + 1)));
+
+        Graph graph = GraphUtils.randomGraph(nodes, 0, 10, 30, 15, 15, false);
+        SemIm im = new SemIm(new SemPm(graph));
+        DataSet data = im.simulateData(500, false);
+
+        final IndependenceTest test = new IndTestFisherZ(data, 0.05);
+        final List<Node> variables = test.getVariables();
+
+        // Checks from several threads must agree with isIndependent called on its own.
+        final List<IndependenceResult> expected = new ArrayList<>();
+        final List<Node[]> facts = new ArrayList<>();
+
+        for (int i = 0; i < variables.size(); i++) {
+            for (int j = i + 1; j < variables.size(); j++) {
+                for (int k = 0; k < variables.size(); k++) {
+                    if (k == i || k == j) continue;
+                    Node x = variables.get(i);
+                    Node y = variables.get(j);
+                    Node z = variables.get(k);
+                    IndependenceResult result = test.checkIndependence(x, y, Collections.singletonList(z));
+                    assertEquals(test.isIndependent(x, y, z), result.isIndependent());
+                    assertEquals(result.isIndependent(), result.getPValue() > 0.05);
+                    expected.add(result);
+                    facts.add(new Node[]{x, y, z});
+                }
+            }
+        }
+
+        final boolean[] failed = new boolean[1];
+        Thread[] threads = new Thread[4];
+
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread() {
+                public void run() {
+                    for (int rep = 0; rep < 5; rep++) {
+                        for (int f = 0; f < facts.size(); f++) {
+                            Node[] fact = facts.get(f);
+                            IndependenceResult result = test.checkIndependence(fact[0], fact[1],
+                                    Collections.singletonList(fact[2]));
+
+                            if (result.isIndependent() != expected.get(f).isIndependent()
+                                    || result.getPValue() != expected.get(f).getPValue()) {
+                                failed[0] = true;
+                            }
+                        }
+                    }
+                }
+            };
+            threads[t].start();
+        }
+
+        for (Thread thread : threads) thread.join();
 
+        assertFalse(failed[0]);
+    }
+}
@@ -0,0 +1,168 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.test;
+
+import edu.cmu.tetrad.data.ColtDataSet;
+import edu.cmu.tetrad.data.ContinuousVariable;
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.search.IndTestHsic;
+import edu.cmu.tetrad.search.kernel.PermutationTest;
+import edu.cmu.tetrad.util.RandomUtil;
+import edu.cmu.tetrad.util.TetradMatrix;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the HSIC test and the permutation test it uses.
+ *
+ * @author Joseph Ramsey
+ */
+public class TestIndTestHsic {
+
+    @Test
+    public void testHsic() {
+        RandomUtil.getInstance().setSeed(29384732L);
+        DataSet data = chain(150);
+
+        Node x = data.getVariable("X");
+        Node y = data.getVariable("Y");
+        Node z = data.getVariable("Z");
+
+        for (double precision : new double[]{1e-18, 0}) {
+            IndTestHsic test = new IndTestHsic(data, 0.05);
+            test.setIncompleteCholesky(precision);
+
+            assertFalse(test.isIndependent(x, z, Collections.<Node>emptyList()));
+            assertFalse(test.isIndependent(x, y, Collections.<Node>emptyList()));
+            assertTrue(test.isIndependent(x, y, Collections.singletonList(z)));
+        }
+    }
+
+    @Test
+    public void testNullRejectionRate() {
+        RandomUtil.getInstance().setSeed(49382716L);
+
+        int numReps = 100;
+
+        for (double precision : new double[]{1e-18, 0}) {
+            int rejections = 0;
+
+            for (int r = 0; r < numReps; r++) {
+                DataSet data = chain(100);
+                IndTestHsic test = new IndTestHsic(data, 0.1);
+                test.setIncompleteCholesky(precision);
+
+                if (!test.isIndependent(data.getVariable("X"), data.getVariable("Y"),
+                        Collections.singletonList(data.getVariable("Z")))) {
+                    rejections++;
+                }
+            }
+
+            // X _||_ Y | Z, so about a tenth of the tests should reject; the binomial standard deviation is 3.
+            assertTrue("Rejected " + rejections + " of " + numReps, rejections >= 2 && rejections <= 20);
+        }
+    }
+
+    @Test
+    public void testPermutationTest() {
+        int m = 200;
+        final double[] a = new double[m];
+        final double[] b = new double[m];
+
+        for (int i = 0; i < m; i++) {
+            a[i] = RandomUtil.getInstance().nextNormal(0, 1);
+            b[i] = a[i] + RandomUtil.getInstance().nextNormal(0, 1);
+        }
+
+        // Rows are permuted only within the even and the odd rows.
+        final int[][] blocks = new int[2][m / 2];
+
+        for (int i = 0; i < m; i++) {
+            blocks[i % 2][i / 2] = i;
+        }
+
+        final AtomicBoolean outside = new AtomicBoolean();
+
+        PermutationTest.Statistic statistic = new PermutationTest.Statistic() {
+            public double value(int[] perm) {
+                double sum = 0.0;
+
+                for (int i = 0; i < perm.length; i++) {
+                    if (perm[i] % 2 != i % 2) outside.set(true);
+                    sum += a[i] * b[perm[i]];
+                }
+
+                return sum;
+            }
+        };
+
+        PermutationTest test = new PermutationTest(statistic, m, blocks);
+        test.setNumPerms(1000);
+        test.setSeed(42);
+
+        assertEquals(0.0, test.pValue(0.05), 0.0);
+        assertFalse(outside.get());
+        assertTrue(test.getNumPermsDone() < 1000);
+
+        test.setEarlyStopping(false);
+        assertEquals(0.0, test.pValue(0.05), 0.0);
+        assertEquals(1000, test.getNumPermsDone());
+
+        // The same seed gives the same p value.
+        for (int i = 0; i < m; i++) {
+            b[i] = RandomUtil.getInstance().nextNormal(0, 1);
+        }
+
+        double p = test.pValue(0.05);
+        assertEquals(p, test.pValue(0.05), 0.0);
+        assertTrue(p > 0.0);
+    }
+
+    // X --> Z --> Y, nonlinearly.
+    private DataSet chain(int m) {
+        List<Node> nodes = new ArrayList<>();
+        nodes.add(new ContinuousVariable("X"));
+        nodes.add(new ContinuousVariable("Y"));
+        nodes.add(new ContinuousVariable("Z"));
+
+        TetradMatrix data = new TetradMatrix(m, 3);
+        RandomUtil random = RandomUtil.getInstance();
+
+        for (int i = 0; i < m; i++) {
+            double x = random.nextNormal(0, 1);
+            double z = x * x + 0.3 * random.nextNormal(0, 1);
+            double y = Math.sin(z) + 0.3 * random.nextNormal(0, 1);
+            data.set(i, 0, x);
+            data.set(i, 1, y);
+            data.set(i, 2, z);
+        }
+
+        return ColtDataSet.makeContinuousData(nodes, data);
+    }
+}
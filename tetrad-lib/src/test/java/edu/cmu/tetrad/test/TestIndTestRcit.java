@@ -0,0 +1,92 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.test;
+
+import edu.cmu.tetrad.data.ColtDataSet;
+import edu.cmu.tetrad.data.ContinuousVariable;
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.search.IndTestRcit;
+import edu.cmu.tetrad.search.IndependenceResult;
+import edu.cmu.tetrad.util.RandomUtil;
+import edu.cmu.tetrad.util.TetradMatrix;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the randomized conditional independence test.
+ *
+ * @author Joseph Ramsey
+ */
+public class TestIndTestRcit {
+
+    @Test
+    public void testRcit() {
+        RandomUtil.getInstance().setSeed(29384732L);
+        DataSet data = chain(2000);
+
+        Node x = data.getVariable("X");
+        Node y = data.getVariable("Y");
+        Node z = data.getVariable("Z");
+
+        IndTestRcit test = new IndTestRcit(data, 0.001);
+        test.setSeed(42);
+
+        assertFalse(test.isIndependent(x, z, Collections.<Node>emptyList()));
+        assertFalse(test.isIndependent(x, y, Collections.<Node>emptyList()));
+        assertTrue(test.isIndependent(x, y, Collections.singletonList(z)));
+
+        // The same seed gives the same answer from a fresh test.
+        IndependenceResult result = test.checkIndependence(x, y, Collections.singletonList(z));
+        IndTestRcit test2 = new IndTestRcit(data, 0.001);
+        test2.setSeed(42);
+        assertEquals(result.getPValue(), test2.checkIndependence(x, y, Collections.singletonList(z)).getPValue(), 0.0);
+        assertEquals(result.getPValue(), test.getPValue(), 0.0);
+    }
+
+    // X --> Z --> Y, nonlinearly. X and Y are uncorrelated, so only a nonlinear test finds them dependent.
+    private DataSet chain(int m) {
+        List<Node> nodes = new ArrayList<>();
+        nodes.add(new ContinuousVariable("X"));
+        nodes.add(new ContinuousVariable("Y"));
+        nodes.add(new ContinuousVariable("Z"));
+
+        TetradMatrix data = new TetradMatrix(m, 3);
+        RandomUtil random = RandomUtil.getInstance();
+
+        for (int i = 0; i < m; i++) {
+            double x = random.nextNormal(0, 1);
+            double z = x * x + 0.3 * random.nextNormal(0, 1);
+            double y = Math.sin(z) + 0.3 * random.nextNormal(0, 1);
+            data.set(i, 0, x);
+            data.set(i, 1, y);
+            data.set(i, 2, z);
+        }
+
+        return ColtDataSet.makeContinuousData(nodes, data);
+    }
+}
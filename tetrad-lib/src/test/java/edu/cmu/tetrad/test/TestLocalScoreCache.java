@@ -0,0 +1,80 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.test;
+
+import edu.cmu.tetrad.search.LocalScoreCache;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the local score cache.
+ *
+ * @author Joseph Ramsey
+ */
+public class TestLocalScoreCache {
+
+    @Test
+    public void testParentOrderIgnored() {
+        LocalScoreCache cache = new LocalScoreCache(1000000, 4);
+
+        cache.add(3, new int[]{5, 1, 7}, 2.5);
+
+        assertEquals(2.5, cache.get(3, new int[]{7, 5, 1}), 0.0);
+        assertEquals(2.5, cache.get(3, new int[]{1, 5, 7}), 0.0);
+        assertTrue(Double.isNaN(cache.get(3, new int[]{1, 5})));
+        assertTrue(Double.isNaN(cache.get(4, new int[]{1, 5, 7})));
+        assertTrue(Double.isNaN(cache.get(3, 2, new int[]{1, 5, 7})));
+
+        cache.add(3, 2, new int[]{1, 5, 7}, -1.0);
+        assertEquals(-1.0, cache.get(3, 2, new int[]{5, 7, 1}), 0.0);
+        assertEquals(2.5, cache.get(3, new int[]{7, 5, 1}), 0.0);
+    }
+
+    @Test
+    public void testBounded() {
+        LocalScoreCache cache = new LocalScoreCache(64 * 1024, 2);
+
+        for (int i = 0; i < 100000; i++) {
+            cache.add(i % 100, new int[]{i, i + 1}, i);
+        }
+
+        assertTrue(cache.size() < 100000);
+        assertTrue(cache.getEvictions() > 0);
+
+        // Whatever survived must still be correct.
+        int found = 0;
+
+        for (int i = 0; i < 100000; i++) {
+            double s = cache.get(i % 100, new int[]{i + 1, i});
+
+            if (!Double.isNaN(s)) {
+                assertEquals(i, s, 0.0);
+                found++;
+            }
+        }
+
+        assertEquals(cache.size(), found);
+    }
+}
+
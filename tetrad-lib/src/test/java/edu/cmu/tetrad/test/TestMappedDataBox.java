@@ -0,0 +1,150 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+
+package edu.cmu.tetrad.test;
+
+import edu.cmu.tetrad.bayes.BayesIm;
+import edu.cmu.tetrad.bayes.BayesPm;
+import edu.cmu.tetrad.bayes.MlBayesIm;
+import edu.cmu.tetrad.data.*;
+import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.graph.GraphUtils;
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.search.BDeuScore;
+import edu.cmu.tetrad.util.RandomUtil;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests that memory-mapped data give the same results as the same data in memory.
+ *
+ * @author Joseph Ramsey
+ */
+public class TestMappedDataBox {
+
+    // More than one block of records.
+    private static final int NUM_ROWS = 20000;
+
+    @Test
+    public void testContinuous() throws IOException {
+        RandomUtil.getInstance().setSeed(3948573L);
+
+        List<Node> variables = new ArrayList<>();
+
+        for (int i = 0; i < 4; i++) {
+            variables.add(new ContinuousVariable("X" + i));
+        }
+
+        double[][] columns = new double[4][NUM_ROWS];
+
+        for (int j = 0; j < 4; j++) {
+            for (int i = 0; i < NUM_ROWS; i++) {
+                columns[j][i] = 5 * j + RandomUtil.getInstance().nextNormal(0, 1)
+                        + (j > 0 ? columns[j - 1][i] : 0);
+            }
+        }
+
+        columns[2][17] = Double.NaN;
+
+        DataSet data = new BoxDataSet(new VerticalDoubleDataBox(columns), variables);
+
+        File file = File.createTempFile("mapped", ".data");
+        file.deleteOnExit();
+
+        MappedDataBox.write(data, file, false);
+        DataSet mapped = MappedDataBox.openDataSet(file);
+
+        assertEquals(data.getNumRows(), mapped.getNumRows());
+        assertEquals(data.getVariableNames(), mapped.getVariableNames());
+
+        for (int i = 0; i < NUM_ROWS; i += 997) {
+            for (int j = 0; j < 4; j++) {
+                assertEquals(data.getDouble(i, j), mapped.getDouble(i, j), 0.0);
+            }
+        }
+
+        assertEquals(Double.NaN, mapped.getDouble(17, 2), 0.0);
+
+        ICovarianceMatrix c1 = new CovarianceMatrix(data);
+        ICovarianceMatrix c2 = new CovarianceMatrix(mapped);
+        ICovarianceMatrix c3 = new CovarianceMatrixOnTheFly(mapped);
+
+        for (int i = 0; i < 4; i++) {
+            for (int j = 0; j < 4; j++) {
+                assertEquals(c1.getValue(i, j), c2.getValue(i, j), 1e-8);
+                assertEquals(c1.getValue(i, j), c3.getValue(i, j), 1e-8);
+            }
+        }
+    }
+
+    @Test
+    public void testDiscrete() throws IOException {
+        RandomUtil.getInstance().setSeed(2394857L);
+
+        Graph dag = GraphUtils.randomGraph(5, 0, 5, 30, 15, 15, false);
+        BayesPm pm = new BayesPm(dag, 2, 4);
+        BayesIm im = new MlBayesIm(pm, MlBayesIm.RANDOM);
+        DataSet data = im.simulateData(NUM_ROWS, false);
+
+        File file = File.createTempFile("mapped", ".data");
+        file.deleteOnExit();
+
+        MappedDataBox.write(data, file, false);
+        DataSet mapped = MappedDataBox.openDataSet(file);
+
+        for (int i = 0; i < NUM_ROWS; i += 997) {
+            for (int j = 0; j < 5; j++) {
+                assertEquals(data.getInt(i, j), mapped.getInt(i, j));
+            }
+        }
+
+        BDeuScore s1 = new BDeuScore(data);
+        BDeuScore s2 = new BDeuScore(mapped);
+
+        assertEquals(s1.localScore(0, new int[]{1, 2}), s2.localScore(0, new int[]{1, 2}), 1e-8);
+
+        double[] d1 = s1.localScoreDiffs(0, new int[]{1}, new int[]{2, 3, 4});
+        double[] d2 = s2.localScoreDiffs(0, new int[]{1}, new int[]{2, 3, 4});
+
+        for (int m = 0; m < 3; m++) {
+            assertEquals(d1[m], d2[m], 1e-8);
+            assertEquals(s1.localScoreDiff(2 + m, 0, new int[]{1}), d1[m], 1e-8);
+        }
+
+        CellTable t1 = new CellTable(new int[]{2, 2});
+        CellTable t2 = new CellTable(new int[]{2, 2});
+        t1.addToTable(data, new int[]{0, 3});
+        t2.addToTable(mapped, new int[]{0, 3});
+
+        for (int a = 0; a < t1.getNumValues(0); a++) {
+            for (int b = 0; b < t1.getNumValues(1); b++) {
+                assertEquals(t1.getValue(new int[]{a, b}), t2.getValue(new int[]{a, b}));
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.test;
+
+import edu.cmu.tetrad.data.Knowledge2;
+import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.graph.GraphUtils;
+import edu.cmu.tetrad.search.MarkovEquivalenceClass;
+import edu.cmu.tetrad.search.SearchGraphUtils;
+import edu.cmu.tetrad.util.RandomUtil;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests MarkovEquivalenceClass.
+ *
+ * @author Joseph Ramsey
+ */
+public class TestMarkovEquivalenceClass {
+
+    @Test
+    public void testSizeAgainstEnumeration() {
+        RandomUtil.getInstance().setSeed(4829382L);
+
+        for (int i = 0; i < 10; i++) {
+            Graph dag = GraphUtils.randomGraph(8, 0, 10, 4, 4, 4, false);
+            Graph pattern = SearchGraphUtils.patternForDag(dag);
+
+            MarkovEquivalenceClass mec = new MarkovEquivalenceClass(pattern);
+            int expected = SearchGraphUtils.getDagsInPatternMeek(pattern, new Knowledge2()).size();
+
+            assertEquals(BigInteger.valueOf(expected), mec.size());
+        }
+    }
+
+    @Test
+    public void testIterator() {
+        RandomUtil.getInstance().setSeed(2938482L);
+
+        Graph dag = GraphUtils.randomGraph(8, 0, 12, 5, 5, 5, false);
+        Graph pattern = SearchGraphUtils.patternForDag(dag);
+        MarkovEquivalenceClass mec = new MarkovEquivalenceClass(pattern);
+
+        Set<Graph> dags = new HashSet<>();
+
+        for (Graph _dag : mec) {
+            assertFalse(_dag.existsDirectedCycle());
+            assertEquals(pattern, SearchGraphUtils.patternForDag(_dag));
+            dags.add(_dag);
+        }
+
+        assertEquals(mec.size(), BigInteger.valueOf(dags.size()));
+    }
+
+    @Test
+    public void testSampleLarge() {
+        RandomUtil.getInstance().setSeed(3928472L);
+
+        Graph dag = GraphUtils.randomGraph(100, 0, 100, 6, 6, 6, false);
+        Graph pattern = SearchGraphUtils.patternForDag(dag);
+        MarkovEquivalenceClass mec = new MarkovEquivalenceClass(pattern);
+
+        assertTrue(mec.size().signum() > 0);
+
+        for (int i = 0; i < 5; i++) {
+            Graph sample = mec.sampleDag();
+            assertFalse(sample.existsDirectedCycle());
+            assertEquals(pattern, SearchGraphUtils.patternForDag(sample));
+        }
+
+        assertEquals(pattern, SearchGraphUtils.patternForDag(mec.getDag(mec.size().subtract(BigInteger.ONE))));
+    }
+}
@@ -0,0 +1,127 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+
+package edu.cmu.tetrad.test;
+
+import edu.cmu.tetrad.data.DataGraphUtils;
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.search.*;
+import edu.cmu.tetrad.sem.SemIm;
+import edu.cmu.tetrad.sem.SemPm;
+import edu.cmu.tetrad.util.ExecutionContext;
+import edu.cmu.tetrad.util.Parameters;
+import edu.cmu.tetrad.util.RandomUtil;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests that the cluster searches find the same clusters checking one combination of variables at a time as checking
+ * many at once in the shared pool.
+ *
+ * @author Joseph Ramsey
+ */
+public class TestParallelClusters {
+
+    @Test
+    public void testFindOneFactorClusters() {
+        RandomUtil.getInstance().setSeed(29384722L);
+        DataSet data = simulate(DataGraphUtils.randomSingleFactorModel(3, 2, 5, 0, 1, 0));
+
+        for (FindOneFactorClusters.Algorithm algorithm : FindOneFactorClusters.Algorithm.values()) {
+            FindOneFactorClusters sequential = new FindOneFactorClusters(data, TestType.TETRAD_WISHART, algorithm, 0.001);
+            sequential.setExecutionContext(ExecutionContext.forJob(1));
+            sequential.search();
+
+            FindOneFactorClusters parallel = new FindOneFactorClusters(data, TestType.TETRAD_WISHART, algorithm, 0.001);
+            parallel.setExecutionContext(ExecutionContext.getDefault());
+            parallel.search();
+
+            assertEquals(clusters(sequential.getClusters()), clusters(parallel.getClusters()));
+        }
+    }
+
+    @Test
+    public void testFindTwoFactorClusters() {
+        RandomUtil.getInstance().setSeed(58372911L);
+        DataSet data = simulate(DataGraphUtils.randomBifactorModel(3, 2, 5, 0, 0, 0));
+
+        for (FindTwoFactorClusters.Algorithm algorithm : FindTwoFactorClusters.Algorithm.values()) {
+            FindTwoFactorClusters sequential = new FindTwoFactorClusters(data, algorithm, 0.001);
+            sequential.setExecutionContext(ExecutionContext.forJob(1));
+            sequential.search();
+
+            FindTwoFactorClusters parallel = new FindTwoFactorClusters(data, algorithm, 0.001);
+            parallel.setExecutionContext(ExecutionContext.getDefault());
+            parallel.search();
+
+            assertEquals(clusters(sequential.getClusters()), clusters(parallel.getClusters()));
+        }
+    }
+
+    @Test
+    public void testBuildPureClusters() {
+        RandomUtil.getInstance().setSeed(10293847L);
+        DataSet data = simulate(DataGraphUtils.randomSingleFactorModel(3, 2, 5, 0, 1, 0));
+
+        BuildPureClusters sequential = new BuildPureClusters(data, 0.001, TestType.TETRAD_WISHART,
+                TestType.TETRAD_BASED);
+        sequential.setExecutionContext(ExecutionContext.forJob(1));
+        Graph sequentialGraph = sequential.search();
+
+        BuildPureClusters parallel = new BuildPureClusters(data, 0.001, TestType.TETRAD_WISHART,
+                TestType.TETRAD_BASED);
+        parallel.setExecutionContext(ExecutionContext.getDefault());
+        Graph parallelGraph = parallel.search();
+
+        assertEquals(clusters(MimUtils.convertToClusters2(sequentialGraph)),
+                clusters(MimUtils.convertToClusters2(parallelGraph)));
+    }
+
+    private DataSet simulate(Graph mim) {
+        Parameters params = new Parameters();
+        params.set("coefLow", .5);
+        params.set("coefHigh", 1.5);
+
+        SemIm im = new SemIm(new SemPm(mim), params);
+        return im.simulateData(300, false);
+    }
+
+    // The clusters by the names of their variables, in no order.
+    private Set<Set<String>> clusters(List<List<Node>> clusters) {
+        Set<Set<String>> names = new HashSet<>();
+
+        for (List<Node> cluster : clusters) {
+            Set<String> _names = new HashSet<>();
+            for (Node node : cluster) _names.add(node.getName());
+            names.add(_names);
+        }
+
+        return names;
+    }
+}
@@ -0,0 +1,88 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.test;
+
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.graph.GraphUtils;
+import edu.cmu.tetrad.sem.LargeScaleSimulation;
+import edu.cmu.tetrad.util.RandomUtil;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the random streams of RandomUtil.
+ *
+ * @author Joseph Ramsey
+ */
+public class TestRandomUtil {
+
+    @Test
+    public void testStreams() {
+        RandomUtil a = RandomUtil.stream(2837L, 4);
+        RandomUtil b = RandomUtil.stream(2837L, 4);
+        RandomUtil c = RandomUtil.stream(2837L, 5);
+
+        boolean differ = false;
+
+        for (int i = 0; i < 100; i++) {
+            long x = a.nextLong();
+            assertEquals(x, b.nextLong());
+            differ |= x != c.nextLong();
+        }
+
+        assertTrue(differ);
+    }
+
+    @Test
+    public void testThreadInstance() {
+        RandomUtil stream = RandomUtil.stream(1L, 0);
+        RandomUtil previous = RandomUtil.setThreadInstance(stream);
+
+        try {
+            assertSame(stream, RandomUtil.getInstance());
+        } finally {
+            RandomUtil.setThreadInstance(previous);
+        }
+
+        assertNotSame(stream, RandomUtil.getInstance());
+    }
+
+    @Test
+    public void testParallelSimulationReproducible() {
+        DataSet data1 = simulate(3894L);
+        DataSet data2 = simulate(3894L);
+
+        for (int i = 0; i < data1.getNumRows(); i++) {
+            for (int j = 0; j < data1.getNumColumns(); j++) {
+                assertEquals(data1.getDouble(i, j), data2.getDouble(i, j), 0.0);
+            }
+        }
+    }
+
+    private DataSet simulate(long seed) {
+        RandomUtil.getInstance().setSeed(seed);
+        Graph graph = GraphUtils.randomGraph(20, 0, 20, 30, 15, 15, false);
+        return new LargeScaleSimulation(graph).simulateDataRecursive(2000);
+    }
+}
@@ -0,0 +1,126 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.test;
+
+import edu.cmu.tetrad.data.ContinuousVariable;
+import edu.cmu.tetrad.data.CovarianceMatrix;
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.data.ICovarianceMatrix;
+import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.graph.GraphUtils;
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.search.Fges;
+import edu.cmu.tetrad.search.SemBicScore;
+import edu.cmu.tetrad.sem.SemIm;
+import edu.cmu.tetrad.sem.SemPm;
+import edu.cmu.tetrad.util.RandomUtil;
+import edu.pitt.csb.stability.ResamplingEngine;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the resampling engine.
+ *
+ * @author Joseph Ramsey
+ */
+public class TestResamplingEngine {
+
+    @Test
+    public void testReplicateCovariances() {
+        DataSet data = simulate();
+
+        for (ResamplingEngine.Method method : ResamplingEngine.Method.values()) {
+            ResamplingEngine engine = new ResamplingEngine(data, method, 300);
+            engine.setSeed(38283L);
+
+            engine.run(3, new ResamplingEngine.ReplicateSearch() {
+                @Override
+                public Graph search(ResamplingEngine.Replicate replicate) {
+                    ICovarianceMatrix cov = replicate.getCovarianceMatrix();
+                    ICovarianceMatrix expected = new CovarianceMatrix(replicate.getDataSet());
+
+                    assertEquals(expected.getSampleSize(), cov.getSampleSize());
+
+                    for (int i = 0; i < cov.getDimension(); i++) {
+                        for (int j = 0; j < cov.getDimension(); j++) {
+                            assertEquals(expected.getValue(i, j), cov.getValue(i, j), 1e-10);
+                        }
+                    }
+
+                    return new Fges(new SemBicScore(cov)).search();
+                }
+            });
+        }
+    }
+
+    @Test
+    public void testEdgeFrequencies() {
+        DataSet data = simulate();
+
+        ResamplingEngine.ReplicateSearch search = new ResamplingEngine.ReplicateSearch() {
+            @Override
+            public Graph search(ResamplingEngine.Replicate replicate) {
+                return new Fges(new SemBicScore(replicate.getCovarianceMatrix())).search();
+            }
+        };
+
+        ResamplingEngine engine = new ResamplingEngine(data, ResamplingEngine.Method.BOOTSTRAP, data.getNumRows());
+        engine.setSeed(1234L);
+        engine.setBatchSize(4);
+
+        ResamplingEngine.Result result1 = engine.run(12, search);
+        ResamplingEngine.Result result2 = engine.run(12, search);
+
+        // Each replicate's rows depend only on the seed and its index.
+        assertEquals(result1.getAdjacencyFrequencies(), result2.getAdjacencyFrequencies());
+
+        for (int i = 0; i < data.getNumColumns(); i++) {
+            for (int j = 0; j < data.getNumColumns(); j++) {
+                double f = result1.getAdjacencyFrequencies().get(i, j);
+                assertTrue(f >= 0 && f <= 1);
+                assertEquals(f, result1.getAdjacencyFrequencies().get(j, i), 0.0);
+            }
+        }
+
+        // With any change allowed, the run stops as soon as it may.
+        engine.setStopping(1.0, 1, 8);
+        assertEquals(8, engine.run(100, search).getNumReplicates());
+    }
+
+    private DataSet simulate() {
+        RandomUtil.getInstance().setSeed(4829384L);
+        List<Node> nodes = new ArrayList<>();
+
+        for (int i = 0; i < 8; i++) {
+            nodes.add(new ContinuousVariable("X" + (i + 1)));
+        }
+
+        Graph graph = GraphUtils.randomGraph(nodes, 0, 8, 30, 15, 15, false);
+        SemIm im = new SemIm(new SemPm(graph));
+        return im.simulateData(500, false);
+    }
+}
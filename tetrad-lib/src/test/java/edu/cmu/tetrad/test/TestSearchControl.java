@@ -0,0 +1,119 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.test;
+
+import edu.cmu.tetrad.data.CovarianceMatrix;
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.graph.Edge;
+import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.graph.GraphUtils;
+import edu.cmu.tetrad.search.*;
+import edu.cmu.tetrad.sem.LargeScaleSimulation;
+import edu.cmu.tetrad.util.RandomUtil;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests stopping and watching searches with SearchControl.
+ *
+ * @author Joseph Ramsey
+ */
+public class TestSearchControl {
+
+    @Test
+    public void testTimeout() {
+        SearchControl control = new SearchControl();
+        assertFalse(control.isStopped());
+
+        control.setTimeout(1, TimeUnit.HOURS);
+        assertFalse(control.isStopped());
+
+        control.setTimeout(0, TimeUnit.MILLISECONDS);
+        assertTrue(control.isTimedOut());
+        assertTrue(control.isStopped());
+        assertFalse(control.isCancelled());
+    }
+
+    @Test
+    public void testFges() {
+        CovarianceMatrix cov = new CovarianceMatrix(data());
+
+        final List<SearchControl.Progress> progress = new ArrayList<>();
+        SearchControl control = new SearchControl();
+
+        control.addProgressListener(new SearchControl.ProgressListener() {
+            public void progress(SearchControl.Progress p) {
+                progress.add(p);
+            }
+        });
+
+        Fges fges = new Fges(new SemBicScore(cov));
+        fges.setSearchControl(control);
+        Graph pattern = fges.search();
+
+        assertFalse(control.isStopped());
+        assertTrue(pattern.getNumEdges() > 0);
+        assertFalse(progress.isEmpty());
+        assertEquals("forward", progress.get(0).getPhase());
+        assertEquals(1, progress.get(0).getNumEdges());
+
+        SearchControl cancelled = new SearchControl();
+        cancelled.cancel();
+
+        Fges stopped = new Fges(new SemBicScore(cov));
+        stopped.setSearchControl(cancelled);
+        assertEquals(0, stopped.search().getNumEdges());
+    }
+
+    @Test
+    public void testFas() {
+        IndTestFisherZ test = new IndTestFisherZ(new CovarianceMatrix(data()), 0.01);
+
+        Graph full = new FasStableConcurrent(test).search();
+
+        SearchControl control = new SearchControl();
+        control.cancel();
+
+        FasStableConcurrent fas = new FasStableConcurrent(test);
+        fas.setSearchControl(control);
+        Graph depth0 = fas.search();
+
+        // Only depth 0 is done, so no adjacency of the full search is missing.
+        assertTrue(depth0.getNumEdges() >= full.getNumEdges());
+
+        for (Edge edge : full.getEdges()) {
+            assertTrue(depth0.isAdjacentTo(depth0.getNode(edge.getNode1().getName()),
+                    depth0.getNode(edge.getNode2().getName())));
+        }
+    }
+
+    private DataSet data() {
+        RandomUtil.getInstance().setSeed(203948L);
+        Graph graph = GraphUtils.randomGraph(20, 0, 30, 30, 15, 15, false);
+        return new LargeScaleSimulation(graph).simulateDataRecursive(1000);
+    }
+}
@@ -0,0 +1,118 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.test;
+
+import edu.cmu.tetrad.data.CovarianceMatrix;
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.graph.GraphUtils;
+import edu.cmu.tetrad.search.Fges;
+import edu.cmu.tetrad.search.SearchMetrics;
+import edu.cmu.tetrad.search.SemBicScore;
+import edu.cmu.tetrad.sem.LargeScaleSimulation;
+import edu.cmu.tetrad.util.RandomUtil;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests SearchMetrics.
+ *
+ * @author Joseph Ramsey
+ */
+public class TestSearchMetrics {
+
+    @After
+    public void tearDown() {
+        SearchMetrics.setEnabled(false);
+        SearchMetrics.reset();
+    }
+
+    @Test
+    public void testDisabled() {
+        SearchMetrics.reset();
+        SearchMetrics.setEnabled(false);
+
+        SearchMetrics.increment(SearchMetrics.Counter.SCORE_EVALUATIONS);
+        SearchMetrics.stopTimer(SearchMetrics.Timer.SCORE_EVALUATION, SearchMetrics.startTimer());
+        SearchMetrics.startPhase("test").end();
+
+        assertEquals(0, SearchMetrics.get(SearchMetrics.Counter.SCORE_EVALUATIONS));
+        assertEquals(0, SearchMetrics.get(SearchMetrics.Timer.SCORE_EVALUATION));
+        assertFalse(SearchMetrics.getValues().containsKey("phase.test.count"));
+    }
+
+    @Test
+    public void testCountsFromThreads() throws InterruptedException {
+        SearchMetrics.reset();
+        SearchMetrics.setEnabled(true);
+
+        Thread[] threads = new Thread[8];
+
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread() {
+                public void run() {
+                    for (int i = 0; i < 10000; i++) {
+                        SearchMetrics.increment(SearchMetrics.Counter.INDEPENDENCE_TESTS);
+                    }
+                }
+            };
+
+            threads[t].start();
+        }
+
+        for (Thread thread : threads) thread.join();
+
+        assertEquals(80000, SearchMetrics.get(SearchMetrics.Counter.INDEPENDENCE_TESTS));
+
+        SearchMetrics.reset();
+        assertEquals(0, SearchMetrics.get(SearchMetrics.Counter.INDEPENDENCE_TESTS));
+    }
+
+    @Test
+    public void testFges() {
+        RandomUtil.getInstance().setSeed(492834L);
+        Graph graph = GraphUtils.randomGraph(20, 0, 20, 30, 15, 15, false);
+        DataSet data = new LargeScaleSimulation(graph).simulateDataRecursive(500);
+
+        SearchMetrics.reset();
+        SearchMetrics.setEnabled(true);
+
+        Fges fges = new Fges(new SemBicScore(new CovarianceMatrix(data)));
+        fges.setVerbose(false);
+        Graph pattern = fges.search();
+
+        Map<String, Long> values = SearchMetrics.getValues();
+
+        assertTrue(values.get("scoreEvaluations") > 0);
+        assertTrue(values.get("timer.scoreEvaluation.nanos") > 0);
+        assertTrue(values.get("arrowsInserted") >= pattern.getNumEdges());
+        assertTrue(values.get("meekPasses") > 0);
+        assertTrue(values.get("forkJoinTasks") > 0);
+        assertEquals(2, (long) values.get("phase.fges.forward.count"));
+        assertEquals(2, (long) values.get("phase.fges.backward.count"));
+        assertTrue(values.get("phase.fges.forward.wallNanos") > 0);
+    }
+}
@@ -0,0 +1,124 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.test;
+
+import edu.cmu.tetrad.data.CovarianceMatrix;
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.graph.GraphNode;
+import edu.cmu.tetrad.graph.GraphUtils;
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.search.SemBicScore;
+import edu.cmu.tetrad.sem.SemIm;
+import edu.cmu.tetrad.sem.SemPm;
+import edu.cmu.tetrad.util.RandomUtil;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the SEM BIC score.
+ *
+ * @author Joseph Ramsey
+ */
+public class TestSemBicScore {
+
+    /**
+     * Scores a run of parent sets, each differing from the last by a few variables, both from the updated
+     * Cholesky factors and by inversion, and checks that they agree.
+     */
+    @Test
+    public void testCholeskyAgreesWithInverse() {
+        RandomUtil.getInstance().setSeed(29483828L);
+
+        List<Node> nodes = new ArrayList<>();
+
+        for (int i = 0; i < 15; i++) {
+            nodes.add(new GraphNode("X" + (i + 1)));
+        }
+
+        Graph graph = GraphUtils.randomGraph(nodes, 0, 20, 30, 15, 15, false);
+        SemPm pm = new SemPm(graph);
+        SemIm im = new SemIm(pm);
+        DataSet data = im.simulateData(500, false);
+        CovarianceMatrix cov = new CovarianceMatrix(data);
+
+        SemBicScore cholesky = new SemBicScore(cov);
+        SemBicScore inverse = new SemBicScore(cov);
+        inverse.setUseCholesky(false);
+
+        List<Integer> parents = new ArrayList<>();
+
+        for (int t = 0; t < 500; t++) {
+            int v = RandomUtil.getInstance().nextInt(14) + 1;
+
+            if (parents.contains(v)) {
+                parents.remove((Integer) v);
+            } else if (parents.size() < 8) {
+                parents.add(v);
+            }
+
+            int[] z = new int[parents.size()];
+            for (int i = 0; i < z.length; i++) z[i] = parents.get(i);
+
+            assertEquals(inverse.localScore(0, z), cholesky.localScore(0, z), 1e-6);
+
+            int x = RandomUtil.getInstance().nextInt(14) + 1;
+
+            if (!parents.contains(x)) {
+                assertEquals(inverse.localScoreDiff(x, 0, z), cholesky.localScoreDiff(x, 0, z), 1e-6);
+            }
+        }
+
+        assertTrue(cholesky.getNumParentSetsScored() > 0);
+    }
+
+    @Test
+    public void testBatchAgreesWithScalar() {
+        RandomUtil.getInstance().setSeed(3928342L);
+
+        List<Node> nodes = new ArrayList<>();
+
+        for (int i = 0; i < 10; i++) {
+            nodes.add(new GraphNode("X" + (i + 1)));
+        }
+
+        Graph graph = GraphUtils.randomGraph(nodes, 0, 12, 30, 15, 15, false);
+        SemPm pm = new SemPm(graph);
+        SemIm im = new SemIm(pm);
+        DataSet data = im.simulateData(500, false);
+        SemBicScore score = new SemBicScore(new CovarianceMatrix(data));
+
+        int[] z = {1, 4};
+        int[] xs = {2, 3, 5, 6, 7, 8, 9};
+
+        double[] diffs = score.localScoreDiffs(0, z, xs);
+
+        for (int i = 0; i < xs.length; i++) {
+            assertEquals(score.localScoreDiff(xs[i], 0, z), diffs[i], 1e-6);
+        }
+    }
+}
@@ -31,6 +31,8 @@ import org.junit.Test;
 import java.util.ArrayList;
 import java.util.List;
 
+import static org.junit.Assert.assertEquals;
+
 /**
  * Tests the MeasurementSimulator class using diagnostics devised by Richard
  * Scheines. The diagnostics are described in the Javadocs, below.
@@ -76,6 +78,37 @@ public class TestSemEstimator {
         new SemEstimator(data, pm, new SemOptimizerPowell()).estimate();
     }
 
+    /**
+     * For a DAG over measured variables, regression gives the maximum likelihood estimates, so L-BFGS on FML should
+     * reach the same fit.
+     */
+    @Test
+    public void testLbfgs() {
+        Graph graph = constructGraph1();
+        SemPm semPm = new SemPm(graph);
+        ICovarianceMatrix covMatrix = constructCovMatrix1();
+
+        SemEstimator estimator1 = new SemEstimator(covMatrix, semPm, new SemOptimizerRegression());
+        estimator1.setScoreType(SemIm.ScoreType.Fml);
+        SemIm im1 = estimator1.estimate();
+
+        SemEstimator estimator2 = new SemEstimator(covMatrix, semPm, new SemOptimizerLbfgs());
+        estimator2.setScoreType(SemIm.ScoreType.Fml);
+        estimator2.setNumRestarts(3);
+        SemIm im2 = estimator2.estimate();
+
+        assertEquals(im1.getScore(), im2.getScore(), 1e-6);
+
+        TetradMatrix coef1 = im1.getEdgeCoef();
+        TetradMatrix coef2 = im2.getEdgeCoef();
+
+        for (int i = 0; i < coef1.rows(); i++) {
+            for (int j = 0; j < coef1.columns(); j++) {
+                assertEquals(coef1.get(i, j), coef2.get(i, j), 1e-3);
+            }
+        }
+    }
+
     private Graph constructGraph1() {
         Graph graph = new EdgeListGraph();
 
@@ -0,0 +1,197 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+
+package edu.cmu.tetrad.test;
+
+import edu.cmu.tetrad.data.CovarianceMatrix;
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.data.DiscreteVariable;
+import edu.cmu.tetrad.data.ICovarianceMatrix;
+import edu.cmu.tetrad.io.TabularContinuousCovarianceReader;
+import edu.cmu.tetrad.io.TabularContinuousDataReader;
+import edu.cmu.tetrad.io.VerticalTabularDiscreteDataReader;
+import edu.cmu.tetrad.util.RandomUtil;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the tabular data readers on files large enough to be read in several
+ * parts.
+ *
+ * @author Joseph Ramsey
+ */
+public class TestTabularDataReaders {
+
+    private static final int NUM_ROWS = 30000;
+
+    @Test
+    public void testContinuous() throws IOException {
+        RandomUtil.getInstance().setSeed(4938572L);
+
+        double[][] values = new double[NUM_ROWS][4];
+        File file = File.createTempFile("continuous", ".txt");
+        file.deleteOnExit();
+
+        try (PrintWriter out = new PrintWriter(file)) {
+            out.print("X1\tX2\tY\tX3\r\n");
+
+            for (int i = 0; i < NUM_ROWS; i++) {
+                for (int j = 0; j < 4; j++) {
+                    values[i][j] = RandomUtil.getInstance().nextNormal(0, 1);
+                    out.print((j > 0 ? "\t" : "") + values[i][j]);
+                }
+
+                // No newline at the end of the file.
+                if (i < NUM_ROWS - 1) out.print("\r\n");
+            }
+        }
+
+        DataSet data = new TabularContinuousDataReader(file.toPath(), '\t')
+                .readInData(Collections.singleton("Y"));
+
+        assertEquals(NUM_ROWS, data.getNumRows());
+        assertEquals(3, data.getNumColumns());
+        assertEquals("X3", data.getVariable(2).getName());
+
+        for (int i = 0; i < NUM_ROWS; i++) {
+            assertEquals(values[i][0], data.getDouble(i, 0), 0.0);
+            assertEquals(values[i][1], data.getDouble(i, 1), 0.0);
+            assertEquals(values[i][3], data.getDouble(i, 2), 0.0);
+        }
+    }
+
+    @Test
+    public void testCovariance() throws IOException {
+        RandomUtil.getInstance().setSeed(3847562L);
+
+        File file = File.createTempFile("covariance", ".txt");
+        file.deleteOnExit();
+
+        try (PrintWriter out = new PrintWriter(file)) {
+            out.print("X1,X2,Y,X3\n");
+
+            for (int i = 0; i < NUM_ROWS; i++) {
+                double x1 = 1000 + RandomUtil.getInstance().nextNormal(0, 1);
+                double x2 = x1 + RandomUtil.getInstance().nextNormal(0, 1);
+                double x3 = -x2 + RandomUtil.getInstance().nextNormal(0, 1);
+                out.print(x1 + "," + x2 + ",0," + x3 + "\n");
+            }
+        }
+
+        DataSet data = new TabularContinuousDataReader(file.toPath(), ',')
+                .readInData(Collections.singleton("Y"));
+        ICovarianceMatrix expected = new CovarianceMatrix(data);
+
+        TabularContinuousCovarianceReader reader = new TabularContinuousCovarianceReader(file.toPath(), ',');
+        ICovarianceMatrix cov1 = reader.readInCovariance(Collections.singleton("Y"));
+
+        ICovarianceMatrix cov2;
+        try (InputStream in = new FileInputStream(file)) {
+            cov2 = reader.readInCovariance(in, Collections.singleton("Y"));
+        }
+
+        assertEquals(data.getVariableNames(), cov1.getVariableNames());
+        assertEquals(data.getVariableNames(), cov2.getVariableNames());
+        assertEquals(NUM_ROWS, cov1.getSampleSize());
+        assertEquals(NUM_ROWS, cov2.getSampleSize());
+
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 3; j++) {
+                assertEquals(expected.getValue(i, j), cov1.getValue(i, j), 1e-9);
+                assertEquals(expected.getValue(i, j), cov2.getValue(i, j), 1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void testDiscrete() throws IOException {
+        RandomUtil.getInstance().setSeed(2938475L);
+
+        String[] categories = {"low", "medium", "high", "missing"};
+        int[][] values = new int[NUM_ROWS][3];
+        File file = File.createTempFile("discrete", ".txt");
+        file.deleteOnExit();
+
+        try (PrintWriter out = new PrintWriter(file)) {
+            out.print("A,B,C\n");
+
+            for (int i = 0; i < NUM_ROWS; i++) {
+                for (int j = 0; j < 3; j++) {
+
+                    // Column C only takes its last category near the end of the file.
+                    int numCategories = j == 2 && i < NUM_ROWS - 10 ? 3 : 4;
+                    values[i][j] = RandomUtil.getInstance().nextInt(numCategories);
+                    out.print((j > 0 ? "," : "") + categories[values[i][j]]);
+                }
+
+                out.print("\n");
+            }
+        }
+
+        DataSet data = new VerticalTabularDiscreteDataReader(file.toPath(), ',').readInData();
+
+        assertEquals(NUM_ROWS, data.getNumRows());
+
+        for (int j = 0; j < 3; j++) {
+            DiscreteVariable variable = (DiscreteVariable) data.getVariable(j);
+            assertEquals(4, variable.getNumCategories());
+
+            // Categories are sorted.
+            assertEquals("high", variable.getCategory(0));
+
+            for (int i = 0; i < NUM_ROWS; i++) {
+                assertEquals(categories[values[i][j]], variable.getCategory(data.getInt(i, j)));
+            }
+        }
+    }
+
+    @Test
+    public void testErrorLine() throws IOException {
+        File file = File.createTempFile("error", ".txt");
+        file.deleteOnExit();
+
+        try (PrintWriter out = new PrintWriter(file)) {
+            out.print("X1 X2\n");
+
+            for (int i = 0; i < NUM_ROWS; i++) {
+                out.print(i == NUM_ROWS - 5 ? "1.0 x\n" : "1.0 2.0\n");
+            }
+        }
+
+        try {
+            new TabularContinuousDataReader(file.toPath(), ' ').readInData();
+            fail("Expected a parse error.");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("line " + (NUM_ROWS - 5 + 2) + " column 2"));
+        }
+    }
+}